@@ -29,6 +29,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // A HistoryRepository naplóz; JVM tesztben az android.util.Log hívásai így nem dobnak.
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -41,8 +45,12 @@ dependencies {
     implementation(libs.constraintlayout)
     implementation(libs.impress)
     implementation(libs.work.runtime)
+    implementation(libs.lifecycle.viewmodel)
+    implementation(libs.lifecycle.livedata)
     implementation(libs.play.services.basement)
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+    testImplementation("com.squareup.okhttp3:okhttp-tls:4.12.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
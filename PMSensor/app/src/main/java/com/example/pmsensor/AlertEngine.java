@@ -0,0 +1,191 @@
+package com.example.pmsensor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A riasztási szabályok inkrementális kiértékelése: minden szabály állandó méretű állapotot tart,
+ * így egy új mérés feldolgozása a korábbi mérések számától független. Az átlag-szabályok az átlagot
+ * nem maguk számolják, hanem a {@link DerivedMetrics}-től kapják.
+ * Az állapot a futások között (pl. SharedPreferences-ben) az {@link State#encode()} alakban őrizhető meg.
+ */
+public final class AlertEngine {
+
+    private static final double HOUR_MILLIS = 3_600_000.0;
+    // Ennél hosszabb kimaradás után a sorozat- és változásfigyelés (és az átlagok lefedettsége) újrakezdődik.
+    static final long MAX_GAP_MILLIS = DerivedMetrics.MAX_GAP_MILLIS;
+
+    /**
+     * Egy szabály futások között megőrzött állapota.
+     */
+    public static final class State {
+        boolean hasSample;
+        long lastMillis;
+        float lastValue;
+        // A legutóbb látott átlag és a mögötte lévő, kimaradás nélküli időszak hossza (DerivedMetrics).
+        double mean;
+        long coveredMillis;
+        int consecutive;
+        boolean active;
+        long lastFiredMillis = Long.MIN_VALUE;
+
+        public String encode() {
+            return hasSample + ";" + lastMillis + ";" + lastValue + ";" + mean + ";"
+                    + consecutive + ";" + active + ";" + lastFiredMillis + ";" + coveredMillis;
+        }
+
+        /**
+         * Üres állapot, ha a mentett érték hiányzik vagy nem értelmezhető.
+         */
+        public static State decode(String encoded) {
+            State state = new State();
+            if (encoded == null) return state;
+            String[] parts = encoded.split(";");
+            // A korábbi, 7 mezős alakban még nem volt lefedettség: az átlag újra felépül.
+            if (parts.length != 7 && parts.length != 8) return state;
+            try {
+                state.hasSample = Boolean.parseBoolean(parts[0]);
+                state.lastMillis = Long.parseLong(parts[1]);
+                state.lastValue = Float.parseFloat(parts[2]);
+                state.mean = Double.parseDouble(parts[3]);
+                state.consecutive = Integer.parseInt(parts[4]);
+                state.active = Boolean.parseBoolean(parts[5]);
+                state.lastFiredMillis = Long.parseLong(parts[6]);
+                state.coveredMillis = parts.length == 8 ? Long.parseLong(parts[7]) : 0;
+            } catch (NumberFormatException e) {
+                return new State();
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Egy kiváltott riasztás a kiváltó jel értékével.
+     */
+    public static final class Firing {
+        public final AlertRule rule;
+        public final double signal;
+
+        Firing(AlertRule rule, double signal) {
+            this.rule = rule;
+            this.signal = signal;
+        }
+    }
+
+    private final List<AlertRule> rules;
+
+    public AlertEngine(List<AlertRule> rules) {
+        this.rules = rules;
+    }
+
+    public List<AlertRule> rules() {
+        return rules;
+    }
+
+    /**
+     * Egy mérés feldolgozása minden szabályon; a states tömb a szabályokkal azonos sorrendű, és
+     * helyben frissül. A már látott (nem újabb) mérést kihagyja, így az ismételt kézbesítés ártalmatlan.
+     */
+    public List<Firing> evaluate(long millis, PMSensor reading, State[] states) {
+        return evaluate(millis, reading, states, 0, null);
+    }
+
+    /**
+     * Mint fent, de a {@link FaultDetector} által hibásnak jelölt metrikák szabályai a mérést nem
+     * látják: az állapotuk változatlan marad, mintha a mérés meg sem érkezett volna.
+     */
+    public List<Firing> evaluate(long millis, PMSensor reading, State[] states, int faults) {
+        return evaluate(millis, reading, states, faults, null);
+    }
+
+    /**
+     * Mint fent; az átlag-szabályok jele a derived (a mérés utáni {@link DerivedMetrics}) átlaga.
+     * Ha ez hiányzik vagy nem ehhez a méréshez tartozik, az átlag-szabályok a mérést nem látják.
+     */
+    public List<Firing> evaluate(long millis, PMSensor reading, State[] states, int faults,
+                                 DerivedMetrics.Snapshot derived) {
+        List<Firing> firings = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            AlertRule rule = rules.get(i);
+            State state = states[i];
+            if (state.hasSample && millis <= state.lastMillis) continue;
+            if (FaultDetector.isFaulty(faults, rule.metric)) continue;
+            if (rule.type == AlertRule.Type.ROLLING_MEAN && (derived == null || derived.millis != millis)) continue;
+
+            float value = reading.valueOf(rule.metric);
+            double signal = update(rule, state, millis, value, derived);
+            state.hasSample = true;
+            state.lastMillis = millis;
+            state.lastValue = value;
+
+            boolean entering = !state.active && enters(rule, state, signal);
+            if (entering) {
+                state.active = true;
+                if (state.lastFiredMillis == Long.MIN_VALUE || millis - state.lastFiredMillis >= rule.cooldownMillis) {
+                    state.lastFiredMillis = millis;
+                    firings.add(new Firing(rule, signal));
+                }
+            } else if (state.active && clears(rule, state, signal)) {
+                state.active = false;
+            }
+        }
+        return firings;
+    }
+
+    private static double update(AlertRule rule, State state, long millis, float value,
+                                 DerivedMetrics.Snapshot derived) {
+        long dt = state.hasSample ? millis - state.lastMillis : Long.MAX_VALUE;
+        switch (rule.type) {
+            case ROLLING_MEAN:
+                // Ugyanaz a páratartalomra korrigált, pontos átlag, amit a főképernyő mutat.
+                state.mean = derived.mean(rule.metric, rule.windowMillis);
+                state.coveredMillis = derived.coveredMillis;
+                return state.mean;
+            case CONSECUTIVE:
+                if (dt > MAX_GAP_MILLIS) {
+                    state.consecutive = 0;
+                }
+                if (value >= rule.threshold) {
+                    state.consecutive++;
+                } else if (value < rule.clearThreshold) {
+                    state.consecutive = 0;
+                }
+                return value;
+            case RATE_OF_CHANGE:
+                if (dt > MAX_GAP_MILLIS || dt <= 0) {
+                    return 0;
+                }
+                return (value - state.lastValue) * HOUR_MILLIS / dt;
+            default:
+                throw new IllegalArgumentException(rule.type.name());
+        }
+    }
+
+    private static boolean enters(AlertRule rule, State state, double signal) {
+        if (rule.type == AlertRule.Type.CONSECUTIVE) {
+            return state.consecutive >= rule.count;
+        }
+        if (rule.type == AlertRule.Type.ROLLING_MEAN && !covers(rule, state)) {
+            return false;
+        }
+        return signal >= rule.threshold;
+    }
+
+    private static boolean clears(AlertRule rule, State state, double signal) {
+        if (rule.type == AlertRule.Type.CONSECUTIVE) {
+            return state.consecutive == 0;
+        }
+        if (rule.type == AlertRule.Type.ROLLING_MEAN && !covers(rule, state)) {
+            return false;
+        }
+        return signal < rule.clearThreshold;
+    }
+
+    /**
+     * Az átlag csak akkor számít, ha a mögötte lévő mérések legalább egy teljes ablakot lefednek;
+     * addig egy-két mérés sem riaszt, sem nem zár le aktív szakaszt.
+     */
+    private static boolean covers(AlertRule rule, State state) {
+        return state.coveredMillis >= rule.windowMillis;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.pmsensor;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Egy riasztási szabály: melyik mérést, milyen jel alapján és milyen küszöbökkel figyeljük.
+ * A szabályok a res/raw/alert_rules.json fájlból töltődnek be.
+ *
+ * A szabály akkor lép aktív állapotba, ha a jel eléri a threshold értéket, és csak akkor
+ * nyugszik meg, ha a clear érték alá esik (hiszterézis); egy aktív szakasz alatt egyszer riaszt.
+ */
+public final class AlertRule {
+
+    public enum Type {
+        /**
+         * A {@link DerivedMetrics} windowMillis hosszú, páratartalomra korrigált átlaga (PM25 / PM10,
+         * 60 vagy 1440 perc); csak akkor riaszt, ha a mérések kimaradás nélkül legalább windowMillis
+         * időt lefednek.
+         */
+        ROLLING_MEAN,
+        /** Legalább count egymást követő mérés a küszöb felett. */
+        CONSECUTIVE,
+        /** Változási sebesség egységnyi per órában. */
+        RATE_OF_CHANGE
+    }
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    public final String id;
+    public final Metric metric;
+    public final Type type;
+    public final float threshold;
+    public final float clearThreshold;
+    public final long windowMillis;
+    public final int count;
+    public final long cooldownMillis;
+    public final String title;
+
+    public AlertRule(String id, Metric metric, Type type, float threshold, float clearThreshold,
+                     long windowMillis, int count, long cooldownMillis, String title) {
+        if (clearThreshold > threshold) {
+            throw new IllegalArgumentException("A megnyugvási küszöb nem lehet nagyobb a riasztásinál: " + id);
+        }
+        if (type == Type.ROLLING_MEAN && !DerivedMetrics.hasMean(metric, windowMillis)) {
+            throw new IllegalArgumentException("Ehhez a metrikához és ablakhoz nincs átlag: " + id);
+        }
+        this.id = id;
+        this.metric = metric;
+        this.type = type;
+        this.threshold = threshold;
+        this.clearThreshold = clearThreshold;
+        this.windowMillis = windowMillis;
+        this.count = count;
+        this.cooldownMillis = cooldownMillis;
+        this.title = title;
+    }
+
+    /**
+     * Szabálylista JSON tömbből, pl.
+     * {"id":"pm25_mean_1h","metric":"PM25","type":"rolling_mean","window_minutes":60,
+     *  "threshold":35,"clear":30,"cooldown_minutes":60,"title":"Magas PM2.5 átlag!"}
+     */
+    public static List<AlertRule> parseAll(String json) throws JSONException {
+        JSONArray array = new JSONArray(json);
+        List<AlertRule> rules = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject obj = array.getJSONObject(i);
+            float threshold = (float) obj.getDouble("threshold");
+            rules.add(new AlertRule(
+                    obj.getString("id"),
+                    Metric.valueOf(obj.getString("metric")),
+                    Type.valueOf(obj.getString("type").toUpperCase(Locale.ROOT)),
+                    threshold,
+                    (float) obj.optDouble("clear", threshold),
+                    obj.optLong("window_minutes", 60) * MINUTE_MILLIS,
+                    obj.optInt("count", 1),
+                    obj.optLong("cooldown_minutes", 0) * MINUTE_MILLIS,
+                    obj.getString("title")));
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.pmsensor;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Dekódolt, napokra (UTC naptári napokra) bontott sorozatok memóriabeli LRU tárolója, bájtban
+ * korlátozott mérettel. Egy időszak olvasásakor csak a hiányzó napokat tölti be, az egymás melletti
+ * hiányzókat egyetlen hívással.
+ *
+ * A forrás (nyers adat vagy egy összesítő szint) a kulcs része. A még le nem zárult napok
+ * darabjai csak {@link #OPEN_CHUNK_TTL_MILLIS} ideig érvényesek.
+ */
+final class DayChunkCache {
+
+    static final long DAY_MILLIS = 24 * 60 * 60_000L;
+    // A még bővülő napok ennyi ideig szolgálhatók ki újratöltés nélkül.
+    static final long OPEN_CHUNK_TTL_MILLIS = PMSensor.UPLOAD_INTERVAL_MILLIS;
+
+    // Egy sorozat becsült fix költsége (objektumfejlécek, tömbreferenciák).
+    private static final long SERIES_OVERHEAD_BYTES = 64 + 16L * (Metric.count() + 2);
+
+    /**
+     * Egy zárt [fromMillis, toMillis] időszak betöltése időrendben.
+     */
+    interface Loader {
+        SensorSeries load(long fromMillis, long toMillis) throws IOException;
+    }
+
+    private static final class Chunk {
+        final SensorSeries series;
+        final long bytes;
+        final long expiresAtMillis;
+
+        Chunk(SensorSeries series, long bytes, long expiresAtMillis) {
+            this.series = series;
+            this.bytes = bytes;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final long maxBytes;
+    // Hozzáférési sorrendű, így a legrégebben használt darab van elöl.
+    private final LinkedHashMap<String, Chunk> chunks = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    // Minden érvénytelenítéskor nő: az előtte indult betöltés eredménye már elavult lehet.
+    private long generation;
+
+    DayChunkCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Egy sorozat becsült memóriaigénye.
+     */
+    static long bytesOf(SensorSeries series) {
+        long rowBytes = 8L + 8L + 4L * Metric.count();
+        if (series.hasRollupColumns()) rowBytes += 4L + 8L * Metric.count();
+        return SERIES_OVERHEAD_BYTES + series.size() * rowBytes;
+    }
+
+    synchronized long sizeBytes() {
+        return bytes;
+    }
+
+    synchronized int chunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * A forrás [startMillis, endMillis] időszaka új sorozatként; a hiányzó napokat a loader tölti be.
+     * Az openFromMillis után végződő napok nyitottnak számítanak (lejárnak), a korábbiak nem.
+     */
+    SensorSeries read(String source, long startMillis, long endMillis, long nowMillis, long openFromMillis,
+                      Loader loader) throws IOException {
+        long firstDay = Math.floorDiv(startMillis, DAY_MILLIS);
+        long lastDay = Math.floorDiv(endMillis, DAY_MILLIS);
+        int dayCount = (int) (lastDay - firstDay + 1);
+        SensorSeries[] days = new SensorSeries[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+            days[i] = get(source, firstDay + i, nowMillis);
+        }
+
+        for (int i = 0; i < dayCount; ) {
+            if (days[i] != null) {
+                i++;
+                continue;
+            }
+            int runEnd = i;
+            while (runEnd + 1 < dayCount && days[runEnd + 1] == null) {
+                runEnd++;
+            }
+            long runFrom = (firstDay + i) * DAY_MILLIS;
+            long runTo = (firstDay + runEnd + 1) * DAY_MILLIS - 1;
+            long loadGeneration = generation();
+            SensorSeries loaded = loader.load(runFrom, runTo);
+
+            int row = 0;
+            for (int d = i; d <= runEnd; d++) {
+                long dayEnd = (firstDay + d + 1) * DAY_MILLIS;
+                int next = Math.max(row, loaded.lowerBound(dayEnd));
+                days[d] = loaded.sliceRows(row, next);
+                long expiresAt = dayEnd > openFromMillis ? nowMillis + OPEN_CHUNK_TTL_MILLIS : Long.MAX_VALUE;
+                put(source, firstDay + d, days[d], expiresAt, loadGeneration);
+                row = next;
+            }
+            i = runEnd + 1;
+        }
+
+        int total = 0;
+        for (SensorSeries day : days) total += day.size();
+        SensorSeries result = new SensorSeries(total);
+        for (SensorSeries day : days) {
+            int from = day.lowerBound(startMillis);
+            result.appendRows(day, from, day.lowerBound(endMillis + 1));
+        }
+        return result;
+    }
+
+    synchronized SensorSeries get(String source, long day, long nowMillis) {
+        String key = key(source, day);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) return null;
+        if (nowMillis >= chunk.expiresAtMillis) {
+            remove(key);
+            return null;
+        }
+        return chunk.series;
+    }
+
+    synchronized void put(String source, long day, SensorSeries series, long expiresAtMillis) {
+        put(source, day, series, expiresAtMillis, generation);
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Csak akkor tárol, ha a betöltés óta nem volt érvénytelenítés.
+     */
+    private synchronized void put(String source, long day, SensorSeries series, long expiresAtMillis,
+                                  long loadGeneration) {
+        if (loadGeneration != generation) return;
+        long size = bytesOf(series);
+        String key = key(source, day);
+        remove(key);
+        if (size > maxBytes) return;
+
+        chunks.put(key, new Chunk(series, size, expiresAtMillis));
+        bytes += size;
+        Iterator<Map.Entry<String, Chunk>> eldest = chunks.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * A forrás [fromMillis, toMillis] időszakát érintő napok eldobása (pl. új sorok beszúrása után).
+     */
+    synchronized void invalidate(String source, long fromMillis, long toMillis) {
+        generation++;
+        for (long day = Math.floorDiv(fromMillis, DAY_MILLIS); day <= Math.floorDiv(toMillis, DAY_MILLIS); day++) {
+            remove(key(source, day));
+        }
+    }
+
+    synchronized void clear() {
+        chunks.clear();
+        bytes = 0;
+        generation++;
+    }
+
+    private void remove(String key) {
+        Chunk removed = chunks.remove(key);
+        if (removed != null) {
+            bytes -= removed.bytes;
+        }
+    }
+
+    private static String key(String source, long day) {
+        return source + '/' + day;
+    }
+}
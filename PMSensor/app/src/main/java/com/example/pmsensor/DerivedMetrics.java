@@ -0,0 +1,317 @@
+package com.example.pmsensor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A mérésfolyamból származtatott értékek inkrementálisan: páratartalomra korrigált PM2.5 / PM10,
+ * ezek 1 és 24 órás csúszó átlaga, és a 24 órás átlagokból a levegőminőségi kategória. A riasztások
+ * átlag-szabályai ({@link AlertEngine}) is ezeket az átlagokat figyelik, így a képernyőn látott és a
+ * riasztott átlag ugyanaz.
+ *
+ * Az átlagok pontosak (nem exponenciálisak): az ablakok gyűrűpufferben tartják a mintákat a
+ * futó összeggel együtt, így egy új mérés amortizáltan O(1) munka, és a memória az ablakba eső
+ * minták számával arányos (5 perces feltöltésnél 288 minta).
+ *
+ * Az optikai szenzor a nedves részecskéket a száraznál nagyobbnak méri. A korrekció a κ-Köhler
+ * növekedési tényezővel oszt (Crilley és mtsai., 2018), 95% feletti páratartalomnál a tényezőt
+ * a 95%-os értéken rögzítjük, mert ott a képlet a végtelenbe tart.
+ */
+public final class DerivedMetrics {
+
+    static final long HOUR_MILLIS = 3_600_000L;
+    static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    // Ennél hosszabb kimaradás után az átlagok mögötti folytonos időszak újrakezdődik.
+    static final long MAX_GAP_MILLIS = 3 * PMSensor.UPLOAD_INTERVAL_MILLIS;
+
+    // Higroszkópossági paraméter és a részecskék sűrűsége (g/cm³) a korrekcióhoz.
+    static final double KAPPA = 0.4;
+    private static final double DENSITY = 1.65;
+    private static final double MAX_WATER_ACTIVITY = 0.95;
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Levegőminőségi kategória az Európai Környezetvédelmi Ügynökség (2023) sávjai szerint, a
+     * 24 órás átlagokból; a felső határok µg/m³-ben, a határ még a sávhoz tartozik.
+     */
+    public enum AirQuality {
+        GOOD("Jó", 5, 15),
+        FAIR("Elfogadható", 15, 45),
+        MODERATE("Közepes", 50, 120),
+        POOR("Rossz", 90, 195),
+        VERY_POOR("Nagyon rossz", 140, 270),
+        EXTREMELY_POOR("Rendkívül rossz", Double.MAX_VALUE, Double.MAX_VALUE);
+
+        private static final AirQuality[] VALUES = values();
+
+        public final String label;
+        final double maxPm25;
+        final double maxPm10;
+
+        AirQuality(String label, double maxPm25, double maxPm10) {
+            this.label = label;
+            this.maxPm25 = maxPm25;
+            this.maxPm10 = maxPm10;
+        }
+
+        /**
+         * A két szennyező közül a rosszabb kategóriája.
+         */
+        public static AirQuality of(double pm25, double pm10) {
+            for (AirQuality quality : VALUES) {
+                if (pm25 <= quality.maxPm25 && pm10 <= quality.maxPm10) return quality;
+            }
+            return EXTREMELY_POOR;
+        }
+    }
+
+    /**
+     * A legutóbbi mérés utáni állapot.
+     */
+    public static final class Snapshot {
+        public final long millis;
+        public final float pm25;
+        public final float pm10;
+        public final double hourPm25;
+        public final double hourPm10;
+        public final double dayPm25;
+        public final double dayPm10;
+        public final int hourSamples;
+        public final int daySamples;
+        // Az utolsó, MAX_GAP_MILLIS-nál nagyobb kimaradás óta eltelt idő (legfeljebb egy nap):
+        // az átlag akkor fedi le a teljes ablakot, ha ez legalább az ablak hossza.
+        public final long coveredMillis;
+        public final AirQuality airQuality;
+
+        Snapshot(long millis, float pm25, float pm10, Window hour, Window day, long coveredMillis) {
+            this.millis = millis;
+            this.pm25 = pm25;
+            this.pm10 = pm10;
+            this.hourPm25 = hour.mean25();
+            this.hourPm10 = hour.mean10();
+            this.dayPm25 = day.mean25();
+            this.dayPm10 = day.mean10();
+            this.hourSamples = hour.count;
+            this.daySamples = day.count;
+            this.coveredMillis = coveredMillis;
+            this.airQuality = AirQuality.of(dayPm25, dayPm10);
+        }
+
+        /**
+         * A metrika windowMillis hosszú átlaga (lásd {@link #hasMean}), egyébként NaN.
+         */
+        public double mean(Metric metric, long windowMillis) {
+            if (metric == Metric.PM25) {
+                if (windowMillis == HOUR_MILLIS) return hourPm25;
+                if (windowMillis == DAY_MILLIS) return dayPm25;
+            } else if (metric == Metric.PM10) {
+                if (windowMillis == HOUR_MILLIS) return hourPm10;
+                if (windowMillis == DAY_MILLIS) return dayPm10;
+            }
+            return Double.NaN;
+        }
+    }
+
+    private final Window hour = new Window(HOUR_MILLIS);
+    private final Window day = new Window(DAY_MILLIS);
+    private long lastMillis = Long.MIN_VALUE;
+    private long runStartMillis = Long.MIN_VALUE;
+    private float lastPm25;
+    private float lastPm10;
+
+    /**
+     * Van-e a metrikának windowMillis hosszú átlaga: a PM2.5 és a PM10 1 és 24 órás átlaga.
+     */
+    static boolean hasMean(Metric metric, long windowMillis) {
+        return (metric == Metric.PM25 || metric == Metric.PM10)
+                && (windowMillis == HOUR_MILLIS || windowMillis == DAY_MILLIS);
+    }
+
+    /**
+     * A páratartalomra korrigált koncentráció; hiányzó (0) vagy érvénytelen páratartalomnál változatlan.
+     */
+    static float corrected(float pm, float humidity) {
+        if (!(humidity > 0)) return pm;
+        double aw = Math.min(humidity / 100.0, MAX_WATER_ACTIVITY);
+        double growth = 1 + (KAPPA / DENSITY) / (1 / aw - 1);
+        return (float) (pm / growth);
+    }
+
+    public boolean update(PMSensor reading) {
+        return update(reading.measureMillis, reading.PM2_5, reading.PM10, reading.humidity);
+    }
+
+    /**
+     * Egy mérés hozzáadása. A nem újabb (már látott vagy ismeretlen idejű) mérést kihagyja, és hamisat ad.
+     */
+    boolean update(long millis, float pm25, float pm10, float humidity) {
+        if (millis == Long.MIN_VALUE || millis <= lastMillis) return false;
+        add(millis, corrected(pm25, humidity), corrected(pm10, humidity));
+        return true;
+    }
+
+    private void add(long millis, float pm25, float pm10) {
+        if (lastMillis == Long.MIN_VALUE || millis - lastMillis > MAX_GAP_MILLIS) {
+            runStartMillis = millis;
+        }
+        hour.add(millis, pm25, pm10);
+        day.add(millis, pm25, pm10);
+        lastMillis = millis;
+        lastPm25 = pm25;
+        lastPm10 = pm10;
+    }
+
+    public long lastMillis() {
+        return lastMillis;
+    }
+
+    /**
+     * Az utolsó mérés utáni értékek, vagy null, ha még nem volt mérés.
+     */
+    public Snapshot snapshot() {
+        return lastMillis == Long.MIN_VALUE ? null : new Snapshot(lastMillis, lastPm25, lastPm10, hour, day,
+                lastMillis - runStartMillis);
+    }
+
+    /**
+     * A sorozat (időrendben) minden sorát feldolgozza, és a 24 órás korrigált átlagokat egy új
+     * sorozatba írja a PM25 / PM10 oszlopokba, soronként egyet. A diagramok ezt rajzolják a nyers
+     * adat mellé; az engine ezután új mérésekkel folytatható ({@link #appendDayMeans}).
+     */
+    SensorSeries dayMeans(SensorSeries source) {
+        SensorSeries result = new SensorSeries(source.size());
+        for (int row = 0; row < source.size(); row++) {
+            if (update(source.timeAt(row), source.valueAt(Metric.PM25, row), source.valueAt(Metric.PM10, row),
+                    source.valueAt(Metric.HUMIDITY, row))) {
+                appendDayMeans(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Az utolsó mérés utáni 24 órás átlagok hozzáfűzése egy sorozathoz; visszaadja az új sor indexét.
+     */
+    int appendDayMeans(SensorSeries into) {
+        int row = into.appendRow();
+        into.setTime(row, lastMillis);
+        into.setValue(Metric.PM25, row, (float) day.mean25());
+        into.setValue(Metric.PM10, row, (float) day.mean10());
+        return row;
+    }
+
+    /**
+     * Az állapot bináris alakban: elég a 24 órás ablak, az órás ennek a vége.
+     */
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + day.count * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(day.count);
+            for (int i = 0; i < day.count; i++) {
+                int index = day.index(i);
+                out.writeLong(day.times[index]);
+                out.writeFloat(day.pm25[index]);
+                out.writeFloat(day.pm10[index]);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Az {@link #encode()} alak visszaolvasása; sérült vagy ismeretlen változatú adatnál IOException.
+     */
+    static DerivedMetrics decode(byte[] encoded) throws IOException {
+        DerivedMetrics metrics = new DerivedMetrics();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            if (in.readInt() != FORMAT_VERSION) throw new IOException("Ismeretlen állapotváltozat");
+            int count = in.readInt();
+            if (count < 0 || count > (encoded.length - 8) / 16) throw new IOException("Sérült állapot");
+            for (int i = 0; i < count; i++) {
+                long millis = in.readLong();
+                float pm25 = in.readFloat();
+                float pm10 = in.readFloat();
+                if (millis <= metrics.lastMillis) throw new IOException("Sérült állapot");
+                metrics.add(millis, pm25, pm10);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Csúszó időablak a minták futó összegével. A (t - length, t] időszakba eső mintákat tartja,
+     * ahol t a legutóbbi minta ideje.
+     */
+    private static final class Window {
+        private final long length;
+        private long[] times = new long[16];
+        private float[] pm25 = new float[16];
+        private float[] pm10 = new float[16];
+        private int head;
+        private int count;
+        private double sum25;
+        private double sum10;
+
+        Window(long length) {
+            this.length = length;
+        }
+
+        void add(long millis, float value25, float value10) {
+            while (count > 0 && times[head] <= millis - length) {
+                sum25 -= pm25[head];
+                sum10 -= pm10[head];
+                head = (head + 1) % times.length;
+                count--;
+            }
+            if (count == 0) {
+                // A kivonásokból felgyűlt kerekítési hiba ne vándoroljon tovább.
+                sum25 = 0;
+                sum10 = 0;
+            } else if (count == times.length) {
+                grow();
+            }
+            int tail = index(count);
+            times[tail] = millis;
+            pm25[tail] = value25;
+            pm10[tail] = value10;
+            sum25 += value25;
+            sum10 += value10;
+            count++;
+        }
+
+        int index(int i) {
+            return (head + i) % times.length;
+        }
+
+        double mean25() {
+            return count == 0 ? 0 : sum25 / count;
+        }
+
+        double mean10() {
+            return count == 0 ? 0 : sum10 / count;
+        }
+
+        private void grow() {
+            int capacity = times.length * 2;
+            long[] newTimes = new long[capacity];
+            float[] new25 = new float[capacity];
+            float[] new10 = new float[capacity];
+            for (int i = 0; i < count; i++) {
+                int index = index(i);
+                newTimes[i] = times[index];
+                new25[i] = pm25[index];
+                new10[i] = pm10[index];
+            }
+            times = newTimes;
+            pm25 = new25;
+            pm10 = new10;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.pmsensor;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A {@link DerivedMetrics} közös példánya a főképernyőnek, az értesítésnek és a háttérfeladatnak.
+ * Az állapot (a 24 órás ablak) minden új mérés után lemezre kerül, így a folyamat újraindulása
+ * után is folytatható.
+ *
+ * Az engine csak a neki átadott méréseket látja. A két háttérfutás (vagy a megszakadt valós idejű
+ * kapcsolat) között kimaradt méréseket a {@link SensorWorker} már letöltötte, és időrendben egyenként
+ * adja át; itt nincs külön hálózati hívás. Az állapot lemezre írása miatt ezt se ne a fő szálon hívjuk.
+ *
+ * A mérések előbb a {@link FaultDetector}-on mennek át: a kiugró PM értékek helyett az előttük
+ * érvényes átlag kerül az átlagokba, a mérés hibajelzése pedig a {@link #faultsOf} hívással
+ * kérdezhető le (a riasztásokhoz). A detektor állapota és az utolsó hibajelzés SharedPreferences-ben marad meg.
+ */
+public final class DerivedMetricsRepository {
+
+    private static final String TAG = "DerivedMetrics";
+    private static final String STATE_FILE = "derived_metrics.bin";
+    private static final String FAULT_PREFS = "sensor_faults";
+    private static final String KEY_DETECTOR = "detector";
+    private static final String KEY_LAST_CHECKED = "last_checked";
+    private static final String KEY_LAST_FAULTS = "last_faults";
+
+    private static volatile DerivedMetricsRepository instance;
+
+    private final File file;
+    private final SharedPreferences faultPrefs;
+    private DerivedMetrics metrics;
+    private FaultDetector detector;
+    // Az utoljára feldolgozott mérés ideje és hibajelzése; a detektorral együtt töltődik be és mentődik.
+    private long lastCheckedMillis = Long.MIN_VALUE;
+    private int lastFaults;
+
+    public static DerivedMetricsRepository getInstance(Context context) {
+        DerivedMetricsRepository result = instance;
+        if (result == null) {
+            synchronized (DerivedMetricsRepository.class) {
+                result = instance;
+                if (result == null) {
+                    result = new DerivedMetricsRepository(context.getApplicationContext());
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private DerivedMetricsRepository(Context context) {
+        this.file = new File(context.getFilesDir(), STATE_FILE);
+        this.faultPrefs = context.getSharedPreferences(FAULT_PREFS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Az utolsó feldolgozott mérés utáni értékek, vagy null, ha még nem volt mérés.
+     */
+    public synchronized DerivedMetrics.Snapshot current() {
+        return metrics().snapshot();
+    }
+
+    /**
+     * Egy új mérés feldolgozása; a már látott mérésnél csak a meglévő értékeket adja vissza.
+     */
+    public synchronized DerivedMetrics.Snapshot update(PMSensor reading) {
+        DerivedMetrics metrics = metrics();
+        if (reading.measureMillis == Long.MIN_VALUE || reading.measureMillis <= metrics.lastMillis()) {
+            return metrics.snapshot();
+        }
+        FaultDetector detector = detector();
+        int faults = detector.check(reading);
+        if (FaultDetector.isFaulty(faults, Metric.PM25) || FaultDetector.isFaulty(faults, Metric.PM10)) {
+            Log.w(TAG, "Gyanús mérés (" + reading.measureTime + "), hibajelzés: " + Integer.toBinaryString(faults));
+        }
+        lastCheckedMillis = reading.measureMillis;
+        lastFaults = faults;
+        metrics.update(reading.measureMillis, detector.cleaned(Metric.PM25, reading.PM2_5, faults),
+                detector.cleaned(Metric.PM10, reading.PM10, faults),
+                detector.cleaned(Metric.HUMIDITY, reading.humidity, faults));
+        save(metrics);
+        faultPrefs.edit()
+                .putString(KEY_DETECTOR, detector.encode())
+                .putLong(KEY_LAST_CHECKED, lastCheckedMillis)
+                .putInt(KEY_LAST_FAULTS, lastFaults)
+                .apply();
+        return metrics.snapshot();
+    }
+
+    /**
+     * A legutóbb feldolgozott mérés {@link FaultDetector} szerinti hibajelzése, vagy 0, ha a mérés
+     * nem az (pl. közben újabb érkezett). A jelzés a folyamat újraindulása után is megmarad.
+     */
+    public synchronized int faultsOf(PMSensor reading) {
+        detector();
+        return reading.measureMillis == lastCheckedMillis ? lastFaults : 0;
+    }
+
+    private DerivedMetrics metrics() {
+        if (metrics == null) {
+            metrics = load();
+        }
+        return metrics;
+    }
+
+    private FaultDetector detector() {
+        if (detector == null) {
+            detector = FaultDetector.decode(faultPrefs.getString(KEY_DETECTOR, null));
+            lastCheckedMillis = faultPrefs.getLong(KEY_LAST_CHECKED, Long.MIN_VALUE);
+            lastFaults = faultPrefs.getInt(KEY_LAST_FAULTS, 0);
+        }
+        return detector;
+    }
+
+    private DerivedMetrics load() {
+        if (!file.exists()) return new DerivedMetrics();
+        byte[] encoded = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(encoded);
+            return DerivedMetrics.decode(encoded);
+        } catch (IOException e) {
+            Log.w(TAG, "A mentett állapot nem olvasható, újrakezdjük", e);
+            return new DerivedMetrics();
+        }
+    }
+
+    private void save(DerivedMetrics metrics) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(metrics.encode());
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Az állapot nem menthető", e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            Log.w(TAG, "Az állapot nem menthető: sikertelen átnevezés");
+        }
+    }
+}
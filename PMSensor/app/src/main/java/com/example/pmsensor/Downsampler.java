@@ -0,0 +1,104 @@
+package com.example.pmsensor;
+
+import java.util.Arrays;
+
+/**
+ * Largest-Triangle-Three-Buckets mintavételezés a diagramokhoz: a vonal alakját megtartva
+ * legfeljebb annyi pontot hagy meg, ahány képpont széles a diagram.
+ * A kimenet a megtartott sorok indexe, így az adatot nem kell másolni.
+ */
+public final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /**
+     * LTTB a [from, to) sorokon; legfeljebb threshold indexet ad vissza növekvő sorrendben.
+     */
+    public static int[] lttb(long[] times, float[] values, int from, int to, int threshold) {
+        int count = to - from;
+        if (count <= 0) return new int[0];
+        if (threshold >= count || threshold < 3) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++) all[i] = from + i;
+            return all;
+        }
+
+        int[] sampled = new int[threshold];
+        int sampledCount = 0;
+        long origin = times[from];
+        double every = (double) (count - 2) / (threshold - 2);
+
+        int a = from;
+        sampled[sampledCount++] = a;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // A következő vödör átlaga a háromszög harmadik csúcsa.
+            int avgStart = from + (int) Math.floor((bucket + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int) Math.floor((bucket + 2) * every) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += times[j] - origin;
+                avgY += values[j];
+            }
+            int avgLength = avgEnd - avgStart;
+            if (avgLength > 0) {
+                avgX /= avgLength;
+                avgY /= avgLength;
+            } else {
+                avgX = times[to - 1] - origin;
+                avgY = values[to - 1];
+            }
+
+            int rangeStart = from + (int) Math.floor(bucket * every) + 1;
+            int rangeEnd = from + (int) Math.floor((bucket + 1) * every) + 1;
+            double ax = times[a] - origin;
+            double ay = values[a];
+
+            double maxArea = -1;
+            int maxIndex = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (values[j] - ay) - (ax - (times[j] - origin)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            sampled[sampledCount++] = maxIndex;
+            a = maxIndex;
+        }
+
+        sampled[sampledCount++] = to - 1;
+        return sampled;
+    }
+
+    /**
+     * A látható [windowFrom, windowTo) sorokat threshold ponttal, a láthatón kívüli részt pedig
+     * az egész sorozat áttekintő mintájából adja vissza, így nagyításkor visszajön a részlet,
+     * húzáskor pedig a szélek sem üresek.
+     */
+    public static int[] forViewport(long[] times, float[] values, int size, int windowFrom, int windowTo, int threshold) {
+        windowFrom = Math.max(0, windowFrom - 1);
+        windowTo = Math.min(size, windowTo + 1);
+        if (windowFrom == 0 && windowTo == size) {
+            return lttb(times, values, 0, size, threshold);
+        }
+
+        int[] overview = lttb(times, values, 0, size, threshold);
+        int[] detail = lttb(times, values, windowFrom, windowTo, threshold);
+
+        int[] merged = new int[overview.length + detail.length];
+        int count = 0;
+        for (int index : overview) {
+            if (index < windowFrom) merged[count++] = index;
+        }
+        for (int index : detail) {
+            merged[count++] = index;
+        }
+        for (int index : overview) {
+            if (index >= windowTo) merged[count++] = index;
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.pmsensor;
+
+/**
+ * Szenzorhibák folyamatos felismerése a beérkező méréseken, metrikánként állandó méretű állapottal:
+ *
+ * - kiugró érték: a mérés az exponenciális átlagtól (EWMA) a szintén exponenciálisan átlagolt
+ *   abszolút eltérés (a MAD folyamatos közelítése) {@link #SPIKE_FACTOR}-szorosánál messzebb van.
+ *   Ha a következő mérés ugyanarra tér el, az valódi szintváltás: elfogadjuk, és az átlag odaugrik.
+ *   Így egy valódi ugrás első mintája egy mérésnyi késéssel jelenik meg, a magányos tüske viszont
+ *   nem jut el a riasztásokig és a diagramokig.
+ * - beragadt érték: ugyanaz a (bitre azonos) érték sokadszor egymás után; az SDS011 és a BME280
+ *   30 másodperces átlagai élő szenzornál ennyiszer nem egyeznek.
+ * - hézag: a measureTime szerint {@link #GAP_MILLIS}-nál több idő telt el; utána a metrikák
+ *   állapota újraindul, mert a régi átlag már nem mérvadó.
+ *
+ * A UV és a fényerősség természetesen ugrál (felhő) és éjjel állandó 0, ezeket nem vizsgáljuk.
+ * Az eredmény mérésenként egy bitmaszk ({@link #GAP}, {@link #spike}, {@link #stuck}).
+ */
+public final class FaultDetector {
+
+    static final int GAP = 1;
+    private static final int SPIKE_SHIFT = 1;
+    private static final int STUCK_SHIFT = SPIKE_SHIFT + Metric.count();
+
+    static final long GAP_MILLIS = AlertEngine.MAX_GAP_MILLIS;
+    static final double SPIKE_FACTOR = 6;
+    // Kb. 10 mérésnyi (50 perces) emlékezet.
+    private static final double ALPHA = 0.1;
+    // Ennyi minta után kezdődik a kiugró értékek vizsgálata.
+    static final int WARMUP_SAMPLES = 5;
+
+    // Metrikánként az eltérés alsó korlátja (a sima szakaszokon ne legyen minden apró változás kiugró),
+    // 0, ha nincs kiugróérték-vizsgálat; és a beragadtnak számító egyforma minták száma, 0, ha nincs.
+    private static final float[] MIN_DEVIATION = new float[Metric.count()];
+    private static final int[] STUCK_SAMPLES = new int[Metric.count()];
+
+    static {
+        configure(Metric.PM25, 2f, 24);
+        configure(Metric.PM10, 3f, 24);
+        configure(Metric.TEMPERATURE, 0.3f, 12);
+        configure(Metric.HUMIDITY, 1f, 12);
+        // A légnyomás lassú és kerekített lehet, ezért csak a tüskéit figyeljük.
+        configure(Metric.ATMOSPHERIC_PRESSURE, 0.5f, 0);
+    }
+
+    private static void configure(Metric metric, float minDeviation, int stuckSamples) {
+        MIN_DEVIATION[metric.ordinal()] = minDeviation;
+        STUCK_SAMPLES[metric.ordinal()] = stuckSamples;
+    }
+
+    static int spike(Metric metric) {
+        return 1 << (SPIKE_SHIFT + metric.ordinal());
+    }
+
+    static int stuck(Metric metric) {
+        return 1 << (STUCK_SHIFT + metric.ordinal());
+    }
+
+    /**
+     * Hibás-e a metrika értéke (kiugró vagy beragadt) az adott maszk szerint.
+     */
+    static boolean isFaulty(int flags, Metric metric) {
+        return (flags & (spike(metric) | stuck(metric))) != 0;
+    }
+
+    /**
+     * Egy sorozat tisztításának összesítője.
+     */
+    static final class Report {
+        final int[] spikes = new int[Metric.count()];
+        final int[] stuck = new int[Metric.count()];
+        int gaps;
+
+        int spikes(Metric metric) {
+            return spikes[metric.ordinal()];
+        }
+
+        int stuck(Metric metric) {
+            return stuck[metric.ordinal()];
+        }
+
+        /**
+         * A javított és a beragadtnak jelölt minták száma összesen.
+         */
+        int faultySamples() {
+            int total = 0;
+            for (int i = 0; i < spikes.length; i++) total += spikes[i] + stuck[i];
+            return total;
+        }
+    }
+
+    private long lastMillis = Long.MIN_VALUE;
+    private final int[] seen = new int[Metric.count()];
+    private final double[] mean = new double[Metric.count()];
+    private final double[] deviation = new double[Metric.count()];
+    private final float[] last = new float[Metric.count()];
+    private final int[] repeats = new int[Metric.count()];
+    // Az előző mérés kiugrásának iránya (+1 / -1), vagy 0.
+    private final int[] outlier = new int[Metric.count()];
+    // Az aktuális mérés hézagjelzője (advance állítja).
+    private int gapFlag;
+
+    /**
+     * Egy mérés vizsgálata. A nem újabb (már látott vagy ismeretlen idejű) mérésnél 0, állapotváltozás nélkül.
+     */
+    public int check(PMSensor reading) {
+        if (!advance(reading.measureMillis)) return 0;
+        int flags = gapFlag;
+        for (int m = 0; m < seen.length; m++) {
+            flags |= checkValue(m, reading.valueOf(Metric.at(m)));
+        }
+        return flags;
+    }
+
+    /**
+     * A sorozat egy sorának vizsgálata, mint {@link #check(PMSensor)}.
+     */
+    int check(SensorSeries series, int row) {
+        if (!advance(series.timeAt(row))) return 0;
+        int flags = gapFlag;
+        for (int m = 0; m < seen.length; m++) {
+            flags |= checkValue(m, series.valueAt(Metric.at(m), row));
+        }
+        return flags;
+    }
+
+    /**
+     * A kiugrónak jelölt értéket az előtte érvényes átlagra cseréli, a többit változatlanul adja vissza.
+     */
+    float cleaned(Metric metric, float value, int flags) {
+        return (flags & spike(metric)) != 0 ? (float) mean[metric.ordinal()] : value;
+    }
+
+    /**
+     * Egy sor vizsgálata és a kiugró értékek helyben javítása; a beragadt értékek maradnak, csak jelöltek.
+     */
+    int cleanRow(SensorSeries series, int row) {
+        int flags = check(series, row);
+        if ((flags & ~GAP) != 0) {
+            for (int m = 0; m < seen.length; m++) {
+                Metric metric = Metric.at(m);
+                if ((flags & spike(metric)) != 0) {
+                    series.setValue(metric, row, (float) mean[m]);
+                }
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * A teljes (időrendi) sorozat egy menetben, helyben javítva; a detektor ezután új sorokkal folytatható.
+     */
+    Report clean(SensorSeries series) {
+        Report report = new Report();
+        for (int row = 0; row < series.size(); row++) {
+            int flags = cleanRow(series, row);
+            if (flags == 0) continue;
+            if ((flags & GAP) != 0) report.gaps++;
+            for (int m = 0; m < seen.length; m++) {
+                Metric metric = Metric.at(m);
+                if ((flags & spike(metric)) != 0) report.spikes[m]++;
+                if ((flags & stuck(metric)) != 0) report.stuck[m]++;
+            }
+        }
+        return report;
+    }
+
+    private boolean advance(long millis) {
+        if (millis == Long.MIN_VALUE || millis <= lastMillis) return false;
+        gapFlag = 0;
+        if (lastMillis != Long.MIN_VALUE && millis - lastMillis > GAP_MILLIS) {
+            gapFlag = GAP;
+            for (int m = 0; m < seen.length; m++) {
+                seen[m] = 0;
+                repeats[m] = 0;
+                outlier[m] = 0;
+            }
+        }
+        lastMillis = millis;
+        return true;
+    }
+
+    private int checkValue(int m, float value) {
+        float minDeviation = MIN_DEVIATION[m];
+        if (minDeviation == 0 || Float.isNaN(value)) return 0;
+        int flags = 0;
+
+        if (seen[m] > 0 && value == last[m]) {
+            repeats[m]++;
+        } else {
+            repeats[m] = 0;
+            last[m] = value;
+        }
+        if (STUCK_SAMPLES[m] > 0 && repeats[m] + 1 >= STUCK_SAMPLES[m]) {
+            flags |= 1 << (STUCK_SHIFT + m);
+        }
+
+        if (seen[m] == 0) {
+            mean[m] = value;
+            deviation[m] = 0;
+            seen[m] = 1;
+            return flags;
+        }
+        double residual = value - mean[m];
+        if (seen[m] >= WARMUP_SAMPLES
+                && Math.abs(residual) > SPIKE_FACTOR * Math.max(deviation[m], minDeviation)) {
+            int direction = residual > 0 ? 1 : -1;
+            if (outlier[m] != direction) {
+                // Lehet tüske: az átlag és az eltérés változatlan marad.
+                outlier[m] = direction;
+                return flags | 1 << (SPIKE_SHIFT + m);
+            }
+            // Második azonos irányú eltérés: szintváltás.
+            outlier[m] = 0;
+            mean[m] = value;
+            return flags;
+        }
+        outlier[m] = 0;
+        mean[m] += ALPHA * residual;
+        deviation[m] += ALPHA * (Math.abs(residual) - deviation[m]);
+        if (seen[m] < WARMUP_SAMPLES) seen[m]++;
+        return flags;
+    }
+
+    /**
+     * Az állapot szöveges alakban (SharedPreferences-hez).
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder().append(lastMillis);
+        for (int m = 0; m < seen.length; m++) {
+            sb.append(';').append(seen[m]).append(',').append(mean[m]).append(',').append(deviation[m])
+                    .append(',').append(last[m]).append(',').append(repeats[m]).append(',').append(outlier[m]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Új detektor, ha a mentett érték hiányzik vagy nem értelmezhető.
+     */
+    public static FaultDetector decode(String encoded) {
+        FaultDetector detector = new FaultDetector();
+        if (encoded == null) return detector;
+        String[] parts = encoded.split(";");
+        if (parts.length != Metric.count() + 1) return detector;
+        try {
+            long lastMillis = Long.parseLong(parts[0]);
+            for (int m = 0; m < detector.seen.length; m++) {
+                String[] fields = parts[m + 1].split(",");
+                if (fields.length != 6) return new FaultDetector();
+                detector.seen[m] = Integer.parseInt(fields[0]);
+                detector.mean[m] = Double.parseDouble(fields[1]);
+                detector.deviation[m] = Double.parseDouble(fields[2]);
+                detector.last[m] = Float.parseFloat(fields[3]);
+                detector.repeats[m] = Integer.parseInt(fields[4]);
+                detector.outlier[m] = Integer.parseInt(fields[5]);
+            }
+            detector.lastMillis = lastMillis;
+        } catch (NumberFormatException e) {
+            return new FaultDetector();
+        }
+        return detector;
+    }
+}
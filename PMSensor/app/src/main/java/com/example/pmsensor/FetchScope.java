@@ -0,0 +1,144 @@
+package com.example.pmsensor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Egy képernyő (activity, ViewModel) háttérmunkái a folyamatszintű, korlátos szálkészleten.
+ *
+ * Az azonos kulccsal indított új munka megszakítja az előzőt (a folyamatban lévő HTTP hívásokkal
+ * együtt), így mindig az utolsó kérés nyer; a {@link #cancelAll()} a képernyő megszűnésekor
+ * mindent leállít. Az eredmény a callbackExecutor-on érkezik, és megszakított munkáé soha.
+ */
+final class FetchScope {
+
+    // A párhuzamos letöltésekhez (ParallelRangeFetcher) és az egyszerű lekérdezésekhez közös készlet.
+    static final int POOL_SIZE = 4;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService SHARED = Executors.newFixedThreadPool(POOL_SIZE, runnable -> {
+        Thread thread = new Thread(runnable, "fetch-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    interface Job<T> {
+        T run() throws Exception;
+    }
+
+    interface Callback<T> {
+        void onResult(T result);
+
+        void onError(Exception e);
+    }
+
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+    // Kulcsonként a legutóbb indított, még be nem fejezett munka.
+    private final Map<String, FetchToken> running = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * callbackExecutor: ahol az eredmény érkezik, Androidon a fő szál (ContextCompat.getMainExecutor).
+     */
+    FetchScope(Executor callbackExecutor) {
+        this(SHARED, callbackExecutor);
+    }
+
+    FetchScope(ExecutorService executor, Executor callbackExecutor) {
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * A közös szálkészlet, pl. a párhuzamos letöltés segédszálaihoz.
+     */
+    static ExecutorService sharedExecutor() {
+        return SHARED;
+    }
+
+    /**
+     * Elindítja a munkát; az azonos kulcsú, még futó korábbi munkát megszakítja.
+     */
+    <T> FetchToken launch(String key, Job<T> job, Callback<T> callback) {
+        FetchToken token = new FetchToken();
+        FetchToken previous;
+        synchronized (this) {
+            if (closed) {
+                token.cancel();
+                return token;
+            }
+            previous = running.put(key, token);
+        }
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        token.setFuture(executor.submit(() -> {
+            FetchToken outer = FetchToken.attach(token);
+            T result = null;
+            Exception error = null;
+            try {
+                result = job.run();
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                FetchToken.attach(outer);
+                token.finish();
+            }
+            deliver(key, token, callback, result, error);
+        }));
+        return token;
+    }
+
+    /**
+     * A kulcshoz tartozó futó munka megszakítása.
+     */
+    void cancel(String key) {
+        FetchToken token;
+        synchronized (this) {
+            token = running.remove(key);
+        }
+        if (token != null) {
+            token.cancel();
+        }
+    }
+
+    /**
+     * Minden futó munka megszakítása; ezután indított munka el sem indul.
+     */
+    void cancelAll() {
+        FetchToken[] tokens;
+        synchronized (this) {
+            closed = true;
+            tokens = running.values().toArray(new FetchToken[0]);
+            running.clear();
+        }
+        for (FetchToken token : tokens) {
+            token.cancel();
+        }
+    }
+
+    synchronized boolean isRunning(String key) {
+        return running.containsKey(key);
+    }
+
+    private <T> void deliver(String key, FetchToken token, Callback<T> callback, T result, Exception error) {
+        callbackExecutor.execute(() -> {
+            // Az ellenőrzés a visszahívás szálán történik, így a közben megszakított munka nem jut el idáig.
+            synchronized (this) {
+                if (token.isCancelled() || running.get(key) != token) return;
+                running.remove(key);
+            }
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onResult(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.pmsensor;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import okhttp3.Call;
+
+/**
+ * Egy háttérmunka megszakítási jele. A munkát futtató szálhoz (és a belőle indított segédszálakhoz)
+ * kötve a {@link SupabaseClient} minden közben indított HTTP hívást regisztrál rajta, így a
+ * megszakítás a folyamatban lévő letöltéseket is azonnal leállítja.
+ */
+final class FetchToken {
+
+    private static final ThreadLocal<FetchToken> CURRENT = new ThreadLocal<>();
+
+    private final List<Call> calls = new ArrayList<>();
+    private volatile boolean cancelled;
+    private Future<?> future;
+
+    /**
+     * Az aktuális szálhoz kötött jel, vagy null.
+     */
+    static FetchToken current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * A jelet az aktuális szálhoz köti, és visszaadja az előzőt, amelyet a munka végén vissza kell állítani.
+     */
+    static FetchToken attach(FetchToken token) {
+        FetchToken previous = CURRENT.get();
+        if (token == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(token);
+        }
+        return previous;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void throwIfCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Megszakított letöltés");
+        }
+    }
+
+    /**
+     * Egy indítás előtt álló hívás nyilvántartása; ha a jel már megszakított, a hívást azonnal leállítja.
+     */
+    void register(Call call) {
+        synchronized (this) {
+            if (!cancelled) {
+                calls.add(call);
+                return;
+            }
+        }
+        call.cancel();
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+        if (cancelled) {
+            future.cancel(true);
+        }
+    }
+
+    void cancel() {
+        List<Call> toCancel;
+        Future<?> running;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            toCancel = new ArrayList<>(calls);
+            calls.clear();
+            running = future;
+        }
+        for (Call call : toCancel) {
+            call.cancel();
+        }
+        if (running != null) {
+            running.cancel(true);
+        }
+    }
+
+    /**
+     * A munka végén eldobja a már lezárult hívásokra mutató hivatkozásokat.
+     */
+    synchronized void finish() {
+        calls.clear();
+        future = null;
+    }
+}
@@ -2,66 +2,74 @@ package com.example.pmsensor;
 
 import android.content.res.Configuration;
 import android.graphics.Color;
+import android.graphics.Rect;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View;
 import android.widget.Button;
+import android.widget.ScrollView;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.core.util.Pair;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.Legend;
 import com.github.mikephil.charting.components.XAxis;
 import com.github.mikephil.charting.components.YAxis;
-import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
-import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
 import com.google.android.material.datepicker.MaterialDatePicker;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
 
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-
 public class GraphActivity extends AppCompatActivity {
-    private String SUPABASE_URL;
-    private String SUPABASE_KEY;
-
-
     private Button datePickerButton;
+    private ScrollView scrollView;
     private LineChart tempLineChart, humidityLineChart, pm25LineChart, pm10LineChart, uvLineChart, lightLineChart, pressureLineChart;
+    private ChartSlot[] slots;
+    // A diagramok adatának háttérszálas előkészítése; új eredménynél a még futó előkészítés megszakad.
+    private FetchScope chartScope;
+    private final Rect visibleRect = new Rect();
+    // Az összesítő sorok a HistoryRepository.STATISTICS_METRICS sorrendjében.
+    private TextView[] statsViews;
 
 
     private Long startDate = null;
     private Long endDate = null;
 
+    // Forgatás / sötét mód váltás után innen jön vissza a kiválasztott időszak és a betöltött adat.
+    private GraphViewModel viewModel;
 
-    private interface ValueExtractor {
-        float extract(PMSensor sensor);
-    }
+    // A megjelenített nyers sorozat, amelyhez a valós idejű mérések hozzáfűzhetők (összesítésnél null).
+    private SensorSeries liveSeries;
+    // A betöltéskor a sorozaton végighaladt hibadetektor; a hozzáfűzött sorokat is ez javítja.
+    private FaultDetector liveDetector;
+
+    private final RealtimeClient.Listener realtimeListener = new RealtimeClient.Listener() {
+        @Override
+        public void onReading(PMSensor reading) {
+            runOnUiThread(() -> appendLiveReading(reading));
+        }
+
+        @Override
+        public void onConnectionChanged(boolean connected) {
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.graph);
 
-        SUPABASE_URL = getString(R.string.supabase_url);
-        SUPABASE_KEY = getString(R.string.supabase_key);
-
-
         tempLineChart = findViewById(R.id.tempLineChart);
         humidityLineChart = findViewById(R.id.humidityLineChart);
         pm25LineChart = findViewById(R.id.pm25LineChart);
@@ -70,19 +78,63 @@ public class GraphActivity extends AppCompatActivity {
         lightLineChart = findViewById(R.id.lightLineChart);
         pressureLineChart = findViewById(R.id.pressureLineChart);
         datePickerButton = findViewById(R.id.datePickerButton);
+        scrollView = findViewById(R.id.graphScrollView);
+        slots = new ChartSlot[]{
+                new ChartSlot(tempLineChart, Metric.TEMPERATURE, "Hőmérséklet", ContextCompat.getColor(this, R.color.chart_temperature)),
+                new ChartSlot(humidityLineChart, Metric.HUMIDITY, "Páratartalom", ContextCompat.getColor(this, R.color.chart_humidity)),
+                new ChartSlot(pm25LineChart, Metric.PM25, "PM2.5", ContextCompat.getColor(this, R.color.chart_pm25)),
+                new ChartSlot(pm10LineChart, Metric.PM10, "PM10", ContextCompat.getColor(this, R.color.chart_pm10)),
+                new ChartSlot(uvLineChart, Metric.UV, "UV Index", ContextCompat.getColor(this, R.color.chart_uv)),
+                new ChartSlot(lightLineChart, Metric.LIGHT_QUANTITY, "Fényerősség", ContextCompat.getColor(this, R.color.chart_light)),
+                new ChartSlot(pressureLineChart, Metric.ATMOSPHERIC_PRESSURE, "Légnyomás", ContextCompat.getColor(this, R.color.chart_pressure))
+        };
+        for (ChartSlot slot : slots) {
+            styleChart(slot.chart);
+        }
+        chartScope = new FetchScope(ContextCompat.getMainExecutor(this));
+        scrollView.getViewTreeObserver().addOnScrollChangedListener(this::bindVisibleCharts);
+        statsViews = new TextView[]{findViewById(R.id.tempStats), findViewById(R.id.humidityStats),
+                findViewById(R.id.pm25Stats), findViewById(R.id.pm10Stats), findViewById(R.id.uvStats),
+                findViewById(R.id.lightStats), findViewById(R.id.pressureStats)};
 
 
         setupDatePicker();
 
-
-        Calendar cal = Calendar.getInstance();
-        endDate = cal.getTimeInMillis(); // Ma
-        cal.add(Calendar.DAY_OF_YEAR, -1); // 24 órával ezelőtt
-        startDate = cal.getTimeInMillis();
+        viewModel = new ViewModelProvider(this).get(GraphViewModel.class);
+        if (viewModel.startDate == null || viewModel.endDate == null) {
+            Calendar cal = Calendar.getInstance();
+            viewModel.endDate = cal.getTimeInMillis(); // Ma
+            cal.add(Calendar.DAY_OF_YEAR, -1); // 24 órával ezelőtt
+            viewModel.startDate = cal.getTimeInMillis();
+        }
+        startDate = viewModel.startDate;
+        endDate = viewModel.endDate;
         updateButtonText();
+        viewModel.getResult().observe(this, this::showResult);
+        viewModel.getStatistics().observe(this, this::showStatistics);
         fetchAndDisplaySensorData();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (RealtimeClient.isEnabled(this)) {
+            RealtimeClient.getInstance(this).addListener(realtimeListener);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        RealtimeClient.getInstance(this).removeListener(realtimeListener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        chartScope.cancelAll();
+    }
+
     private void setupDatePicker() {
         datePickerButton.setOnClickListener(v -> {
             MaterialDatePicker.Builder<Pair<Long, Long>> builder = MaterialDatePicker.Builder.dateRangePicker();
@@ -118,130 +170,294 @@ public class GraphActivity extends AppCompatActivity {
             datePickerButton.setText("Válassz időszakot");
             return;
         }
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy.MM.dd", Locale.getDefault());
-        String startStr = sdf.format(new Date(startDate));
-        String endStr = sdf.format(new Date(endDate));
+        String startStr = TimeCodec.formatDate(startDate);
+        String endStr = TimeCodec.formatDate(endDate);
         datePickerButton.setText(String.format("%s - %s", startStr, endStr));
     }
 
 
     private void fetchAndDisplaySensorData() {
-        new Thread(() -> {
-            try {
-                SimpleDateFormat supabaseFormatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.GERMANY);
-                supabaseFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-                String startTimeString = supabaseFormatter.format(new Date(startDate));
-                String endTimeString = supabaseFormatter.format(new Date(endDate));
-
-                OkHttpClient client = new OkHttpClient();
-                ArrayList<PMSensor> sensorDataList = new ArrayList<>();
-                JSONArray jsonArray = new JSONArray();
-                do{
-                String url = SUPABASE_URL + "/rest/v1/PMSensor?select=*"
-                        + "&Measure_time=gte." + startTimeString
-                        + "&Measure_time=lte." + endTimeString
-                        + "&order=Measure_time.asc"
-                        + "&limit=1000";
-
-                Request request = new Request.Builder()
-                        .url(url)
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("Accept", "application/json")
-                        .build();
-
-                Log.d("Supabase", "Request URL: " + url);
-
-                    Response response = client.newCall(request).execute();
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                     jsonArray = new JSONArray(responseBody);
-
-                    for (int i = 0; i < jsonArray.length(); i++) {
-                        JSONObject obj = jsonArray.getJSONObject(i);
-                        sensorDataList.add(new PMSensor(
-                                (float) obj.optDouble("PM25", 0),
-                                (float) obj.optDouble("PM10", 0),
-                                obj.optString("ID", ""),
-                                (float) obj.optDouble("Humidity", 0),
-                                (float) obj.optDouble("Humidity_raw", 0),
-                                (float) obj.optDouble("Temperature", 0),
-                                (float) obj.optDouble("Temperature_raw", 0),
-                                (float) obj.optDouble("UV", 0),
-                                (float) obj.optDouble("Light_quantity", 0),
-                                (float) obj.optDouble("Atmospheric_pressure", 0),
-                                obj.optString("Measure_time", "")
-                        ));
-                    }
+        for (TextView view : statsViews) {
+            view.setText("Összesítő számítása…");
+        }
+        viewModel.startDate = startDate;
+        viewModel.endDate = endDate;
+        viewModel.load(startDate, endDate, chartPointBudget(tempLineChart));
+    }
+
+    private void showResult(GraphViewModel.Result result) {
+        // Egy korábbi időszak eredménye, amíg az új még töltődik.
+        if (result.startMillis != startDate || result.endMillis != endDate) return;
+
+        boolean announce = !result.announced;
+        result.announced = true;
+        if (result.error != null) {
+            if (announce) {
+                Toast.makeText(GraphActivity.this, "Hiba: " + result.error.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+            return;
+        }
+
+        SensorSeries series = result.series;
+        // Az előkészítés alatt a sorozat nem bővülhet; a valós idejű hozzáfűzés csak utána indul.
+        liveSeries = null;
+        liveDetector = result.detector;
+        if (!series.isEmpty()) {
+            if (announce) {
+                String message = series.size() + " adatpont betöltve.";
+                int faulty = result.faults == null ? 0 : result.faults.faultySamples();
+                if (faulty > 0) {
+                    message += " " + faulty + " hibagyanús minta (a kiugró értékek javítva).";
+                }
+                Toast.makeText(GraphActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+            prepareCharts(series, result.level, result.raw);
+        } else {
+            if (announce) {
+                Toast.makeText(GraphActivity.this, "Nincsenek adatok a kiválasztott időszakban.", Toast.LENGTH_LONG).show();
+            }
+            clearAllCharts();
+        }
+    }
 
-                    if (!sensorDataList.isEmpty()) {
+    /**
+     * A hét diagram adatának előkészítése háttérszálon (mintavétel, adathalmaz); a kész diagramok
+     * közül csak a látható (vagy közeli) kötődik azonnal, a többi a nézetbe görgetéskor.
+     */
+    private void prepareCharts(SensorSeries series, RollupLevel level, boolean raw) {
+        int[] pending = {slots.length};
+        for (ChartSlot slot : slots) {
+            slot.prepared = null;
+            slot.bound = false;
+            viewModel.cancelDetail(slot.metric);
+            int pointBudget = chartPointBudget(slot.chart);
+            chartScope.launch(slot.metric.name(),
+                    () -> prepareChart(series, level, slot.metric, slot.label, slot.color, pointBudget),
+                    new FetchScope.Callback<PreparedChart>() {
+                        @Override
+                        public void onResult(PreparedChart prepared) {
+                            slot.prepared = prepared;
+                            if (--pending[0] == 0 && raw) {
+                                liveSeries = series;
+                            }
+                            bindVisibleCharts();
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            Log.e("ChartError", "A(z) '" + slot.label + "' diagram nem készíthető elő.", e);
+                        }
+                    });
+        }
+    }
 
-                        String lastMeasureTimeString = sensorDataList.get(sensorDataList.size() - 1).measureTime;
+    /**
+     * Háttérszálon fut: csak a sorozatot olvassa, nézethez nem nyúl.
+     */
+    private static PreparedChart prepareChart(SensorSeries series, RollupLevel level, Metric metric, String label,
+                                              int color, int pointBudget) {
+        try (PerfMetrics.Span span = PerfMetrics.start("chart.prepare")) {
+            // Az X érték az első méréshez képesti eltolás ms-ben: a nyers epoch ms nem fér el pontosan egy float-ban.
+            long timeBase = series.timeAt(0);
+            SeriesWindow window = new SeriesWindow(series, metric, timeBase);
+            window.downsample(0, series.size(), pointBudget);
+
+            SeriesDataSet dataSet = new SeriesDataSet(window, label);
+            dataSet.setColor(color);
+            dataSet.setLineWidth(2f);
+            dataSet.setDrawCircles(false);
+            dataSet.setDrawValues(false);
+            dataSet.setHighLightColor(color);
+            dataSet.setHighlightLineWidth(1f);
+            dataSet.setDrawHorizontalHighlightIndicator(false);
+
+            LineData data = new LineData(dataSet);
+            SeriesWindow[] bandWindows = null;
+            if (series.hasRollupColumns()) {
+                // Összesítésnél a rések minimuma és maximuma halványan a középvonal körül, hogy az átlagolás
+                // ne tüntesse el a rövid csúcsokat; mindkét vonal a saját értékei szerint mintavételez.
+                int bandColor = Color.argb(96, Color.red(color), Color.green(color), Color.blue(color));
+                SeriesWindow minWindow = new SeriesWindow(series, metric, timeBase, SeriesWindow.Column.MIN);
+                SeriesWindow maxWindow = new SeriesWindow(series, metric, timeBase, SeriesWindow.Column.MAX);
+                bandWindows = new SeriesWindow[]{minWindow, maxWindow};
+                data.addDataSet(bandDataSet(minWindow, "minimum", bandColor, pointBudget));
+                data.addDataSet(bandDataSet(maxWindow, "maximum", bandColor, pointBudget));
+            }
+            DerivedMetrics derived = null;
+            SeriesWindow meanWindow = null;
+            if (metric == Metric.PM25 || metric == Metric.PM10) {
+                // A páratartalomra korrigált 24 órás átlag egy menetben; a valós idejű sorokkal folytatódik.
+                derived = new DerivedMetrics();
+                SensorSeries means = derived.dayMeans(series);
+                meanWindow = new SeriesWindow(means, metric, timeBase);
+                meanWindow.downsample(0, means.size(), pointBudget);
+
+                SeriesDataSet meanSet = new SeriesDataSet(meanWindow, "24h átlag (korrigált)");
+                meanSet.setColor(color);
+                meanSet.setLineWidth(1.5f);
+                meanSet.enableDashedLine(12f, 6f, 0f);
+                meanSet.setDrawCircles(false);
+                meanSet.setDrawValues(false);
+                meanSet.setHighlightEnabled(false);
+                data.addDataSet(meanSet);
+            }
 
+            span.rows(series.size());
+            return new PreparedChart(series, level, timeBase, window, bandWindows, data, derived, meanWindow);
+        }
+    }
 
-                        SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-                        parser.setTimeZone(TimeZone.getTimeZone("UTC"));
+    private static SeriesDataSet bandDataSet(SeriesWindow window, String label, int color, int pointBudget) {
+        window.downsample(0, window.series().size(), pointBudget);
+        SeriesDataSet dataSet = new SeriesDataSet(window, label);
+        dataSet.setColor(color);
+        dataSet.setLineWidth(1f);
+        dataSet.setDrawCircles(false);
+        dataSet.setDrawValues(false);
+        dataSet.setHighlightEnabled(false);
+        return dataSet;
+    }
 
-                        Date lastDate = parser.parse(lastMeasureTimeString);
+    /**
+     * A kész, de még nem kötött diagramok közül a láthatókat (fél képernyőnyi ráhagyással) köti.
+     */
+    private void bindVisibleCharts() {
+        if (scrollView.getHeight() == 0) {
+            // Még nincs elrendezés: a helyzetek ismeretlenek.
+            scrollView.post(this::bindVisibleCharts);
+            return;
+        }
+        scrollView.getDrawingRect(visibleRect);
+        int margin = scrollView.getHeight() / 2;
+        for (ChartSlot slot : slots) {
+            if (slot.prepared == null || slot.bound) continue;
+            if (isNearViewport(slot.chart, margin)) {
+                bindChart(slot);
+            }
+        }
+    }
 
+    private boolean isNearViewport(View view, int margin) {
+        // A diagramok a ScrollView tetején ülő ConstraintLayout gyermekei, így helyzetük görgetési koordináta.
+        return view.getBottom() >= visibleRect.top - margin && view.getTop() <= visibleRect.bottom + margin;
+    }
 
-                        startTimeString = supabaseFormatter.format(lastDate);
-                    }
+    /**
+     * A fő szálon csak az előkészített adat átadása és az újrarajzolás marad.
+     */
+    private void bindChart(ChartSlot slot) {
+        PreparedChart prepared = slot.prepared;
+        LineChart chart = slot.chart;
+        slot.bound = true;
 
-                } else {
-                    Log.e("Supabase", "Hiba a lekérés során: " + response.code() + " " + response.message());
-                    runOnUiThread(() -> Toast.makeText(GraphActivity.this, "Hiba a lekérés során: " + response.message(), Toast.LENGTH_SHORT).show());
-                }
-                }while (jsonArray.length() ==1000);
-
-                runOnUiThread(() -> {
-                    if (!sensorDataList.isEmpty()) {
-                        Toast.makeText(GraphActivity.this, sensorDataList.size() + " adatpont betöltve.", Toast.LENGTH_SHORT).show();
-
-                        setupChart(tempLineChart, sensorDataList, "Hőmérséklet", ContextCompat.getColor(this, R.color.chart_temperature), sensor -> sensor.temperature);
-                        setupChart(humidityLineChart, sensorDataList, "Páratartalom", ContextCompat.getColor(this, R.color.chart_humidity), sensor -> sensor.humidity);
-                        setupChart(pm25LineChart, sensorDataList, "PM2.5", ContextCompat.getColor(this, R.color.chart_pm25), sensor -> sensor.PM2_5);
-                        setupChart(pm10LineChart, sensorDataList, "PM10", ContextCompat.getColor(this, R.color.chart_pm10), sensor -> sensor.PM10);
-                        setupChart(uvLineChart, sensorDataList, "UV Index", ContextCompat.getColor(this, R.color.chart_uv), sensor -> sensor.uv);
-                        setupChart(lightLineChart, sensorDataList, "Fényerősség", ContextCompat.getColor(this, R.color.chart_light), sensor -> sensor.lightQuantity);
-                        setupChart(pressureLineChart, sensorDataList, "Légnyomás", ContextCompat.getColor(this, R.color.chart_pressure), sensor -> sensor.atmosphericPressure);
-                    } else {
-                        Toast.makeText(GraphActivity.this, "Nincsenek adatok a kiválasztott időszakban.", Toast.LENGTH_LONG).show();
-                        clearAllCharts();
-                    }
-                });
-            } catch (Exception e) {
-                Log.e("Supabase", "Hiba az adatok feldolgozása közben", e);
-                runOnUiThread(() -> Toast.makeText(GraphActivity.this, "Hiba: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        final long timeBase = prepared.timeBase;
+        chart.getXAxis().setValueFormatter(new ValueFormatter() {
+            @Override
+            public String getAxisLabel(float value, com.github.mikephil.charting.components.AxisBase axis) {
+                return TimeCodec.formatChartLabel(timeBase + (long) value);
             }
-        }).start();
+        });
+        chart.setMarker(new MyMarkerView(this, R.layout.custom_marker_view, timeBase));
+        chart.setOnChartGestureListener(new DetailRefreshListener(chart, slot.metric, prepared.window,
+                prepared.bandWindows, new ViewportDetail(prepared.series, prepared.level), timeBase));
+        chart.getLegend().setEnabled(prepared.meanWindow != null || prepared.bandWindows != null);
+
+        try (PerfMetrics.Span span = PerfMetrics.start("chart.bind")) {
+            // Az előkészítés óta hozzáfűzött valós idejű sorok miatt a szélső értékek változhattak.
+            prepared.data.notifyDataChanged();
+            chart.setData(prepared.data);
+            chart.invalidate();
+            span.rows(prepared.data.getEntryCount());
+        }
     }
 
-    private void clearAllCharts() {
-        tempLineChart.clear();
-        humidityLineChart.clear();
-        pm25LineChart.clear();
-        pm10LineChart.clear();
-        uvLineChart.clear();
-        lightLineChart.clear();
-        pressureLineChart.clear();
-
-        tempLineChart.invalidate();
-        humidityLineChart.invalidate();
-        pm25LineChart.invalidate();
-        pm10LineChart.invalidate();
-        uvLineChart.invalidate();
-        lightLineChart.invalidate();
-        pressureLineChart.invalidate();
+    private void showStatistics(GraphViewModel.StatisticsResult result) {
+        if (result.startMillis != startDate || result.endMillis != endDate) return;
+
+        // A nyers adatból számolt összesítő csak a helyben tárolt részt fedi le (sikertelen betöltés után
+        // ez rövidebb lehet az időszaknál); az összesítésből rajzolt időszakoké a diagram réseiből jön,
+        // a teljes időszakra, de ott a p95 csak közelítő.
+        String coverage = result.fromMillis > result.startMillis
+                ? " (helyi adat, kezdete: " + TimeCodec.formatDate(result.fromMillis) + ")" : "";
+        for (int i = 0; i < statsViews.length; i++) {
+            if (result.error != null) {
+                statsViews[i].setText("Az összesítő nem érhető el.");
+                continue;
+            }
+            if (result.fromMillis > result.endMillis) {
+                statsViews[i].setText("Az időszak nyers adatai nincsenek a készüléken.");
+                continue;
+            }
+            SeriesStatistics.Summary summary = result.statistics.summary(HistoryRepository.STATISTICS_METRICS[i]);
+            if (summary.count() == 0) {
+                statsViews[i].setText("Nincs adat az időszakban.");
+            } else {
+                statsViews[i].setText(String.format(Locale.getDefault(),
+                        "min %.1f · átlag %.1f · p95 %s%.1f · max %.1f%s",
+                        summary.min(), summary.mean(), summary.isApproximate() ? "≈" : "",
+                        summary.quantile(0.95), summary.max(), coverage));
+            }
+        }
     }
 
-    private void setupChart(LineChart chart, ArrayList<PMSensor> data, String label, int color, ValueExtractor extractor) {
-        if (chart == null) {
-            Log.e("ChartError", "A(z) '" + label + "' diagram nincs inicializálva.");
-            return;
+    /**
+     * Valós idejű mérés hozzáfűzése a megjelenített sorozathoz, ha az a jelenig tart (az utolsó sor
+     * után legfeljebb néhány feltöltési időközzel érkezett); a diagramok csak a látható ablakot mintázzák újra.
+     */
+    private void appendLiveReading(PMSensor reading) {
+        SensorSeries series = liveSeries;
+        if (series == null) return;
+        long millis = reading.measureMillis;
+        long lastMillis = series.timeAt(series.size() - 1);
+        if (millis <= lastMillis || millis - lastMillis > 3 * PMSensor.UPLOAD_INTERVAL_MILLIS) return;
+
+        int row = series.appendRow();
+        try {
+            series.setId(row, Long.parseLong(reading.Id));
+        } catch (NumberFormatException e) {
+            // Az ID a diagramhoz nem szükséges.
+        }
+        series.setTime(row, millis);
+        for (Metric metric : Metric.values()) {
+            series.setValue(metric, row, reading.valueOf(metric));
+        }
+        if (liveDetector != null) {
+            liveDetector.cleanRow(series, row);
         }
 
+        for (ChartSlot slot : slots) {
+            PreparedChart prepared = slot.prepared;
+            int meanRow = -1;
+            if (prepared != null && prepared.derived != null && prepared.derived.update(millis,
+                    series.valueAt(Metric.PM25, row), series.valueAt(Metric.PM10, row),
+                    series.valueAt(Metric.HUMIDITY, row))) {
+                meanRow = prepared.derived.appendDayMeans(prepared.meanWindow.series());
+            }
+            if (slot.bound && slot.chart.getOnChartGestureListener() instanceof DetailRefreshListener) {
+                ((DetailRefreshListener) slot.chart.getOnChartGestureListener()).refreshVisibleWindow();
+            } else if (slot.prepared != null) {
+                // Még nem kötött diagram: csak a megjelenített sorok bővülnek, mintavétel nélkül.
+                prepared.window.appendRow(row);
+                if (meanRow >= 0) prepared.meanWindow.appendRow(meanRow);
+            }
+        }
+    }
+
+    private void clearAllCharts() {
+        for (ChartSlot slot : slots) {
+            chartScope.cancel(slot.metric.name());
+            viewModel.cancelDetail(slot.metric);
+            slot.prepared = null;
+            slot.bound = false;
+            slot.chart.clear();
+            slot.chart.invalidate();
+        }
+    }
+
+    /**
+     * Az adattól független beállítások, egyszer a létrehozáskor.
+     */
+    private void styleChart(LineChart chart) {
         // --- Automatikus színváltás világos/sötét módhoz ---
         int nightModeFlags = getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
         boolean isDarkMode = (nightModeFlags == Configuration.UI_MODE_NIGHT_YES);
@@ -253,44 +469,6 @@ public class GraphActivity extends AppCompatActivity {
 
         chart.setBackgroundColor(Color.TRANSPARENT);
 
-        ArrayList<Entry> entries = new ArrayList<>();
-        SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-        parser.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-        for (PMSensor sensor : data) {
-            if (sensor.measureTime == null || sensor.measureTime.isEmpty()) continue;
-            try {
-                String timeString = sensor.measureTime;
-                if (timeString.length() > 19) {
-                    timeString = timeString.substring(0, 19);
-                }
-
-                Date date = parser.parse(timeString);
-                if (date != null) {
-                    entries.add(new Entry(date.getTime(), extractor.extract(sensor)));
-                }
-            } catch (ParseException e) {
-                Log.e("ChartData", "Dátum formázási hiba: " + sensor.measureTime, e);
-            }
-        }
-
-        LineDataSet dataSet = new LineDataSet(entries, label);
-        dataSet.setColor(color);
-        dataSet.setLineWidth(2f);
-        dataSet.setDrawCircles(false);
-
-
-        dataSet.setDrawValues(false);
-
-
-        dataSet.setHighLightColor(color);
-        dataSet.setHighlightLineWidth(1f);
-        dataSet.setDrawHorizontalHighlightIndicator(false);
-
-
-        LineData lineData = new LineData(dataSet);
-        chart.setData(lineData);
-
         // --- X és Y tengelyek ---
         XAxis xAxis = chart.getXAxis();
         xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
@@ -305,19 +483,6 @@ public class GraphActivity extends AppCompatActivity {
         xAxis.setGranularityEnabled(true);
         xAxis.setDrawLabels(true);
 
-        xAxis.setValueFormatter(new ValueFormatter() {
-            private final SimpleDateFormat sdf = new SimpleDateFormat("MM.dd HH:mm", Locale.getDefault());
-            {
-                sdf.setTimeZone(TimeZone.getTimeZone("CEST"));
-            }
-
-            @Override
-            public String getAxisLabel(float value, com.github.mikephil.charting.components.AxisBase axis) {
-
-                return sdf.format(new Date((long) value));
-            }
-        });
-
         YAxis leftAxis = chart.getAxisLeft();
         leftAxis.setTextColor(textColor);
         leftAxis.setGridColor(gridColor);
@@ -328,20 +493,180 @@ public class GraphActivity extends AppCompatActivity {
         // --- Leírás és legenda ---
         chart.getDescription().setEnabled(false);
         Legend legend = chart.getLegend();
+        legend.setTextColor(textColor);
+        // Csak a több adathalmazos (PM) diagramokon kapcsol be, a kötéskor.
         legend.setEnabled(false);
 
         chart.setExtraBottomOffset(50f);
 
-        // --- MARKER BEÁLLÍTÁSA ---
-        MyMarkerView marker = new MyMarkerView(this, R.layout.custom_marker_view);
-        chart.setMarker(marker);
-
         // --- Interakció ---
         chart.setDragEnabled(true);
         chart.setScaleEnabled(true);
         chart.setPinchZoom(true);
         chart.setDoubleTapToZoomEnabled(true);
+    }
+
+    // Legfeljebb ennyi pontot rajzolunk: a diagram tartalmi szélessége képpontban.
+    private int chartPointBudget(LineChart chart) {
+        int width = (int) chart.getViewPortHandler().contentWidth();
+        return width > 0 ? width : getResources().getDisplayMetrics().widthPixels;
+    }
 
-        chart.invalidate();
+    /**
+     * Nagyítás vagy húzás után (kis késleltetéssel) újramintavételezi a látható ablakot, így közelről
+     * visszajön a nyers adat részletessége. Ha a betöltött felbontás ehhez sem elég (összesített
+     * áttekintő), a látható ablakot finomabban is lekéri, és az áttekintőbe illeszti; az újabb kérés
+     * a még futó korábbit megszakítja.
+     */
+    private final class DetailRefreshListener implements OnChartGestureListener {
+        private static final long REFRESH_DELAY_MS = 150;
+
+        private final LineChart chart;
+        private final Metric metric;
+        private final SeriesWindow window;
+        // Összesítésnél a rések minimuma és maximuma (különben null); ugyanazt a sorozatot mutatják, mint a window.
+        private final SeriesWindow[] bandWindows;
+        private final ViewportDetail detail;
+        private final long timeBase;
+        private final Runnable refresh = this::refreshVisibleWindow;
+
+        DetailRefreshListener(LineChart chart, Metric metric, SeriesWindow window, SeriesWindow[] bandWindows,
+                              ViewportDetail detail, long timeBase) {
+            this.chart = chart;
+            this.metric = metric;
+            this.window = window;
+            this.bandWindows = bandWindows;
+            this.detail = detail;
+            this.timeBase = timeBase;
+        }
+
+        private void scheduleRefresh() {
+            chart.removeCallbacks(refresh);
+            chart.postDelayed(refresh, REFRESH_DELAY_MS);
+        }
+
+        private void refreshVisibleWindow() {
+            LineData data = chart.getData();
+            if (chart.getOnChartGestureListener() != this || data == null || data.getDataSetCount() == 0) return;
+
+            long visibleFrom = timeBase + (long) chart.getLowestVisibleX();
+            long visibleTo = timeBase + (long) chart.getHighestVisibleX();
+            int pointBudget = chartPointBudget(chart);
+            // Minden vonal (fő, minimum / maximum, 24 órás átlag) a saját sorozatán mintavételez újra.
+            for (int i = 0; i < data.getDataSetCount(); i++) {
+                SeriesDataSet dataSet = (SeriesDataSet) data.getDataSetByIndex(i);
+                SeriesWindow shown = dataSet.window();
+                SensorSeries series = shown.series();
+                shown.downsample(series.lowerBound(visibleFrom), series.lowerBound(visibleTo + 1), pointBudget);
+                dataSet.notifyDataSetChanged();
+            }
+            data.notifyDataChanged();
+            chart.notifyDataSetChanged();
+            chart.invalidate();
+
+            requestDetail(visibleFrom, visibleTo, pointBudget);
+        }
+
+        private void requestDetail(long visibleFrom, long visibleTo, int pointBudget) {
+            ViewportDetail.Request request = detail.plan(visibleFrom, visibleTo, pointBudget);
+            if (request == null) return;
+            viewModel.loadDetail(metric, request, new FetchScope.Callback<SensorSeries>() {
+                @Override
+                public void onResult(SensorSeries rows) {
+                    if (chart.getOnChartGestureListener() != DetailRefreshListener.this) return;
+                    SensorSeries spliced = detail.apply(request, rows);
+                    window.setSeries(spliced);
+                    if (bandWindows != null) {
+                        for (SeriesWindow band : bandWindows) band.setSeries(spliced);
+                    }
+                    refreshVisibleWindow();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.w("GraphActivity", "A részletes ablak nem tölthető be", e);
+                }
+            });
+        }
+
+        @Override
+        public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+            scheduleRefresh();
+        }
+
+        @Override
+        public void onChartTranslate(MotionEvent me, float dX, float dY) {
+            scheduleRefresh();
+        }
+
+        @Override
+        public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+            scheduleRefresh();
+        }
+
+        @Override
+        public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+        }
+
+        @Override
+        public void onChartLongPressed(MotionEvent me) {
+        }
+
+        @Override
+        public void onChartDoubleTapped(MotionEvent me) {
+        }
+
+        @Override
+        public void onChartSingleTapped(MotionEvent me) {
+        }
+
+        @Override
+        public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {
+        }
+    }
+
+    /**
+     * Egy diagram és a hozzá háttérszálon előkészített adat.
+     */
+    private static final class ChartSlot {
+        final LineChart chart;
+        final Metric metric;
+        final String label;
+        final int color;
+        PreparedChart prepared;
+        // Az előkészített adat már a diagramon van.
+        boolean bound;
+
+        ChartSlot(LineChart chart, Metric metric, String label, int color) {
+            this.chart = chart;
+            this.metric = metric;
+            this.label = label;
+            this.color = color;
+        }
+    }
+
+    private static final class PreparedChart {
+        final SensorSeries series;
+        final RollupLevel level;
+        final long timeBase;
+        final SeriesWindow window;
+        // Összesítésnél a rések minimumának és maximumának ablaka, különben null.
+        final SeriesWindow[] bandWindows;
+        final LineData data;
+        // A PM diagramokon a 24 órás átlagot számoló engine és a sorozat ablaka, máshol null.
+        final DerivedMetrics derived;
+        final SeriesWindow meanWindow;
+
+        PreparedChart(SensorSeries series, RollupLevel level, long timeBase, SeriesWindow window,
+                      SeriesWindow[] bandWindows, LineData data, DerivedMetrics derived, SeriesWindow meanWindow) {
+            this.series = series;
+            this.level = level;
+            this.timeBase = timeBase;
+            this.window = window;
+            this.bandWindows = bandWindows;
+            this.data = data;
+            this.derived = derived;
+            this.meanWindow = meanWindow;
+        }
     }
 }
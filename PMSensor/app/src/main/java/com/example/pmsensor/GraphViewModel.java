@@ -0,0 +1,223 @@
+package com.example.pmsensor;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+/**
+ * A GraphActivity állapota, amely túléli a konfigurációváltást (forgatás, sötét mód):
+ * a kiválasztott időszak és a hozzá betöltött sorozat. Ugyanarra az időszakra nem tölt újra.
+ */
+public class GraphViewModel extends AndroidViewModel {
+
+    /**
+     * Egy időszak betöltésének eredménye; hibánál a series null.
+     */
+    static final class Result {
+        final long startMillis;
+        final long endMillis;
+        final SensorSeries series;
+        // Az áttekintő összesítő szintje; null esetén nyers adat.
+        final RollupLevel level;
+        // Nyers (nem összesített) adat, amelyhez a valós idejű mérések hozzáfűzhetők.
+        final boolean raw;
+        final Exception error;
+        // Nyers adatnál a tisztítás összesítője és a sorozat végéig haladt detektor (a valós idejű
+        // sorokhoz); összesítőnél null, az átlagolás a tüskéket már elsimította.
+        final FaultDetector.Report faults;
+        final FaultDetector detector;
+        // Az activity jelezte-e már a betöltést (forgatás után ne ismételje).
+        boolean announced;
+
+        Result(long startMillis, long endMillis, SensorSeries series, RollupLevel level, FaultDetector detector,
+               FaultDetector.Report faults, Exception error) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.series = series;
+            this.level = level;
+            this.raw = series != null && level == null;
+            this.detector = detector;
+            this.faults = faults;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Egy időszak metrikánkénti összesítője; hibánál a statistics null.
+     */
+    static final class StatisticsResult {
+        final long startMillis;
+        final long endMillis;
+        // Az összesítő ettől számít (a helyi tároló lefedettsége miatt lehet a startMillis után).
+        final long fromMillis;
+        // Az összesítő tábla szintje, amelyből számolódott; null: helyi nyers adat.
+        final RollupLevel level;
+        final SeriesStatistics statistics;
+        final Exception error;
+
+        StatisticsResult(long startMillis, long endMillis, long fromMillis, RollupLevel level,
+                         SeriesStatistics statistics, Exception error) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.fromMillis = fromMillis;
+            this.level = level;
+            this.statistics = statistics;
+            this.error = error;
+        }
+    }
+
+    private static final String LOAD_KEY = "range";
+    private static final String STATISTICS_KEY = "statistics";
+    private static final String DETAIL_KEY_PREFIX = "detail/";
+
+    private final MutableLiveData<Result> result = new MutableLiveData<>();
+    private final MutableLiveData<StatisticsResult> statistics = new MutableLiveData<>();
+    // Az új időszak megszakítja a még futó korábbi betöltést; a ViewModel megszűnésekor minden leáll.
+    private final FetchScope scope;
+
+    Long startDate;
+    Long endDate;
+    private long loadingStart = Long.MIN_VALUE;
+    private long loadingEnd = Long.MIN_VALUE;
+    private long statisticsStart = Long.MIN_VALUE;
+    private long statisticsEnd = Long.MIN_VALUE;
+    private RollupLevel statisticsLevel;
+
+    public GraphViewModel(@NonNull Application application) {
+        super(application);
+        scope = new FetchScope(ContextCompat.getMainExecutor(application));
+    }
+
+    LiveData<Result> getResult() {
+        return result;
+    }
+
+    LiveData<StatisticsResult> getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Betölti a [startMillis, endMillis] időszakot, hacsak már be nem töltötte (vagy épp tölti).
+     * A korábban kért, még töltődő időszak letöltése megszakad. Az összesítő a betöltés után számolódik,
+     * hogy a nyers adatból rajzolt időszak sorai már a helyi tárolóban legyenek.
+     */
+    void load(long startMillis, long endMillis, int pointBudget) {
+        Result current = result.getValue();
+        if (current != null && current.error == null
+                && current.startMillis == startMillis && current.endMillis == endMillis) {
+            loadStatistics(startMillis, endMillis, current.level);
+            return;
+        }
+        if (scope.isRunning(LOAD_KEY) && loadingStart == startMillis && loadingEnd == endMillis) {
+            return;
+        }
+        loadingStart = startMillis;
+        loadingEnd = endMillis;
+
+        scope.launch(LOAD_KEY, () -> {
+            long loadStart = System.currentTimeMillis();
+            HistoryRepository repository = HistoryRepository.getInstance(getApplication());
+            RollupLevel level = repository.levelFor(startMillis, endMillis, pointBudget);
+            SensorSeries series = level == null
+                    ? repository.load(startMillis, endMillis)
+                    : repository.loadRollup(level, startMillis, endMillis);
+            Log.d("GraphViewModel", series.size() + " sor betöltve " + (System.currentTimeMillis() - loadStart) + " ms alatt.");
+            if (level != null) {
+                return new Result(startMillis, endMillis, series, level, null, null, null);
+            }
+            // A betöltött sorozat saját példány (a gyorsítótár napjaiból másolt), így helyben javítható.
+            FaultDetector detector = new FaultDetector();
+            FaultDetector.Report faults;
+            try (PerfMetrics.Span span = PerfMetrics.start("faults.clean")) {
+                faults = detector.clean(series);
+                span.rows(series.size());
+            }
+            return new Result(startMillis, endMillis, series, null, detector, faults, null);
+        }, new FetchScope.Callback<Result>() {
+            @Override
+            public void onResult(Result loaded) {
+                result.setValue(loaded);
+                loadStatistics(startMillis, endMillis, loaded.level);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e("Supabase", "Hiba az adatok feldolgozása közben", e);
+                result.setValue(new Result(startMillis, endMillis, null, null, null, null, e));
+                // A már helyben lévő részé hálózat nélkül is elkészül.
+                loadStatistics(startMillis, endMillis, null);
+            }
+        });
+    }
+
+    /**
+     * Egy diagram látható ablakának részletesebb lekérése; a metrika diagramjához tartozó korábbi,
+     * még futó kérés megszakad. Az eredmény a fő szálon érkezik.
+     */
+    void loadDetail(Metric metric, ViewportDetail.Request request, FetchScope.Callback<SensorSeries> callback) {
+        scope.launch(DETAIL_KEY_PREFIX + metric.name(), () -> {
+            SensorSeries rows = HistoryRepository.getInstance(getApplication())
+                    .loadDetail(metric, request.level, request.fromMillis, request.toMillis);
+            if (request.level == null) {
+                // Nagyítva is a javított értékek látszódjanak, mint az áttekintőn.
+                new FaultDetector().clean(rows);
+            }
+            return rows;
+        }, callback);
+    }
+
+    void cancelDetail(Metric metric) {
+        scope.cancel(DETAIL_KEY_PREFIX + metric.name());
+    }
+
+    /**
+     * Az időszak összesítője. Összesítésből rajzolt időszaknál (level != null) a diagram réseiből,
+     * a teljes időszakra; különben a helyben tárolt nyers adatból, a lefedett rész kezdete az eredményben.
+     */
+    private void loadStatistics(long startMillis, long endMillis, RollupLevel level) {
+        StatisticsResult current = statistics.getValue();
+        if (current != null && current.error == null && current.level == level
+                && current.startMillis == startMillis && current.endMillis == endMillis) {
+            return;
+        }
+        if (scope.isRunning(STATISTICS_KEY) && statisticsStart == startMillis && statisticsEnd == endMillis
+                && statisticsLevel == level) {
+            return;
+        }
+        statisticsStart = startMillis;
+        statisticsEnd = endMillis;
+        statisticsLevel = level;
+
+        scope.launch(STATISTICS_KEY, () -> {
+            HistoryRepository repository = HistoryRepository.getInstance(getApplication());
+            if (level != null) {
+                return new StatisticsResult(startMillis, endMillis, startMillis, level,
+                        repository.rollupStatistics(level, startMillis, endMillis), null);
+            }
+            long fromMillis = repository.localCoverageFrom(startMillis);
+            return new StatisticsResult(startMillis, endMillis, fromMillis, null,
+                    repository.statistics(fromMillis, endMillis), null);
+        }, new FetchScope.Callback<StatisticsResult>() {
+            @Override
+            public void onResult(StatisticsResult result) {
+                statistics.setValue(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e("GraphViewModel", "Hiba az összesítő számítása közben", e);
+                statistics.setValue(new StatisticsResult(startMillis, endMillis, startMillis, level, null, e));
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        scope.cancelAll();
+    }
+}
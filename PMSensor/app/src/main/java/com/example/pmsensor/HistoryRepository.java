@@ -0,0 +1,418 @@
+package com.example.pmsensor;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A grafikonok adatforrása: a helyi {@link SensorDatabase}-ből szolgál ki, és a Supabase-ről
+ * csak a még hiányzó sorokat tölti le. A már dekódolt napokat (nyers és összesített adatot is)
+ * egy {@link DayChunkCache} tartja memóriában, így ugyanaz az időszak újra megnyitva
+ * hálózat és lemez nélkül jön vissza.
+ *
+ * A helyi tároló mindig egy összefüggő [synced_from, legfrissebb sor] időszakot fed le teljesen:
+ * előre csak a legfrissebb helyi sornál újabbakat kérjük le, visszafelé pedig csak akkor bővítünk,
+ * ha a kért időszak a lefedett rész elé nyúlik.
+ *
+ * A lezárt (legalább egy napja véget ért, teljesen szinkronizált) napok első olvasáskor
+ * {@link SegmentStore} szegmensbe tömörülnek, és kikerülnek az SQLite táblából; onnantól a napot
+ * a memóriába képzett szegmens adja.
+ */
+public final class HistoryRepository {
+
+    private static final String TAG = "HistoryRepository";
+    private static final int PAGE_SIZE = ParallelRangeFetcher.PAGE_SIZE;
+    // Egyszerre futó letöltések száma egy időszakra; a hívó szál mellett legfeljebb ennyi-1 segéd
+    // a közös FetchScope készletből.
+    private static final int FETCH_PARALLELISM = FetchScope.POOL_SIZE;
+    // Egy nyers szelet az ESP32 feltöltési gyakoriságával egy lap 90%-át adja, így rendszerint
+    // egyetlen kérés elég rá, és nem kell egy üres következő lapot is lekérni.
+    private static final long RAW_SLICE_MILLIS = PAGE_SIZE * 9 / 10 * PMSensor.UPLOAD_INTERVAL_MILLIS;
+    // A helyben lefedett időszakot ennyiszer több nyers sorig is lemezről rajzoljuk összesítés helyett
+    // (kb. 1000 pontos diagramnál hat hét).
+    private static final int LOCAL_RAW_FACTOR = 12;
+
+    private static final SensorColumn[] CHART_COLUMNS = SensorProjection.CHARTS.columns();
+    private static final SensorColumn[] HISTORY_COLUMNS = SensorProjection.HISTORY.columns();
+
+    // Az összesítő panel metrikái, a diagramok sorrendjében.
+    static final Metric[] STATISTICS_METRICS = {
+            Metric.TEMPERATURE, Metric.HUMIDITY, Metric.PM25, Metric.PM10,
+            Metric.UV, Metric.LIGHT_QUANTITY, Metric.ATMOSPHERIC_PRESSURE
+    };
+    // Ennyi lezárt nap összesítője marad memóriában (naponta és metrikánként legfeljebb pár száz float).
+    private static final int MAX_STATISTICS_DAYS = 400;
+    // Egy nap összesítése előtt ennyi korábbi sor megy át a hibadetektoron (kb. 12 mérés).
+    private static final long FAULT_WARMUP_MILLIS = 12 * PMSensor.UPLOAD_INTERVAL_MILLIS;
+
+    private static final long DAY_MILLIS = DayChunkCache.DAY_MILLIS;
+    private static final String RAW_SOURCE = "raw";
+    // A helyben teljesen lefedett időszak kezdete (a szinkron állapotában).
+    static final String KEY_SYNCED_FROM = "synced_from";
+    private static final String SEGMENT_DIRECTORY = "history_segments";
+
+    /**
+     * A le nem tömörített sorok és a szinkron állapotának tárolója (Androidon a {@link SensorDatabase}).
+     */
+    interface Store {
+        /** Beszúrja, vagy ID alapján felülírja a sorokat. */
+        void insertAll(SensorSeries series);
+
+        /** A [startMillis, endMillis] időszak sorai időrendben. */
+        SensorSeries query(long startMillis, long endMillis);
+
+        void deleteRange(long startMillis, long endMillis);
+
+        /** A legfrissebb sor ideje, vagy Long.MIN_VALUE, ha nincs sor. */
+        long latestMeasureTime();
+
+        long getSyncState(String key, long defaultValue);
+
+        void putSyncState(String key, long value);
+    }
+
+    private static volatile HistoryRepository instance;
+
+    private final SupabaseClient supabase;
+    private final Store database;
+    private final LongSupplier clock;
+    private final ParallelRangeFetcher fetcher;
+    private final DayChunkCache cache;
+    private final SegmentStore segments;
+    // Lezárt napok összesítői; beszúráskor a napé törlődik, és a generáció nő.
+    private final Map<Long, SeriesStatistics> dayStatistics = new LinkedHashMap<Long, SeriesStatistics>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SeriesStatistics> eldest) {
+            return size() > MAX_STATISTICS_DAYS;
+        }
+    };
+    private long statisticsGeneration;
+    // Az utolsó előre irányuló szinkron ideje: egy feltöltési időközön belül nem kérdezünk újra.
+    private long lastForwardSyncMillis = Long.MIN_VALUE;
+
+    public static HistoryRepository getInstance(Context context) {
+        HistoryRepository result = instance;
+        if (result == null) {
+            synchronized (HistoryRepository.class) {
+                result = instance;
+                if (result == null) {
+                    long cacheBytes = context.getResources().getInteger(R.integer.history_cache_max_kb) * 1024L;
+                    result = new HistoryRepository(SupabaseClient.getInstance(context), SensorDatabase.getInstance(context),
+                            new DayChunkCache(cacheBytes),
+                            new SegmentStore(new File(context.getFilesDir(), SEGMENT_DIRECTORY)),
+                            System::currentTimeMillis);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    HistoryRepository(SupabaseClient supabase, Store database, DayChunkCache cache, SegmentStore segments,
+                      LongSupplier clock) {
+        this.supabase = supabase;
+        this.database = database;
+        this.clock = clock;
+        this.cache = cache;
+        this.segments = segments;
+        this.fetcher = new ParallelRangeFetcher(supabase, FetchScope.sharedExecutor(), FETCH_PARALLELISM);
+    }
+
+    /**
+     * Szinkronizálja a hiányzó sorokat, majd lemezről adja vissza a [startMillis, endMillis] időszakot.
+     */
+    public SensorSeries load(long startMillis, long endMillis) throws IOException {
+        sync(startMillis, endMillis);
+        // A helyi napok a beszúráskor érvénytelenítődnek, ezért nem kell lejárniuk.
+        return cache.read(RAW_SOURCE, startMillis, endMillis, clock.getAsLong(), Long.MAX_VALUE,
+                this::readLocal);
+    }
+
+    /**
+     * A helyben tárolt [fromMillis, toMillis] időszak: a tömörített napok a szegmensekből, a többi
+     * (egymás mellettiek egyetlen lekérdezéssel) az SQLite táblából.
+     */
+    private SensorSeries readLocal(long fromMillis, long toMillis) {
+        SensorSeries result = new SensorSeries();
+        long pendingFrom = Long.MIN_VALUE;
+        for (long day = Math.floorDiv(fromMillis, DAY_MILLIS); day <= Math.floorDiv(toMillis, DAY_MILLIS); day++) {
+            long from = Math.max(fromMillis, day * DAY_MILLIS);
+            long to = Math.min(toMillis, (day + 1) * DAY_MILLIS - 1);
+            if (!segments.contains(day) && !compact(day)) {
+                if (pendingFrom == Long.MIN_VALUE) pendingFrom = from;
+                continue;
+            }
+            if (pendingFrom != Long.MIN_VALUE) {
+                result.appendAll(database.query(pendingFrom, from - 1));
+                pendingFrom = Long.MIN_VALUE;
+            }
+            if (!segments.read(day, from, to, result)) {
+                // Sérült fájl (a tároló már törölte): a sorok az SQLite-ból sem olvashatók vissza,
+                // ezért a lefedettséget a nap utánra toljuk, és a következő betöltés újra letölti.
+                markLost(day);
+            }
+        }
+        if (pendingFrom != Long.MIN_VALUE) {
+            result.appendAll(database.query(pendingFrom, toMillis));
+        }
+        return result;
+    }
+
+    /**
+     * A lezárt, teljesen szinkronizált nap áttétele az SQLite táblából egy szegmensbe.
+     * Hamis, ha a nap még nem tömöríthető, vagy az írás nem sikerült.
+     */
+    private synchronized boolean compact(long day) {
+        if (segments.contains(day)) return true;
+        long dayStart = day * DAY_MILLIS;
+        long dayEnd = dayStart + DAY_MILLIS - 1;
+        // A napnál újabb helyi sor azt jelzi, hogy az előre irányuló szinkron túljutott rajta.
+        if (!isClosedDay(day, clock.getAsLong())
+                || dayStart < database.getSyncState(KEY_SYNCED_FROM, Long.MAX_VALUE)
+                || database.latestMeasureTime() <= dayEnd) {
+            return false;
+        }
+        SensorSeries rows = database.query(dayStart, dayEnd);
+        try {
+            segments.write(day, rows);
+        } catch (IOException e) {
+            Log.w(TAG, "A nap tömörítése sikertelen: " + day, e);
+            return false;
+        }
+        database.deleteRange(dayStart, dayEnd);
+        Log.d(TAG, day + ". nap tömörítve: " + rows.size() + " sor.");
+        return true;
+    }
+
+    /**
+     * A lezárt napok eddig az időpontig véget érnek. A Measure_time helyi falióra-idő, ezért egy nap
+     * ráhagyással számítjuk lezártnak a napot: addig még érkezhet bele sor.
+     */
+    private static long closedBefore(long nowMillis) {
+        return nowMillis - DAY_MILLIS;
+    }
+
+    private static boolean isClosedDay(long day, long nowMillis) {
+        return (day + 1) * DAY_MILLIS <= closedBefore(nowMillis);
+    }
+
+    private synchronized void markLost(long day) {
+        long syncedFrom = database.getSyncState(KEY_SYNCED_FROM, Long.MAX_VALUE);
+        long nextDay = (day + 1) * DAY_MILLIS;
+        if (syncedFrom < nextDay) {
+            database.putSyncState(KEY_SYNCED_FROM, nextDay);
+        }
+        cache.invalidate(RAW_SOURCE, day * DAY_MILLIS, nextDay - 1);
+        synchronized (dayStatistics) {
+            statisticsGeneration++;
+            dayStatistics.remove(day);
+        }
+    }
+
+    /**
+     * A diagramokhoz: ha az időszak nyers adata sokkal több pontot adna, mint amennyit a diagram
+     * meg tud jeleníteni, a legdurvább, még kitöltő szerveroldali összesítés; null, ha a nyers adat kell.
+     * A helyi tároló által már lefedett időszakra legfeljebb {@link #LOCAL_RAW_FACTOR}-szoros
+     * túlmintavételezésig a nyers adat marad, mert az hálózat nélkül, újraindítás után is elérhető.
+     */
+    public RollupLevel levelFor(long startMillis, long endMillis, int pointBudget) {
+        RollupLevel level = RollupLevel.choose(endMillis - startMillis, pointBudget);
+        if (level != null
+                && (endMillis - startMillis) / PMSensor.UPLOAD_INTERVAL_MILLIS <= (long) LOCAL_RAW_FACTOR * pointBudget
+                && localCoverageFrom(startMillis) == startMillis) {
+            return null;
+        }
+        return level;
+    }
+
+    /**
+     * Egy nagyított diagramablak adott felbontásban. A nyers adat a helyi tárolóból jön, ha az ablak
+     * a lefedett részbe esik; korábbi ablakért viszont nem bővítjük visszafelé a tárolót (az a teljes
+     * közbenső időszak letöltését jelentené), hanem csak az ablakot, és abból is csak a diagram metrikáját.
+     */
+    public SensorSeries loadDetail(Metric metric, RollupLevel level, long startMillis, long endMillis)
+            throws IOException {
+        if (level != null) {
+            return loadRollup(level, startMillis, endMillis);
+        }
+        if (startMillis >= database.getSyncState(KEY_SYNCED_FROM, Long.MAX_VALUE)) {
+            return load(startMillis, endMillis);
+        }
+        SensorColumn[] columns = SensorProjection.chart(metric);
+        // Az ID a lapozáshoz kell: azonos Measure_time mellett is egyértelmű sorrend.
+        return fetcher.fetch(() -> new SensorQuery()
+                        .select(columns)
+                        .orderBy(SensorColumn.MEASURE_TIME, true)
+                        .orderBy(SensorColumn.ID, true),
+                startMillis, endMillis, RAW_SLICE_MILLIS);
+    }
+
+    /**
+     * A [startMillis, ...) időszak helyben lefedett részének kezdete; Long.MAX_VALUE, ha a tároló üres.
+     */
+    public long localCoverageFrom(long startMillis) {
+        return Math.max(startMillis, database.getSyncState(KEY_SYNCED_FROM, Long.MAX_VALUE));
+    }
+
+    /**
+     * A [startMillis, endMillis] időszak metrikánkénti összesítője a helyben tárolt nyers adatból,
+     * a diagramokkal azonos {@link FaultDetector} javítás után. Nem tölt le semmit: a lefedett rész
+     * előtti napok kimaradnak, ezért a hívó a {@link #localCoverageFrom} szerinti kezdettől kérje.
+     * A lezárt, teljes napok összesítői memóriában maradnak, így hosszabb időszaknál csak a széleken
+     * lévő töredéknapokat és a még nyitott napokat kell újra végigolvasni. Az összesítésből rajzolt
+     * időszakokra lásd {@link #rollupStatistics}.
+     */
+    public SeriesStatistics statistics(long startMillis, long endMillis)
+            throws InterruptedIOException, InterruptedException {
+        long now = clock.getAsLong();
+        FetchToken token = FetchToken.current();
+        SeriesStatistics result = new SeriesStatistics(STATISTICS_METRICS);
+        if (startMillis > endMillis) return result;
+        for (long day = Math.floorDiv(startMillis, DAY_MILLIS); day <= Math.floorDiv(endMillis, DAY_MILLIS); day++) {
+            if (token != null) token.throwIfCancelled();
+            long dayStart = day * DAY_MILLIS;
+            long dayEnd = dayStart + DAY_MILLIS - 1;
+            long from = Math.max(startMillis, dayStart);
+            long to = Math.min(endMillis, dayEnd);
+            boolean closedDay = from == dayStart && to == dayEnd && isClosedDay(day, now);
+
+            SeriesStatistics dayStats = null;
+            long generation;
+            synchronized (dayStatistics) {
+                if (closedDay) dayStats = dayStatistics.get(day);
+                generation = statisticsGeneration;
+            }
+            if (dayStats == null) {
+                // A detektort a nap előtti sorok melegítik be, hogy a nap eleji kiugrásokat is javítsa.
+                SensorSeries rows = readLocal(from - FAULT_WARMUP_MILLIS, to);
+                new FaultDetector().clean(rows);
+                dayStats = SeriesStatistics.compute(rows, rows.lowerBound(from), rows.size(), STATISTICS_METRICS,
+                        KllSketch.DEFAULT_K, FetchScope.sharedExecutor());
+                if (closedDay) {
+                    synchronized (dayStatistics) {
+                        if (generation == statisticsGeneration) dayStatistics.put(day, dayStats);
+                    }
+                }
+            }
+            result.merge(dayStats);
+        }
+        return result;
+    }
+
+    /**
+     * A [startMillis, endMillis] időszak összesítője egy összesítő tábla réseiből, résnyi pontossággal.
+     * A diagrammal azonos szinten kérve a sorok már a gyorsítótárban vannak, és a helyi tároló
+     * lefedettségétől sem függ. A minimum, a maximum és az átlag pontos, a kvantilisek közelítők;
+     * a {@link FaultDetector} javítása itt elmarad, mert a szerver a nyers sorokat összesíti.
+     */
+    public SeriesStatistics rollupStatistics(RollupLevel level, long startMillis, long endMillis) throws IOException {
+        return SeriesStatistics.fromRollup(loadRollup(level, startMillis, endMillis), STATISTICS_METRICS);
+    }
+
+    /**
+     * Egy összesítő tábla [startMillis, endMillis] időszaka, a rések szélső értékeivel és mérésszámával.
+     * A hiányzó napokat szeletenként nagyjából egy lapnyi réssel, párhuzamosan tölti le; az utolsó
+     * egy-két nap (amelynek rései még bővülhetnek) csak rövid ideig marad a tárolóban.
+     */
+    public SensorSeries loadRollup(RollupLevel level, long startMillis, long endMillis) throws IOException {
+        Log.d(TAG, "Összesített adat: " + level.viewName);
+        long now = clock.getAsLong();
+        // A táblában a Measure_time egyedi (réskezdet, elsődleges kulcs), így a lapozás sorrendje egyértelmű.
+        return cache.read(level.name(), startMillis, endMillis, now, closedBefore(now),
+                (from, to) -> fetcher.fetch(() -> SensorQuery.rollup(level)
+                                .selectRollup(CHART_COLUMNS)
+                                .orderBy(SensorColumn.MEASURE_TIME, true),
+                        from, to, PAGE_SIZE * 9 / 10 * level.bucketMillis));
+    }
+
+    private synchronized void sync(long startMillis, long endMillis) throws IOException {
+        long syncedFrom = database.getSyncState(KEY_SYNCED_FROM, Long.MAX_VALUE);
+        long latest = database.latestMeasureTime();
+
+        long now = clock.getAsLong();
+        boolean forwardDue = lastForwardSyncMillis == Long.MIN_VALUE
+                || now - lastForwardSyncMillis >= PMSensor.UPLOAD_INTERVAL_MILLIS;
+
+        if (latest == Long.MIN_VALUE) {
+            if (!forwardDue) return;
+            // Üres tároló: a kért időszak elejétől mindent letöltünk, ami a szerveren van.
+            downloadFrom(startMillis, -1);
+            database.putSyncState(KEY_SYNCED_FROM, startMillis);
+            lastForwardSyncMillis = now;
+            return;
+        }
+
+        if (startMillis < syncedFrom) {
+            downloadFrom(startMillis, syncedFrom);
+            database.putSyncState(KEY_SYNCED_FROM, startMillis);
+        }
+
+        if (endMillis > latest && forwardDue) {
+            downloadNewerThan(latest);
+            lastForwardSyncMillis = now;
+        }
+    }
+
+    /**
+     * A (időrendű) sorok tárolása: a már tömörített napokra esők a szegmensbe olvadnak be.
+     */
+    private void insert(SensorSeries rows) throws IOException {
+        if (rows.isEmpty()) return;
+        SensorSeries plain = new SensorSeries(rows.size());
+        for (int from = 0; from < rows.size(); ) {
+            long day = Math.floorDiv(rows.timeAt(from), DAY_MILLIS);
+            int to = rows.lowerBound((day + 1) * DAY_MILLIS);
+            if (segments.contains(day)) {
+                segments.merge(day, rows.sliceRows(from, to));
+            } else {
+                plain.appendRows(rows, from, to);
+            }
+            from = to;
+        }
+        if (!plain.isEmpty()) {
+            database.insertAll(plain);
+        }
+        cache.invalidate(RAW_SOURCE, rows.timeAt(0), rows.timeAt(rows.size() - 1));
+        synchronized (dayStatistics) {
+            statisticsGeneration++;
+            for (long day = Math.floorDiv(rows.timeAt(0), DAY_MILLIS);
+                 day <= Math.floorDiv(rows.timeAt(rows.size() - 1), DAY_MILLIS); day++) {
+                dayStatistics.remove(day);
+            }
+        }
+    }
+
+    /**
+     * Letölti a [fromMillis, beforeMillis] időszak sorait (beforeMillis &lt; 0 esetén a legfrissebbig).
+     * A határon ülő sort a korábbi szinkron is tárolhatta, de az ID alapú felülírás miatt nem duplikálódik.
+     */
+    private void downloadFrom(long fromMillis, long beforeMillis) throws IOException {
+        SensorSeries rows = fetcher.fetch(() -> new SensorQuery()
+                        .select(HISTORY_COLUMNS)
+                        .orderBy(SensorColumn.MEASURE_TIME, true)
+                        .orderBy(SensorColumn.ID, true),
+                fromMillis, beforeMillis < 0 ? Long.MAX_VALUE : beforeMillis, RAW_SLICE_MILLIS);
+        insert(rows);
+        Log.d(TAG, rows.size() + " sor letöltve.");
+    }
+
+    private void downloadNewerThan(long latestMillis) throws IOException {
+        SensorSeries page = new SensorSeries(PAGE_SIZE);
+        supabase.fetchInto(new SensorQuery()
+                .select(HISTORY_COLUMNS)
+                .gt(SensorColumn.MEASURE_TIME, TimeCodec.formatSupabaseTime(latestMillis))
+                .orderBy(SensorColumn.MEASURE_TIME, true)
+                .limit(PAGE_SIZE), page);
+        insert(page);
+        if (page.size() == PAGE_SIZE) {
+            downloadFrom(page.timeAt(page.size() - 1), -1);
+        }
+        Log.d(TAG, page.size() + " új sor szinkronizálva.");
+    }
+}
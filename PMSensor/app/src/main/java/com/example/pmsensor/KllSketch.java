@@ -0,0 +1,208 @@
+package com.example.pmsensor;
+
+import java.util.Arrays;
+
+/**
+ * Egyesíthető kvantilis-becslő (KLL sketch) float értékekre, korlátos memóriával.
+ *
+ * A beérkező értékek a 0. szintre kerülnek; ha egy szint betelik, rendezve minden második eleme
+ * kétszeres súllyal a következő szintre lép, a többi elvész. A szintek kapacitása felfelé haladva
+ * 3/2-szeresére nő, így a teljes méret kb. 3k, a rangszám hibája pedig nagyjából 1,7/k. Amíg
+ * kevesebb érték érkezett, mint amennyi elfér, a kvantilisek pontosak. Két sketch összefésülhető,
+ * így pl. napi összesítők tetszőleges időszakra kombinálhatók.
+ */
+final class KllSketch {
+
+    static final int DEFAULT_K = 128;
+
+    private static final int MIN_LEVEL_CAPACITY = 8;
+
+    private final int k;
+    private float[][] levels = new float[1][];
+    private int[] sizes = new int[1];
+    private long count;
+    private float min = Float.POSITIVE_INFINITY;
+    private float max = Float.NEGATIVE_INFINITY;
+    // Determinisztikus érme a tömörítéshez (melyik fele marad meg), hogy a mérés ismételhető legyen.
+    private long coin = 0x9E3779B97F4A7C15L;
+
+    KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    KllSketch(int k) {
+        this.k = k;
+        levels[0] = new float[capacity(0)];
+    }
+
+    long count() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    float min() {
+        return count == 0 ? Float.NaN : min;
+    }
+
+    float max() {
+        return count == 0 ? Float.NaN : max;
+    }
+
+    /**
+     * Egy érték felvétele; a NaN (hiányzó mérés) kimarad.
+     */
+    void update(float value) {
+        if (Float.isNaN(value)) return;
+        count++;
+        if (value < min) min = value;
+        if (value > max) max = value;
+        append(0, value);
+        if (sizes[0] >= capacity(0)) {
+            compress();
+        }
+    }
+
+    /**
+     * Egy érték weight-szeres felvétele (pl. egy összesített rés átlaga a rés mérésszámával): a súly
+     * bináris alakja szerint szintenként legfeljebb egy elem kerül be, így a tárolás nem nő a súllyal.
+     */
+    void update(float value, long weight) {
+        if (Float.isNaN(value) || weight <= 0) return;
+        count += weight;
+        if (value < min) min = value;
+        if (value > max) max = value;
+        for (int level = 0; weight != 0; level++, weight >>>= 1) {
+            if ((weight & 1) == 0) continue;
+            while (level >= levels.length) {
+                addLevel();
+            }
+            append(level, value);
+        }
+        compress();
+    }
+
+    /**
+     * A másik sketch értékeinek beolvasztása (a másik változatlan marad).
+     */
+    void merge(KllSketch other) {
+        if (other.count == 0) return;
+        for (int level = 0; level < other.levels.length; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress();
+    }
+
+    /**
+     * A q-adik kvantilis (0 &lt;= q &lt;= 1) becslése: a legkisebb tárolt érték, amelynél legalább
+     * q * count() érték nem nagyobb. Üres sketch esetén NaN.
+     */
+    float quantile(double q) {
+        if (count == 0) return Float.NaN;
+        if (q <= 0) return min;
+        if (q >= 1) return max;
+
+        int total = 0;
+        for (int size : sizes) total += size;
+        float[] values = new float[total];
+        long[] weights = new long[total];
+        int n = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                values[n] = levels[level][i];
+                weights[n] = 1L << level;
+                n++;
+            }
+        }
+        sortByValue(values, weights);
+
+        double target = q * count;
+        long cumulative = 0;
+        for (int i = 0; i < n; i++) {
+            cumulative += weights[i];
+            if (cumulative >= target) return values[i];
+        }
+        return max;
+    }
+
+    /**
+     * A tárolt elemek száma (a memóriaigény mértéke).
+     */
+    int retained() {
+        int total = 0;
+        for (int size : sizes) total += size;
+        return total;
+    }
+
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+    }
+
+    private void append(int level, float value) {
+        if (level >= levels.length) {
+            addLevel();
+        }
+        float[] items = levels[level];
+        if (sizes[level] == items.length) {
+            items = levels[level] = Arrays.copyOf(items, Math.max(MIN_LEVEL_CAPACITY, items.length * 2));
+        }
+        items[sizes[level]++] = value;
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        levels[levels.length - 1] = new float[MIN_LEVEL_CAPACITY];
+    }
+
+    /**
+     * Alulról felfelé tömöríti a kapacitásukat elérő szinteket.
+     */
+    private void compress() {
+        for (int level = 0; level < levels.length; level++) {
+            if (sizes[level] < capacity(level)) continue;
+            if (level + 1 >= levels.length) {
+                addLevel();
+            }
+            float[] items = levels[level];
+            int size = sizes[level];
+            Arrays.sort(items, 0, size);
+            // Páratlan méretnél a legkisebb elem a szinten marad, így a súlyok összege nem változik.
+            int start = size % 2;
+            int offset = flip() ? 1 : 0;
+            for (int i = start + offset; i < size; i += 2) {
+                append(level + 1, items[i]);
+            }
+            sizes[level] = start;
+        }
+    }
+
+    private boolean flip() {
+        coin ^= coin << 13;
+        coin ^= coin >>> 7;
+        coin ^= coin << 17;
+        return (coin & 1) != 0;
+    }
+
+    private static void sortByValue(float[] values, long[] weights) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Float.compare(values[a], values[b]));
+        float[] sortedValues = new float[values.length];
+        long[] sortedWeights = new long[weights.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedValues[i] = values[order[i]];
+            sortedWeights[i] = weights[order[i]];
+        }
+        System.arraycopy(sortedValues, 0, values, 0, values.length);
+        System.arraycopy(sortedWeights, 0, weights, 0, weights.length);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.pmsensor;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Locale;
+
+/**
+ * Egy mérés SharedPreferences-ben megőrizve, a mentés idejével együtt.
+ * A háttérfeladat ebben tartja az utoljára feldolgozott mérést (hogy a következő futás csak az ennél
+ * újabbat dolgozza fel), a {@link LatestReadingRepository} pedig a legutóbb letöltöttet.
+ */
+final class LastReadingStore implements LatestReadingRepository.Store {
+
+    static final String WORKER_PREFS = "sensor_worker";
+    static final String LATEST_PREFS = "latest_reading";
+
+    private static final String KEY_MEASURE_TIME = "measure_time";
+    private static final String KEY_ID = "id";
+    private static final String KEY_SAVED_AT = "saved_at";
+
+    private final SharedPreferences prefs;
+
+    LastReadingStore(Context context) {
+        this(context, WORKER_PREFS);
+    }
+
+    LastReadingStore(Context context, String prefsName) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(prefsName, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Az utoljára mentett mérés, vagy null, ha még nem volt mentés.
+     */
+    @Override
+    public PMSensor load() {
+        String measureTime = prefs.getString(KEY_MEASURE_TIME, null);
+        if (measureTime == null) {
+            return null;
+        }
+        PMSensor reading = new PMSensor();
+        reading.setMeasureTime(measureTime);
+        reading.Id = prefs.getString(KEY_ID, null);
+        for (Metric metric : Metric.values()) {
+            reading.setValue(metric, prefs.getFloat(key(metric), 0));
+        }
+        return reading;
+    }
+
+    /**
+     * A legutóbbi mentés ideje (epoch ms), vagy Long.MIN_VALUE.
+     */
+    @Override
+    public long savedAtMillis() {
+        return prefs.getLong(KEY_SAVED_AT, Long.MIN_VALUE);
+    }
+
+    void save(PMSensor reading) {
+        save(reading, System.currentTimeMillis());
+    }
+
+    @Override
+    public void save(PMSensor reading, long savedAtMillis) {
+        SharedPreferences.Editor editor = prefs.edit()
+                .putString(KEY_MEASURE_TIME, reading.measureTime)
+                .putString(KEY_ID, reading.Id)
+                .putLong(KEY_SAVED_AT, savedAtMillis);
+        for (Metric metric : Metric.values()) {
+            editor.putFloat(key(metric), reading.valueOf(metric));
+        }
+        editor.apply();
+    }
+
+    // A korábbi kulcsokkal (temperature, pm25, ...) egyező nevek.
+    private static String key(Metric metric) {
+        return metric.name().toLowerCase(Locale.ROOT);
+    }
+}
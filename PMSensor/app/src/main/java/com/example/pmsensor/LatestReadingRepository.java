@@ -0,0 +1,170 @@
+package com.example.pmsensor;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.LongSupplier;
+
+/**
+ * A legfrissebb mérés közös forrása a főképernyőnek és a háttérfeladatnak.
+ *
+ * Egy mérés {@link #FRESH_MILLIS} ideig frissnek számít, ezalatt nincs hálózati kérés. Az egy időben
+ * érkező kérések egyetlen lekérdezésen osztoznak. Az eredmény lemezre is kerül, így hidegindításkor
+ * a {@link #cached()} azonnal megjeleníthető, még a válasz előtt. Ha már van ismert mérés, csak az
+ * annál újabbat kérjük (gt szűrő), így változatlan állapotban a válasz üres.
+ */
+public final class LatestReadingRepository {
+
+    // Az ESP32 5 percenként tölt fel; egy percnyi késés a megjelenítésben elfogadható, a képernyő
+    // egymás utáni eseményei (onCreate, onResume) és a háttérfeladat viszont így osztozhatnak egy kérésen.
+    static final long FRESH_MILLIS = PMSensor.UPLOAD_INTERVAL_MILLIS / 5;
+
+    // A főképernyő és a háttérfeladat ugyanazt a mérést használja, ezért a kettő oszlopait kérjük.
+    private static final SensorColumn[] COLUMNS =
+            SensorProjection.union(SensorProjection.MAIN_SCREEN, SensorProjection.WORKER);
+
+    /**
+     * A mérés és a letöltés idejének tartós tárolója.
+     */
+    interface Store {
+        PMSensor load();
+
+        long savedAtMillis();
+
+        void save(PMSensor reading, long savedAtMillis);
+    }
+
+    private static volatile LatestReadingRepository instance;
+
+    private final SupabaseClient supabase;
+    private final Store store;
+    private final LongSupplier clock;
+
+    private boolean loaded;
+    private PMSensor latest;
+    private long fetchedAtMillis = Long.MIN_VALUE;
+    private FutureTask<PMSensor> inFlight;
+
+    public static LatestReadingRepository getInstance(Context context) {
+        LatestReadingRepository result = instance;
+        if (result == null) {
+            synchronized (LatestReadingRepository.class) {
+                result = instance;
+                if (result == null) {
+                    result = new LatestReadingRepository(SupabaseClient.getInstance(context),
+                            new LastReadingStore(context, LastReadingStore.LATEST_PREFS), System::currentTimeMillis);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    LatestReadingRepository(SupabaseClient supabase, Store store, LongSupplier clock) {
+        this.supabase = supabase;
+        this.store = store;
+        this.clock = clock;
+    }
+
+    /**
+     * Az utolsó ismert mérés hálózat nélkül (a lemezről is), vagy null.
+     */
+    public synchronized PMSensor cached() {
+        ensureLoaded();
+        return latest;
+    }
+
+    /**
+     * A legfrissebb mérés: a tárolt, ha legfeljebb maxAgeMillis régi, egyébként lekérdezzük (egy időben
+     * csak egyszer). Null, ha a tábla üres.
+     */
+    public PMSensor get(long maxAgeMillis) throws IOException {
+        FutureTask<PMSensor> task;
+        boolean owner = false;
+        synchronized (this) {
+            ensureLoaded();
+            long age = clock.getAsLong() - fetchedAtMillis;
+            // Visszaállított óra mellett (negatív kor) sem tekintjük örökké frissnek.
+            if (latest != null && age >= 0 && age < maxAgeMillis) {
+                return latest;
+            }
+            if (inFlight == null) {
+                inFlight = new FutureTask<>(this::fetch);
+                owner = true;
+            }
+            task = inFlight;
+        }
+
+        if (owner) {
+            // A közös kérés nem kötődik a hívó megszakítási jeléhez: a többi várakozó is ezt használja.
+            FetchToken outer = FetchToken.attach(null);
+            try {
+                task.run();
+            } finally {
+                FetchToken.attach(outer);
+                synchronized (this) {
+                    inFlight = null;
+                }
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Megszakított lekérdezés");
+        }
+    }
+
+    /**
+     * Máshonnan (pl. a valós idejű csatornáról) érkezett mérés átvétele, ha újabb a tároltnál.
+     */
+    public synchronized void offer(PMSensor reading) {
+        ensureLoaded();
+        if (reading.measureMillis == Long.MIN_VALUE) return;
+        if (latest != null && reading.measureMillis <= latest.measureMillis) return;
+        remember(reading, clock.getAsLong());
+    }
+
+    private PMSensor fetch() throws IOException {
+        PMSensor known;
+        synchronized (this) {
+            known = latest;
+        }
+        PMSensor newer = supabase.fetchLatestAfter(known == null ? null : known.measureTime, COLUMNS);
+        long now = clock.getAsLong();
+        synchronized (this) {
+            if (newer != null && (latest == null || newer.measureMillis > latest.measureMillis)) {
+                remember(newer, now);
+            } else if (latest != null) {
+                // Nincs újabb mérés: a tárolt ismét friss.
+                remember(latest, now);
+            }
+            return latest;
+        }
+    }
+
+    private void remember(PMSensor reading, long now) {
+        latest = reading;
+        fetchedAtMillis = now;
+        store.save(reading, now);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        PMSensor stored = store.load();
+        if (stored != null && latest == null) {
+            latest = stored;
+            fetchedAtMillis = store.savedAtMillis();
+        }
+    }
+}
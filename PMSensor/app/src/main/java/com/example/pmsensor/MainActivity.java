@@ -3,37 +3,39 @@ package com.example.pmsensor;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Typeface;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.util.TypedValue;
 import android.widget.Button;
+import android.widget.HorizontalScrollView;
+import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.Insets;
+import androidx.core.util.Pair;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
-import androidx.work.ExistingPeriodicWorkPolicy;
-import androidx.work.PeriodicWorkRequest;
-import androidx.work.WorkManager;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
-import java.util.TimeZone;
-import java.util.concurrent.TimeUnit;
-
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 
 public class MainActivity extends AppCompatActivity {
     private TextView timeView;
@@ -44,19 +46,59 @@ public class MainActivity extends AppCompatActivity {
     private TextView uvView;
     private TextView pm25View;
     private TextView pm10View;
+    private TextView airQualityView;
     private Button graphButton;
+    private SwitchMaterial realtimeSwitch;
+
+    // Valós idejű módban a megszakadt kapcsolat idejére ezzel kérdezzük le a legfrissebb mérést.
+    private final Handler pollHandler = new Handler(Looper.getMainLooper());
+    private final Runnable pollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            loadLastSensorData();
+            pollHandler.postDelayed(this, PMSensor.UPLOAD_INTERVAL_MILLIS);
+        }
+    };
+
+    private final RealtimeClient.Listener realtimeListener = new RealtimeClient.Listener() {
+        @Override
+        public void onReading(PMSensor reading) {
+            // A feldolgozás (mentés, hézagpótlás a helyi előzményből) ne tartsa fel a websocket olvasó szálát.
+            FetchScope.sharedExecutor().execute(() -> {
+                SensorWorker.deliver(getApplicationContext(), reading);
+                LatestReadingRepository.getInstance(MainActivity.this).offer(reading);
+                DerivedMetrics.Snapshot derived = DerivedMetricsRepository.getInstance(MainActivity.this).current();
+                runOnUiThread(() -> {
+                    showReading(reading);
+                    showDerived(derived);
+                });
+            });
+        }
 
-    private String SUPABASE_URL;
-    private String SUPABASE_KEY;
+        @Override
+        public void onConnectionChanged(boolean connected) {
+            runOnUiThread(() -> {
+                pollHandler.removeCallbacks(pollRunnable);
+                if (!connected) {
+                    Log.d("MainActivity", "Realtime kapcsolat megszakadt, lekérdezésre váltunk.");
+                    pollHandler.post(pollRunnable);
+                }
+            });
+        }
+    };
+
+    private static final String LATEST_KEY = "latest";
+    private static final String PERF_REPORT_FILE = "perf_report.txt";
 
-    private static final String SENSOR_WORK_TAG = "SensorDataFetchWork";
+    // A képernyő háttérlekérdezései: az újabb lekérdezés megszakítja a még futót, onDestroy mindet.
+    private FetchScope fetchScope;
 
     private final ActivityResultLauncher<String> requestPermissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestPermission(), isGranted -> {
                 if (isGranted) {
                     Log.d("MainActivity", "Értesítési engedély megadva.");
 
-                    setupPeriodicWork();
+                    setupBackgroundWork();
                 } else {
                     Log.w("MainActivity", "Értesítési engedély megtagadva.");
                     Toast.makeText(this, "Értesítések nélkül a háttérfrissítések nem fognak működni.", Toast.LENGTH_LONG).show();
@@ -70,9 +112,6 @@ public class MainActivity extends AppCompatActivity {
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
 
-        SUPABASE_URL = getString(R.string.supabase_url);
-        SUPABASE_KEY = getString(R.string.supabase_key);
-
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
@@ -87,11 +126,34 @@ public class MainActivity extends AppCompatActivity {
         uvView = findViewById(R.id.uv);
         pm25View = findViewById(R.id.pm25);
         pm10View = findViewById(R.id.pm10);
+        airQualityView = findViewById(R.id.airQuality);
         graphButton = findViewById(R.id.button);
+        realtimeSwitch = findViewById(R.id.realtimeSwitch);
 
+        fetchScope = new FetchScope(ContextCompat.getMainExecutor(this));
+        // Hidegindításkor a legutóbb ismert értékek azonnal látszanak, a friss adat utána érkezik.
+        PMSensor cached = LatestReadingRepository.getInstance(this).cached();
+        if (cached != null) {
+            showReading(cached);
+        }
         loadLastSensorData();
 
         graphButton.setOnClickListener(v -> openGraphActivity());
+        // Hibakereséshez: hosszú nyomásra a teljesítménymérők jelentése (fájlba is).
+        graphButton.setOnLongClickListener(v -> {
+            showPerfReport();
+            return true;
+        });
+
+        realtimeSwitch.setChecked(RealtimeClient.isEnabled(this));
+        realtimeSwitch.setOnCheckedChangeListener((button, checked) -> {
+            RealtimeClient.setEnabled(this, checked);
+            if (checked) {
+                startRealtime();
+            } else {
+                stopRealtime();
+            }
+        });
 
         NotificationHelper.createNotificationChannels(this);
 
@@ -99,87 +161,135 @@ public class MainActivity extends AppCompatActivity {
     }
 
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (RealtimeClient.isEnabled(this)) {
+            startRealtime();
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        loadLastSensorData();
+        // Élő kapcsolat mellett a képernyő már friss, nincs szükség újabb lekérdezésre.
+        if (!RealtimeClient.isEnabled(this) || !RealtimeClient.getInstance(this).isConnected()) {
+            loadLastSensorData();
+        }
     }
 
-    private void loadLastSensorData() {
-        new Thread(() -> {
-            try {
-                OkHttpClient client = new OkHttpClient();
-                Request request = new Request.Builder()
-                        .url(SUPABASE_URL + "/rest/v1/PMSensor?select=*&order=Measure_time.desc&limit=1")
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("Accept", "application/json")
-                        .build();
-
-                Response response = client.newCall(request).execute();
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    JSONArray jsonArray = new JSONArray(responseBody);
-
-                    if (jsonArray.length() > 0) {
-                        JSONObject obj = jsonArray.getJSONObject(0);
-
-                        final String time = obj.getString("Measure_time");
-                        final float temperature = (float) obj.getDouble("Temperature");
-                        final float humidity = (float) obj.getDouble("Humidity");
-                        final float pressure = (float) obj.getDouble("Atmospheric_pressure");
-                        final float light = (float) obj.getDouble("Light_quantity");
-                        final float uv = (float) obj.getDouble("UV");
-                        final float pm25 = (float) obj.getDouble("PM25");
-                        final float pm10 = (float) obj.getDouble("PM10");
-
-                        String formattedTime = formatDisplayDate(time);
-
-                        runOnUiThread(() -> {
-                            timeView.setText(formattedTime);
-                            temperatureView.setText(String.format(Locale.getDefault(), "%.1f °C", temperature));
-                            humidityView.setText(String.format(Locale.getDefault(), "%.0f %%", humidity));
-                            atmosphericPressureView.setText(String.format(Locale.getDefault(), "%.0f hPa", pressure));
-                            lightQuantityView.setText(String.format(Locale.getDefault(), "%.0f Lux", light));
-                            uvView.setText(String.format(Locale.getDefault(), "%.1f", uv));
-                            pm25View.setText(String.format(Locale.getDefault(), "PM2.5: %.1f µg/m³", pm25));
-                            pm10View.setText(String.format(Locale.getDefault(), "PM10: %.1f µg/m³", pm10));
-                        });
-                    }
-                } else {
-                    Log.e("Supabase", "Request failed: " + response.code());
-                }
-            } catch (Exception e) {
-                Log.e("Supabase", "Error fetching data", e);
-            }
-        }).start();
+    @Override
+    protected void onStop() {
+        super.onStop();
+        stopRealtime();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        fetchScope.cancelAll();
+    }
 
-    private String formatDisplayDate(String isoString) {
-        try {
-
-            java.time.LocalDateTime localDateTime = java.time.LocalDateTime.parse(
-                    isoString.substring(0, 19)
-            );
+    private void startRealtime() {
+        // Amíg a csatorna nem csatlakozik, a szokásos időközzel lekérdezünk.
+        pollHandler.removeCallbacks(pollRunnable);
+        pollHandler.postDelayed(pollRunnable, PMSensor.UPLOAD_INTERVAL_MILLIS);
+        RealtimeClient.getInstance(this).addListener(realtimeListener);
+    }
 
+    private void stopRealtime() {
+        pollHandler.removeCallbacks(pollRunnable);
+        RealtimeClient.getInstance(this).removeListener(realtimeListener);
+    }
 
-            java.time.ZoneId hungarianZoneId = java.time.ZoneId.of("Europe/Budapest");
-            java.time.ZonedDateTime zonedDateTime = localDateTime.atZone(hungarianZoneId);
+    private void loadLastSensorData() {
+        LatestReadingRepository repository = LatestReadingRepository.getInstance(this);
+        DerivedMetricsRepository derivedRepository = DerivedMetricsRepository.getInstance(this);
+        // A származtatott értékek (és a hézag pótlása) is a háttérszálon frissülnek.
+        fetchScope.launch(LATEST_KEY, () -> {
+                    PMSensor latest = repository.get(LatestReadingRepository.FRESH_MILLIS);
+                    return Pair.create(latest, latest != null ? derivedRepository.update(latest) : derivedRepository.current());
+                },
+                new FetchScope.Callback<Pair<PMSensor, DerivedMetrics.Snapshot>>() {
+                    @Override
+                    public void onResult(Pair<PMSensor, DerivedMetrics.Snapshot> result) {
+                        if (result.first != null) {
+                            showReading(result.first);
+                        }
+                        showDerived(result.second);
+                    }
 
-            java.time.format.DateTimeFormatter displayFormatter =
-                    java.time.format.DateTimeFormatter.ofPattern("yyyy.MM.dd HH:mm", Locale.getDefault());
+                    @Override
+                    public void onError(Exception e) {
+                        if (e instanceof SupabaseClient.HttpException) {
+                            Log.e("Supabase", "Request failed: " + ((SupabaseClient.HttpException) e).code);
+                        } else {
+                            Log.e("Supabase", "Error fetching data", e);
+                        }
+                    }
+                });
+    }
 
 
-            return zonedDateTime.format(displayFormatter);
+    private void showReading(PMSensor latest) {
+        timeView.setText(formatDisplayDate(latest));
+        temperatureView.setText(String.format(Locale.getDefault(), "%.1f °C", latest.temperature));
+        humidityView.setText(String.format(Locale.getDefault(), "%.0f %%", latest.humidity));
+        atmosphericPressureView.setText(String.format(Locale.getDefault(), "%.0f hPa", latest.atmosphericPressure));
+        lightQuantityView.setText(String.format(Locale.getDefault(), "%.0f Lux", latest.lightQuantity));
+        uvView.setText(String.format(Locale.getDefault(), "%.1f", latest.uv));
+        pm25View.setText(String.format(Locale.getDefault(), "PM2.5: %.1f µg/m³", latest.PM2_5));
+        pm10View.setText(String.format(Locale.getDefault(), "PM10: %.1f µg/m³", latest.PM10));
+    }
 
-        } catch (Exception e) {
-            Log.e("DateParser", "Dátumformázás sikertelen, a nyers string kerül megjelenítésre.", e);
-            return isoString;
+    private void showDerived(DerivedMetrics.Snapshot derived) {
+        if (derived == null) {
+            airQualityView.setText("");
+            return;
         }
+        airQualityView.setText(String.format(Locale.getDefault(),
+                "Levegőminőség (24 óra): %s\nKorrigált PM2.5: %.1f / %.1f µg/m³ · PM10: %.1f / %.1f µg/m³ (1 óra / 24 óra)",
+                derived.airQuality.label, derived.hourPm25, derived.dayPm25, derived.hourPm10, derived.dayPm10));
     }
 
+    private String formatDisplayDate(PMSensor reading) {
+        if (reading.measureMillis == Long.MIN_VALUE) {
+            Log.e("DateParser", "Dátumformázás sikertelen, a nyers string kerül megjelenítésre: " + reading.measureTime);
+            return reading.measureTime;
+        }
+        return TimeCodec.formatDisplayTime(reading.measureMillis);
+    }
 
+    private void showPerfReport() {
+        String report = PerfMetrics.get().report();
+        File directory = getExternalFilesDir(null);
+        File file = new File(directory != null ? directory : getFilesDir(), PERF_REPORT_FILE);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(report);
+        } catch (IOException e) {
+            Log.e("MainActivity", "A mérési jelentés nem írható: " + file, e);
+        }
+        Log.d("MainActivity", "Mérési jelentés:\n" + report);
+
+        TextView text = new TextView(this);
+        text.setText(report);
+        text.setTypeface(Typeface.MONOSPACE);
+        text.setTextSize(TypedValue.COMPLEX_UNIT_SP, 9);
+        text.setHorizontallyScrolling(true);
+        int padding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 16, getResources().getDisplayMetrics());
+        text.setPadding(padding, padding, padding, padding);
+        HorizontalScrollView horizontal = new HorizontalScrollView(this);
+        horizontal.addView(text);
+        ScrollView content = new ScrollView(this);
+        content.addView(horizontal);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Teljesítmény")
+                .setView(content)
+                .setPositiveButton("OK", null)
+                .setNeutralButton("Nullázás", (dialog, which) -> PerfMetrics.get().reset())
+                .show();
+    }
 
     private void openGraphActivity() {
         Intent intent = new Intent(this, GraphActivity.class);
@@ -189,30 +299,21 @@ public class MainActivity extends AppCompatActivity {
     private void askNotificationPermissionAndStartWork() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             if (ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) == PackageManager.PERMISSION_GRANTED) {
-                setupPeriodicWork();
+                setupBackgroundWork();
             } else {
                 requestPermissionLauncher.launch(Manifest.permission.POST_NOTIFICATIONS);
             }
         } else {
 
-            setupPeriodicWork();
+            setupBackgroundWork();
         }
     }
 
-    private void setupPeriodicWork() {
-        PeriodicWorkRequest periodicWorkRequest =
-                new PeriodicWorkRequest.Builder(SensorWorker.class, 5, TimeUnit.MINUTES)
-                        .addTag(SENSOR_WORK_TAG)
-                        .build();
-
-
-        WorkManager.getInstance(this).enqueueUniquePeriodicWork(
-                SENSOR_WORK_TAG,
-                ExistingPeriodicWorkPolicy.REPLACE,
-                periodicWorkRequest
-        );
+    private void setupBackgroundWork() {
+        // KEEP: a már futó lánc ütemezése az alkalmazás indításakor nem áll vissza.
+        SensorScheduler.ensureScheduled(this);
 
-        Log.d("MainActivity", "SensorWorker beütemezve 15 percenkénti futásra.");
+        Log.d("MainActivity", "SensorWorker beütemezve, hálózat esetén 5-30 percenkénti futásra.");
         Toast.makeText(this, "Háttérfrissítés beállítva.", Toast.LENGTH_SHORT).show();
     }
 }
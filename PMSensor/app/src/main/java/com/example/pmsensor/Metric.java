@@ -0,0 +1,32 @@
+package com.example.pmsensor;
+
+/**
+ * A PMSensor tábla numerikus mérési oszlopai. Az ordinal egyben a {@link SensorSeries} oszlopindexe.
+ */
+public enum Metric {
+    PM25(SensorColumn.PM25),
+    PM10(SensorColumn.PM10),
+    TEMPERATURE(SensorColumn.TEMPERATURE),
+    TEMPERATURE_RAW(SensorColumn.TEMPERATURE_RAW),
+    HUMIDITY(SensorColumn.HUMIDITY),
+    HUMIDITY_RAW(SensorColumn.HUMIDITY_RAW),
+    UV(SensorColumn.UV),
+    LIGHT_QUANTITY(SensorColumn.LIGHT_QUANTITY),
+    ATMOSPHERIC_PRESSURE(SensorColumn.ATMOSPHERIC_PRESSURE);
+
+    private static final Metric[] VALUES = values();
+
+    public final SensorColumn column;
+
+    Metric(SensorColumn column) {
+        this.column = column;
+    }
+
+    static Metric at(int index) {
+        return VALUES[index];
+    }
+
+    static int count() {
+        return VALUES.length;
+    }
+}
@@ -8,17 +8,18 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.highlight.Highlight;
 import com.github.mikephil.charting.utils.MPPointF;
 
-import java.text.SimpleDateFormat;
 import java.util.Locale;
-import java.util.TimeZone;
 
 public class MyMarkerView extends com.github.mikephil.charting.components.MarkerView {
 
     private final TextView tvContent;
+    private final long timeBase;
 
-    public MyMarkerView(Context context, int layoutResource) {
+    // timeBase: az az epoch ms, amihez képest a diagram X értékei eltolásként vannak megadva
+    public MyMarkerView(Context context, int layoutResource, long timeBase) {
         super(context, layoutResource);
         tvContent = findViewById(R.id.tvContent);
+        this.timeBase = timeBase;
     }
 
     // Ezt a metódust hívja meg a diagram minden alkalommal, amikor a MarkerView-t újra kell rajzolni
@@ -29,13 +30,10 @@ public class MyMarkerView extends com.github.mikephil.charting.components.Marker
         float yValue = e.getY();
 
         // Kinyerjük az X értéket (ami egy timestamp)
-        long xTimestamp = (long) e.getX();
+        long xTimestamp = timeBase + (long) e.getX();
 
-        // Létrehozunk egy dátumformázót a timestamp olvashatóvá tételéhez
-        // Olyan formátumot válasszunk, ami jól kifér a kis ablakba.
-        SimpleDateFormat sdf = new SimpleDateFormat("MM.dd HH:mm", Locale.getDefault());
-        sdf.setTimeZone(TimeZone.getTimeZone("CEST"));
-        String formattedDate = sdf.format(new java.util.Date(xTimestamp));
+        // Olyan formátumot választunk, ami jól kifér a kis ablakba (a tengelyfeliratokkal azonos).
+        String formattedDate = TimeCodec.formatChartLabel(xTimestamp);
 
         // Összefűzzük a két értéket egyetlen stringbe
         String textToShow = String.format(Locale.getDefault(), "Érték: %.1f\nIdő: %s", yValue, formattedDate);
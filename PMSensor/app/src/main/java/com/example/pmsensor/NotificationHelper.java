@@ -7,15 +7,25 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Build;
+import android.service.notification.StatusBarNotification;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 import androidx.core.content.ContextCompat;
 
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Scanner;
 
 public class NotificationHelper {
 
@@ -24,12 +34,11 @@ public class NotificationHelper {
     public static final int ONGOING_NOTIFICATION_ID = 1;
 
     private static final String ALERT_CHANNEL_ID = "SensorAlertChannel";
-    private static final int PM25_ALERT_ID = 2;
-    private static final int PM10_ALERT_ID = 3;
+    // A szabályok riasztásai a listabeli sorrendjük szerint kapnak azonosítót.
+    private static final int ALERT_ID_BASE = 2;
+    private static final String ALERT_STATE_PREFS = "alert_state";
 
-    // Küszöbértékek
-    private static final float PM25_THRESHOLD = 35.0f;
-    private static final float PM10_THRESHOLD = 50.0f;
+    private static AlertEngine alertEngine;
 
     // Csatornák létrehozása
     public static void createNotificationChannels(Context context) {
@@ -50,7 +59,11 @@ public class NotificationHelper {
         }
     }
 
-    public static void showOngoingNotification(Context context, float temp, float humid, float uv, float pm25, float pm10) {
+    /**
+     * Az állandó értesítés frissítése; a derived a korrigált átlagok és a kategória (null, ha nincs).
+     */
+    public static void showOngoingNotification(Context context, float temp, float humid, float uv, float pm25, float pm10,
+                                               DerivedMetrics.Snapshot derived) {
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU &&
                 ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
@@ -62,6 +75,12 @@ public class NotificationHelper {
         String contentText = String.format(Locale.getDefault(), "Hőm: %.1f°C, Páratart.: %.0f%%, PM2.5: %.1f", temp, humid, pm25);
         String bigText = String.format(Locale.getDefault(), "Hőmérséklet: %.1f°C\nPáratartalom: %.0f%%\nUV Index: %.1f\nPM2.5: %.1f µg/m³\nPM10: %.1f µg/m³",
                 temp, humid, uv, pm25, pm10);
+        if (derived != null) {
+            contentText += ", " + derived.airQuality.label;
+            bigText += String.format(Locale.getDefault(),
+                    "\nLevegőminőség: %s\nKorrigált PM2.5 átlag: %.1f (1 óra), %.1f (24 óra) µg/m³\nKorrigált PM10 átlag: %.1f (1 óra), %.1f (24 óra) µg/m³",
+                    derived.airQuality.label, derived.hourPm25, derived.dayPm25, derived.hourPm10, derived.dayPm10);
+        }
 
         Intent intent = new Intent(context, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE);
@@ -78,17 +97,99 @@ public class NotificationHelper {
     }
 
 
-    public static void checkThresholdsAndAlert(Context context, float pm25, float pm10) {
-        if (pm25 > PM25_THRESHOLD) {
-            sendAlert(context, PM25_ALERT_ID, "Magas PM2.5 érték!",
-                    String.format(Locale.getDefault(), "A levegő minősége rossz. Aktuális érték: %.1f µg/m³.", pm25));
+    /**
+     * Látható-e még az állandó értesítés (pl. újraindítás után már nem).
+     */
+    public static boolean isOngoingNotificationShown(Context context) {
+        NotificationManager manager = context.getSystemService(NotificationManager.class);
+        if (manager == null) return false;
+        for (StatusBarNotification notification : manager.getActiveNotifications()) {
+            if (notification.getId() == ONGOING_NOTIFICATION_ID) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Egy új mérés kiértékelése a res/raw/alert_rules.json szabályaival. A szabályok állapota
+     * (átlag, sorozat, aktív szakasz, utolsó riasztás) a futások között megmarad, így egy
+     * tartósan magas érték szakaszonként egyszer riaszt, nem minden futáskor. A faults szerint
+     * hibás (kiugró vagy beragadt) metrikák szabályai kimaradnak; az átlag-szabályok a derived
+     * (a mérés utáni {@link DerivedMetrics}) átlagait figyelik.
+     */
+    public static synchronized void evaluateAlerts(Context context, PMSensor reading, int faults,
+                                                   DerivedMetrics.Snapshot derived) {
+        long millis = reading.measureMillis;
+        if (millis == Long.MIN_VALUE) {
+            Log.w(TAG, "Ismeretlen időbélyeg, a riasztások kimaradnak: " + reading.measureTime);
+            return;
+        }
+
+        AlertEngine engine = alertEngine(context);
+        List<AlertRule> rules = engine.rules();
+        SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(ALERT_STATE_PREFS, Context.MODE_PRIVATE);
+        AlertEngine.State[] states = loadStates(prefs, rules);
+
+        for (AlertEngine.Firing firing : engine.evaluate(millis, reading, states, faults, derived)) {
+            sendAlert(context, ALERT_ID_BASE + rules.indexOf(firing.rule), firing.rule.title, alertText(firing));
+        }
+
+        SharedPreferences.Editor editor = prefs.edit();
+        for (int i = 0; i < rules.size(); i++) {
+            editor.putString(rules.get(i).id, states[i].encode());
+        }
+        editor.apply();
+    }
+
+    /**
+     * A riasztási szabályok, a res/raw/alert_rules.json sorrendjében.
+     */
+    static synchronized List<AlertRule> alertRules(Context context) {
+        return alertEngine(context).rules();
+    }
+
+    /**
+     * A szabályok mentett állapota (az utolsó kiértékelés után), az alertRules sorrendjében.
+     */
+    static synchronized AlertEngine.State[] alertStates(Context context) {
+        SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(ALERT_STATE_PREFS, Context.MODE_PRIVATE);
+        return loadStates(prefs, alertEngine(context).rules());
+    }
+
+    private static AlertEngine.State[] loadStates(SharedPreferences prefs, List<AlertRule> rules) {
+        AlertEngine.State[] states = new AlertEngine.State[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            states[i] = AlertEngine.State.decode(prefs.getString(rules.get(i).id, null));
         }
-        if (pm10 > PM10_THRESHOLD) {
-            sendAlert(context, PM10_ALERT_ID, "Magas PM10 érték!",
-                    String.format(Locale.getDefault(), "A levegő minősége rossz. Aktuális érték: %.1f µg/m³.", pm10));
+        return states;
+    }
+
+    private static AlertEngine alertEngine(Context context) {
+        if (alertEngine == null) {
+            List<AlertRule> rules;
+            try (InputStream in = context.getResources().openRawResource(R.raw.alert_rules);
+                 Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+                rules = AlertRule.parseAll(scanner.hasNext() ? scanner.next() : "[]");
+            } catch (IOException | JSONException | IllegalArgumentException e) {
+                Log.e(TAG, "A riasztási szabályok nem tölthetők be.", e);
+                rules = Collections.emptyList();
+            }
+            alertEngine = new AlertEngine(rules);
         }
+        return alertEngine;
     }
 
+    private static String alertText(AlertEngine.Firing firing) {
+        switch (firing.rule.type) {
+            case ROLLING_MEAN:
+                return String.format(Locale.getDefault(), "A levegő minősége rossz. Átlagos érték: %.1f µg/m³.", firing.signal);
+            case RATE_OF_CHANGE:
+                return String.format(Locale.getDefault(), "Az érték gyorsan nő: %.1f µg/m³ óránként.", firing.signal);
+            default:
+                return String.format(Locale.getDefault(), "A levegő minősége rossz. Aktuális érték: %.1f µg/m³.", firing.signal);
+        }
+    }
 
     private static void sendAlert(Context context, int notificationId, String title, String content) {
 
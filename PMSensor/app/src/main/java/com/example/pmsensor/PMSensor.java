@@ -1,6 +1,12 @@
 package com.example.pmsensor;
 
+import org.json.JSONObject;
+
 public class PMSensor {
+
+    // Az ESP32 ennyi időnként tölt fel új mérést (30 s mérés + 270 s alvás).
+    public static final long UPLOAD_INTERVAL_MILLIS = 5 * 60 * 1000L;
+
     public float PM2_5;
     public float PM10;
     public String Id;
@@ -12,6 +18,8 @@ public class PMSensor {
     public float lightQuantity;
     public float atmosphericPressure;
     public String measureTime;
+    // A measureTime epoch ms-ben (TimeCodec), vagy Long.MIN_VALUE, ha hiányzik / nem értelmezhető.
+    public long measureMillis = Long.MIN_VALUE;
 
     public PMSensor() {
     }
@@ -27,7 +35,53 @@ public class PMSensor {
         this.uv = uv;
         this.lightQuantity = lightQuantity;
         this.atmosphericPressure = atmosphericPressure;
-        this.measureTime = measureTime;
+        setMeasureTime(measureTime);
+    }
+
+    public static PMSensor fromJson(JSONObject obj) {
+        return new PMSensor(
+                (float) obj.optDouble("PM25", 0),
+                (float) obj.optDouble("PM10", 0),
+                obj.optString("ID", ""),
+                (float) obj.optDouble("Humidity", 0),
+                (float) obj.optDouble("Humidity_raw", 0),
+                (float) obj.optDouble("Temperature", 0),
+                (float) obj.optDouble("Temperature_raw", 0),
+                (float) obj.optDouble("UV", 0),
+                (float) obj.optDouble("Light_quantity", 0),
+                (float) obj.optDouble("Atmospheric_pressure", 0),
+                obj.optString("Measure_time", "")
+        );
+    }
+
+    public float valueOf(Metric metric) {
+        switch (metric) {
+            case PM25: return PM2_5;
+            case PM10: return PM10;
+            case TEMPERATURE: return temperature;
+            case TEMPERATURE_RAW: return temperatureRaw;
+            case HUMIDITY: return humidity;
+            case HUMIDITY_RAW: return humidityRaw;
+            case UV: return uv;
+            case LIGHT_QUANTITY: return lightQuantity;
+            case ATMOSPHERIC_PRESSURE: return atmosphericPressure;
+            default: throw new IllegalArgumentException(metric.name());
+        }
+    }
+
+    public void setValue(Metric metric, float value) {
+        switch (metric) {
+            case PM25: PM2_5 = value; break;
+            case PM10: PM10 = value; break;
+            case TEMPERATURE: temperature = value; break;
+            case TEMPERATURE_RAW: temperatureRaw = value; break;
+            case HUMIDITY: humidity = value; break;
+            case HUMIDITY_RAW: humidityRaw = value; break;
+            case UV: uv = value; break;
+            case LIGHT_QUANTITY: lightQuantity = value; break;
+            case ATMOSPHERIC_PRESSURE: atmosphericPressure = value; break;
+            default: throw new IllegalArgumentException(metric.name());
+        }
     }
 
     public float getPM2_5() {
@@ -116,5 +170,10 @@ public class PMSensor {
 
     public void setMeasureTime(String measureTime) {
         this.measureTime = measureTime;
+        this.measureMillis = TimeCodec.parseIsoMillisOrMin(measureTime);
+    }
+
+    public long getMeasureMillis() {
+        return measureMillis;
     }
 }
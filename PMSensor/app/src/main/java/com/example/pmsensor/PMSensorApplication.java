@@ -0,0 +1,27 @@
+package com.example.pmsensor;
+
+import android.app.Application;
+import android.os.Trace;
+
+/**
+ * Folyamatindításkor (a háttérfeladatnál is) a mérési szakaszokat a rendszer nyomkövetésébe köti,
+ * így systrace / Perfetto felvételen név szerint látszanak.
+ */
+public class PMSensorApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        PerfMetrics.setTracer(new PerfMetrics.Tracer() {
+            @Override
+            public void begin(String name) {
+                Trace.beginSection(name);
+            }
+
+            @Override
+            public void end() {
+                Trace.endSection();
+            }
+        });
+    }
+}
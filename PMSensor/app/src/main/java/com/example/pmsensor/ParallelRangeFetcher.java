@@ -0,0 +1,155 @@
+package com.example.pmsensor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Egy időszakot független időszeletekre bont, a szeleteket korlátozott párhuzamossággal tölti le,
+ * majd időrendben összefűzi őket.
+ *
+ * A szeletek félig nyitottak ([eleje, vége) gte/lt szűrővel, csak az utolsó zárt lte-vel), így egy
+ * határra eső sor pontosan egy szeletbe kerül. Szeleten belül offset alapú lapozás történik, ezért a
+ * lekérdezésnek teljes, determinisztikus rendezést kell megadnia.
+ */
+final class ParallelRangeFetcher {
+
+    interface QueryFactory {
+        /** Új lekérdezés a reláció, az oszlopok és a rendezés megadásával, szűrők nélkül. */
+        SensorQuery newQuery();
+    }
+
+    static final int PAGE_SIZE = 1000;
+
+    private final SupabaseClient supabase;
+    private final Executor executor;
+    private final int parallelism;
+
+    ParallelRangeFetcher(SupabaseClient supabase, Executor executor, int parallelism) {
+        this.supabase = supabase;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * A [fromMillis, toMillis] időszak sorai időrendben; toMillis == Long.MAX_VALUE esetén felülről nyitott.
+     */
+    SensorSeries fetch(QueryFactory factory, long fromMillis, long toMillis, long sliceMillis) throws IOException {
+        boolean openEnded = toMillis == Long.MAX_VALUE;
+        long end = openEnded ? Math.max(fromMillis, System.currentTimeMillis()) : toMillis;
+        int sliceCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (end - fromMillis + sliceMillis - 1) / sliceMillis));
+
+        String[] boundaries = new String[sliceCount + 1];
+        for (int i = 0; i < sliceCount; i++) {
+            boundaries[i] = TimeCodec.formatSupabaseTime(fromMillis + i * sliceMillis);
+        }
+        boundaries[sliceCount] = openEnded ? null : TimeCodec.formatSupabaseTime(toMillis);
+
+        SensorSeries[] results = new SensorSeries[sliceCount];
+        AtomicInteger nextSlice = new AtomicInteger();
+        // A hívó megszakítási jele a segédszálakon is érvényes, így azok hívásai is leállíthatók.
+        FetchToken token = FetchToken.current();
+        Runnable worker = () -> {
+            FetchToken outer = FetchToken.attach(token);
+            try {
+                int slice;
+                while ((slice = nextSlice.getAndIncrement()) < sliceCount) {
+                    try {
+                        if (token != null) token.throwIfCancelled();
+                        results[slice] = fetchSlice(factory, boundaries[slice], boundaries[slice + 1], slice == sliceCount - 1);
+                    } catch (IOException e) {
+                        nextSlice.set(sliceCount);
+                        throw new SliceFailure(e);
+                    }
+                }
+            } finally {
+                FetchToken.attach(outer);
+            }
+        };
+
+        // Az egyik munkás a hívó szálon fut, így egy telített executor mellett is halad a letöltés.
+        List<FutureTask<Void>> helpers = new ArrayList<>();
+        List<AtomicBoolean> claims = new ArrayList<>();
+        for (int i = 1; i < Math.min(parallelism, sliceCount); i++) {
+            AtomicBoolean claimed = new AtomicBoolean();
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                if (claimed.compareAndSet(false, true)) {
+                    worker.run();
+                }
+            }, null);
+            helpers.add(task);
+            claims.add(claimed);
+            executor.execute(task);
+        }
+        IOException failure = null;
+        try {
+            worker.run();
+        } catch (SliceFailure e) {
+            failure = e.getCause();
+        }
+        for (int i = 0; i < helpers.size(); i++) {
+            // A hívó szál végzett minden szelettel; a még el sem indult segédnek már nincs dolga.
+            // Enélkül egy közös, telített készletben a várakozás holtpontra juthatna.
+            if (claims.get(i).compareAndSet(false, true)) continue;
+            try {
+                helpers.get(i).get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof SliceFailure
+                            ? ((SliceFailure) e.getCause()).getCause()
+                            : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Megszakított letöltés", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        int total = 0;
+        for (SensorSeries result : results) total += result.size();
+        SensorSeries merged = new SensorSeries(total);
+        for (SensorSeries result : results) merged.appendAll(result);
+        return merged;
+    }
+
+    private SensorSeries fetchSlice(QueryFactory factory, String from, String to, boolean last) throws IOException {
+        SensorSeries out = new SensorSeries(PAGE_SIZE);
+        int offset = 0;
+        int read;
+        do {
+            SensorQuery query = factory.newQuery()
+                    .gte(SensorColumn.MEASURE_TIME, from)
+                    .limit(PAGE_SIZE)
+                    .offset(offset);
+            if (to != null) {
+                if (last) {
+                    query.lte(SensorColumn.MEASURE_TIME, to);
+                } else {
+                    query.lt(SensorColumn.MEASURE_TIME, to);
+                }
+            }
+            read = supabase.fetchInto(query, out);
+            offset += read;
+        } while (read == PAGE_SIZE);
+        return out;
+    }
+
+    private static final class SliceFailure extends RuntimeException {
+        SliceFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
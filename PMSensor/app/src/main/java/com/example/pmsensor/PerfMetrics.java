@@ -0,0 +1,206 @@
+package com.example.pmsensor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Folyamatszintű teljesítménymérők a forró utakra (hálózat, dekódolás, időbélyegek, diagramok,
+ * háttérfeladat). Egy időmérő a hívások idejének eloszlását ({@link KllSketch}, így korlátos
+ * memóriával), a feldolgozott sorok és bájtok összegét tartja; a számlálók egyszerű összegek.
+ *
+ * A szakaszok a beállított {@link Tracer}-en át a rendszer nyomkövetésében (systrace / Perfetto)
+ * is megjelennek; az Android-mentes osztályok ezért ezen keresztül, nem közvetlenül érik el.
+ */
+public final class PerfMetrics {
+
+    /**
+     * Szakaszok továbbítása egy külső nyomkövetőnek; a begin/end hívások szálanként egymásba ágyazottak.
+     */
+    interface Tracer {
+        void begin(String name);
+
+        void end();
+    }
+
+    private static final Tracer NO_TRACER = new Tracer() {
+        @Override
+        public void begin(String name) {
+        }
+
+        @Override
+        public void end() {
+        }
+    };
+
+    private static final PerfMetrics INSTANCE = new PerfMetrics();
+
+    private static volatile Tracer tracer = NO_TRACER;
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    static PerfMetrics get() {
+        return INSTANCE;
+    }
+
+    static void setTracer(Tracer value) {
+        tracer = value == null ? NO_TRACER : value;
+    }
+
+    /**
+     * Egy mért szakasz; a close() rögzíti az időt (try-with-resources).
+     */
+    static Span start(String name) {
+        return INSTANCE.span(name);
+    }
+
+    Span span(String name) {
+        return new Span(this, name);
+    }
+
+    /**
+     * Egy lezajlott hívás rögzítése.
+     */
+    void record(String name, long nanos, long rows, long bytes) {
+        timers.computeIfAbsent(name, key -> new Timer()).record(nanos, rows, bytes);
+    }
+
+    void add(String counter, long delta) {
+        counters.computeIfAbsent(counter, key -> new AtomicLong()).addAndGet(delta);
+    }
+
+    long counter(String counter) {
+        AtomicLong value = counters.get(counter);
+        return value == null ? 0 : value.get();
+    }
+
+    /**
+     * Egy időmérő pillanatképe, vagy null, ha még nem volt hívás.
+     */
+    Snapshot snapshot(String name) {
+        Timer timer = timers.get(name);
+        return timer == null ? null : timer.snapshot(name);
+    }
+
+    void reset() {
+        timers.clear();
+        counters.clear();
+    }
+
+    /**
+     * Szöveges jelentés az összes mérőről, név szerint rendezve.
+     */
+    String report() {
+        List<String> names = new ArrayList<>(timers.keySet());
+        Collections.sort(names);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-24s %7s %9s %9s %9s %10s %10s %10s%n",
+                "időmérő", "db", "p50 ms", "p95 ms", "max ms", "sor", "sor/s", "kB"));
+        for (String name : names) {
+            Snapshot s = snapshot(name);
+            sb.append(String.format(Locale.ROOT, "%-24s %7d %9.2f %9.2f %9.2f %10d %10.0f %10.1f%n",
+                    name, s.count, s.p50Millis, s.p95Millis, s.maxMillis, s.rows, s.rowsPerSecond(),
+                    s.bytes / 1024.0));
+        }
+        List<String> counterNames = new ArrayList<>(counters.keySet());
+        Collections.sort(counterNames);
+        if (!counterNames.isEmpty()) {
+            sb.append(String.format(Locale.ROOT, "%n%-24s %10s%n", "számláló", "érték"));
+            for (String name : counterNames) {
+                sb.append(String.format(Locale.ROOT, "%-24s %10d%n", name, counter(name)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Egy időmérő összesítője.
+     */
+    static final class Snapshot {
+        final String name;
+        final long count;
+        final float p50Millis;
+        final float p95Millis;
+        final float maxMillis;
+        final long totalNanos;
+        final long rows;
+        final long bytes;
+
+        Snapshot(String name, long count, float p50Millis, float p95Millis, float maxMillis,
+                 long totalNanos, long rows, long bytes) {
+            this.name = name;
+            this.count = count;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.maxMillis = maxMillis;
+            this.totalNanos = totalNanos;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+
+        /**
+         * A szakaszokban töltött összes időre vetített áteresztés.
+         */
+        double rowsPerSecond() {
+            return totalNanos == 0 ? 0 : rows * 1e9 / totalNanos;
+        }
+    }
+
+    /**
+     * Mért szakasz; a sorok és bájtok a lezárás előtt adhatók meg.
+     */
+    static final class Span implements AutoCloseable {
+        private final PerfMetrics metrics;
+        private final String name;
+        private final long startNanos;
+        private long rows;
+        private long bytes;
+
+        private Span(PerfMetrics metrics, String name) {
+            this.metrics = metrics;
+            this.name = name;
+            tracer.begin(name);
+            this.startNanos = System.nanoTime();
+        }
+
+        Span rows(long rows) {
+            this.rows = rows;
+            return this;
+        }
+
+        Span bytes(long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - startNanos;
+            tracer.end();
+            metrics.record(name, nanos, rows, bytes);
+        }
+    }
+
+    private static final class Timer {
+        private final KllSketch millis = new KllSketch();
+        private long totalNanos;
+        private long rows;
+        private long bytes;
+
+        synchronized void record(long nanos, long rows, long bytes) {
+            millis.update(nanos / 1e6f);
+            totalNanos += nanos;
+            this.rows += rows;
+            this.bytes += bytes;
+        }
+
+        synchronized Snapshot snapshot(String name) {
+            return new Snapshot(name, millis.count(), millis.quantile(0.5), millis.quantile(0.95), millis.max(),
+                    totalNanos, rows, bytes);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.pmsensor;
+
+import java.util.List;
+
+/**
+ * A háttérlekérdezés következő időpontja a riasztási szabályok alapján. A feltöltési időköznél
+ * sűrűbben nincs értelme kérdezni; ha viszont a riasztott metrikák nyugodtak és messze vannak a
+ * küszöbtől, a várakozás futásonként duplázódik {@link #MAX_DELAY_MILLIS}-ig.
+ *
+ * Riasztás nem késhet: aktív szakasz alatt, a küszöb közelében vagy gyors emelkedésnél azonnal a
+ * legrövidebb időközre vált, emelkedő jelnél pedig legfeljebb a küszöb eléréséig hátralévő becsült
+ * idő felét várja.
+ *
+ * A lazított várakozás hosszabb az {@link AlertEngine#MAX_GAP_MILLIS}-nál; ez csak azért nem
+ * nullázza a sorozat- és változásfigyelő szabályokat, mert a háttérfeladat a két futás között
+ * kimaradt méréseket is kiértékeli (SensorWorker).
+ */
+final class PollingPolicy {
+
+    static final long MIN_DELAY_MILLIS = PMSensor.UPLOAD_INTERVAL_MILLIS;
+    static final long MAX_DELAY_MILLIS = 6 * PMSensor.UPLOAD_INTERVAL_MILLIS;
+    // A küszöb ekkora hányada felett már nem lazítunk.
+    static final float NEAR_FRACTION = 0.6f;
+    // Két mérés között a küszöb ekkora hányadánál nagyobb változás már nem nyugodt állapot.
+    static final float CHANGE_FRACTION = 0.1f;
+
+    private static final double HOUR_MILLIS = 3_600_000.0;
+
+    private final List<AlertRule> rules;
+
+    PollingPolicy(List<AlertRule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * A következő futásig hátralévő idő.
+     *
+     * @param previousDelayMillis az előző futás előtti várakozás
+     * @param previous            a latest előtti mérés (lazított futásnál a közben letöltöttek utolsója), vagy null
+     * @param latest              a most érkezett új mérés, vagy null, ha nem jött újabb
+     * @param states              a szabályok már a latest-tel frissített állapota, a szabályok sorrendjében
+     */
+    long nextDelayMillis(long previousDelayMillis, PMSensor previous, PMSensor latest, AlertEngine.State[] states) {
+        long relaxed = clamp(previousDelayMillis * 2);
+        // Ha nem jött újabb mérés (a szenzor késik vagy áll), a változás ismeretlen, de a küszöb
+        // közelében a folytatást sem szabad késve észrevenni.
+        PMSensor current = latest != null ? latest : previous;
+        if (current == null) return relaxed;
+
+        long dt = latest == null || previous == null ? 0 : latest.measureMillis - previous.measureMillis;
+        boolean hasRate = dt > 0 && dt <= AlertEngine.MAX_GAP_MILLIS && previous.measureMillis != Long.MIN_VALUE;
+        long bound = MAX_DELAY_MILLIS;
+        boolean changing = false;
+
+        for (int i = 0; i < rules.size(); i++) {
+            AlertRule rule = rules.get(i);
+            AlertEngine.State state = states == null ? null : states[i];
+            if (state != null && state.active) return MIN_DELAY_MILLIS;
+
+            float value = current.valueOf(rule.metric);
+            float delta = hasRate ? value - previous.valueOf(rule.metric) : 0f;
+            double ratePerHour = hasRate ? delta * HOUR_MILLIS / dt : 0;
+
+            if (rule.type == AlertRule.Type.RATE_OF_CHANGE) {
+                if (ratePerHour >= NEAR_FRACTION * rule.threshold) return MIN_DELAY_MILLIS;
+                continue;
+            }
+
+            double level = value;
+            if (rule.type == AlertRule.Type.ROLLING_MEAN && state != null && state.hasSample) {
+                level = Math.max(level, state.mean);
+            }
+            if (level >= NEAR_FRACTION * rule.threshold) return MIN_DELAY_MILLIS;
+            if (Math.abs(delta) > CHANGE_FRACTION * rule.threshold) changing = true;
+            if (ratePerHour > 0) {
+                long untilThreshold = (long) ((rule.threshold - level) / ratePerHour * HOUR_MILLIS);
+                bound = Math.min(bound, untilThreshold / 2);
+            }
+        }
+
+        long next = changing ? previousDelayMillis / 2 : relaxed;
+        return clamp(Math.min(next, bound));
+    }
+
+    private static long clamp(long delayMillis) {
+        return Math.max(MIN_DELAY_MILLIS, Math.min(MAX_DELAY_MILLIS, delayMillis));
+    }
+}
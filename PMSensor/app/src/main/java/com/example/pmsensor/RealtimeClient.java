@@ -0,0 +1,312 @@
+package com.example.pmsensor;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * Supabase Realtime feliratkozás a PMSensor tábla INSERT eseményeire (Phoenix csatorna protokoll,
+ * websocketen). Amíg van feliratkozó, nyitva tartja a kapcsolatot, szívverést küld, és megszakadás
+ * után növekvő várakozással újrakapcsolódik; a feliratkozók közben lekérdezéssel pótolják az adatot.
+ *
+ * A táblát fel kell venni a supabase_realtime publikációba (lásd README).
+ */
+public final class RealtimeClient {
+
+    public interface Listener {
+        /** Új mérés érkezett; a websocket olvasó szálán hívódik. */
+        void onReading(PMSensor reading);
+
+        /** A csatorna csatlakozott (true) vagy megszakadt (false); utóbbi esetben lekérdezésre kell váltani. */
+        void onConnectionChanged(boolean connected);
+    }
+
+    static final String PREFS_NAME = "settings";
+    static final String KEY_REALTIME_ENABLED = "realtime_enabled";
+
+    private static final String TOPIC = "realtime:public:" + SensorQuery.TABLE;
+    private static final long HEARTBEAT_MILLIS = 25_000L;
+    private static final long INITIAL_BACKOFF_MILLIS = 1_000L;
+    private static final long MAX_BACKOFF_MILLIS = 60_000L;
+    private static final int NORMAL_CLOSURE = 1000;
+
+    private static volatile RealtimeClient instance;
+
+    private final OkHttpClient httpClient;
+    private final HttpUrl socketUrl;
+    private final String apiKey;
+    private final ScheduledExecutorService scheduler;
+    private final long heartbeatMillis;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Az állapotot a példány zárja védi; a régi socketek eseményeit a socket azonossága szűri ki.
+    private WebSocket socket;
+    private boolean connected;
+    private long backoffMillis;
+    private int ref;
+    private ScheduledFuture<?> heartbeat;
+    private ScheduledFuture<?> reconnect;
+
+    public static RealtimeClient getInstance(Context context) {
+        RealtimeClient result = instance;
+        if (result == null) {
+            synchronized (RealtimeClient.class) {
+                result = instance;
+                if (result == null) {
+                    Context appContext = context.getApplicationContext();
+                    // A websocket hosszan élő kapcsolat: az olvasási és a hívási időkorlát itt nem értelmes.
+                    OkHttpClient socketClient = SupabaseClient.getInstance(appContext).httpClient().newBuilder()
+                            .readTimeout(0, TimeUnit.MILLISECONDS)
+                            .callTimeout(0, TimeUnit.MILLISECONDS)
+                            .build();
+                    result = new RealtimeClient(
+                            appContext.getString(R.string.supabase_url),
+                            appContext.getString(R.string.supabase_key),
+                            socketClient, HEARTBEAT_MILLIS, INITIAL_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Be van-e kapcsolva a valós idejű mód a beállításokban.
+     */
+    public static boolean isEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_REALTIME_ENABLED, false);
+    }
+
+    public static void setEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(KEY_REALTIME_ENABLED, enabled).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    RealtimeClient(String baseUrl, String apiKey, OkHttpClient httpClient,
+                   long heartbeatMillis, long initialBackoffMillis, long maxBackoffMillis) {
+        HttpUrl base = HttpUrl.get(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        this.socketUrl = base.resolve("realtime/v1/websocket").newBuilder()
+                .addQueryParameter("apikey", apiKey)
+                .addQueryParameter("vsn", "1.0.0")
+                .build();
+        this.apiKey = apiKey;
+        this.httpClient = httpClient;
+        this.heartbeatMillis = heartbeatMillis;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.backoffMillis = initialBackoffMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "realtime");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Feliratkozás; az első feliratkozó megnyitja a kapcsolatot.
+     */
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        if (socket == null && reconnect == null) {
+            open();
+        }
+    }
+
+    /**
+     * Leiratkozás; az utolsó feliratkozó után a kapcsolat bezárul.
+     */
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            close();
+        }
+    }
+
+    public synchronized boolean isConnected() {
+        return connected;
+    }
+
+    private synchronized void open() {
+        reconnect = null;
+        if (listeners.isEmpty()) return;
+        Request request = new Request.Builder().url(socketUrl).build();
+        socket = httpClient.newWebSocket(request, new SocketListener());
+    }
+
+    private void close() {
+        if (reconnect != null) {
+            reconnect.cancel(false);
+            reconnect = null;
+        }
+        stopHeartbeat();
+        if (socket != null) {
+            socket.close(NORMAL_CLOSURE, null);
+            socket = null;
+        }
+        connected = false;
+        backoffMillis = initialBackoffMillis;
+    }
+
+    private void onJoined(WebSocket webSocket) {
+        synchronized (this) {
+            if (webSocket != socket) return;
+            connected = true;
+            backoffMillis = initialBackoffMillis;
+            heartbeat = scheduler.scheduleWithFixedDelay(this::sendHeartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+        notifyConnectionChanged(true);
+    }
+
+    private void onLost(WebSocket webSocket) {
+        synchronized (this) {
+            if (webSocket != socket) return;
+            socket = null;
+            stopHeartbeat();
+            boolean wasConnected = connected;
+            connected = false;
+            if (listeners.isEmpty()) return;
+            reconnect = scheduler.schedule(this::open, backoffMillis, TimeUnit.MILLISECONDS);
+            backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+            if (!wasConnected) return;
+        }
+        notifyConnectionChanged(false);
+    }
+
+    /**
+     * A figyelők értesítése a zár elengedése után, ahogy a méréseknél is: a visszahívó (pl. a
+     * removeListener-t hívó vagy blokkoló) figyelő így nem tartja fel a socket és a heartbeat szálát.
+     */
+    private void notifyConnectionChanged(boolean connected) {
+        for (Listener listener : listeners) {
+            listener.onConnectionChanged(connected);
+        }
+    }
+
+    private void stopHeartbeat() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+    }
+
+    private synchronized void sendHeartbeat() {
+        if (socket != null) {
+            socket.send(message("phoenix", "heartbeat", new JSONObject()));
+        }
+    }
+
+    private synchronized String nextRef() {
+        return String.valueOf(++ref);
+    }
+
+    private String joinMessage() {
+        try {
+            JSONObject change = new JSONObject()
+                    .put("event", "INSERT")
+                    .put("schema", "public")
+                    .put("table", SensorQuery.TABLE);
+            JSONObject config = new JSONObject()
+                    .put("broadcast", new JSONObject().put("self", false))
+                    .put("presence", new JSONObject().put("key", ""))
+                    .put("postgres_changes", new JSONArray().put(change));
+            JSONObject payload = new JSONObject()
+                    .put("config", config)
+                    .put("access_token", apiKey);
+            return message(TOPIC, "phx_join", payload);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String message(String topic, String event, JSONObject payload) {
+        try {
+            return new JSONObject()
+                    .put("topic", topic)
+                    .put("event", event)
+                    .put("payload", payload)
+                    .put("ref", nextRef())
+                    .toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final class SocketListener extends WebSocketListener {
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            webSocket.send(joinMessage());
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            try {
+                JSONObject message = new JSONObject(text);
+                if (!TOPIC.equals(message.optString("topic"))) return;
+                String event = message.optString("event");
+                JSONObject payload = message.optJSONObject("payload");
+                switch (event) {
+                    case "phx_reply":
+                        if (payload != null && "ok".equals(payload.optString("status"))) {
+                            onJoined(webSocket);
+                        } else {
+                            webSocket.close(NORMAL_CLOSURE, "join rejected");
+                            onLost(webSocket);
+                        }
+                        break;
+                    case "postgres_changes":
+                        JSONObject data = payload == null ? null : payload.optJSONObject("data");
+                        JSONObject record = data == null ? null : data.optJSONObject("record");
+                        if (record != null && "INSERT".equals(data.optString("type"))) {
+                            PMSensor reading = PMSensor.fromJson(record);
+                            for (Listener listener : listeners) {
+                                listener.onReading(reading);
+                            }
+                        }
+                        break;
+                    case "phx_error":
+                    case "phx_close":
+                        webSocket.close(NORMAL_CLOSURE, null);
+                        onLost(webSocket);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (JSONException e) {
+                // Ismeretlen formátumú üzenet: kihagyjuk.
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(NORMAL_CLOSURE, null);
+            onLost(webSocket);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            onLost(webSocket);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.pmsensor;
+
+/**
+ * A szerveroldali összesítő táblák felbontásai (a táblák és a frissítésük a README-ben található).
+ * Minden tábla soronként egy időrést ad: a Measure_time a rés eleje, a mérési oszlopok az átlagot,
+ * a *_min / *_max oszlopok a szélső értékeket, a Samples oszlop a mérések számát tartalmazza.
+ */
+public enum RollupLevel {
+    TEN_MINUTES("PMSensor_10m", 10 * 60_000L),
+    HOUR("PMSensor_1h", 60 * 60_000L),
+    SIX_HOURS("PMSensor_6h", 6 * 60 * 60_000L),
+    DAY("PMSensor_1d", 24 * 60 * 60_000L);
+
+    static final String SAMPLES_COLUMN = "Samples";
+
+    // A tábla neve (korábban materializált nézet volt, innen a mező neve).
+    public final String viewName;
+    public final long bucketMillis;
+
+    RollupLevel(String viewName, long bucketMillis) {
+        this.viewName = viewName;
+        this.bucketMillis = bucketMillis;
+    }
+
+    static String minColumn(Metric metric) {
+        return metric.column.columnName() + "_min";
+    }
+
+    static String maxColumn(Metric metric) {
+        return metric.column.columnName() + "_max";
+    }
+
+    /**
+     * A durvább szintektől a finomabbak felé haladva az első, amely még legalább pointBudget
+     * pontot ad az időszakra, vagyis még kitölti a diagramot; null, ha a nyers adat kell.
+     * A szomszédos szintek legfeljebb 6x-osan térnek el, így a letöltött sorok száma
+     * a képernyő szélességével arányos marad, nem az időszak hosszával.
+     */
+    public static RollupLevel choose(long rangeMillis, int pointBudget) {
+        RollupLevel[] levels = values();
+        for (int i = levels.length - 1; i >= 0; i--) {
+            RollupLevel level = levels[i];
+            if (rangeMillis / level.bucketMillis >= pointBudget) {
+                return level;
+            }
+        }
+        return null;
+    }
+}
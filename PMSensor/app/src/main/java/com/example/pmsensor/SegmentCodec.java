@@ -0,0 +1,365 @@
+package com.example.pmsensor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Egy időrendű sorozat tömör bináris alakja (Gorilla-féle kódolás): az időbélyegek és az ID-k
+ * különbségeinek különbsége változó hosszú bitmezőkben, a metrikák az előző értékkel vett XOR
+ * értékes bitjeiként. Ötpercenkénti, a szerver által kerekített mérésekre soronként nagyjából
+ * 25 bájt a nyers 52 (ID, idő, 9 float) helyett, így egy hónap kb. 200 kB.
+ *
+ * Az oszlopok bájthatáron kezdődnek, a fejlécben tárolt eltolással, így a dekódolás oszloponként
+ * egy szoros ciklus közvetlenül a {@link SensorSeries} tömbjeibe.
+ *
+ * Formátum: MAGIC, VERSION, sorok száma, oszlopok száma, (oszlopok+1) eltolás (mind int), majd az
+ * oszlopok: idő, ID, és a {@link Metric} sorrendjében a metrikák; a végén 8 nulla bájt, hogy a
+ * bitolvasó mindig egész long-ot olvashasson.
+ */
+final class SegmentCodec {
+
+    static final int MAGIC = 0x504D5347; // "PMSG"
+    static final int VERSION = 1;
+
+    private static final int COLUMN_COUNT = 2 + Metric.count();
+    private static final int HEADER_BYTES = 4 * (4 + COLUMN_COUNT + 1);
+    private static final int PADDING_BYTES = 8;
+
+    private SegmentCodec() {
+    }
+
+    /**
+     * A sorozat [from, to) sorainak kódolása; a sorok időrendben kell legyenek.
+     */
+    static byte[] encode(SensorSeries series, int from, int to) {
+        int rows = to - from;
+        BitWriter writer = new BitWriter(HEADER_BYTES + rows * 24 + PADDING_BYTES);
+        writer.skip(HEADER_BYTES);
+        int[] offsets = new int[COLUMN_COUNT + 1];
+
+        offsets[0] = writer.position();
+        encodeLongs(writer, series.times(), from, to);
+        offsets[1] = writer.position();
+        encodeLongs(writer, series.ids(), from, to);
+        for (int m = 0; m < Metric.count(); m++) {
+            offsets[2 + m] = writer.position();
+            encodeFloats(writer, series.values(Metric.at(m)), from, to);
+        }
+        offsets[COLUMN_COUNT] = writer.position();
+        writer.skip(PADDING_BYTES);
+
+        ByteBuffer header = ByteBuffer.wrap(writer.bytes());
+        header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(COLUMN_COUNT);
+        for (int offset : offsets) {
+            header.putInt(offset);
+        }
+        return writer.toByteArray();
+    }
+
+    static byte[] encode(SensorSeries series) {
+        return encode(series, 0, series.size());
+    }
+
+    /**
+     * A kódolt szegmens sorainak száma.
+     */
+    static int rowCount(ByteBuffer segment) throws IOException {
+        checkHeader(segment);
+        return segment.getInt(segment.position() + 8);
+    }
+
+    /**
+     * A szegmens [startMillis, endMillis] időszakba eső sorait az out végére fűzi; hibánál az out változatlan.
+     */
+    static void decode(ByteBuffer segment, long startMillis, long endMillis, SensorSeries out) throws IOException {
+        checkHeader(segment);
+        int base = segment.position();
+        int rows = segment.getInt(base + 8);
+        if (rows == 0) return;
+
+        // Az idő oszlop dönti el, mely sorok kellenek; a többi oszlopot csak az utolsóig fejtjük vissza.
+        long[] times = new long[rows];
+        decodeLongs(new BitReader(segment, base + columnOffset(segment, 0)), times, 0, 0, rows);
+        int lo = lowerBound(times, startMillis);
+        int hi = endMillis == Long.MAX_VALUE ? rows : lowerBound(times, endMillis + 1);
+        if (lo >= hi) return;
+
+        int first = out.reserveRows(hi - lo);
+        try {
+            System.arraycopy(times, lo, out.times(), first, hi - lo);
+            decodeLongs(new BitReader(segment, base + columnOffset(segment, 1)), out.ids(), first, lo, hi);
+            for (int m = 0; m < Metric.count(); m++) {
+                decodeFloats(new BitReader(segment, base + columnOffset(segment, 2 + m)),
+                        out.values(Metric.at(m)), first, lo, hi);
+            }
+        } catch (RuntimeException e) {
+            // Sérült oszlop: a félig kitöltött sorok ne maradjanak a hívó sorozatában.
+            out.truncate(first);
+            throw e;
+        }
+    }
+
+    static SensorSeries decode(ByteBuffer segment) throws IOException {
+        SensorSeries out = new SensorSeries(rowCount(segment));
+        decode(segment, Long.MIN_VALUE, Long.MAX_VALUE, out);
+        return out;
+    }
+
+    private static void checkHeader(ByteBuffer segment) throws IOException {
+        int base = segment.position();
+        if (segment.remaining() < HEADER_BYTES + PADDING_BYTES
+                || segment.getInt(base) != MAGIC
+                || segment.getInt(base + 4) != VERSION
+                || segment.getInt(base + 12) != COLUMN_COUNT
+                || segment.getInt(base + 16 + 4 * COLUMN_COUNT) + PADDING_BYTES > segment.remaining()) {
+            throw new IOException("Érvénytelen szegmens");
+        }
+    }
+
+    private static int columnOffset(ByteBuffer segment, int column) {
+        return segment.getInt(segment.position() + 16 + 4 * column);
+    }
+
+    private static int lowerBound(long[] times, long millis) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Különbségek különbsége. Az első érték 64 biten, utána:
+     *   0                  -> változatlan lépésköz
+     *   10   +  8 bit      -> [-128, 127]          (ms-os rezgés)
+     *   110  + 14 bit      -> [-8192, 8191]
+     *   1110 + 20 bit      -> [-524288, 524287]    (pl. az első, 5 perces lépés)
+     *   1111 + 64 bit      -> bármi más (kiesések, ugrások)
+     */
+
+    private static void encodeLongs(BitWriter writer, long[] column, int from, int to) {
+        if (from >= to) return;
+        long previous = column[from];
+        writer.writeLong(previous);
+        long previousDelta = 0;
+        for (int i = from + 1; i < to; i++) {
+            long delta = column[i] - previous;
+            long dod = delta - previousDelta;
+            if (dod == 0) {
+                writer.write(0b0, 1);
+            } else if (dod >= -128 && dod <= 127) {
+                writer.write(0b10, 2);
+                writer.write(dod, 8);
+            } else if (dod >= -8192 && dod <= 8191) {
+                writer.write(0b110, 3);
+                writer.write(dod, 14);
+            } else if (dod >= -524288 && dod <= 524287) {
+                writer.write(0b1110, 4);
+                writer.write(dod, 20);
+            } else {
+                writer.write(0b1111, 4);
+                writer.writeLong(dod);
+            }
+            previous = column[i];
+            previousDelta = delta;
+        }
+    }
+
+    /**
+     * A [0, to) értékeket fejti vissza, és a from-tól kezdődőeket out[outFrom]-tól írja.
+     */
+    private static void decodeLongs(BitReader reader, long[] out, int outFrom, int from, int to) {
+        long value = reader.readLong();
+        long delta = 0;
+        for (int i = 0; i < to; i++) {
+            if (i > 0) {
+                long dod;
+                if (reader.read(1) == 0) {
+                    dod = 0;
+                } else if (reader.read(1) == 0) {
+                    dod = reader.readSigned(8);
+                } else if (reader.read(1) == 0) {
+                    dod = reader.readSigned(14);
+                } else if (reader.read(1) == 0) {
+                    dod = reader.readSigned(20);
+                } else {
+                    dod = reader.readLong();
+                }
+                delta += dod;
+                value += delta;
+            }
+            if (i >= from) {
+                out[outFrom + i - from] = value;
+            }
+        }
+    }
+
+    /*
+     * XOR az előző értékkel. Az első érték 32 biten, utána:
+     *   0                          -> azonos érték
+     *   10 + értékes bitek         -> az előző ablakba (vezető/záró nullák) belefér
+     *   11 + 5 bit vezető nulla + 5 bit (hossz-1) + értékes bitek
+     */
+
+    private static void encodeFloats(BitWriter writer, float[] column, int from, int to) {
+        if (from >= to) return;
+        int previous = Float.floatToRawIntBits(column[from]);
+        writer.write(previous, 32);
+        int windowLeading = -1;
+        int windowTrailing = 0;
+        for (int i = from + 1; i < to; i++) {
+            int bits = Float.floatToRawIntBits(column[i]);
+            int xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                writer.write(0b0, 1);
+                continue;
+            }
+            int leading = Integer.numberOfLeadingZeros(xor);
+            int trailing = Integer.numberOfTrailingZeros(xor);
+            if (windowLeading >= 0 && leading >= windowLeading && trailing >= windowTrailing) {
+                writer.write(0b10, 2);
+                writer.write(xor >>> windowTrailing, 32 - windowLeading - windowTrailing);
+            } else {
+                int length = 32 - leading - trailing;
+                writer.write(0b11, 2);
+                writer.write(leading, 5);
+                writer.write(length - 1, 5);
+                writer.write(xor >>> trailing, length);
+                windowLeading = leading;
+                windowTrailing = trailing;
+            }
+        }
+    }
+
+    private static void decodeFloats(BitReader reader, float[] out, int outFrom, int from, int to) {
+        int bits = (int) reader.read(32);
+        int windowLeading = 0;
+        int windowTrailing = 0;
+        for (int i = 0; i < to; i++) {
+            if (i > 0 && reader.read(1) != 0) {
+                if (reader.read(1) != 0) {
+                    windowLeading = (int) reader.read(5);
+                    int length = (int) reader.read(5) + 1;
+                    windowTrailing = 32 - windowLeading - length;
+                }
+                int length = 32 - windowLeading - windowTrailing;
+                bits ^= (int) reader.read(length) << windowTrailing;
+            }
+            if (i >= from) {
+                out[outFrom + i - from] = Float.intBitsToFloat(bits);
+            }
+        }
+    }
+
+    /**
+     * Bitfolyam írása egy növekvő bájttömbbe, nagyobb helyiértékű bittel kezdve.
+     */
+    private static final class BitWriter {
+        private byte[] bytes;
+        private int position;
+        private long pending;
+        private int pendingBits;
+
+        BitWriter(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        /**
+         * value alsó count bitje (count &lt;= 32).
+         */
+        void write(long value, int count) {
+            if (count == 0) return;
+            pending = (pending << count) | (value & (-1L >>> (64 - count)));
+            pendingBits += count;
+            while (pendingBits >= 8) {
+                pendingBits -= 8;
+                put((byte) (pending >>> pendingBits));
+            }
+        }
+
+        void writeLong(long value) {
+            write(value >>> 32, 32);
+            write(value, 32);
+        }
+
+        /**
+         * A félkész bájtot nullákkal lezárja, és count nulla bájtot ír.
+         */
+        void skip(int count) {
+            align();
+            for (int i = 0; i < count; i++) {
+                put((byte) 0);
+            }
+        }
+
+        /**
+         * A következő bájthatár pozíciója (a félkész bájt lezárásával).
+         */
+        int position() {
+            align();
+            return position;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        byte[] toByteArray() {
+            align();
+            return Arrays.copyOf(bytes, position);
+        }
+
+        private void align() {
+            if (pendingBits > 0) {
+                write(0, 8 - pendingBits);
+            }
+        }
+
+        private void put(byte b) {
+            if (position == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[position++] = b;
+        }
+    }
+
+    /**
+     * Bitfolyam olvasása egy (akár memóriába képzett) pufferből, egyszerre egy long-ot olvasva.
+     */
+    private static final class BitReader {
+        private final ByteBuffer buffer;
+        private long bitPosition;
+
+        BitReader(ByteBuffer buffer, int byteOffset) {
+            this.buffer = buffer;
+            this.bitPosition = 8L * byteOffset;
+        }
+
+        /**
+         * count bit előjel nélkül (count &lt;= 32).
+         */
+        long read(int count) {
+            if (count == 0) return 0;
+            long word = buffer.getLong((int) (bitPosition >>> 3));
+            long value = (word << (bitPosition & 7)) >>> (64 - count);
+            bitPosition += count;
+            return value;
+        }
+
+        long readSigned(int count) {
+            return (read(count) << (64 - count)) >> (64 - count);
+        }
+
+        long readLong() {
+            return (read(32) << 32) | read(32);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.pmsensor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Lezárt (UTC) napok mérései egy-egy {@link SegmentCodec} fájlban. Olvasáskor a fájl memóriába
+ * képezve dekódolódik, közvetlenül a sorozat tömbjeibe; íráskor előbb ideiglenes fájl készül,
+ * amely átnevezéssel cseréli a régit, így félbeszakadt írás után is ép fájl marad.
+ */
+final class SegmentStore {
+
+    private static final String SUFFIX = ".seg";
+
+    private final File directory;
+
+    SegmentStore(File directory) {
+        this.directory = directory;
+    }
+
+    synchronized boolean contains(long day) {
+        return file(day).isFile();
+    }
+
+    /**
+     * A nap [startMillis, endMillis] időszakba eső sorai az out végére; false, ha nincs (ép) fájl.
+     * A sérült fájlt törli, hogy a nap újraépülhessen.
+     */
+    synchronized boolean read(long day, long startMillis, long endMillis, SensorSeries out) {
+        File file = file(day);
+        if (!file.isFile()) return false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            SegmentCodec.decode(buffer, startMillis, endMillis, out);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            return false;
+        }
+    }
+
+    /**
+     * A nap sorainak (időrendben) tárolása, a korábbi fájl cseréjével.
+     */
+    synchronized void write(long day, SensorSeries rows) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Nem hozható létre: " + directory);
+        }
+        File target = file(day);
+        File temp = new File(directory, day + SUFFIX + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(SegmentCodec.encode(rows));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Nem írható: " + target);
+        }
+    }
+
+    /**
+     * Új vagy javított sorok beolvasztása egy meglévő napba: az azonos ID-jú régi sort az új váltja.
+     */
+    synchronized void merge(long day, SensorSeries rows) throws IOException {
+        SensorSeries existing = new SensorSeries();
+        read(day, Long.MIN_VALUE, Long.MAX_VALUE, existing);
+        Set<Long> replaced = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            replaced.add(rows.idAt(i));
+        }
+
+        SensorSeries merged = new SensorSeries(existing.size() + rows.size());
+        int a = 0;
+        int b = 0;
+        while (a < existing.size() || b < rows.size()) {
+            if (a < existing.size() && replaced.contains(existing.idAt(a))) {
+                a++;
+            } else if (b >= rows.size() || (a < existing.size() && existing.timeAt(a) <= rows.timeAt(b))) {
+                merged.appendRows(existing, a, a + 1);
+                a++;
+            } else {
+                merged.appendRows(rows, b, b + 1);
+                b++;
+            }
+        }
+        write(day, merged);
+    }
+
+    synchronized void delete(long day) {
+        file(day).delete();
+    }
+
+    /**
+     * A tárolt napok összmérete bájtban.
+     */
+    synchronized long sizeBytes() {
+        long total = 0;
+        File[] files = directory.listFiles();
+        if (files == null) return 0;
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    private File file(long day) {
+        return new File(directory, day + SUFFIX);
+    }
+}
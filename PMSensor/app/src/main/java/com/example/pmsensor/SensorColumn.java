@@ -0,0 +1,28 @@
+package com.example.pmsensor;
+
+/**
+ * A Supabase PMSensor tábla oszlopai, pontosan úgy, ahogy a PostgREST visszaadja őket.
+ */
+public enum SensorColumn {
+    ID("ID"),
+    MEASURE_TIME("Measure_time"),
+    PM25("PM25"),
+    PM10("PM10"),
+    TEMPERATURE("Temperature"),
+    TEMPERATURE_RAW("Temperature_raw"),
+    HUMIDITY("Humidity"),
+    HUMIDITY_RAW("Humidity_raw"),
+    UV("UV"),
+    LIGHT_QUANTITY("Light_quantity"),
+    ATMOSPHERIC_PRESSURE("Atmospheric_pressure");
+
+    private final String columnName;
+
+    SensorColumn(String columnName) {
+        this.columnName = columnName;
+    }
+
+    public String columnName() {
+        return columnName;
+    }
+}
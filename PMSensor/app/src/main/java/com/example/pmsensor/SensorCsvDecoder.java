@@ -0,0 +1,205 @@
+package com.example.pmsensor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import okio.BufferedSource;
+
+/**
+ * A PostgREST text/csv válaszának streamelt dekódolója. Az első sor a fejléc, ebből dől el, melyik
+ * mező melyik oszlopba kerül; utána mezőnként olvas, és közvetlenül a {@link SensorSeries} primitív
+ * oszlopaiba ír (az összesítő táblák *_min / *_max és Samples oszlopait is). Az üres mező (SQL null) 0-ként kerül be, mint a JSON dekódolónál. Az idézőjeles
+ * mezőket is kezeli, bár a numerikus és időbélyeg oszlopokban ilyen nem fordul elő.
+ */
+public final class SensorCsvDecoder {
+
+    private static final int COLUMN_SKIP = -1;
+    private static final int COLUMN_ID = -2;
+    private static final int COLUMN_MEASURE_TIME = -3;
+    private static final int COLUMN_SAMPLES = -4;
+    // A metrikák oszlopindexe az ordinal; a rés minimumáé és maximumáé ehhez képest eltolva.
+    private static final int COLUMN_FIRST_MIN = Metric.count();
+    private static final int COLUMN_FIRST_MAX = 2 * Metric.count();
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final byte[] scratch = new byte[64];
+    // Az utolsó mezőt lezáró jel: ',' vagy '\n' (a folyam vége is sorvégnek számít).
+    private byte delimiter;
+    private boolean truncated;
+
+    /**
+     * Beolvas egy teljes CSV választ a sorozat végére. Visszaadja a beolvasott sorok számát.
+     */
+    public int decode(BufferedSource source, SensorSeries into) throws IOException {
+        if (source.exhausted()) return 0;
+        int[] columns = readHeader(source);
+        int rows = 0;
+        while (!source.exhausted()) {
+            byte first = source.getBuffer().getByte(0);
+            if (first == '\n' || first == '\r') {
+                source.skip(1);
+                continue;
+            }
+            int row = into.appendRow();
+            for (int c = 0; c < columns.length; c++) {
+                int length = readField(source);
+                boolean last = c == columns.length - 1;
+                if (delimiter != (last ? '\n' : ',')) {
+                    throw new IOException("CSV hiba: " + (rows + 1) + ". sorban " + (last ? "több" : "kevesebb")
+                            + " mező van a fejlécnél");
+                }
+                store(into, row, columns[c], length);
+            }
+            rows++;
+        }
+        return rows;
+    }
+
+    private int[] readHeader(BufferedSource source) throws IOException {
+        int[] columns = new int[SensorColumn.values().length + 1];
+        int count = 0;
+        do {
+            int length = readField(source);
+            String name = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            if (count == columns.length) {
+                columns = Arrays.copyOf(columns, count * 2);
+            }
+            columns[count++] = truncated ? COLUMN_SKIP : columnIndex(name);
+        } while (delimiter == ',');
+        return Arrays.copyOf(columns, count);
+    }
+
+    private static int columnIndex(String name) {
+        if (name.equals(SensorColumn.ID.columnName())) return COLUMN_ID;
+        if (name.equals(SensorColumn.MEASURE_TIME.columnName())) return COLUMN_MEASURE_TIME;
+        if (name.equals(RollupLevel.SAMPLES_COLUMN)) return COLUMN_SAMPLES;
+        for (Metric metric : Metric.values()) {
+            if (name.equals(metric.column.columnName())) return metric.ordinal();
+            if (name.equals(RollupLevel.minColumn(metric))) return COLUMN_FIRST_MIN + metric.ordinal();
+            if (name.equals(RollupLevel.maxColumn(metric))) return COLUMN_FIRST_MAX + metric.ordinal();
+        }
+        return COLUMN_SKIP;
+    }
+
+    private void store(SensorSeries into, int row, int column, int length) throws IOException {
+        if (column == COLUMN_SKIP || length == 0) return;
+        if (truncated) throw new IOException("CSV hiba: túl hosszú mező");
+        try {
+            if (column == COLUMN_MEASURE_TIME) {
+                into.setTime(row, TimeCodec.parseIsoMillis(scratch, 0, length));
+            } else if (column == COLUMN_ID) {
+                into.setId(row, (long) parseNumber(length));
+            } else if (column == COLUMN_SAMPLES) {
+                into.setSamples(row, (int) parseNumber(length));
+            } else if (column >= COLUMN_FIRST_MAX) {
+                into.setMax(Metric.at(column - COLUMN_FIRST_MAX), row, (float) parseNumber(length));
+            } else if (column >= COLUMN_FIRST_MIN) {
+                into.setMin(Metric.at(column - COLUMN_FIRST_MIN), row, (float) parseNumber(length));
+            } else {
+                into.setValue(Metric.at(column), row, (float) parseNumber(length));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("CSV hiba: érvénytelen érték '"
+                    + new String(scratch, 0, length, StandardCharsets.UTF_8) + "'", e);
+        }
+    }
+
+    /**
+     * Egy mező a scratch pufferbe (ami nem fér el, azt eldobja és truncated-et állít); a lezáró
+     * jelet a delimiter mezőbe teszi. A sor végi '\r' nem része a mezőnek.
+     */
+    private int readField(BufferedSource source) throws IOException {
+        int length = 0;
+        truncated = false;
+        boolean quoted = source.request(1) && source.getBuffer().getByte(0) == '"';
+        if (quoted) source.skip(1);
+        while (true) {
+            if (!source.request(1)) {
+                if (quoted) throw new IOException("CSV hiba: lezáratlan idézőjel");
+                delimiter = '\n';
+                return length;
+            }
+            byte b = source.readByte();
+            if (quoted) {
+                if (b == '"') {
+                    if (source.request(1) && source.getBuffer().getByte(0) == '"') {
+                        source.skip(1);
+                    } else {
+                        quoted = false;
+                        continue;
+                    }
+                }
+            } else if (b == ',' || b == '\n') {
+                delimiter = b;
+                if (b == '\n' && length > 0 && scratch[length - 1] == '\r') length--;
+                return length;
+            }
+            if (length == scratch.length) {
+                truncated = true;
+            } else {
+                scratch[length++] = b;
+            }
+        }
+    }
+
+    /**
+     * Decimális szám a scratch elejéről, mint a JSON dekódolóban: a mantisszát long-ban gyűjtjük,
+     * és egyetlen osztással/szorzással alakítjuk double-lé.
+     */
+    private double parseNumber(int length) {
+        int pos = 0;
+        boolean negative = scratch[0] == '-';
+        if (negative || scratch[0] == '+') pos++;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        boolean fraction = false;
+        for (; pos < length; pos++) {
+            byte b = scratch[pos];
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                    if (fraction) exponent--;
+                } else if (!fraction) {
+                    exponent++;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (!any) throw new IllegalArgumentException("Érvénytelen szám");
+        if (pos < length && (scratch[pos] == 'e' || scratch[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = pos < length && scratch[pos] == '-';
+            if (pos < length && (scratch[pos] == '-' || scratch[pos] == '+')) pos++;
+            int explicit = 0;
+            for (; pos < length && scratch[pos] >= '0' && scratch[pos] <= '9'; pos++) {
+                explicit = explicit * 10 + (scratch[pos] - '0');
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (pos != length) throw new IllegalArgumentException("Érvénytelen szám");
+
+        double value;
+        if (exponent == 0) {
+            value = mantissa;
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            value = mantissa * Math.pow(10, exponent);
+        }
+        return negative ? -value : value;
+    }
+}
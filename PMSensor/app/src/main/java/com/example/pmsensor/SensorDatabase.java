@@ -0,0 +1,164 @@
+package com.example.pmsensor;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * A letöltött PMSensor sorok helyi tárolója. A sorokat a mérési idő (epoch ms) szerint indexeljük,
+ * így egy időszak lekérdezése egyetlen index-tartomány olvasás.
+ */
+public class SensorDatabase extends SQLiteOpenHelper implements HistoryRepository.Store {
+
+    private static final String DATABASE_NAME = "pmsensor_history.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_READINGS = "readings";
+    private static final String TABLE_SYNC_STATE = "sync_state";
+
+    private static final String[] READING_COLUMNS = {
+            "id", "measure_time", "pm25", "pm10", "humidity", "humidity_raw",
+            "temperature", "temperature_raw", "uv", "light_quantity", "atmospheric_pressure"
+    };
+
+    private static volatile SensorDatabase instance;
+
+    public static SensorDatabase getInstance(Context context) {
+        SensorDatabase result = instance;
+        if (result == null) {
+            synchronized (SensorDatabase.class) {
+                result = instance;
+                if (result == null) {
+                    result = new SensorDatabase(context.getApplicationContext());
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private SensorDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_READINGS + " ("
+                + "id INTEGER PRIMARY KEY, "
+                + "measure_time INTEGER NOT NULL, "
+                + "pm25 REAL, pm10 REAL, humidity REAL, humidity_raw REAL, "
+                + "temperature REAL, temperature_raw REAL, uv REAL, "
+                + "light_quantity REAL, atmospheric_pressure REAL)");
+        db.execSQL("CREATE INDEX idx_readings_measure_time ON " + TABLE_READINGS + " (measure_time)");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " (key TEXT PRIMARY KEY, value INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Csak gyorsítótár: a szerverről bármikor újratölthető; a már tömörített napokba
+        // (SegmentStore) az újra letöltött sorok beolvadnak.
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_READINGS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+        onCreate(db);
+    }
+
+    /**
+     * Beszúrja (vagy ID alapján felülírja) a sorozat sorait egyetlen tranzakcióban.
+     */
+    @Override
+    public void insertAll(SensorSeries series) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement statement = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_READINGS
+                + " (id, measure_time, pm25, pm10, humidity, humidity_raw,"
+                + " temperature, temperature_raw, uv, light_quantity, atmospheric_pressure)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < series.size(); i++) {
+                statement.clearBindings();
+                statement.bindLong(1, series.idAt(i));
+                statement.bindLong(2, series.timeAt(i));
+                statement.bindDouble(3, series.valueAt(Metric.PM25, i));
+                statement.bindDouble(4, series.valueAt(Metric.PM10, i));
+                statement.bindDouble(5, series.valueAt(Metric.HUMIDITY, i));
+                statement.bindDouble(6, series.valueAt(Metric.HUMIDITY_RAW, i));
+                statement.bindDouble(7, series.valueAt(Metric.TEMPERATURE, i));
+                statement.bindDouble(8, series.valueAt(Metric.TEMPERATURE_RAW, i));
+                statement.bindDouble(9, series.valueAt(Metric.UV, i));
+                statement.bindDouble(10, series.valueAt(Metric.LIGHT_QUANTITY, i));
+                statement.bindDouble(11, series.valueAt(Metric.ATMOSPHERIC_PRESSURE, i));
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+    }
+
+    /**
+     * A [startMillis, endMillis] időszak sorai időrendben, oszlopos formában.
+     */
+    @Override
+    public SensorSeries query(long startMillis, long endMillis) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_READINGS, READING_COLUMNS,
+                "measure_time >= ? AND measure_time <= ?",
+                new String[]{String.valueOf(startMillis), String.valueOf(endMillis)},
+                null, null, "measure_time ASC")) {
+            SensorSeries result = new SensorSeries(cursor.getCount());
+            while (cursor.moveToNext()) {
+                int row = result.appendRow();
+                result.setId(row, cursor.getLong(0));
+                result.setTime(row, cursor.getLong(1));
+                result.setValue(Metric.PM25, row, cursor.getFloat(2));
+                result.setValue(Metric.PM10, row, cursor.getFloat(3));
+                result.setValue(Metric.HUMIDITY, row, cursor.getFloat(4));
+                result.setValue(Metric.HUMIDITY_RAW, row, cursor.getFloat(5));
+                result.setValue(Metric.TEMPERATURE, row, cursor.getFloat(6));
+                result.setValue(Metric.TEMPERATURE_RAW, row, cursor.getFloat(7));
+                result.setValue(Metric.UV, row, cursor.getFloat(8));
+                result.setValue(Metric.LIGHT_QUANTITY, row, cursor.getFloat(9));
+                result.setValue(Metric.ATMOSPHERIC_PRESSURE, row, cursor.getFloat(10));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A [startMillis, endMillis] időszak sorainak törlése (pl. szegmensbe tömörítés után).
+     */
+    @Override
+    public void deleteRange(long startMillis, long endMillis) {
+        getWritableDatabase().delete(TABLE_READINGS, "measure_time >= ? AND measure_time <= ?",
+                new String[]{String.valueOf(startMillis), String.valueOf(endMillis)});
+    }
+
+    /**
+     * A legfrissebb helyben tárolt sor ideje, vagy Long.MIN_VALUE, ha a tábla üres.
+     */
+    @Override
+    public long latestMeasureTime() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT MAX(measure_time) FROM " + TABLE_READINGS, null)) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : Long.MIN_VALUE;
+        }
+    }
+
+    @Override
+    public long getSyncState(String key, long defaultValue) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC_STATE, new String[]{"value"},
+                "key = ?", new String[]{key}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : defaultValue;
+        }
+    }
+
+    @Override
+    public void putSyncState(String key, long value) {
+        ContentValues values = new ContentValues();
+        values.put("key", key);
+        values.put("value", value);
+        getWritableDatabase().insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+}
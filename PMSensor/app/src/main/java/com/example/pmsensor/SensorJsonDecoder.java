@@ -0,0 +1,247 @@
+package com.example.pmsensor;
+
+import java.io.IOException;
+
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Options;
+
+/**
+ * A PostgREST által visszaadott PMSensor JSON tömb streamelt dekódolója.
+ * Tokenenként olvassa a BufferedSource-t, és közvetlenül a {@link SensorSeries} primitív oszlopaiba ír:
+ * nem épít String-et, JSONArray-t vagy soronkénti objektumot. Az összesítő táblák *_min / *_max és
+ * Samples kulcsait a rés-oszlopokba írja, az ismeretlen kulcsokat átugorja,
+ * a null és a hiányzó értékek 0-ként kerülnek be (mint a korábbi optDouble(..., 0) hívásoknál).
+ */
+public final class SensorJsonDecoder {
+
+    private static final int KEY_ID = 0;
+    private static final int KEY_MEASURE_TIME = 1;
+    private static final int KEY_SAMPLES = 2;
+    private static final int KEY_FIRST_METRIC = 3;
+    private static final int KEY_FIRST_MIN = KEY_FIRST_METRIC + Metric.count();
+    private static final int KEY_FIRST_MAX = KEY_FIRST_MIN + Metric.count();
+
+    // A kulcsok a nyitó idézőjel utáni bájtok a záró idézőjellel együtt, így a select() egyértelmű.
+    private static final Options KEYS;
+
+    static {
+        ByteString[] keys = new ByteString[KEY_FIRST_MAX + Metric.count()];
+        keys[KEY_ID] = ByteString.encodeUtf8(SensorColumn.ID.columnName() + "\"");
+        keys[KEY_MEASURE_TIME] = ByteString.encodeUtf8(SensorColumn.MEASURE_TIME.columnName() + "\"");
+        keys[KEY_SAMPLES] = ByteString.encodeUtf8(RollupLevel.SAMPLES_COLUMN + "\"");
+        for (Metric metric : Metric.values()) {
+            keys[KEY_FIRST_METRIC + metric.ordinal()] = ByteString.encodeUtf8(metric.column.columnName() + "\"");
+            keys[KEY_FIRST_MIN + metric.ordinal()] = ByteString.encodeUtf8(RollupLevel.minColumn(metric) + "\"");
+            keys[KEY_FIRST_MAX + metric.ordinal()] = ByteString.encodeUtf8(RollupLevel.maxColumn(metric) + "\"");
+        }
+        KEYS = Options.of(keys);
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final byte[] scratch = new byte[64];
+
+    /**
+     * Beolvas egy teljes JSON tömböt a sorozat végére. Visszaadja a beolvasott sorok számát.
+     */
+    public int decode(BufferedSource source, SensorSeries into) throws IOException {
+        expect(source, '[');
+        int rows = 0;
+        if (peekNonWhitespace(source) == ']') {
+            source.skip(1);
+            return 0;
+        }
+        while (true) {
+            readObject(source, into);
+            rows++;
+            byte next = nextNonWhitespace(source);
+            if (next == ']') return rows;
+            if (next != ',') throw syntaxError("',' vagy ']'", next);
+        }
+    }
+
+    private void readObject(BufferedSource source, SensorSeries into) throws IOException {
+        expect(source, '{');
+        int row = into.appendRow();
+        if (peekNonWhitespace(source) == '}') {
+            source.skip(1);
+            return;
+        }
+        while (true) {
+            expect(source, '"');
+            int key = source.select(KEYS);
+            if (key == -1) {
+                skipStringBody(source);
+            }
+            expect(source, ':');
+            readValue(source, into, row, key);
+
+            byte next = nextNonWhitespace(source);
+            if (next == '}') return;
+            if (next != ',') throw syntaxError("',' vagy '}'", next);
+        }
+    }
+
+    private void readValue(BufferedSource source, SensorSeries into, int row, int key) throws IOException {
+        byte first = peekNonWhitespace(source);
+        if (first == 'n') {
+            source.skip(4); // null -> 0 marad
+        } else if (first == 't') {
+            source.skip(4);
+        } else if (first == 'f') {
+            source.skip(5);
+        } else if (first == '"') {
+            source.skip(1);
+            if (key == KEY_MEASURE_TIME) {
+                int length = readStringBody(source);
+                into.setTime(row, TimeCodec.parseIsoMillis(scratch, 0, length));
+            } else {
+                skipStringBody(source);
+            }
+        } else if (first == '-' || (first >= '0' && first <= '9')) {
+            if (key == KEY_ID) {
+                into.setId(row, (long) readNumber(source));
+            } else if (key == KEY_SAMPLES) {
+                into.setSamples(row, (int) readNumber(source));
+            } else if (key >= KEY_FIRST_MAX) {
+                into.setMax(Metric.at(key - KEY_FIRST_MAX), row, (float) readNumber(source));
+            } else if (key >= KEY_FIRST_MIN) {
+                into.setMin(Metric.at(key - KEY_FIRST_MIN), row, (float) readNumber(source));
+            } else if (key >= KEY_FIRST_METRIC) {
+                into.setValue(Metric.at(key - KEY_FIRST_METRIC), row, (float) readNumber(source));
+            } else {
+                readNumber(source);
+            }
+        } else {
+            throw syntaxError("érték", first);
+        }
+    }
+
+    /**
+     * Decimális szám beolvasása. A mantisszát long-ban gyűjtjük, és egyetlen osztással/szorzással
+     * alakítjuk double-lé; a szenzoradatok pontosságához ez bőven elég.
+     */
+    private double readNumber(BufferedSource source) throws IOException {
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+
+        byte b = source.readByte();
+        if (b == '-') {
+            negative = true;
+            b = source.readByte();
+        }
+        while (true) {
+            if (b >= '0' && b <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                } else {
+                    exponent++;
+                }
+            } else {
+                break;
+            }
+            if (!source.request(1)) return finish(negative, mantissa, exponent);
+            b = source.getBuffer().getByte(0);
+            if (b >= '0' && b <= '9') source.skip(1);
+        }
+        if (b == '.') {
+            source.skip(1);
+            while (source.request(1)) {
+                b = source.getBuffer().getByte(0);
+                if (b < '0' || b > '9') break;
+                source.skip(1);
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                    exponent--;
+                }
+            }
+        }
+        if (b == 'e' || b == 'E') {
+            source.skip(1);
+            b = source.readByte();
+            boolean negativeExponent = b == '-';
+            if (b == '-' || b == '+') b = source.readByte();
+            int explicit = 0;
+            while (true) {
+                explicit = explicit * 10 + (b - '0');
+                if (!source.request(1)) break;
+                b = source.getBuffer().getByte(0);
+                if (b < '0' || b > '9') break;
+                source.skip(1);
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        return finish(negative, mantissa, exponent);
+    }
+
+    private static double finish(boolean negative, long mantissa, int exponent) {
+        double value;
+        if (exponent == 0) {
+            value = mantissa;
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            value = mantissa * Math.pow(10, exponent);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * A string tartalmát (nyitó idézőjel után) a scratch pufferbe olvassa. Escape-et nem vár,
+     * az időbélyegekben ilyen nem fordul elő.
+     */
+    private int readStringBody(BufferedSource source) throws IOException {
+        int length = 0;
+        while (true) {
+            byte b = source.readByte();
+            if (b == '"') return length;
+            if (length == scratch.length) throw new IOException("Túl hosszú string érték");
+            scratch[length++] = b;
+        }
+    }
+
+    private static void skipStringBody(BufferedSource source) throws IOException {
+        while (true) {
+            byte b = source.readByte();
+            if (b == '\\') {
+                source.skip(1);
+            } else if (b == '"') {
+                return;
+            }
+        }
+    }
+
+    private static void expect(BufferedSource source, char expected) throws IOException {
+        byte b = nextNonWhitespace(source);
+        if (b != expected) throw syntaxError("'" + expected + "'", b);
+    }
+
+    private static byte nextNonWhitespace(BufferedSource source) throws IOException {
+        byte b = peekNonWhitespace(source);
+        source.skip(1);
+        return b;
+    }
+
+    private static byte peekNonWhitespace(BufferedSource source) throws IOException {
+        while (true) {
+            source.require(1);
+            byte b = source.getBuffer().getByte(0);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') return b;
+            source.skip(1);
+        }
+    }
+
+    private static IOException syntaxError(String expected, byte actual) {
+        return new IOException("JSON hiba: " + expected + " helyett '" + (char) actual + "'");
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.pmsensor;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Az egyes felhasználók által ténylegesen olvasott oszlopok, hogy a lekérdezések ne select=*-gal
+ * menjenek. A *_raw oszlopokat semmi nem jeleníti meg, ezért egyik vetületben sem szerepelnek.
+ */
+public enum SensorProjection {
+    // Értesítés és riasztások; a res/raw/alert_rules.json metrikáinak is itt kell szerepelniük.
+    WORKER(SensorColumn.MEASURE_TIME, SensorColumn.TEMPERATURE, SensorColumn.HUMIDITY, SensorColumn.UV,
+            SensorColumn.PM25, SensorColumn.PM10),
+    MAIN_SCREEN(SensorColumn.MEASURE_TIME, SensorColumn.TEMPERATURE, SensorColumn.HUMIDITY,
+            SensorColumn.ATMOSPHERIC_PRESSURE, SensorColumn.LIGHT_QUANTITY, SensorColumn.UV,
+            SensorColumn.PM25, SensorColumn.PM10),
+    // A diagramok közös adatai (áttekintő és összesítő szeletek, amelyeken az összes diagram osztozik).
+    CHARTS(SensorColumn.MEASURE_TIME, SensorColumn.TEMPERATURE, SensorColumn.HUMIDITY, SensorColumn.PM25,
+            SensorColumn.PM10, SensorColumn.UV, SensorColumn.LIGHT_QUANTITY, SensorColumn.ATMOSPHERIC_PRESSURE),
+    // A helyi előzmény: az ID a felülíráshoz kell.
+    HISTORY(SensorColumn.ID, SensorColumn.MEASURE_TIME, SensorColumn.TEMPERATURE, SensorColumn.HUMIDITY,
+            SensorColumn.PM25, SensorColumn.PM10, SensorColumn.UV, SensorColumn.LIGHT_QUANTITY,
+            SensorColumn.ATMOSPHERIC_PRESSURE);
+
+    private final SensorColumn[] columns;
+
+    SensorProjection(SensorColumn... columns) {
+        this.columns = columns;
+    }
+
+    public SensorColumn[] columns() {
+        return columns.clone();
+    }
+
+    /**
+     * Egyetlen diagram oszlopai: az idő és a metrika.
+     */
+    public static SensorColumn[] chart(Metric metric) {
+        return new SensorColumn[]{SensorColumn.MEASURE_TIME, metric.column};
+    }
+
+    /**
+     * Több felhasználó közös lekérdezéséhez a vetületek uniója, a SensorColumn sorrendjében.
+     */
+    public static SensorColumn[] union(SensorProjection... projections) {
+        Set<SensorColumn> set = EnumSet.noneOf(SensorColumn.class);
+        for (SensorProjection projection : projections) {
+            for (SensorColumn column : projection.columns) {
+                set.add(column);
+            }
+        }
+        return set.toArray(new SensorColumn[0]);
+    }
+}
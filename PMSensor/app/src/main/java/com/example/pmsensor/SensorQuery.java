@@ -0,0 +1,125 @@
+package com.example.pmsensor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Típusos PostgREST lekérdezés a PMSensor táblára és az összesítő tábláira.
+ * A szűrőket, rendezést és limitet itt rakjuk össze, az URL-t a {@link SupabaseClient} építi fel belőle.
+ */
+public final class SensorQuery {
+
+    static final String TABLE = "PMSensor";
+
+    private String relation = TABLE;
+    private String select = "*";
+    private final List<String[]> filters = new ArrayList<>();
+    private String order;
+    private int limit = -1;
+    private int offset = 0;
+
+    public static SensorQuery latest() {
+        return new SensorQuery().orderBy(SensorColumn.MEASURE_TIME, false).limit(1);
+    }
+
+    /**
+     * A nyers tábla helyett az adott összesítő táblából kérdez le (lásd README).
+     */
+    public static SensorQuery rollup(RollupLevel level) {
+        SensorQuery query = new SensorQuery();
+        query.relation = level.viewName;
+        return query;
+    }
+
+    public SensorQuery select(SensorColumn... columns) {
+        StringBuilder sb = new StringBuilder();
+        for (SensorColumn column : columns) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(column.columnName());
+        }
+        this.select = columns.length == 0 ? "*" : sb.toString();
+        return this;
+    }
+
+    /**
+     * Összesítő táblához: a megadott oszlopok, a mérési oszlopok mellett azok *_min / *_max
+     * párja, végül a rés mérésszáma.
+     */
+    public SensorQuery selectRollup(SensorColumn... columns) {
+        StringBuilder sb = new StringBuilder();
+        for (SensorColumn column : columns) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(column.columnName());
+            for (Metric metric : Metric.values()) {
+                if (metric.column == column) {
+                    sb.append(',').append(RollupLevel.minColumn(metric))
+                            .append(',').append(RollupLevel.maxColumn(metric));
+                }
+            }
+        }
+        if (sb.length() > 0) sb.append(',');
+        this.select = sb.append(RollupLevel.SAMPLES_COLUMN).toString();
+        return this;
+    }
+
+    public SensorQuery gte(SensorColumn column, String value) {
+        return filter(column, "gte", value);
+    }
+
+    public SensorQuery gt(SensorColumn column, String value) {
+        return filter(column, "gt", value);
+    }
+
+    public SensorQuery lte(SensorColumn column, String value) {
+        return filter(column, "lte", value);
+    }
+
+    public SensorQuery lt(SensorColumn column, String value) {
+        return filter(column, "lt", value);
+    }
+
+    /**
+     * Rendezési szempont; többszöri hívásnál a további oszlopok másodlagos kulcsként kerülnek be.
+     */
+    public SensorQuery orderBy(SensorColumn column, boolean ascending) {
+        String term = column.columnName() + (ascending ? ".asc" : ".desc");
+        this.order = order == null ? term : order + "," + term;
+        return this;
+    }
+
+    public SensorQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public SensorQuery offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    private SensorQuery filter(SensorColumn column, String operator, String value) {
+        filters.add(new String[]{column.columnName(), operator + "." + value});
+        return this;
+    }
+
+    HttpUrl toUrl(HttpUrl restUrl) {
+        HttpUrl.Builder builder = restUrl.newBuilder()
+                .addPathSegment(relation)
+                .addQueryParameter("select", select);
+        for (String[] filter : filters) {
+            builder.addQueryParameter(filter[0], filter[1]);
+        }
+        if (order != null) {
+            builder.addQueryParameter("order", order);
+        }
+        if (limit > 0) {
+            builder.addQueryParameter("limit", String.valueOf(limit));
+        }
+        if (offset > 0) {
+            builder.addQueryParameter("offset", String.valueOf(offset));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.pmsensor;
+
+import android.content.Context;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SensorWorker} ütemezése. A periodikus munka legrövidebb időköze 15 perc, és nem
+ * változtatható futás közben, ezért minden futás maga ütemezi a következőt egy egyszeri munkaként,
+ * a {@link PollingPolicy} szerinti késleltetéssel. A munka csak hálózattal indul, hiba esetén
+ * exponenciálisan növekvő várakozással újrapróbálkozik.
+ */
+final class SensorScheduler {
+
+    static final String WORK_NAME = "SensorPolling";
+    // A korábbi, 5 percre kért (valójában 15 perces) periodikus munka neve.
+    private static final String LEGACY_PERIODIC_WORK_NAME = "SensorDataFetchWork";
+
+    static final String KEY_DELAY_MILLIS = "delay_millis";
+    private static final long BACKOFF_MILLIS = 30_000L;
+
+    private SensorScheduler() {
+    }
+
+    /**
+     * Elindítja a lekérdezési láncot, ha még nem fut; a meglévő ütemezést nem írja felül, így
+     * az alkalmazás indítása nem tolja el a következő futást.
+     */
+    static void ensureScheduled(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.cancelUniqueWork(LEGACY_PERIODIC_WORK_NAME);
+        workManager.enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP,
+                request(0, PollingPolicy.MIN_DELAY_MILLIS));
+    }
+
+    /**
+     * A következő futás a futó munka után (annak sikeres befejezésekor indul a késleltetés).
+     */
+    static void scheduleNext(Context context, long delayMillis) {
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE,
+                request(delayMillis, delayMillis));
+    }
+
+    private static OneTimeWorkRequest request(long initialDelayMillis, long delayMillis) {
+        return new OneTimeWorkRequest.Builder(SensorWorker.class)
+                .setInitialDelay(initialDelayMillis, TimeUnit.MILLISECONDS)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_MILLIS, TimeUnit.MILLISECONDS)
+                .setInputData(new Data.Builder().putLong(KEY_DELAY_MILLIS, delayMillis).build())
+                .addTag(WORK_NAME)
+                .build();
+    }
+}
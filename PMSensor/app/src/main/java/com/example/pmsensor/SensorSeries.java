@@ -0,0 +1,304 @@
+package com.example.pmsensor;
+
+import java.util.Arrays;
+
+/**
+ * Oszlopos mérési sorozat: soronként egy ID és egy epoch ms időbélyeg, metrikánként egy float oszlop.
+ * Soronként nem foglal objektumot, a tömbök igény szerint nőnek.
+ *
+ * Az összesítő táblák soraihoz (lásd {@link RollupLevel}) metrikánként a rés minimuma és maximuma,
+ * valamint a rés mérésszáma is tárolható; ezek az oszlopok csak az első beállításkor jönnek létre.
+ * Egy nyers sor egyetlen mérésből álló résnek számít: minimuma és maximuma maga az érték.
+ */
+public final class SensorSeries {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private long[] ids;
+    private long[] times;
+    private final float[][] values;
+    // A rés szélső értékei és mérésszáma; nyers sorozatnál null.
+    private float[][] mins;
+    private float[][] maxs;
+    private int[] samples;
+    private int size;
+
+    public SensorSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SensorSeries(int capacity) {
+        capacity = Math.max(capacity, 1);
+        ids = new long[capacity];
+        times = new long[capacity];
+        values = new float[Metric.count()][capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Új, nullákkal feltöltött sort fűz a végére, és visszaadja az indexét.
+     */
+    public int appendRow() {
+        if (size == times.length) {
+            grow(size + 1);
+        }
+        int row = size++;
+        ids[row] = 0;
+        times[row] = 0;
+        for (float[] column : values) {
+            column[row] = 0f;
+        }
+        if (samples != null) {
+            for (int i = 0; i < mins.length; i++) {
+                mins[i][row] = 0f;
+                maxs[i][row] = 0f;
+            }
+            samples[row] = 0;
+        }
+        return row;
+    }
+
+    /**
+     * count új sort fűz a végére, és visszaadja az első indexét. A sorok tartalmát a hívó tölti ki
+     * közvetlenül az oszloptömbökbe (a rés-oszlopokat nem).
+     */
+    int reserveRows(int count) {
+        if (size + count > times.length) {
+            grow(size + count);
+        }
+        int first = size;
+        size += count;
+        return first;
+    }
+
+    /**
+     * Az első rows sor megtartása; a {@link #reserveRows} után félbemaradt kitöltés visszavonására.
+     */
+    void truncate(int rows) {
+        if (rows < size) size = rows;
+    }
+
+    public void setId(int row, long id) {
+        ids[row] = id;
+    }
+
+    public void setTime(int row, long millis) {
+        times[row] = millis;
+    }
+
+    public void setValue(Metric metric, int row, float value) {
+        values[metric.ordinal()][row] = value;
+    }
+
+    /**
+     * A rés legkisebb mérése; a rés-oszlopokat (ha még nincsenek) létrehozza.
+     */
+    public void setMin(Metric metric, int row, float value) {
+        enableRollupColumns();
+        mins[metric.ordinal()][row] = value;
+    }
+
+    public void setMax(Metric metric, int row, float value) {
+        enableRollupColumns();
+        maxs[metric.ordinal()][row] = value;
+    }
+
+    public void setSamples(int row, int count) {
+        enableRollupColumns();
+        samples[row] = count;
+    }
+
+    public long idAt(int row) {
+        return ids[row];
+    }
+
+    public long timeAt(int row) {
+        return times[row];
+    }
+
+    public float valueAt(Metric metric, int row) {
+        return values[metric.ordinal()][row];
+    }
+
+    public float minAt(Metric metric, int row) {
+        return mins(metric)[row];
+    }
+
+    public float maxAt(Metric metric, int row) {
+        return maxs(metric)[row];
+    }
+
+    /**
+     * A sor mögötti mérések száma; nyers sornál 1.
+     */
+    public int samplesAt(int row) {
+        return samples == null ? 1 : samples[row];
+    }
+
+    /**
+     * Vannak-e a sorozatnak rés-oszlopai (összesítő táblából jött-e).
+     */
+    public boolean hasRollupColumns() {
+        return samples != null;
+    }
+
+    /**
+     * Létrehozza a rés-oszlopokat; a meglévő sorok egyetlen mérésből álló résnek számítanak.
+     */
+    void enableRollupColumns() {
+        if (samples != null) return;
+        int capacity = times.length;
+        mins = new float[values.length][];
+        maxs = new float[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            mins[i] = Arrays.copyOf(values[i], capacity);
+            maxs[i] = Arrays.copyOf(values[i], capacity);
+        }
+        samples = new int[capacity];
+        Arrays.fill(samples, 0, size, 1);
+    }
+
+    /**
+     * Az ID oszlop közvetlen elérése; csak az első size() elem érvényes.
+     */
+    long[] ids() {
+        return ids;
+    }
+
+    /**
+     * Az időbélyeg oszlop közvetlen elérése; csak az első size() elem érvényes.
+     */
+    long[] times() {
+        return times;
+    }
+
+    /**
+     * Egy metrika oszlopának közvetlen elérése; csak az első size() elem érvényes.
+     */
+    float[] values(Metric metric) {
+        return values[metric.ordinal()];
+    }
+
+    /**
+     * A rés minimumainak oszlopa; rés-oszlopok nélkül az értékoszlop.
+     */
+    float[] mins(Metric metric) {
+        return mins == null ? values[metric.ordinal()] : mins[metric.ordinal()];
+    }
+
+    float[] maxs(Metric metric) {
+        return maxs == null ? values[metric.ordinal()] : maxs[metric.ordinal()];
+    }
+
+    /**
+     * Az első sor indexe, amelynek ideje >= millis (size(), ha nincs ilyen). Feltételezi az időrendet.
+     */
+    public int lowerBound(long millis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A [startMillis, endMillis] időszak sorai új sorozatként.
+     */
+    public SensorSeries slice(long startMillis, long endMillis) {
+        int from = lowerBound(startMillis);
+        int to = endMillis == Long.MAX_VALUE ? size : lowerBound(endMillis + 1);
+        return sliceRows(from, Math.max(from, to));
+    }
+
+    /**
+     * A [from, to) sorok másolata új sorozatként.
+     */
+    public SensorSeries sliceRows(int from, int to) {
+        SensorSeries result = new SensorSeries(to - from);
+        result.appendRows(this, from, to);
+        return result;
+    }
+
+    /**
+     * Új sorozat, amelyben a [startMillis, endMillis] időszak sorai helyett a detail sorai állnak
+     * (pl. egy durva áttekintőbe illesztett részletes ablak).
+     */
+    public SensorSeries splice(long startMillis, long endMillis, SensorSeries detail) {
+        int before = lowerBound(startMillis);
+        int after = Math.max(before, lowerBound(endMillis + 1));
+        SensorSeries result = new SensorSeries(before + detail.size() + size - after);
+        result.appendRows(this, 0, before);
+        result.appendAll(detail);
+        result.appendRows(this, after, size);
+        return result;
+    }
+
+    /**
+     * Egy másik sorozat [from, to) sorait fűzi a végére oszloponkénti tömbmásolással. Ha bármelyik
+     * oldalon vannak rés-oszlopok, az eredményben is lesznek (a nyers sorok egy mérésből álló rések).
+     */
+    public void appendRows(SensorSeries other, int from, int to) {
+        int count = to - from;
+        if (count <= 0) return;
+        if (other.samples != null) {
+            enableRollupColumns();
+        }
+        if (size + count > times.length) {
+            grow(size + count);
+        }
+        System.arraycopy(other.ids, from, ids, size, count);
+        System.arraycopy(other.times, from, times, size, count);
+        for (int i = 0; i < values.length; i++) {
+            System.arraycopy(other.values[i], from, values[i], size, count);
+        }
+        if (samples != null) {
+            for (int i = 0; i < values.length; i++) {
+                System.arraycopy(other.mins(Metric.at(i)), from, mins[i], size, count);
+                System.arraycopy(other.maxs(Metric.at(i)), from, maxs[i], size, count);
+            }
+            if (other.samples != null) {
+                System.arraycopy(other.samples, from, samples, size, count);
+            } else {
+                Arrays.fill(samples, size, size + count, 1);
+            }
+        }
+        size += count;
+    }
+
+    public void appendAll(SensorSeries other) {
+        appendRows(other, 0, other.size);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, times.length + (times.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        times = Arrays.copyOf(times, capacity);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Arrays.copyOf(values[i], capacity);
+        }
+        if (samples != null) {
+            for (int i = 0; i < values.length; i++) {
+                mins[i] = Arrays.copyOf(mins[i], capacity);
+                maxs[i] = Arrays.copyOf(maxs[i], capacity);
+            }
+            samples = Arrays.copyOf(samples, capacity);
+        }
+    }
+}
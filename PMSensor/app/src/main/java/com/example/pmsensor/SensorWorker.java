@@ -5,15 +5,20 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SensorWorker extends Worker {
 
     private static final String TAG = "SensorWorker";
+    // Ennyi (exponenciálisan ritkuló, kb. 15 percet átfogó) próbálkozás után a leglazább időközzel
+    // folytatjuk, hogy tartós hiba se szakítsa meg a láncot.
+    private static final int MAX_ATTEMPTS = 5;
+    // Két feldolgozott mérés között legfeljebb ennyi idő kimaradt méréseit töltjük le utólag.
+    private static final long CATCH_UP_MILLIS = DerivedMetrics.DAY_MILLIS;
+
     private final Context context;
 
     public SensorWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
@@ -24,47 +29,139 @@ public class SensorWorker extends Worker {
     @NonNull
     @Override
     public Result doWork() {
+        try (PerfMetrics.Span ignored = PerfMetrics.start("worker")) {
+            return poll();
+        }
+    }
+
+    private Result poll() {
         Log.d(TAG, "Worker fut: adatok lekérése...");
+        long delayMillis = getInputData().getLong(SensorScheduler.KEY_DELAY_MILLIS, PollingPolicy.MIN_DELAY_MILLIS);
         try {
-            String supabaseUrl = context.getString(R.string.supabase_url);
-            String supabaseKey = context.getString(R.string.supabase_key);
-
-            OkHttpClient client = new OkHttpClient();
-            Request request = new Request.Builder()
-                    .url(supabaseUrl + "/rest/v1/PMSensor?select=*&order=Measure_time.desc&limit=1")
-                    .addHeader("apikey", supabaseKey)
-                    .addHeader("Authorization", "Bearer " + supabaseKey)
-                    .build();
-
-            Response response = client.newCall(request).execute();
-
-            if (response.isSuccessful() && response.body() != null) {
-                String responseBody = response.body().string();
-                JSONArray jsonArray = new JSONArray(responseBody);
-
-                if (jsonArray.length() > 0) {
-                    JSONObject obj = jsonArray.getJSONObject(0);
-                    float temp = (float) obj.getDouble("Temperature");
-                    float humid = (float) obj.getDouble("Humidity");
-                    float pm25 = (float) obj.getDouble("PM25");
-                    float pm10 = (float) obj.getDouble("PM10");
-                    float uv = (float) obj.getDouble("UV");
-
-                    // Értesítések küldése az új segédosztállyal
-                    NotificationHelper.showOngoingNotification(context, temp, humid, uv, pm25, pm10);
-                    NotificationHelper.checkThresholdsAndAlert(context, pm25, pm10);
-
-                    Log.d(TAG, "Adatok sikeresen frissítve.");
-                    return Result.success();
+            LastReadingStore store = new LastReadingStore(context);
+            PMSensor previous = store.load();
+            // A főképernyővel közös, rövid ideig gyorsítótárazott lekérdezés.
+            PMSensor latest = LatestReadingRepository.getInstance(context).get(LatestReadingRepository.FRESH_MILLIS);
+            if (latest != null && previous != null && latest.measureMillis <= previous.measureMillis) {
+                latest = null;
+            }
+
+            if (latest == null && previous != null) {
+                // Nincs új mérés: az értesítést csak akkor rajzoljuk újra, ha közben eltűnt.
+                if (!NotificationHelper.isOngoingNotificationShown(context)) {
+                    showOngoing(context, previous);
                 }
+                Log.d(TAG, "Nincs új adat.");
+                return scheduleNext(delayMillis, previous, null);
             }
 
-            Log.e(TAG, "Adatlekérés sikertelen, válaszkód: " + response.code());
-            return Result.retry();
+            if (latest != null) {
+                List<PMSensor> readings = readingsSince(context, previous, latest);
+                deliver(context, store, readings);
+                Log.d(TAG, "Adatok sikeresen frissítve.");
+                // Lazított futás után a változási sebességet a két utolsó mérésből becsüljük, ne a
+                // fél órával korábbi előző futáséból.
+                PMSensor beforeLatest = readings.size() > 1 ? readings.get(readings.size() - 2) : previous;
+                return scheduleNext(delayMillis, beforeLatest, latest);
+            }
+
+            Log.e(TAG, "Adatlekérés sikertelen: nincs adat.");
+            return retryOrContinue();
 
+        } catch (SupabaseClient.HttpException e) {
+            Log.e(TAG, "Adatlekérés sikertelen, válaszkód: " + e.code);
+            return retryOrContinue();
         } catch (Exception e) {
             Log.e(TAG, "Hiba a Worker futása közben", e);
-            return Result.failure();
+            return retryOrContinue();
+        }
+    }
+
+    private Result scheduleNext(long delayMillis, PMSensor previous, PMSensor latest) {
+        PollingPolicy policy = new PollingPolicy(NotificationHelper.alertRules(context));
+        long next = policy.nextDelayMillis(delayMillis, previous, latest, NotificationHelper.alertStates(context));
+        SensorScheduler.scheduleNext(context, next);
+        PerfMetrics.get().add("worker.success", 1);
+        Log.d(TAG, "Következő futás " + next / 60_000L + " perc múlva.");
+        return Result.success();
+    }
+
+    private Result retryOrContinue() {
+        PerfMetrics.get().add("worker.failure", 1);
+        if (getRunAttemptCount() + 1 < MAX_ATTEMPTS) {
+            return Result.retry();
         }
+        SensorScheduler.scheduleNext(context, PollingPolicy.MAX_DELAY_MILLIS);
+        return Result.success();
+    }
+
+    /**
+     * Egy új mérés feldolgozása: mentés, állandó értesítés és riasztások. A valós idejű csatorna
+     * is ezt hívja, így a háttérfeladat a már feldolgozott mérést nem dolgozza fel újra.
+     * Hálózati hívással járhat, ezért nem a fő szálon hívjuk.
+     */
+    static void deliver(Context context, PMSensor reading) {
+        LastReadingStore store = new LastReadingStore(context);
+        PMSensor previous = store.load();
+        if (previous != null && reading.measureMillis <= previous.measureMillis) {
+            return;
+        }
+        deliver(context, store, readingsSince(context, previous, reading));
+    }
+
+    /**
+     * A previous óta érkezett mérések időrendben, a latest-tel zárva. Ha a kettő között egynél több
+     * feltöltési időköz telt el (lazított lekérdezés, megszakadt valós idejű kapcsolat), a közbülső
+     * méréseket is letölti, hogy a riasztások és a származtatott átlagok minden mérést lássanak, és a
+     * kimaradás-figyelésük ne induljon újra. Ha ez nem sikerül, csak a latest marad, a hézag kimarad.
+     */
+    private static List<PMSensor> readingsSince(Context context, PMSensor previous, PMSensor latest) {
+        List<PMSensor> readings = new ArrayList<>();
+        // Az első futásnál (vagy olvashatatlan előző mérésnél) az egész napot letöltjük, hogy a
+        // származtatott átlagok azonnal teljesek legyenek.
+        long fromMillis = previous == null || previous.measureMillis == Long.MIN_VALUE
+                ? latest.measureMillis - CATCH_UP_MILLIS
+                : Math.max(previous.measureMillis, latest.measureMillis - CATCH_UP_MILLIS);
+        if (latest.measureMillis != Long.MIN_VALUE
+                && latest.measureMillis - fromMillis > PMSensor.UPLOAD_INTERVAL_MILLIS * 3 / 2) {
+            try (PerfMetrics.Span span = PerfMetrics.start("worker.catchup")) {
+                for (PMSensor reading : SupabaseClient.getInstance(context).fetchBetween(fromMillis,
+                        latest.measureMillis, SensorProjection.WORKER.columns())) {
+                    // A szűrő másodperc pontosságú: a határon lévő, már ismert mérések kimaradnak.
+                    if (reading.measureMillis > fromMillis && reading.measureMillis < latest.measureMillis) {
+                        readings.add(reading);
+                    }
+                }
+                span.rows(readings.size());
+            } catch (IOException e) {
+                Log.w(TAG, "A kimaradt mérések nem tölthetők le", e);
+                readings.clear();
+            }
+        }
+        readings.add(latest);
+        return readings;
+    }
+
+    private static void deliver(Context context, LastReadingStore store, List<PMSensor> readings) {
+        PMSensor latest = readings.get(readings.size() - 1);
+        store.save(latest);
+        DerivedMetricsRepository derivedRepository = DerivedMetricsRepository.getInstance(context);
+        DerivedMetrics.Snapshot derived = null;
+        for (PMSensor reading : readings) {
+            derived = derivedRepository.update(reading);
+            // A kiugró vagy beragadt értékű metrikák nem riasztanak.
+            NotificationHelper.evaluateAlerts(context, reading, derivedRepository.faultsOf(reading), derived);
+        }
+        // Értesítések küldése az új segédosztállyal
+        showOngoing(context, latest, derived);
+    }
+
+    private static void showOngoing(Context context, PMSensor reading) {
+        showOngoing(context, reading, DerivedMetricsRepository.getInstance(context).current());
+    }
+
+    private static void showOngoing(Context context, PMSensor reading, DerivedMetrics.Snapshot derived) {
+        NotificationHelper.showOngoingNotification(context, reading.temperature, reading.humidity, reading.uv,
+                reading.PM2_5, reading.PM10, derived);
     }
 }
@@ -0,0 +1,164 @@
+package com.example.pmsensor;
+
+import com.github.mikephil.charting.data.DataSet;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineDataSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * LineDataSet, amely a pontokat közvetlenül a {@link SeriesWindow}-ból (a SensorSeries tömbjeiből)
+ * olvassa, pontonkénti Entry nélkül. A rajzoló által kért Entry-k néhány újrahasznosított
+ * példányból kerülnek ki; a keresések (érintés, marker) saját példányt kapnak.
+ *
+ * A pontokat a window módosításával kell változtatni, utána notifyDataSetChanged(); az
+ * addEntry / removeEntry jellegű műveletek nem támogatottak.
+ */
+public class SeriesDataSet extends LineDataSet {
+
+    // A LineChartRenderer egyszerre legfeljebb négy egymás utáni Entry-t tart meg (cubic módban).
+    private static final int FLYWEIGHTS = 8;
+
+    private final SeriesWindow window;
+    private final Entry[] flyweights = new Entry[FLYWEIGHTS];
+    private int nextFlyweight;
+    private final float[] range = new float[2];
+
+    SeriesDataSet(SeriesWindow window, String label) {
+        super(new ArrayList<>(), label);
+        this.window = window;
+        for (int i = 0; i < FLYWEIGHTS; i++) {
+            flyweights[i] = new Entry();
+        }
+    }
+
+    SeriesWindow window() {
+        return window;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return window.size();
+    }
+
+    @Override
+    public Entry getEntryForIndex(int index) {
+        Entry entry = flyweights[nextFlyweight];
+        nextFlyweight = (nextFlyweight + 1) % FLYWEIGHTS;
+        entry.setX(window.xAt(index));
+        entry.setY(window.yAt(index));
+        return entry;
+    }
+
+    @Override
+    public int getEntryIndex(Entry e) {
+        if (e == null) return -1;
+        int index = window.indexFor(e.getX(), SeriesWindow.Rounding.CLOSEST);
+        return index >= 0 && window.xAt(index) == e.getX() ? index : -1;
+    }
+
+    @Override
+    public int getEntryIndex(float xValue, float closestToY, Rounding rounding) {
+        // Az X értékek szigorúan növők, így closestToY-ra nincs szükség.
+        return window.indexFor(xValue, toWindowRounding(rounding));
+    }
+
+    @Override
+    public Entry getEntryForXValue(float xValue, float closestToY, Rounding rounding) {
+        int index = getEntryIndex(xValue, closestToY, rounding);
+        return index < 0 ? null : new Entry(window.xAt(index), window.yAt(index));
+    }
+
+    @Override
+    public Entry getEntryForXValue(float xValue, float closestToY) {
+        return getEntryForXValue(xValue, closestToY, Rounding.CLOSEST);
+    }
+
+    @Override
+    public List<Entry> getEntriesForXValue(float xValue) {
+        int index = window.indexFor(xValue, SeriesWindow.Rounding.CLOSEST);
+        if (index < 0 || window.xAt(index) != xValue) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries = new ArrayList<>(1);
+        entries.add(new Entry(window.xAt(index), window.yAt(index)));
+        return entries;
+    }
+
+    @Override
+    public void calcMinMax() {
+        // A szülő konstruktorából is hívódik, amikor a window még nincs beállítva.
+        if (window != null) {
+            window.invalidate();
+        }
+    }
+
+    @Override
+    public void calcMinMaxY(float fromX, float toX) {
+        range[0] = window.getYMin();
+        range[1] = window.getYMax();
+        window.yRange(fromX, toX, range);
+        mYMin = range[0];
+        mYMax = range[1];
+    }
+
+    @Override
+    public float getYMin() {
+        return window.getYMin();
+    }
+
+    @Override
+    public float getYMax() {
+        return window.getYMax();
+    }
+
+    @Override
+    public float getXMin() {
+        return window.getXMin();
+    }
+
+    @Override
+    public float getXMax() {
+        return window.getXMax();
+    }
+
+    @Override
+    public boolean addEntry(Entry e) {
+        throw new UnsupportedOperationException("A pontok a SeriesWindow-ból származnak.");
+    }
+
+    @Override
+    public void addEntryOrdered(Entry e) {
+        throw new UnsupportedOperationException("A pontok a SeriesWindow-ból származnak.");
+    }
+
+    @Override
+    public boolean removeEntry(Entry e) {
+        throw new UnsupportedOperationException("A pontok a SeriesWindow-ból származnak.");
+    }
+
+    @Override
+    public void setValues(List<Entry> values) {
+        throw new UnsupportedOperationException("A pontok a SeriesWindow-ból származnak.");
+    }
+
+    @Override
+    public DataSet<Entry> copy() {
+        SeriesDataSet copied = new SeriesDataSet(window, getLabel());
+        copy(copied);
+        return copied;
+    }
+
+    private static SeriesWindow.Rounding toWindowRounding(Rounding rounding) {
+        switch (rounding) {
+            case UP:
+                return SeriesWindow.Rounding.UP;
+            case DOWN:
+                return SeriesWindow.Rounding.DOWN;
+            default:
+                return SeriesWindow.Rounding.CLOSEST;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.pmsensor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Metrikánkénti összesítő (darabszám, min, max, átlag, kvantilisek) egy időszakra. Egy sorozatból
+ * egyetlen menetben számolódik, metrikánként külön feladatként; két összesítő összefésülhető, így
+ * a napi összesítőkből bármely időszaké előáll a nyers adat újraolvasása nélkül. Összesítő tábla
+ * réseiből is számolható ({@link #fromRollup}); ekkor a kvantilisek csak közelítők.
+ */
+final class SeriesStatistics {
+
+    /**
+     * Egy metrika összesítője.
+     */
+    static final class Summary {
+        private final KllSketch sketch;
+        private double sum;
+        private float min = Float.POSITIVE_INFINITY;
+        private float max = Float.NEGATIVE_INFINITY;
+        // Több mérést átlagoló résekből számolt: a kvantilisek a résátlagok eloszlását követik.
+        private boolean approximate;
+
+        Summary(int k) {
+            sketch = new KllSketch(k);
+        }
+
+        void add(float value) {
+            if (Float.isNaN(value)) return;
+            sketch.update(value);
+            sum += value;
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+
+        /**
+         * Egy összesített rés: az átlaga a mérésszámmal súlyozva kerül az átlagba és a kvantilis-becslőbe,
+         * a szélső értékek a rés saját minimumából és maximumából jönnek, így ezek pontosak maradnak.
+         */
+        void addBucket(float mean, float low, float high, int samples) {
+            if (Float.isNaN(mean) || samples <= 0) return;
+            sketch.update(mean, samples);
+            sum += (double) mean * samples;
+            if (low < min) min = low;
+            if (high > max) max = high;
+            if (samples > 1) approximate = true;
+        }
+
+        void merge(Summary other) {
+            sketch.merge(other.sketch);
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            approximate |= other.approximate;
+        }
+
+        long count() {
+            return sketch.count();
+        }
+
+        float min() {
+            return sketch.isEmpty() ? Float.NaN : min;
+        }
+
+        float max() {
+            return sketch.isEmpty() ? Float.NaN : max;
+        }
+
+        float mean() {
+            return sketch.isEmpty() ? Float.NaN : (float) (sum / sketch.count());
+        }
+
+        float quantile(double q) {
+            return sketch.quantile(q);
+        }
+
+        /**
+         * A kvantilisek közelítők-e (összesített résekből számolva); a darabszám, a szélső értékek
+         * és az átlag ekkor is pontosak.
+         */
+        boolean isApproximate() {
+            return approximate;
+        }
+    }
+
+    private final Summary[] summaries = new Summary[Metric.count()];
+
+    SeriesStatistics(Metric[] metrics) {
+        this(metrics, KllSketch.DEFAULT_K);
+    }
+
+    SeriesStatistics(Metric[] metrics, int k) {
+        for (Metric metric : metrics) {
+            summaries[metric.ordinal()] = new Summary(k);
+        }
+    }
+
+    /**
+     * A metrika összesítője, vagy null, ha nem szerepelt a számoltak között.
+     */
+    Summary summary(Metric metric) {
+        return summaries[metric.ordinal()];
+    }
+
+    /**
+     * A sorozat [from, to) sorainak összesítése a metrikák szerint, metrikánként egy feladattal.
+     * A hívó szál a még el nem indult feladatokat maga futtatja, így telített executor mellett sem akad el.
+     */
+    static SeriesStatistics compute(SensorSeries series, int from, int to, Metric[] metrics, int k,
+                                    Executor executor) throws InterruptedException {
+        SeriesStatistics result = new SeriesStatistics(metrics, k);
+        List<FutureTask<Void>> tasks = new ArrayList<>(metrics.length);
+        for (Metric metric : metrics) {
+            Summary summary = result.summaries[metric.ordinal()];
+            float[] column = series.values(metric);
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                for (int i = from; i < to; i++) {
+                    summary.add(column[i]);
+                }
+                return null;
+            });
+            tasks.add(task);
+        }
+        // Az elsőt mindenképp a hívó futtatja.
+        for (int i = 1; i < tasks.size(); i++) {
+            executor.execute(tasks.get(i));
+        }
+        for (FutureTask<Void> task : tasks) {
+            // A már futó vagy kész feladatnál a run() nem csinál semmit.
+            task.run();
+        }
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return result;
+    }
+
+    static SeriesStatistics compute(SensorSeries series, Metric[] metrics, Executor executor)
+            throws InterruptedException {
+        return compute(series, 0, series.size(), metrics, KllSketch.DEFAULT_K, executor);
+    }
+
+    /**
+     * Egy összesítő tábla réseinek összesítése a metrikák szerint: a darabszám és az átlag a Samples
+     * oszloppal súlyozott, a szélső értékek a *_min / *_max oszlopokból jönnek. Rés-oszlopok nélküli
+     * (nyers) sorozatnál minden sor egy mérés, az eredmény ugyanaz, mint a {@link #compute}-é.
+     */
+    static SeriesStatistics fromRollup(SensorSeries buckets, Metric[] metrics) {
+        SeriesStatistics result = new SeriesStatistics(metrics);
+        for (Metric metric : metrics) {
+            Summary summary = result.summaries[metric.ordinal()];
+            for (int row = 0; row < buckets.size(); row++) {
+                summary.addBucket(buckets.valueAt(metric, row), buckets.minAt(metric, row),
+                        buckets.maxAt(metric, row), buckets.samplesAt(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A másik összesítő beolvasztása (csak a mindkettőben szereplő metrikáké).
+     */
+    void merge(SeriesStatistics other) {
+        for (int i = 0; i < summaries.length; i++) {
+            if (summaries[i] != null && other.summaries[i] != null) {
+                summaries[i].merge(other.summaries[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.pmsensor;
+
+import java.util.Arrays;
+
+/**
+ * Egy sorozat egy metrikájának diagramon megjelenített pontjai: sorindexek a {@link SensorSeries}
+ * oszlopaiba (vagy az összes sor), pontonkénti objektum nélkül. A szélső értékek csak kérésre,
+ * a kijelölés változása után egyszer számolódnak újra.
+ */
+final class SeriesWindow {
+
+    enum Rounding { DOWN, UP, CLOSEST }
+
+    /**
+     * A megjelenített oszlop: az érték (összesítésnél a rés átlaga), vagy a rés minimuma / maximuma.
+     */
+    enum Column { VALUE, MIN, MAX }
+
+    private SensorSeries series;
+    private final Metric metric;
+    private final long timeBase;
+    private final Column column;
+
+    // A megjelenített sorok indexe növekvő sorrendben; null esetén a sorozat összes sora.
+    private int[] rows;
+    private int rowCount;
+
+    private boolean minMaxValid;
+    private float xMin, xMax, yMin, yMax;
+
+    /**
+     * timeBase: az X értékek ehhez képesti eltolások ms-ben (a nyers epoch ms nem fér el egy float-ban).
+     */
+    SeriesWindow(SensorSeries series, Metric metric, long timeBase) {
+        this(series, metric, timeBase, Column.VALUE);
+    }
+
+    SeriesWindow(SensorSeries series, Metric metric, long timeBase, Column column) {
+        this.series = series;
+        this.metric = metric;
+        this.timeBase = timeBase;
+        this.column = column;
+    }
+
+    SensorSeries series() {
+        return series;
+    }
+
+    /**
+     * A megjelenített sorozat cseréje (pl. részletes ablak beillesztése után); minden sort mutat.
+     */
+    void setSeries(SensorSeries series) {
+        this.series = series;
+        showAll();
+    }
+
+    int size() {
+        return rows == null ? series.size() : rowCount;
+    }
+
+    int rowAt(int index) {
+        return rows == null ? index : rows[index];
+    }
+
+    float xAt(int index) {
+        return series.timeAt(rowAt(index)) - timeBase;
+    }
+
+    float yAt(int index) {
+        return values()[rowAt(index)];
+    }
+
+    private float[] values() {
+        switch (column) {
+            case MIN:
+                return series.mins(metric);
+            case MAX:
+                return series.maxs(metric);
+            default:
+                return series.values(metric);
+        }
+    }
+
+    void showAll() {
+        rows = null;
+        rowCount = 0;
+        minMaxValid = false;
+    }
+
+    /**
+     * A megadott sorok megjelenítése; a tömböt nem másolja, a hívó többé nem módosíthatja.
+     */
+    void show(int[] rows) {
+        this.rows = rows;
+        this.rowCount = rows.length;
+        minMaxValid = false;
+    }
+
+    /**
+     * A [windowFrom, windowTo) sorok részletesen, a többi áttekintő mintával ({@link Downsampler#forViewport}),
+     * a megjelenített oszlop szerint: a minimum- és maximumvonal így a saját csúcsait tartja meg.
+     * Ha a mintavétel minden sort megtart, indextömb nélkül az egész sorozatot mutatja.
+     */
+    void downsample(int windowFrom, int windowTo, int pointBudget) {
+        int[] sampled = Downsampler.forViewport(series.times(), values(), series.size(),
+                windowFrom, windowTo, pointBudget);
+        if (sampled.length == series.size()) {
+            showAll();
+        } else {
+            show(sampled);
+        }
+    }
+
+    /**
+     * A sorozat végére fűzött sor megjelenítése másolás nélkül; az indextömb amortizáltan nő,
+     * a szélső értékek számolás helyett csak kiegészülnek.
+     */
+    void appendRow(int row) {
+        if (rows != null) {
+            if (rowCount == rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(8, rowCount * 2));
+            }
+            rows[rowCount++] = row;
+        }
+        if (minMaxValid) {
+            include(series.timeAt(row) - timeBase, values()[row]);
+        }
+    }
+
+    void invalidate() {
+        minMaxValid = false;
+    }
+
+    float getXMin() {
+        ensureMinMax();
+        return xMin;
+    }
+
+    float getXMax() {
+        ensureMinMax();
+        return xMax;
+    }
+
+    float getYMin() {
+        ensureMinMax();
+        return yMin;
+    }
+
+    float getYMax() {
+        ensureMinMax();
+        return yMax;
+    }
+
+    /**
+     * A [fromX, toX] tartományt lefedő pontok Y szélső értékei az out tömbbe ({min, max}),
+     * az MPAndroidChart automatikus Y skálázásához. Üres kijelölésnél nem módosít.
+     */
+    void yRange(float fromX, float toX, float[] out) {
+        int from = indexFor(fromX, Rounding.DOWN);
+        int to = indexFor(toX, Rounding.UP);
+        if (from < 0) return;
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = from; i <= to; i++) {
+            float y = yAt(i);
+            if (y < min) min = y;
+            if (y > max) max = y;
+        }
+        out[0] = min;
+        out[1] = max;
+    }
+
+    /**
+     * Az x-hez tartozó pont indexe bináris kereséssel: DOWN a legnagyobb, legfeljebb x értékű,
+     * UP a legkisebb, legalább x értékű, CLOSEST a legközelebbi (a széleken a szélső pont); -1, ha üres.
+     */
+    int indexFor(float x, Rounding rounding) {
+        int size = size();
+        if (size == 0) return -1;
+
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xAt(mid) < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // low: az első pont, amelynek X-e >= x (size, ha nincs ilyen).
+        if (low == size) return size - 1;
+        if (xAt(low) == x || low == 0) return low;
+
+        switch (rounding) {
+            case UP:
+                return low;
+            case DOWN:
+                return low - 1;
+            default:
+                return x - xAt(low - 1) <= xAt(low) - x ? low - 1 : low;
+        }
+    }
+
+    private void ensureMinMax() {
+        if (minMaxValid) return;
+        xMin = Float.MAX_VALUE;
+        xMax = -Float.MAX_VALUE;
+        yMin = Float.MAX_VALUE;
+        yMax = -Float.MAX_VALUE;
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            include(xAt(i), yAt(i));
+        }
+        minMaxValid = true;
+    }
+
+    private void include(float x, float y) {
+        if (x < xMin) xMin = x;
+        if (x > xMax) xMax = x;
+        if (y < yMin) yMin = y;
+        if (y > yMax) yMax = y;
+    }
+}
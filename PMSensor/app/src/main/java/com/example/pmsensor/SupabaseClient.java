@@ -0,0 +1,215 @@
+package com.example.pmsensor;
+
+import android.content.Context;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Folyamatszintű Supabase adatelérés: egyetlen, hangolt OkHttpClient-et birtokol,
+ * így a kapcsolatok, a TLS session és a HTTP/2 multiplexálás hívások között újrahasznosul.
+ * A gzip tömörítést az OkHttp magától kéri és bontja ki, ha nem adunk meg Accept-Encoding fejlécet.
+ */
+public final class SupabaseClient {
+
+    /**
+     * A válasz formátuma (Accept fejléc). A CSV-ben a kulcsok nem ismétlődnek soronként, így
+     * tömörítetlenül jóval kisebb, és gyorsabban is dekódolható (lásd WireFormatBenchmark).
+     */
+    public enum WireFormat {
+        JSON("application/json"),
+        CSV("text/csv");
+
+        final String mediaType;
+
+        WireFormat(String mediaType) {
+            this.mediaType = mediaType;
+        }
+    }
+
+    private static final String REST_PATH = "rest/v1";
+
+    // A worker 5 percenként fut, ezért a kapcsolatot ennél valamivel tovább tartjuk életben.
+    private static final long KEEP_ALIVE_MINUTES = 6;
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+
+    private static volatile SupabaseClient instance;
+
+    private final OkHttpClient httpClient;
+    private final HttpUrl restUrl;
+    private final String apiKey;
+
+    public static SupabaseClient getInstance(Context context) {
+        SupabaseClient result = instance;
+        if (result == null) {
+            synchronized (SupabaseClient.class) {
+                result = instance;
+                if (result == null) {
+                    Context appContext = context.getApplicationContext();
+                    result = new SupabaseClient(
+                            appContext.getString(R.string.supabase_url),
+                            appContext.getString(R.string.supabase_key));
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    SupabaseClient(String baseUrl, String apiKey) {
+        this(baseUrl, apiKey, createHttpClient());
+    }
+
+    SupabaseClient(String baseUrl, String apiKey, OkHttpClient httpClient) {
+        HttpUrl base = HttpUrl.get(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        this.restUrl = base.resolve(REST_PATH);
+        this.apiKey = apiKey;
+        this.httpClient = httpClient;
+    }
+
+    static OkHttpClient createHttpClient() {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(20, TimeUnit.SECONDS)
+                .writeTimeout(10, TimeUnit.SECONDS)
+                .callTimeout(60, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .addNetworkInterceptor(new TrafficInterceptor(PerfMetrics.get()))
+                .build();
+    }
+
+    OkHttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * A hívást a szálhoz kötött {@link FetchToken}-en is nyilvántartja, így a munka megszakítása leállítja.
+     */
+    public Call newCall(SensorQuery query) {
+        return newCall(query, WireFormat.JSON);
+    }
+
+    public Call newCall(SensorQuery query, WireFormat format) {
+        Request request = new Request.Builder()
+                .url(query.toUrl(restUrl))
+                .header("apikey", apiKey)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Accept", format.mediaType)
+                .build();
+        Call call = httpClient.newCall(request);
+        FetchToken token = FetchToken.current();
+        if (token != null) {
+            token.register(call);
+        }
+        return call;
+    }
+
+    /**
+     * Végrehajtja a lekérdezést és PMSensor objektumokká alakítja a választ.
+     */
+    public List<PMSensor> fetch(SensorQuery query) throws IOException {
+        try (Response response = newCall(query).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new HttpException(response.code(), response.message());
+            }
+            String json = body.string();
+            try (PerfMetrics.Span span = PerfMetrics.start("decode.orgjson")) {
+                JSONArray jsonArray = new JSONArray(json);
+                List<PMSensor> result = new ArrayList<>(jsonArray.length());
+                for (int i = 0; i < jsonArray.length(); i++) {
+                    result.add(PMSensor.fromJson(jsonArray.getJSONObject(i)));
+                }
+                span.rows(result.size()).bytes(json.length());
+                return result;
+            }
+        } catch (JSONException e) {
+            throw new IOException("Érvénytelen JSON válasz", e);
+        }
+    }
+
+    /**
+     * Végrehajtja a lekérdezést, és a választ köztes objektumok nélkül a sorozat végére fűzi
+     * (alapból CSV-ként). Visszaadja a beolvasott sorok számát.
+     */
+    public int fetchInto(SensorQuery query, SensorSeries into) throws IOException {
+        return fetchInto(query, WireFormat.CSV, into);
+    }
+
+    public int fetchInto(SensorQuery query, WireFormat format, SensorSeries into) throws IOException {
+        try (Response response = newCall(query, format).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new HttpException(response.code(), response.message());
+            }
+            // A törzset olvasás közben dekódoljuk, így a mérés a fogadást is tartalmazza; a vezetéken
+            // átjött bájtokat a TrafficInterceptor már a http.bytes számlálóba írta.
+            try (PerfMetrics.Span span = PerfMetrics.start(format == WireFormat.CSV ? "decode.csv" : "decode.json")) {
+                int rows = format == WireFormat.CSV
+                        ? new SensorCsvDecoder().decode(body.source(), into)
+                        : new SensorJsonDecoder().decode(body.source(), into);
+                span.rows(rows);
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * A legutolsó mérés, vagy null, ha a tábla üres.
+     */
+    public PMSensor fetchLatest() throws IOException {
+        List<PMSensor> rows = fetch(SensorQuery.latest());
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * A legfrissebb, afterMeasureTime-nál újabb sor a megadott oszlopokkal; null, ha nincs újabb mérés.
+     * afterMeasureTime == null esetén egyszerűen a legfrissebb sor.
+     */
+    public PMSensor fetchLatestAfter(String afterMeasureTime, SensorColumn... columns) throws IOException {
+        SensorQuery query = SensorQuery.latest().select(columns);
+        if (afterMeasureTime != null) {
+            query.gt(SensorColumn.MEASURE_TIME, afterMeasureTime);
+        }
+        List<PMSensor> rows = fetch(query);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Az afterMillis és beforeMillis közé eső sorok időrendben, a megadott oszlopokkal. A szűrő
+     * másodperc pontosságú, ezért a határon lévő sorok is benne lehetnek.
+     */
+    public List<PMSensor> fetchBetween(long afterMillis, long beforeMillis, SensorColumn... columns) throws IOException {
+        return fetch(new SensorQuery()
+                .select(columns)
+                .gte(SensorColumn.MEASURE_TIME, TimeCodec.formatSupabaseTime(afterMillis))
+                .lte(SensorColumn.MEASURE_TIME, TimeCodec.formatSupabaseTime(beforeMillis))
+                .orderBy(SensorColumn.MEASURE_TIME, true));
+    }
+
+    /**
+     * Sikertelen (nem 2xx) HTTP válasz.
+     */
+    public static final class HttpException extends IOException {
+        public final int code;
+
+        HttpException(int code, String message) {
+            super("Supabase hiba: " + code + " " + message);
+            this.code = code;
+        }
+    }
+}
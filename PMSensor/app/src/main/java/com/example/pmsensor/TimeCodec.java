@@ -0,0 +1,295 @@
+package com.example.pmsensor;
+
+/**
+ * A Supabase Measure_time értékek ("2025-09-18T10:15:00", opcionális tört másodperccel és
+ * időzóna eltolással) átalakítása epoch ms-re, objektumfoglalás nélkül, valamint a megjelenítési
+ * formátumok előállítása.
+ * Eltolás nélküli értéket UTC-ként értelmezünk, ahogy a korábbi SimpleDateFormat alapú kód is.
+ *
+ * Az adatbázis a helyi (CEST) falióra-időt tárolja "+00:00" eltolással, ezért a formázás is UTC-ben
+ * történik: így a kijelzett számjegyek megegyeznek a mért helyi idővel.
+ * A formázók állapotmentesek (szálanként saját karakterpufferrel), tehát szálbiztosak.
+ */
+public final class TimeCodec {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    static final String PARSE_TIMER = "time.parse";
+    private static final int PARSE_SAMPLE_MASK = 63;
+    private static int parseCalls;
+
+    // A ThreadLocal.withInitial csak API 26-tól érhető el, ezért initialValue felülírással.
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[24];
+        }
+    };
+    // év, hónap, nap, óra, perc, másodperc
+    private static final ThreadLocal<long[]> FIELDS = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[6];
+        }
+    };
+    private static final ThreadLocal<LabelCache> LABELS = new ThreadLocal<LabelCache>() {
+        @Override
+        protected LabelCache initialValue() {
+            return new LabelCache();
+        }
+    };
+
+    private TimeCodec() {
+    }
+
+    /**
+     * Minden 64. hívás ideje a "time.parse" időmérőbe kerül (a teljes mérés többe kerülne, mint maga
+     * a feldolgozás). A számláló szálak közti versenye csak a mintavétel ritmusát torzítja.
+     */
+    public static long parseIsoMillis(byte[] b, int off, int len) {
+        if ((++parseCalls & PARSE_SAMPLE_MASK) != 0) {
+            return parseIsoMillisUntimed(b, off, len);
+        }
+        long start = System.nanoTime();
+        long millis = parseIsoMillisUntimed(b, off, len);
+        PerfMetrics.get().record(PARSE_TIMER, System.nanoTime() - start, 1, 0);
+        return millis;
+    }
+
+    private static long parseIsoMillisUntimed(byte[] b, int off, int len) {
+        if (len < 19 || b[off + 4] != '-' || b[off + 7] != '-' || b[off + 13] != ':' || b[off + 16] != ':') {
+            throw new IllegalArgumentException("Érvénytelen időbélyeg");
+        }
+        int year = digits(b, off, 4);
+        int month = digits(b, off + 5, 2);
+        int day = digits(b, off + 8, 2);
+        int hour = digits(b, off + 11, 2);
+        int minute = digits(b, off + 14, 2);
+        int second = digits(b, off + 17, 2);
+
+        int pos = off + 19;
+        int end = off + len;
+        int millis = 0;
+        if (pos < end && b[pos] == '.') {
+            pos++;
+            int scale = 100;
+            while (pos < end && b[pos] >= '0' && b[pos] <= '9') {
+                millis += (b[pos] - '0') * scale;
+                scale /= 10;
+                pos++;
+            }
+        }
+        int offsetMinutes = 0;
+        if (pos < end && (b[pos] == '+' || b[pos] == '-')) {
+            int sign = b[pos] == '-' ? -1 : 1;
+            int offHours = digits(b, pos + 1, 2);
+            int offMinutes = end - pos >= 6 ? digits(b, pos + 4, 2) : 0;
+            offsetMinutes = sign * (offHours * 60 + offMinutes);
+        }
+        return toEpochMillis(year, month, day, hour, minute, second, millis, offsetMinutes);
+    }
+
+    public static long parseIsoMillis(CharSequence s) {
+        int len = s.length();
+        if (len < 19 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(13) != ':' || s.charAt(16) != ':') {
+            throw new IllegalArgumentException("Érvénytelen időbélyeg: " + s);
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        int second = digits(s, 17, 2);
+
+        int pos = 19;
+        int millis = 0;
+        if (pos < len && s.charAt(pos) == '.') {
+            pos++;
+            int scale = 100;
+            while (pos < len && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+                millis += (s.charAt(pos) - '0') * scale;
+                scale /= 10;
+                pos++;
+            }
+        }
+        int offsetMinutes = 0;
+        if (pos < len && (s.charAt(pos) == '+' || s.charAt(pos) == '-')) {
+            int sign = s.charAt(pos) == '-' ? -1 : 1;
+            int offHours = digits(s, pos + 1, 2);
+            int offMinutes = len - pos >= 6 ? digits(s, pos + 4, 2) : 0;
+            offsetMinutes = sign * (offHours * 60 + offMinutes);
+        }
+        return toEpochMillis(year, month, day, hour, minute, second, millis, offsetMinutes);
+    }
+
+    private static int digits(byte[] b, int off, int count) {
+        int value = 0;
+        for (int i = off; i < off + count; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) throw new IllegalArgumentException("Érvénytelen időbélyeg");
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static int digits(CharSequence s, int off, int count) {
+        int value = 0;
+        for (int i = off; i < off + count; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) throw new IllegalArgumentException("Érvénytelen időbélyeg: " + s);
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static long toEpochMillis(int year, int month, int day, int hour, int minute, int second,
+                                      int millis, int offsetMinutes) {
+        long seconds = hour * 3600L + minute * 60L + second - offsetMinutes * 60L;
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY + seconds * 1000L + millis;
+    }
+
+    // Gregorián dátum -> napok száma 1970-01-01 óta (H. Hinnant "days_from_civil" algoritmusa).
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int mp = (month + 9) % 12;
+        int doy = (153 * mp + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    /**
+     * Hibás vagy hiányzó időbélyeg esetén Long.MIN_VALUE.
+     */
+    public static long parseIsoMillisOrMin(CharSequence s) {
+        if (s == null) return Long.MIN_VALUE;
+        try {
+            return parseIsoMillis(s);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Másodperc pontosságú Measure_time szűrőérték a PostgREST lekérdezésekhez ("yyyy-MM-dd'T'HH:mm:ss").
+     */
+    public static String formatSupabaseTime(long millis) {
+        char[] buf = BUFFER.get();
+        long[] f = FIELDS.get();
+        split(millis, f);
+        int p = put(buf, 0, f[0], 4);
+        buf[p++] = '-';
+        p = put(buf, p, f[1], 2);
+        buf[p++] = '-';
+        p = put(buf, p, f[2], 2);
+        buf[p++] = 'T';
+        p = put(buf, p, f[3], 2);
+        buf[p++] = ':';
+        p = put(buf, p, f[4], 2);
+        buf[p++] = ':';
+        p = put(buf, p, f[5], 2);
+        return new String(buf, 0, p);
+    }
+
+    /**
+     * A főképernyő időpontja ("yyyy.MM.dd HH:mm").
+     */
+    public static String formatDisplayTime(long millis) {
+        char[] buf = BUFFER.get();
+        long[] f = FIELDS.get();
+        split(millis, f);
+        int p = put(buf, 0, f[0], 4);
+        buf[p++] = '.';
+        p = put(buf, p, f[1], 2);
+        buf[p++] = '.';
+        p = put(buf, p, f[2], 2);
+        buf[p++] = ' ';
+        p = put(buf, p, f[3], 2);
+        buf[p++] = ':';
+        p = put(buf, p, f[4], 2);
+        return new String(buf, 0, p);
+    }
+
+    /**
+     * Dátum a dátumválasztó gombjához ("yyyy.MM.dd").
+     */
+    public static String formatDate(long millis) {
+        char[] buf = BUFFER.get();
+        long[] f = FIELDS.get();
+        split(millis, f);
+        int p = put(buf, 0, f[0], 4);
+        buf[p++] = '.';
+        p = put(buf, p, f[1], 2);
+        buf[p++] = '.';
+        p = put(buf, p, f[2], 2);
+        return new String(buf, 0, p);
+    }
+
+    /**
+     * Tengelyfelirat és marker szöveg ("MM.dd HH:mm"). A diagram minden újrarajzoláskor ugyanazokat
+     * a feliratokat kéri, ezért percenként gyorsítótárazzuk: ismételt hívás nem foglal memóriát.
+     */
+    public static String formatChartLabel(long millis) {
+        long minute = Math.floorDiv(millis, 60_000L);
+        LabelCache cache = LABELS.get();
+        int slot = (int) (minute & (LabelCache.SIZE - 1));
+        String cached = cache.labels[slot];
+        if (cached != null && cache.minutes[slot] == minute) {
+            return cached;
+        }
+        char[] buf = BUFFER.get();
+        long[] f = FIELDS.get();
+        split(millis, f);
+        int p = put(buf, 0, f[1], 2);
+        buf[p++] = '.';
+        p = put(buf, p, f[2], 2);
+        buf[p++] = ' ';
+        p = put(buf, p, f[3], 2);
+        buf[p++] = ':';
+        p = put(buf, p, f[4], 2);
+        String label = new String(buf, 0, p);
+        cache.minutes[slot] = minute;
+        cache.labels[slot] = label;
+        return label;
+    }
+
+    private static void split(long millis, long[] fields) {
+        long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+        long millisOfDay = millis - days * MILLIS_PER_DAY;
+        civilFromDays(days, fields);
+        long secondOfDay = millisOfDay / 1000;
+        fields[3] = secondOfDay / 3600;
+        fields[4] = (secondOfDay / 60) % 60;
+        fields[5] = secondOfDay % 60;
+    }
+
+    // Napok száma 1970-01-01 óta -> gregorián dátum (H. Hinnant "civil_from_days" algoritmusa).
+    static void civilFromDays(long days, long[] fields) {
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long day = doy - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        fields[0] = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        fields[1] = month;
+        fields[2] = day;
+    }
+
+    private static int put(char[] buf, int pos, long value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static final class LabelCache {
+        static final int SIZE = 128;
+        final long[] minutes = new long[SIZE];
+        final String[] labels = new String[SIZE];
+    }
+}
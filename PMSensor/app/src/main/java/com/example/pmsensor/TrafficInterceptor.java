@@ -0,0 +1,80 @@
+package com.example.pmsensor;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Hálózati interceptor a REST hívások méréséhez: a válasz fejlécéig eltelt időt a lekérdezett
+ * tábla vagy nézet szerinti "http.&lt;név&gt;" időmérőbe, a vezetéken átjött (még tömörített)
+ * bájtokat a {@link #BYTES_COUNTER} számlálóba írja. A valós idejű websocket forgalmat nem érinti.
+ */
+final class TrafficInterceptor implements Interceptor {
+
+    static final String BYTES_COUNTER = "http.bytes";
+
+    private static final String REST_PATH = "/rest/v1/";
+
+    private final PerfMetrics metrics;
+
+    TrafficInterceptor(PerfMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String path = request.url().encodedPath();
+        if (!path.startsWith(REST_PATH)) {
+            return chain.proceed(request);
+        }
+
+        Response response;
+        try (PerfMetrics.Span ignored = metrics.span("http." + path.substring(REST_PATH.length()))) {
+            response = chain.proceed(request);
+        }
+        ResponseBody body = response.body();
+        if (body == null) return response;
+        return response.newBuilder().body(new CountingBody(body)).build();
+    }
+
+    private final class CountingBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        CountingBody(ResponseBody delegate) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read > 0) metrics.add(BYTES_COUNTER, read);
+                    return read;
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.pmsensor;
+
+/**
+ * Egy diagram részletességének követése nagyításkor: az egész időszakra betöltött durva áttekintő
+ * mellé a látható ablakot finomabb felbontásban kéri le (szélesebb ráhagyással, hogy kis húzásra
+ * ne kelljen újra), és az áttekintőbe illeszti. Így egy éves áttekintő olcsó marad, egy órára
+ * nagyítva pedig minden nyers mérés látszik.
+ */
+final class ViewportDetail {
+
+    // A kért ablak a látható szélesség ennyiszeresével nyúlik túl mindkét oldalon.
+    static final double MARGIN = 0.5;
+
+    /**
+     * Egy részletes ablak lekérése; level null esetén nyers adat.
+     */
+    static final class Request {
+        final long fromMillis;
+        final long toMillis;
+        final RollupLevel level;
+
+        Request(long fromMillis, long toMillis, RollupLevel level) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.level = level;
+        }
+    }
+
+    private final SensorSeries overview;
+    private final long overviewResolution;
+
+    private long detailFrom = Long.MAX_VALUE;
+    private long detailTo = Long.MIN_VALUE;
+    private long detailResolution = Long.MAX_VALUE;
+    private SensorSeries current;
+
+    /**
+     * overviewLevel: az áttekintő felbontása (null: nyers adat, ekkor részletesebb nem kell).
+     */
+    ViewportDetail(SensorSeries overview, RollupLevel overviewLevel) {
+        this.overview = overview;
+        this.overviewResolution = resolution(overviewLevel);
+        this.current = overview;
+    }
+
+    /**
+     * A megjelenítendő sorozat: az áttekintő, a legutóbbi részletes ablakkal.
+     */
+    SensorSeries current() {
+        return current;
+    }
+
+    /**
+     * A látható [visibleFrom, visibleTo] időszakhoz szükséges lekérés, vagy null, ha a meglévő
+     * adat (az áttekintő vagy a már beillesztett ablak) elég részletes.
+     */
+    Request plan(long visibleFrom, long visibleTo, int pointBudget) {
+        RollupLevel level = RollupLevel.choose(visibleTo - visibleFrom, pointBudget);
+        long needed = resolution(level);
+        if (needed >= overviewResolution) return null;
+        if (detailFrom <= visibleFrom && visibleTo <= detailTo && detailResolution <= needed) return null;
+
+        long margin = (long) ((visibleTo - visibleFrom) * MARGIN);
+        return new Request(visibleFrom - margin, visibleTo + margin, level);
+    }
+
+    /**
+     * A lekért ablak beillesztése az áttekintőbe (a korábbi ablak helyett); az új sorozatot adja vissza.
+     */
+    SensorSeries apply(Request request, SensorSeries detail) {
+        current = overview.splice(request.fromMillis, request.toMillis, detail);
+        detailFrom = request.fromMillis;
+        detailTo = request.toMillis;
+        detailResolution = resolution(request.level);
+        return current;
+    }
+
+    private static long resolution(RollupLevel level) {
+        return level == null ? 0 : level.bucketMillis;
+    }
+}
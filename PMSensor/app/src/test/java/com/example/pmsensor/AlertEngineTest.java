@@ -0,0 +1,236 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AlertEngineTest {
+
+    private static final long STEP = PMSensor.UPLOAD_INTERVAL_MILLIS;
+    private static final long HOUR = 3_600_000L;
+
+    private static PMSensor pm25(float value) {
+        PMSensor reading = new PMSensor();
+        reading.PM2_5 = value;
+        return reading;
+    }
+
+    /**
+     * Egy-egy mérést külön "futásként" értékel: az állapot minden lépés között szöveggé
+     * alakul és vissza, ahogy a SharedPreferences-ben is. Az átlagokat a DerivedMetrics adja,
+     * mint a háttérfeladatban.
+     */
+    private static int countFirings(AlertRule rule, float[] values) {
+        AlertEngine engine = new AlertEngine(Collections.singletonList(rule));
+        DerivedMetrics derived = new DerivedMetrics();
+        String saved = null;
+        int fired = 0;
+        for (int i = 0; i < values.length; i++) {
+            AlertEngine.State[] states = {AlertEngine.State.decode(saved)};
+            fired += evaluate(engine, derived, states, i * STEP, values[i]).size();
+            saved = states[0].encode();
+        }
+        return fired;
+    }
+
+    private static List<AlertEngine.Firing> evaluate(AlertEngine engine, DerivedMetrics derived,
+                                                     AlertEngine.State[] states, long millis, float pm25) {
+        derived.update(millis, pm25, 0, 0);
+        return engine.evaluate(millis, pm25(pm25), states, 0, derived.snapshot());
+    }
+
+    private static float[] repeat(float value, int times) {
+        float[] values = new float[times];
+        java.util.Arrays.fill(values, value);
+        return values;
+    }
+
+    private static float[] concat(float[]... parts) {
+        int length = 0;
+        for (float[] part : parts) length += part.length;
+        float[] result = new float[length];
+        int pos = 0;
+        for (float[] part : parts) {
+            System.arraycopy(part, 0, result, pos, part.length);
+            pos += part.length;
+        }
+        return result;
+    }
+
+    @Test
+    public void consecutive_firesOncePerEpisode() {
+        AlertRule rule = new AlertRule("c", Metric.PM25, AlertRule.Type.CONSECUTIVE, 35, 30, 0, 3, 0, "c");
+
+        assertEquals(0, countFirings(rule, repeat(40, 2)));
+        assertEquals(1, countFirings(rule, repeat(40, 24)));
+        // Két szakasz, köztük a megnyugvási küszöb alatti mérés.
+        assertEquals(2, countFirings(rule, concat(repeat(40, 5), repeat(20, 1), repeat(40, 5))));
+        // A küszöbök közötti mérés nem zárja le a szakaszt.
+        assertEquals(1, countFirings(rule, concat(repeat(40, 5), repeat(33, 3), repeat(40, 5))));
+    }
+
+    @Test
+    public void rollingMean_hysteresisSuppressesFlapping() {
+        AlertRule rule = new AlertRule("m", Metric.PM25, AlertRule.Type.ROLLING_MEAN, 35, 30, HOUR, 1, 0, "m");
+
+        float[] flapping = new float[48];
+        for (int i = 0; i < flapping.length; i++) flapping[i] = i % 2 == 0 ? 33 : 39;
+        assertEquals(1, countFirings(rule, concat(repeat(40, 12), flapping)));
+    }
+
+    @Test
+    public void rollingMean_ignoresShortSpike() {
+        AlertRule rule = new AlertRule("m", Metric.PM25, AlertRule.Type.ROLLING_MEAN, 35, 30, HOUR, 1, 0, "m");
+
+        assertEquals(0, countFirings(rule, concat(repeat(10, 12), repeat(80, 1), repeat(10, 12))));
+        assertEquals(1, countFirings(rule, concat(repeat(10, 12), repeat(80, 12))));
+    }
+
+    @Test
+    public void rollingMean_waitsForAFullWindow() {
+        AlertRule rule = new AlertRule("m", Metric.PM25, AlertRule.Type.ROLLING_MEAN, 35, 30, HOUR, 1, 0, "m");
+
+        assertEquals(0, countFirings(rule, repeat(40, 1)));
+        // 12 mérés 55 percet fed le, a 13. éri el az órát.
+        assertEquals(0, countFirings(rule, repeat(40, 12)));
+        assertEquals(1, countFirings(rule, repeat(40, 13)));
+    }
+
+    @Test
+    public void rollingMean_restartsAfterGap() {
+        AlertRule rule = new AlertRule("m", Metric.PM25, AlertRule.Type.ROLLING_MEAN, 35, 30, HOUR, 1, 0, "m");
+        AlertEngine engine = new AlertEngine(Collections.singletonList(rule));
+        DerivedMetrics derived = new DerivedMetrics();
+        AlertEngine.State[] states = {new AlertEngine.State()};
+        for (int i = 0; i < 24; i++) {
+            assertTrue(evaluate(engine, derived, states, i * STEP, 10).isEmpty());
+        }
+
+        // Fél óra kimaradás után egyetlen magas mérés nem áll az egész ablak helyett.
+        long t = 23 * STEP + HOUR / 2;
+        assertTrue(evaluate(engine, derived, states, t, 80).isEmpty());
+        assertEquals(0, states[0].coveredMillis);
+        for (int i = 1; i < 12; i++) {
+            assertTrue(evaluate(engine, derived, states, t + i * STEP, 80).isEmpty());
+        }
+        assertEquals(1, evaluate(engine, derived, states, t + 12 * STEP, 80).size());
+    }
+
+    @Test
+    public void rollingMean_watchesTheDerivedCorrectedMean() {
+        AlertRule rule = new AlertRule("m", Metric.PM25, AlertRule.Type.ROLLING_MEAN, 35, 30, HOUR, 1, 0, "m");
+        AlertEngine engine = new AlertEngine(Collections.singletonList(rule));
+        DerivedMetrics derived = new DerivedMetrics();
+        AlertEngine.State[] states = {new AlertEngine.State()};
+
+        // Nyersen 45 felett, de 90% páratartalomnál a korrigált átlag a küszöb alatt marad.
+        for (int i = 0; i <= 24; i++) {
+            PMSensor reading = pm25(45);
+            reading.humidity = 90;
+            derived.update(i * STEP, reading.PM2_5, 0, reading.humidity);
+            assertTrue(engine.evaluate(i * STEP, reading, states, 0, derived.snapshot()).isEmpty());
+        }
+        assertEquals(derived.snapshot().hourPm25, states[0].mean, 0);
+        assertTrue(states[0].mean < 35);
+    }
+
+    @Test
+    public void rollingMean_skippedWithoutMatchingDerivedMeans() {
+        AlertRule rule = new AlertRule("m", Metric.PM25, AlertRule.Type.ROLLING_MEAN, 35, 30, HOUR, 1, 0, "m");
+        AlertEngine engine = new AlertEngine(Collections.singletonList(rule));
+        DerivedMetrics derived = new DerivedMetrics();
+        derived.update(0, 80, 0, 0);
+        AlertEngine.State[] states = {new AlertEngine.State()};
+
+        engine.evaluate(0, pm25(80), states);
+        // Másik mérés utáni átlag sem számít.
+        engine.evaluate(STEP, pm25(80), states, 0, derived.snapshot());
+        assertFalse(states[0].hasSample);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rollingMean_rejectsWindowWithoutDerivedMean() {
+        new AlertRule("m", Metric.PM25, AlertRule.Type.ROLLING_MEAN, 35, 30, 2 * HOUR, 1, 0, "m");
+    }
+
+    @Test
+    public void state_decodesFormatWithoutCoverage() {
+        AlertEngine.State state = AlertEngine.State.decode("true;300000;40.0;38.5;0;true;0");
+
+        assertTrue(state.active);
+        assertEquals(38.5, state.mean, 0);
+        assertEquals(0, state.coveredMillis);
+        assertEquals(state.encode(), AlertEngine.State.decode(state.encode()).encode());
+    }
+
+    @Test
+    public void cooldown_suppressesRepeatedEpisodes() {
+        AlertRule rule = new AlertRule("c", Metric.PM25, AlertRule.Type.CONSECUTIVE, 35, 30, 0, 1, HOUR, "c");
+
+        // A második szakasz 20 perccel később kezdődik: még a várakozási időn belül.
+        assertEquals(1, countFirings(rule, concat(repeat(40, 2), repeat(20, 2), repeat(40, 2))));
+        assertEquals(2, countFirings(rule, concat(repeat(40, 2), repeat(20, 12), repeat(40, 2))));
+    }
+
+    @Test
+    public void rateOfChange_firesOnFastRise() {
+        AlertRule rule = new AlertRule("r", Metric.PM25, AlertRule.Type.RATE_OF_CHANGE, 30, 5, 0, 1, 0, "r");
+
+        AlertEngine engine = new AlertEngine(Collections.singletonList(rule));
+        AlertEngine.State[] states = {new AlertEngine.State()};
+        assertTrue(engine.evaluate(0, pm25(10), states).isEmpty());
+        assertTrue(engine.evaluate(STEP, pm25(11), states).isEmpty());
+        List<AlertEngine.Firing> firings = engine.evaluate(2 * STEP, pm25(15), states);
+        assertEquals(1, firings.size());
+        assertEquals(48.0, firings.get(0).signal, 1e-6);
+        // Hosszú kimaradás után nincs értelmezhető változási sebesség.
+        assertTrue(engine.evaluate(2 * STEP + HOUR, pm25(80), states).isEmpty());
+    }
+
+    @Test
+    public void evaluate_skipsAlreadySeenReading() {
+        AlertRule rule = new AlertRule("c", Metric.PM25, AlertRule.Type.CONSECUTIVE, 35, 30, 0, 2, 0, "c");
+        AlertEngine engine = new AlertEngine(Collections.singletonList(rule));
+        AlertEngine.State[] states = {new AlertEngine.State()};
+
+        engine.evaluate(0, pm25(40), states);
+        engine.evaluate(0, pm25(40), states);
+        assertEquals(1, states[0].consecutive);
+    }
+
+    @Test
+    public void evaluate_faultyMetricIsNotSeen() {
+        AlertRule rule = new AlertRule("c", Metric.PM25, AlertRule.Type.CONSECUTIVE, 35, 30, 0, 2, 0, "c");
+        AlertEngine engine = new AlertEngine(Collections.singletonList(rule));
+        AlertEngine.State[] states = {new AlertEngine.State()};
+
+        engine.evaluate(0, pm25(40), states);
+        assertTrue(engine.evaluate(STEP, pm25(400), states, FaultDetector.spike(Metric.PM25)).isEmpty());
+        assertEquals(1, states[0].consecutive);
+        assertEquals(0, states[0].lastMillis);
+        // Más metrika hibája nem érinti a szabályt.
+        assertEquals(1, engine.evaluate(2 * STEP, pm25(40), states, FaultDetector.stuck(Metric.HUMIDITY)).size());
+    }
+
+    @Test
+    public void parseAll_readsBundledRules() throws Exception {
+        String json = new String(Files.readAllBytes(Paths.get("src/main/res/raw/alert_rules.json")), StandardCharsets.UTF_8);
+        List<AlertRule> rules = AlertRule.parseAll(json);
+
+        assertFalse(rules.isEmpty());
+        AlertRule first = rules.get(0);
+        assertEquals("pm25_mean_1h", first.id);
+        assertEquals(Metric.PM25, first.metric);
+        assertEquals(AlertRule.Type.ROLLING_MEAN, first.type);
+        assertEquals(HOUR, first.windowMillis);
+        for (AlertRule rule : rules) {
+            assertTrue(rule.id, rule.clearThreshold <= rule.threshold);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DayChunkCacheTest {
+
+    private static final long DAY = DayChunkCache.DAY_MILLIS;
+    private static final long STEP = SyntheticReadings.INTERVAL_MILLIS;
+    private static final long START = SyntheticReadings.START_MILLIS;
+
+    /**
+     * A "szerver": ötpercenkénti sorok, és a betöltési hívások naplója.
+     */
+    private static final class CountingLoader implements DayChunkCache.Loader {
+        final List<long[]> calls = new ArrayList<>();
+
+        @Override
+        public SensorSeries load(long fromMillis, long toMillis) {
+            calls.add(new long[]{fromMillis, toMillis});
+            SensorSeries series = new SensorSeries();
+            long first = Math.max(0, (fromMillis - START + STEP - 1) / STEP);
+            for (long i = first; START + i * STEP <= toMillis; i++) {
+                int row = series.appendRow();
+                series.setId(row, i + 1);
+                series.setTime(row, START + i * STEP);
+                series.setValue(Metric.PM25, row, i);
+            }
+            return series;
+        }
+    }
+
+    private static void assertContiguous(SensorSeries series, long fromMillis, long toMillis) {
+        assertEquals((toMillis - fromMillis) / STEP + 1, series.size());
+        assertEquals(fromMillis, series.timeAt(0));
+        assertEquals(toMillis, series.timeAt(series.size() - 1));
+    }
+
+    @Test
+    public void read_loadsMissingDaysOnceAndServesRepeatsFromMemory() throws Exception {
+        DayChunkCache cache = new DayChunkCache(64L * 1024 * 1024);
+        CountingLoader loader = new CountingLoader();
+        long from = START + DAY / 2;
+        long to = START + 3 * DAY + DAY / 4;
+
+        SensorSeries first = cache.read("raw", from, to, 0, Long.MAX_VALUE, loader);
+        SensorSeries second = cache.read("raw", from, to, 0, Long.MAX_VALUE, loader);
+
+        assertContiguous(first, from, to);
+        assertContiguous(second, from, to);
+        // A négy hiányzó nap egyetlen, napokra kerekített hívással töltődik be.
+        assertEquals(1, loader.calls.size());
+        assertEquals(START, loader.calls.get(0)[0]);
+        assertEquals(START + 4 * DAY - 1, loader.calls.get(0)[1]);
+        assertEquals(4, cache.chunkCount());
+    }
+
+    @Test
+    public void read_returnsCopySoAppendsDoNotLeakIntoCache() throws Exception {
+        DayChunkCache cache = new DayChunkCache(64L * 1024 * 1024);
+        CountingLoader loader = new CountingLoader();
+
+        SensorSeries first = cache.read("raw", START, START + DAY - 1, 0, Long.MAX_VALUE, loader);
+        first.appendRow();
+        SensorSeries second = cache.read("raw", START, START + DAY - 1, 0, Long.MAX_VALUE, loader);
+
+        assertEquals(first.size() - 1, second.size());
+    }
+
+    @Test
+    public void read_onlyLoadsGapsBetweenCachedDays() throws Exception {
+        DayChunkCache cache = new DayChunkCache(64L * 1024 * 1024);
+        CountingLoader loader = new CountingLoader();
+        cache.read("raw", START + DAY, START + 2 * DAY - 1, 0, Long.MAX_VALUE, loader);
+        loader.calls.clear();
+
+        SensorSeries series = cache.read("raw", START, START + 3 * DAY - 1, 0, Long.MAX_VALUE, loader);
+
+        assertContiguous(series, START, START + 3 * DAY - STEP);
+        assertEquals(2, loader.calls.size());
+        assertArrayEquals(new long[]{START, START + DAY - 1}, loader.calls.get(0));
+        assertArrayEquals(new long[]{START + 2 * DAY, START + 3 * DAY - 1}, loader.calls.get(1));
+    }
+
+    @Test
+    public void openDays_expireAfterTtl() throws Exception {
+        DayChunkCache cache = new DayChunkCache(64L * 1024 * 1024);
+        CountingLoader loader = new CountingLoader();
+        // A második nap még "nyitott".
+        long openFrom = START + DAY + DAY / 2;
+
+        cache.read("HOUR", START, START + 2 * DAY - 1, 0, openFrom, loader);
+        cache.read("HOUR", START, START + 2 * DAY - 1, DayChunkCache.OPEN_CHUNK_TTL_MILLIS - 1, openFrom, loader);
+        assertEquals(1, loader.calls.size());
+
+        cache.read("HOUR", START, START + 2 * DAY - 1, DayChunkCache.OPEN_CHUNK_TTL_MILLIS, openFrom, loader);
+        assertEquals(2, loader.calls.size());
+        assertArrayEquals(new long[]{START + DAY, START + 2 * DAY - 1}, loader.calls.get(1));
+    }
+
+    @Test
+    public void invalidate_dropsOnlyTouchedDaysOfThatSource() throws Exception {
+        DayChunkCache cache = new DayChunkCache(64L * 1024 * 1024);
+        CountingLoader loader = new CountingLoader();
+        cache.read("raw", START, START + 3 * DAY - 1, 0, Long.MAX_VALUE, loader);
+        cache.read("HOUR", START, START + 3 * DAY - 1, 0, Long.MAX_VALUE, loader);
+
+        cache.invalidate("raw", START + DAY + 10, START + DAY + 20);
+
+        assertNotNull(cache.get("raw", Math.floorDiv(START, DAY), 0));
+        assertNull(cache.get("raw", 1 + Math.floorDiv(START, DAY), 0));
+        assertNotNull(cache.get("HOUR", 1 + Math.floorDiv(START, DAY), 0));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedWithinByteCap() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        SensorSeries day = loader.load(START, START + DAY - 1);
+        long dayBytes = DayChunkCache.bytesOf(day);
+        DayChunkCache cache = new DayChunkCache(2 * dayBytes + dayBytes / 2);
+
+        cache.put("raw", 0, day, Long.MAX_VALUE);
+        cache.put("raw", 1, day, Long.MAX_VALUE);
+        cache.get("raw", 0, 0);
+        cache.put("raw", 2, day, Long.MAX_VALUE);
+
+        assertEquals(2, cache.chunkCount());
+        assertNotNull(cache.get("raw", 0, 0));
+        assertNull(cache.get("raw", 1, 0));
+        assertTrue(cache.sizeBytes() <= 2 * dayBytes + dayBytes / 2);
+    }
+}
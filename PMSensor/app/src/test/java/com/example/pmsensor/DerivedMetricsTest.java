@@ -0,0 +1,153 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DerivedMetricsTest {
+
+    private static final long STEP = PMSensor.UPLOAD_INTERVAL_MILLIS;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    public void correctionOnlyAppliesToKnownHumidity() {
+        assertEquals(20f, DerivedMetrics.corrected(20f, 0f), 0f);
+        assertEquals(20f, DerivedMetrics.corrected(20f, Float.NaN), 0f);
+        // 50%-nál a növekedési tényező 1 + 0.4 / 1.65 ≈ 1.242.
+        assertEquals(20 / (1 + 0.4 / 1.65), DerivedMetrics.corrected(20f, 50f), 1e-4);
+        // 95% felett rögzített tényező.
+        assertEquals(DerivedMetrics.corrected(20f, 95f), DerivedMetrics.corrected(20f, 100f), 0f);
+        assertTrue(DerivedMetrics.corrected(20f, 90f) < DerivedMetrics.corrected(20f, 60f));
+    }
+
+    @Test
+    public void slidingMeansMatchRecomputation() {
+        Random random = new Random(7);
+        DerivedMetrics metrics = new DerivedMetrics();
+        int n = 600;
+        long[] times = new long[n];
+        float[] pm25 = new float[n];
+        long t = START;
+        for (int i = 0; i < n; i++) {
+            // Egyenetlen időköz, néha hosszabb kimaradással.
+            t += random.nextInt(10) == 0 ? 4 * STEP : STEP + random.nextInt(60_000);
+            times[i] = t;
+            pm25[i] = random.nextFloat() * 80;
+            float humidity = 30 + random.nextFloat() * 60;
+            assertTrue(metrics.update(t, pm25[i], pm25[i] * 2, humidity));
+            pm25[i] = DerivedMetrics.corrected(pm25[i], humidity);
+
+            DerivedMetrics.Snapshot snapshot = metrics.snapshot();
+            assertEquals(mean(times, pm25, i, DerivedMetrics.HOUR_MILLIS), snapshot.hourPm25, 1e-3);
+            assertEquals(mean(times, pm25, i, DerivedMetrics.DAY_MILLIS), snapshot.dayPm25, 1e-3);
+        }
+    }
+
+    private static double mean(long[] times, float[] values, int last, long window) {
+        double sum = 0;
+        int count = 0;
+        for (int i = last; i >= 0 && times[i] > times[last] - window; i--) {
+            sum += values[i];
+            count++;
+        }
+        return sum / count;
+    }
+
+    @Test
+    public void olderOrRepeatedReadingsAreSkipped() {
+        DerivedMetrics metrics = new DerivedMetrics();
+        assertNull(metrics.snapshot());
+        assertTrue(metrics.update(START, 10, 20, 0));
+        assertFalse(metrics.update(START, 90, 90, 0));
+        assertFalse(metrics.update(START - STEP, 90, 90, 0));
+        assertFalse(metrics.update(Long.MIN_VALUE, 90, 90, 0));
+        assertEquals(10, metrics.snapshot().dayPm25, 0);
+        assertEquals(1, metrics.snapshot().daySamples);
+    }
+
+    @Test
+    public void airQualityTakesWorsePollutant() {
+        assertEquals(DerivedMetrics.AirQuality.GOOD, DerivedMetrics.AirQuality.of(5, 15));
+        assertEquals(DerivedMetrics.AirQuality.FAIR, DerivedMetrics.AirQuality.of(5.1, 10));
+        assertEquals(DerivedMetrics.AirQuality.POOR, DerivedMetrics.AirQuality.of(3, 150));
+        assertEquals(DerivedMetrics.AirQuality.EXTREMELY_POOR, DerivedMetrics.AirQuality.of(141, 10));
+
+        DerivedMetrics metrics = new DerivedMetrics();
+        metrics.update(START, 60, 30, 0);
+        assertEquals(DerivedMetrics.AirQuality.POOR, metrics.snapshot().airQuality);
+    }
+
+    @Test
+    public void encodedStateContinuesIdentically() throws IOException {
+        DerivedMetrics original = new DerivedMetrics();
+        for (int i = 0; i < 400; i++) {
+            original.update(START + i * STEP, i % 37, i % 53, 40 + i % 50);
+        }
+        DerivedMetrics restored = DerivedMetrics.decode(original.encode());
+        // A 24 órás ablakon kívüli minták nem kerülnek mentésre.
+        assertEquals(288, restored.snapshot().daySamples);
+
+        long next = START + 400 * STEP;
+        original.update(next, 70, 90, 80);
+        restored.update(next, 70, 90, 80);
+        DerivedMetrics.Snapshot a = original.snapshot();
+        DerivedMetrics.Snapshot b = restored.snapshot();
+        assertEquals(a.hourPm25, b.hourPm25, 1e-6);
+        assertEquals(a.hourPm10, b.hourPm10, 1e-6);
+        assertEquals(a.dayPm25, b.dayPm25, 1e-6);
+        assertEquals(a.dayPm10, b.dayPm10, 1e-6);
+        assertEquals(a.hourSamples, b.hourSamples);
+    }
+
+    @Test
+    public void coverageRestartsAfterGapAndSurvivesEncoding() throws IOException {
+        DerivedMetrics metrics = new DerivedMetrics();
+        for (int i = 0; i <= 12; i++) metrics.update(START + i * STEP, 10, 10, 0);
+        assertEquals(DerivedMetrics.HOUR_MILLIS, metrics.snapshot().coveredMillis);
+        assertEquals(metrics.snapshot().hourPm25, metrics.snapshot().mean(Metric.PM25, DerivedMetrics.HOUR_MILLIS), 0);
+        assertTrue(Double.isNaN(metrics.snapshot().mean(Metric.TEMPERATURE, DerivedMetrics.HOUR_MILLIS)));
+
+        long afterGap = START + 12 * STEP + DerivedMetrics.MAX_GAP_MILLIS + 1;
+        metrics.update(afterGap, 10, 10, 0);
+        metrics.update(afterGap + STEP, 10, 10, 0);
+        assertEquals(STEP, metrics.snapshot().coveredMillis);
+        assertEquals(STEP, DerivedMetrics.decode(metrics.encode()).snapshot().coveredMillis);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedStateIsRejected() throws IOException {
+        DerivedMetrics metrics = new DerivedMetrics();
+        metrics.update(START, 1, 2, 3);
+        metrics.update(START + STEP, 1, 2, 3);
+        byte[] encoded = metrics.encode();
+        DerivedMetrics.decode(Arrays.copyOf(encoded, encoded.length - 4));
+    }
+
+    @Test
+    public void dayMeansFollowTheSeriesAndCanBeExtended() {
+        SensorSeries series = new SensorSeries();
+        for (int i = 0; i < 300; i++) {
+            int row = series.appendRow();
+            series.setTime(row, START + i * STEP);
+            series.setValue(Metric.PM25, row, i < 150 ? 10 : 30);
+            series.setValue(Metric.PM10, row, 20);
+        }
+        DerivedMetrics metrics = new DerivedMetrics();
+        SensorSeries means = metrics.dayMeans(series);
+        assertEquals(series.size(), means.size());
+        assertEquals(series.timeAt(299), means.timeAt(299));
+        assertEquals(10, means.valueAt(Metric.PM25, 100), 1e-4);
+        // Az utolsó 288 sorból 138 volt 10, 150 pedig 30.
+        assertEquals((138 * 10 + 150 * 30) / 288.0, means.valueAt(Metric.PM25, 299), 1e-3);
+        assertEquals(20, means.valueAt(Metric.PM10, 299), 1e-4);
+
+        assertTrue(metrics.update(START + 300 * STEP, 30, 20, 0));
+        int row = metrics.appendDayMeans(means);
+        assertEquals(300, row);
+        assertEquals((137 * 10 + 151 * 30) / 288.0, means.valueAt(Metric.PM25, row), 1e-3);
+    }
+}
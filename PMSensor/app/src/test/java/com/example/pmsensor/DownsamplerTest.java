@@ -0,0 +1,71 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DownsamplerTest {
+
+    private static long[] times(int n) {
+        long[] times = new long[n];
+        for (int i = 0; i < n; i++) times[i] = SyntheticReadings.START_MILLIS + i * SyntheticReadings.INTERVAL_MILLIS;
+        return times;
+    }
+
+    @Test
+    public void lttb_keepsEndpointsAndRespectsThreshold() {
+        int n = 10_000;
+        long[] times = times(n);
+        float[] values = new float[n];
+        for (int i = 0; i < n; i++) values[i] = (float) Math.sin(i / 100.0);
+
+        int[] indices = Downsampler.lttb(times, values, 0, n, 500);
+
+        assertEquals(500, indices.length);
+        assertEquals(0, indices[0]);
+        assertEquals(n - 1, indices[indices.length - 1]);
+        for (int i = 1; i < indices.length; i++) {
+            assertTrue(indices[i] > indices[i - 1]);
+        }
+    }
+
+    @Test
+    public void lttb_keepsIsolatedSpike() {
+        int n = 5_000;
+        long[] times = times(n);
+        float[] values = new float[n];
+        values[3_333] = 500f;
+
+        int[] indices = Downsampler.lttb(times, values, 0, n, 100);
+
+        boolean found = false;
+        for (int index : indices) found |= index == 3_333;
+        assertTrue(found);
+    }
+
+    @Test
+    public void lttb_returnsEverythingBelowThreshold() {
+        int[] indices = Downsampler.lttb(times(10), new float[10], 2, 8, 100);
+        assertArrayEquals(new int[]{2, 3, 4, 5, 6, 7}, indices);
+    }
+
+    @Test
+    public void forViewport_returnsAllRawPointsOfSmallWindow() {
+        int n = 50_000;
+        long[] times = times(n);
+        float[] values = new float[n];
+        for (int i = 0; i < n; i++) values[i] = i % 13;
+
+        int[] indices = Downsampler.forViewport(times, values, n, 20_000, 20_100, 1000);
+
+        for (int i = 20_000; i < 20_100; i++) {
+            assertTrue(java.util.Arrays.binarySearch(indices, i) >= 0);
+        }
+        assertEquals(0, indices[0]);
+        assertEquals(n - 1, indices[indices.length - 1]);
+        for (int i = 1; i < indices.length; i++) {
+            assertTrue(indices[i] > indices[i - 1]);
+        }
+        assertTrue(indices.length < 2 * 1000 + 2);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FaultDetectorTest {
+
+    private static final long STEP = PMSensor.UPLOAD_INTERVAL_MILLIS;
+    private static final long START = 1_700_000_000_000L;
+
+    /**
+     * Zajos, lassan változó sorozat; a PM25 oszlopba kerülhetnek a vizsgált értékek.
+     */
+    private static SensorSeries series(int rows, long seed) {
+        Random random = new Random(seed);
+        SensorSeries series = new SensorSeries();
+        for (int i = 0; i < rows; i++) {
+            int row = series.appendRow();
+            series.setTime(row, START + i * STEP);
+            series.setValue(Metric.PM25, row, 12 + (float) Math.sin(i / 30.0) * 4 + random.nextFloat());
+            series.setValue(Metric.PM10, row, 20 + random.nextFloat() * 2);
+            series.setValue(Metric.TEMPERATURE, row, 21 + random.nextFloat() * 0.2f);
+            series.setValue(Metric.HUMIDITY, row, 45 + random.nextFloat());
+            series.setValue(Metric.ATMOSPHERIC_PRESSURE, row, 1013 + random.nextFloat() * 0.1f);
+            // Éjszaka állandó 0: nem számít beragadásnak.
+            series.setValue(Metric.UV, row, 0);
+        }
+        return series;
+    }
+
+    @Test
+    public void cleanSeriesHasNoFaults() {
+        FaultDetector.Report report = new FaultDetector().clean(series(2000, 1));
+        assertEquals(0, report.faultySamples());
+        assertEquals(0, report.gaps);
+    }
+
+    @Test
+    public void singleSpikeIsReplacedByBaseline() {
+        SensorSeries series = series(100, 2);
+        float before = series.valueAt(Metric.PM25, 49);
+        series.setValue(Metric.PM25, 50, 400);
+
+        FaultDetector.Report report = new FaultDetector().clean(series);
+        assertEquals(1, report.spikes(Metric.PM25));
+        assertEquals(1, report.faultySamples());
+        assertEquals(before, series.valueAt(Metric.PM25, 50), 3);
+    }
+
+    @Test
+    public void levelShiftIsAcceptedOnSecondSample() {
+        SensorSeries series = series(100, 3);
+        for (int row = 50; row < 100; row++) {
+            series.setValue(Metric.PM25, row, 150);
+        }
+        FaultDetector.Report report = new FaultDetector().clean(series);
+        // Csak az ugrás első mintája gyanús, utána az új szint elfogadott.
+        assertEquals(1, report.spikes(Metric.PM25));
+        assertEquals(150, series.valueAt(Metric.PM25, 51), 0);
+        assertEquals(150, series.valueAt(Metric.PM25, 99), 0);
+    }
+
+    @Test
+    public void repeatedValueIsStuck() {
+        SensorSeries series = series(100, 4);
+        for (int row = 40; row < 80; row++) {
+            series.setValue(Metric.HUMIDITY, row, 47.25f);
+        }
+        FaultDetector detector = new FaultDetector();
+        int[] flags = new int[series.size()];
+        for (int row = 0; row < series.size(); row++) {
+            flags[row] = detector.cleanRow(series, row);
+        }
+        // A 12. egyforma mintától a sorozat végéig jelölt.
+        assertFalse(FaultDetector.isFaulty(flags[50], Metric.HUMIDITY));
+        assertTrue(FaultDetector.isFaulty(flags[51], Metric.HUMIDITY));
+        assertTrue(FaultDetector.isFaulty(flags[79], Metric.HUMIDITY));
+        assertFalse(FaultDetector.isFaulty(flags[80], Metric.HUMIDITY));
+        assertFalse(FaultDetector.isFaulty(flags[60], Metric.PM25));
+        // A beragadt érték nem módosul.
+        assertEquals(47.25f, series.valueAt(Metric.HUMIDITY, 79), 0);
+    }
+
+    @Test
+    public void gapIsFlaggedAndRestartsBaseline() {
+        SensorSeries series = new SensorSeries();
+        for (int i = 0; i < 40; i++) {
+            int row = series.appendRow();
+            // Négy óra kimaradás a 20. sor előtt, utána jóval magasabb szint.
+            series.setTime(row, START + i * STEP + (i >= 20 ? 4 * 3_600_000L : 0));
+            series.setValue(Metric.PM25, row, i >= 20 ? 90 + i % 3 : 10 + i % 3);
+        }
+        FaultDetector detector = new FaultDetector();
+        FaultDetector.Report report = detector.clean(series);
+        assertEquals(1, report.gaps);
+        assertEquals(0, report.spikes(Metric.PM25));
+    }
+
+    @Test
+    public void staleOrUnknownReadingIsIgnored() {
+        FaultDetector detector = new FaultDetector();
+        PMSensor reading = new PMSensor();
+        reading.measureMillis = START;
+        reading.PM2_5 = 10;
+        detector.check(reading);
+        String state = detector.encode();
+        assertEquals(0, detector.check(reading));
+        reading.measureMillis = Long.MIN_VALUE;
+        assertEquals(0, detector.check(reading));
+        assertEquals(state, detector.encode());
+    }
+
+    @Test
+    public void encodedStateContinuesIdentically() {
+        SensorSeries series = series(60, 5);
+        series.setValue(Metric.PM10, 55, 300);
+        FaultDetector original = new FaultDetector();
+        for (int row = 0; row < 50; row++) {
+            original.check(series, row);
+        }
+        FaultDetector restored = FaultDetector.decode(original.encode());
+        for (int row = 50; row < 60; row++) {
+            int flags = original.check(series, row);
+            assertEquals(flags, restored.check(series, row));
+            assertEquals(row == 55, FaultDetector.isFaulty(flags, Metric.PM10));
+        }
+        assertEquals(original.encode(), restored.encode());
+    }
+
+    @Test
+    public void invalidStateStartsFresh() {
+        assertEquals(new FaultDetector().encode(), FaultDetector.decode("x;1").encode());
+        assertEquals(new FaultDetector().encode(), FaultDetector.decode(null).encode());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.pmsensor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class FetchScopeTest {
+
+    private MockWebServer server;
+    private SupabaseClient supabase;
+    private ExecutorService executor;
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        // A "slow" lekérdezés sokáig válaszol, minden más azonnal.
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.getPath().contains("slow")) {
+                    Thread.sleep(3000);
+                }
+                return new MockResponse().setBody("[]");
+            }
+        });
+        server.start();
+        supabase = new SupabaseClient(server.url("/").toString(), "test-key");
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+
+    private FetchScope.Job<String> request(String name, CountDownLatch finished) {
+        return () -> {
+            try {
+                supabase.fetch(new SensorQuery().gt(SensorColumn.ID, name));
+                return name;
+            } finally {
+                finished.countDown();
+            }
+        };
+    }
+
+    private FetchScope.Callback<String> record(CountDownLatch deliveredLatch) {
+        return new FetchScope.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                delivered.add(result);
+                deliveredLatch.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                delivered.add("error: " + e.getMessage());
+                deliveredLatch.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void launch_sameKeyCancelsPreviousAndLastWins() throws Exception {
+        FetchScope scope = new FetchScope(executor, Runnable::run);
+        CountDownLatch slowFinished = new CountDownLatch(1);
+        CountDownLatch fastFinished = new CountDownLatch(1);
+        CountDownLatch deliveredLatch = new CountDownLatch(1);
+
+        scope.launch("range", request("slow", slowFinished), record(deliveredLatch));
+        Thread.sleep(200);
+        scope.launch("range", request("fast", fastFinished), record(deliveredLatch));
+
+        assertTrue(deliveredLatch.await(2, TimeUnit.SECONDS));
+        // A lecserélt kérés HTTP hívása is leállt, nem várta ki a 3 s-os választ.
+        assertTrue(slowFinished.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, delivered.size());
+        assertEquals("fast", delivered.get(0));
+        assertFalse(scope.isRunning("range"));
+    }
+
+    @Test
+    public void cancelAll_stopsWorkAndDeliversNothing() throws Exception {
+        FetchScope scope = new FetchScope(executor, Runnable::run);
+        CountDownLatch slowFinished = new CountDownLatch(1);
+        CountDownLatch deliveredLatch = new CountDownLatch(1);
+
+        scope.launch("range", request("slow", slowFinished), record(deliveredLatch));
+        Thread.sleep(200);
+        scope.cancelAll();
+
+        assertTrue(slowFinished.await(1, TimeUnit.SECONDS));
+        // A megszűnt scope-ban indított munka el sem indul.
+        FetchToken late = scope.launch("range", request("fast", new CountDownLatch(1)), record(deliveredLatch));
+        assertTrue(late.isCancelled());
+        assertFalse(deliveredLatch.await(300, TimeUnit.MILLISECONDS));
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    public void launch_differentKeysRunIndependently() throws Exception {
+        FetchScope scope = new FetchScope(executor, Runnable::run);
+        CountDownLatch deliveredLatch = new CountDownLatch(2);
+
+        scope.launch("a", request("a", new CountDownLatch(1)), record(deliveredLatch));
+        scope.launch("b", request("b", new CountDownLatch(1)), record(deliveredLatch));
+
+        assertTrue(deliveredLatch.await(2, TimeUnit.SECONDS));
+        assertTrue(delivered.contains("a"));
+        assertTrue(delivered.contains("b"));
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.pmsensor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+public class HistoryRepositoryTest {
+
+    private static final long START = SyntheticReadings.START_MILLIS;
+    private static final long INTERVAL = SyntheticReadings.INTERVAL_MILLIS;
+    private static final long DAY = DayChunkCache.DAY_MILLIS;
+    private static final int ROWS_PER_DAY = (int) (DAY / INTERVAL);
+    private static final long FIRST_DAY = Math.floorDiv(START, DAY);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private final List<HttpUrl> requests = new ArrayList<>();
+    // A szerveren lévő sorok száma (a SyntheticReadings 5 percenkénti sorai START-tól).
+    private volatile int serverRows;
+    // Négy nappal az első mérés után: az első két nap már lezárt.
+    private final AtomicLong clock = new AtomicLong(START + 4 * DAY);
+    private final MemoryStore store = new MemoryStore();
+    private File segmentDirectory;
+    private HistoryRepository repository;
+
+    /**
+     * Memóriabeli tároló; a szintetikus táblában az ID a Measure_time sorrendjét követi.
+     */
+    private static final class MemoryStore implements HistoryRepository.Store {
+        private final TreeMap<Long, SensorSeries> rows = new TreeMap<>();
+        private final Map<String, Long> syncState = new HashMap<>();
+
+        @Override
+        public synchronized void insertAll(SensorSeries series) {
+            for (int i = 0; i < series.size(); i++) {
+                rows.put(series.idAt(i), series.sliceRows(i, i + 1));
+            }
+        }
+
+        @Override
+        public synchronized SensorSeries query(long startMillis, long endMillis) {
+            SensorSeries result = new SensorSeries();
+            for (SensorSeries row : rows.values()) {
+                long time = row.timeAt(0);
+                if (time >= startMillis && time <= endMillis) result.appendAll(row);
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized void deleteRange(long startMillis, long endMillis) {
+            for (Iterator<SensorSeries> it = rows.values().iterator(); it.hasNext(); ) {
+                long time = it.next().timeAt(0);
+                if (time >= startMillis && time <= endMillis) it.remove();
+            }
+        }
+
+        @Override
+        public synchronized long latestMeasureTime() {
+            return rows.isEmpty() ? Long.MIN_VALUE : rows.lastEntry().getValue().timeAt(0);
+        }
+
+        @Override
+        public synchronized long getSyncState(String key, long defaultValue) {
+            Long value = syncState.get(key);
+            return value == null ? defaultValue : value;
+        }
+
+        @Override
+        public synchronized void putSyncState(String key, long value) {
+            syncState.put(key, value);
+        }
+
+        synchronized int size() {
+            return rows.size();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                synchronized (requests) {
+                    requests.add(request.getRequestUrl());
+                }
+                return SyntheticReadings.rangeResponse(request, serverRows);
+            }
+        });
+        server.start();
+        segmentDirectory = folder.newFolder("segments");
+        SupabaseClient supabase = new SupabaseClient(server.url("/").toString(), "test-key");
+        // Üres gyorsítótár: minden betöltés a tárolón (és a szegmenseken) megy át.
+        repository = new HistoryRepository(supabase, store, new DayChunkCache(0),
+                new SegmentStore(segmentDirectory), clock::get);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static long rowTime(int row) {
+        return START + row * INTERVAL;
+    }
+
+    private void storeRows(int firstRow, int rows) throws IOException {
+        SensorSeries series = new SensorSeries(rows);
+        new SensorCsvDecoder().decode(new Buffer().writeUtf8(SyntheticReadings.csvPage(firstRow, rows)), series);
+        store.insertAll(series);
+    }
+
+    private List<HttpUrl> takeRequests() {
+        synchronized (requests) {
+            List<HttpUrl> result = new ArrayList<>(requests);
+            requests.clear();
+            return result;
+        }
+    }
+
+    private static List<String> timeFilters(List<HttpUrl> urls) {
+        List<String> result = new ArrayList<>();
+        for (HttpUrl url : urls) {
+            result.addAll(url.queryParameterValues(SensorColumn.MEASURE_TIME.columnName()));
+        }
+        return result;
+    }
+
+    private static void assertContinuous(SensorSeries series, int firstRow, int rows) {
+        assertEquals(rows, series.size());
+        for (int i = 0; i < rows; i++) {
+            assertEquals(firstRow + i + 1, series.idAt(i));
+            assertEquals(rowTime(firstRow + i), series.timeAt(i));
+        }
+    }
+
+    @Test
+    public void emptyStore_downloadsFromRangeStartAndRecordsSyncedFrom() throws Exception {
+        serverRows = 3 * ROWS_PER_DAY;
+
+        SensorSeries day = repository.load(START, START + DAY - 1);
+
+        assertContinuous(day, 0, ROWS_PER_DAY);
+        assertEquals(START, store.getSyncState(HistoryRepository.KEY_SYNCED_FROM, Long.MAX_VALUE));
+        assertEquals(START, repository.localCoverageFrom(START - DAY));
+        List<HttpUrl> first = takeRequests();
+        assertFalse(first.isEmpty());
+        for (String filter : timeFilters(first)) {
+            assertFalse(filter, filter.startsWith("gt."));
+        }
+
+        // Ugyanazon feltöltési időközön belül a lefedett időszak hálózat nélkül jön vissza.
+        assertContinuous(repository.load(START + DAY, START + 2 * DAY - 1), ROWS_PER_DAY, ROWS_PER_DAY);
+        assertTrue(takeRequests().isEmpty());
+    }
+
+    @Test
+    public void resumedSync_asksOnlyForRowsNewerThanTheLatestLocalRow() throws Exception {
+        storeRows(0, 100);
+        store.putSyncState(HistoryRepository.KEY_SYNCED_FROM, START);
+        serverRows = 120;
+
+        SensorSeries rows = repository.load(START, rowTime(200));
+
+        assertContinuous(rows, 0, 120);
+        List<HttpUrl> urls = takeRequests();
+        assertEquals(1, urls.size());
+        assertEquals("gt." + TimeCodec.formatSupabaseTime(rowTime(99)),
+                urls.get(0).queryParameter(SensorColumn.MEASURE_TIME.columnName()));
+        assertEquals(String.valueOf(ParallelRangeFetcher.PAGE_SIZE), urls.get(0).queryParameter("limit"));
+
+        // Egy feltöltési időközön belül nem kérdezünk újra, utána csak a legújabb helyi sortól.
+        serverRows = 125;
+        assertContinuous(repository.load(START, rowTime(200)), 0, 120);
+        assertTrue(takeRequests().isEmpty());
+
+        clock.addAndGet(PMSensor.UPLOAD_INTERVAL_MILLIS);
+        assertContinuous(repository.load(START, rowTime(200)), 0, 125);
+        urls = takeRequests();
+        assertEquals(1, urls.size());
+        assertEquals("gt." + TimeCodec.formatSupabaseTime(rowTime(119)),
+                urls.get(0).queryParameter(SensorColumn.MEASURE_TIME.columnName()));
+    }
+
+    @Test
+    public void resumedSync_fullPageContinuesWithOffsetPaging() throws Exception {
+        storeRows(0, 10);
+        store.putSyncState(HistoryRepository.KEY_SYNCED_FROM, START);
+        serverRows = 10 + ParallelRangeFetcher.PAGE_SIZE + 100;
+
+        SensorSeries rows = repository.load(START, START + 4 * DAY);
+
+        assertContinuous(rows, 0, serverRows);
+        // Az első három (lezárt) nap szegmensbe került, a többi a táblában maradt.
+        assertEquals(serverRows - 3 * ROWS_PER_DAY, store.size());
+        List<HttpUrl> urls = takeRequests();
+        assertEquals("gt." + TimeCodec.formatSupabaseTime(rowTime(9)),
+                urls.get(0).queryParameter(SensorColumn.MEASURE_TIME.columnName()));
+        // A teli lap után a folytatás a ParallelRangeFetcher szeleteivel, az utolsó letöltött sortól megy.
+        String resumeFrom = "gte." + TimeCodec.formatSupabaseTime(rowTime(9 + ParallelRangeFetcher.PAGE_SIZE));
+        assertTrue(timeFilters(urls.subList(1, urls.size())).contains(resumeFrom));
+    }
+
+    @Test
+    public void backwardExtension_downloadsOnlyTheUncoveredPart() throws Exception {
+        storeRows(ROWS_PER_DAY, ROWS_PER_DAY);
+        store.putSyncState(HistoryRepository.KEY_SYNCED_FROM, START + DAY);
+        serverRows = 2 * ROWS_PER_DAY;
+
+        SensorSeries rows = repository.load(START, rowTime(2 * ROWS_PER_DAY - 1));
+
+        assertContinuous(rows, 0, 2 * ROWS_PER_DAY);
+        assertEquals(START, store.getSyncState(HistoryRepository.KEY_SYNCED_FROM, Long.MAX_VALUE));
+        List<HttpUrl> urls = takeRequests();
+        assertFalse(urls.isEmpty());
+        for (String filter : timeFilters(urls)) {
+            long millis = TimeCodec.parseIsoMillis(filter.substring(filter.indexOf('.') + 1));
+            assertTrue(filter, millis >= START && millis <= START + DAY);
+        }
+    }
+
+    @Test
+    public void emptyPages_leaveTheStoreUntouched() throws Exception {
+        serverRows = 0;
+        assertEquals(0, repository.load(START, START + DAY - 1).size());
+        assertEquals(0, store.size());
+        takeRequests();
+
+        storeRows(0, 50);
+        serverRows = 50;
+        clock.addAndGet(PMSensor.UPLOAD_INTERVAL_MILLIS);
+
+        assertContinuous(repository.load(START, START + DAY - 1), 0, 50);
+        // Az üres lap után nem jön újabb kérés.
+        assertEquals(1, takeRequests().size());
+        assertEquals(50, store.size());
+    }
+
+    @Test
+    public void corruptSegment_marksDayLostAndDownloadsItAgain() throws Exception {
+        serverRows = 3 * ROWS_PER_DAY;
+        assertContinuous(repository.load(START, START + 3 * DAY - 1), 0, 3 * ROWS_PER_DAY);
+        // A két lezárt nap szegmensbe került, és kikerült a táblából.
+        assertTrue(new File(segmentDirectory, FIRST_DAY + ".seg").isFile());
+        assertTrue(new File(segmentDirectory, (FIRST_DAY + 1) + ".seg").isFile());
+        assertEquals(ROWS_PER_DAY, store.size());
+        takeRequests();
+
+        try (FileOutputStream out = new FileOutputStream(new File(segmentDirectory, FIRST_DAY + ".seg"))) {
+            out.write(new byte[]{1, 2, 3});
+        }
+        SensorSeries damaged = repository.load(START + DAY, START + 3 * DAY - 1);
+        assertContinuous(damaged, ROWS_PER_DAY, 2 * ROWS_PER_DAY);
+        assertTrue(takeRequests().isEmpty());
+
+        // Az első nap olvasása észreveszi a sérülést, és a lefedettséget a nap utánra tolja.
+        assertEquals(0, repository.load(START, START + DAY - 1).size());
+        assertEquals(START + DAY, store.getSyncState(HistoryRepository.KEY_SYNCED_FROM, Long.MAX_VALUE));
+        assertTrue(takeRequests().isEmpty());
+
+        // A következő betöltés csak az elveszett napot tölti le újra.
+        assertContinuous(repository.load(START, START + 3 * DAY - 1), 0, 3 * ROWS_PER_DAY);
+        assertEquals(START, store.getSyncState(HistoryRepository.KEY_SYNCED_FROM, Long.MAX_VALUE));
+        List<HttpUrl> urls = takeRequests();
+        assertFalse(urls.isEmpty());
+        for (String filter : timeFilters(urls)) {
+            long millis = TimeCodec.parseIsoMillis(filter.substring(filter.indexOf('.') + 1));
+            assertTrue(filter, millis >= START && millis <= START + DAY);
+        }
+    }
+}
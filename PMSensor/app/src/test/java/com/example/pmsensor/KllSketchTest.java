@@ -0,0 +1,122 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KllSketchTest {
+
+    private static float exactQuantile(float[] sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * A becsült kvantilis rangja legfeljebb maxRankError-ral tér el a kérttől.
+     */
+    private static void assertRankWithin(float[] sorted, double q, float estimate, double maxRankError) {
+        int rank = 0;
+        while (rank < sorted.length && sorted[rank] <= estimate) rank++;
+        double actual = rank / (double) sorted.length;
+        assertEquals("q=" + q, q, actual, maxRankError);
+    }
+
+    @Test
+    public void smallInput_isExact() {
+        KllSketch sketch = new KllSketch();
+        float[] values = new float[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 100 - i;
+            sketch.update(values[i]);
+        }
+        sketch.update(Float.NaN);
+        Arrays.sort(values);
+
+        assertEquals(100, sketch.count());
+        assertEquals(1f, sketch.min(), 0f);
+        assertEquals(100f, sketch.max(), 0f);
+        assertEquals(exactQuantile(values, 0.5), sketch.quantile(0.5), 0f);
+        assertEquals(exactQuantile(values, 0.95), sketch.quantile(0.95), 0f);
+    }
+
+    @Test
+    public void largeInput_staysSmallAndAccurate() {
+        Random random = new Random(1);
+        KllSketch sketch = new KllSketch();
+        float[] values = new float[200_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.exp(random.nextGaussian());
+            sketch.update(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.count());
+        assertTrue(sketch.retained() + " elem", sketch.retained() < 5 * KllSketch.DEFAULT_K);
+        for (double q : new double[]{0.01, 0.25, 0.5, 0.75, 0.95, 0.99}) {
+            assertRankWithin(values, q, sketch.quantile(q), 0.02);
+        }
+        assertEquals(values[0], sketch.quantile(0), 0f);
+        assertEquals(values[values.length - 1], sketch.quantile(1), 0f);
+    }
+
+    @Test
+    public void merge_matchesSingleSketchOverAllValues() {
+        Random random = new Random(2);
+        KllSketch merged = new KllSketch();
+        float[] values = new float[365 * 288];
+        for (int day = 0; day < 365; day++) {
+            KllSketch daySketch = new KllSketch();
+            for (int i = 0; i < 288; i++) {
+                float value = (float) (20 + 10 * Math.sin(day / 58.0) + random.nextGaussian() * 5);
+                values[day * 288 + i] = value;
+                daySketch.update(value);
+            }
+            merged.merge(daySketch);
+            assertEquals(288, daySketch.count());
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, merged.count());
+        assertEquals(values[0], merged.min(), 0f);
+        assertEquals(values[values.length - 1], merged.max(), 0f);
+        for (double q : new double[]{0.05, 0.5, 0.95}) {
+            assertRankWithin(values, q, merged.quantile(q), 0.02);
+        }
+    }
+
+    @Test
+    public void weightedUpdate_matchesRepeatedValues() {
+        Random random = new Random(3);
+        KllSketch weighted = new KllSketch();
+        float[] values = new float[0];
+        for (int bucket = 0; bucket < 5000; bucket++) {
+            float value = (float) (20 + random.nextGaussian() * 5);
+            int weight = 1 + random.nextInt(300);
+            weighted.update(value, weight);
+            int from = values.length;
+            values = Arrays.copyOf(values, from + weight);
+            Arrays.fill(values, from, values.length, value);
+        }
+        weighted.update(Float.NaN, 12);
+        weighted.update(1f, 0);
+        Arrays.sort(values);
+
+        assertEquals(values.length, weighted.count());
+        assertEquals(values[0], weighted.min(), 0f);
+        assertTrue(weighted.retained() + " elem", weighted.retained() < 5 * KllSketch.DEFAULT_K);
+        for (double q : new double[]{0.05, 0.5, 0.95}) {
+            assertRankWithin(values, q, weighted.quantile(q), 0.02);
+        }
+    }
+
+    @Test
+    public void empty_returnsNaN() {
+        KllSketch sketch = new KllSketch();
+        sketch.merge(new KllSketch());
+        assertTrue(Float.isNaN(sketch.quantile(0.5)));
+        assertTrue(Float.isNaN(sketch.min()));
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.pmsensor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class LatestReadingRepositoryTest {
+
+    private MockWebServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> paths = new ArrayList<>();
+    // A szerveren lévő legfrissebb sor indexe (-1: üres tábla).
+    private volatile int newestRow = 0;
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private final MemoryStore store = new MemoryStore();
+
+    private static final class MemoryStore implements LatestReadingRepository.Store {
+        PMSensor reading;
+        long savedAt = Long.MIN_VALUE;
+
+        @Override
+        public PMSensor load() {
+            return reading;
+        }
+
+        @Override
+        public long savedAtMillis() {
+            return savedAt;
+        }
+
+        @Override
+        public void save(PMSensor reading, long savedAtMillis) {
+            this.reading = reading;
+            this.savedAt = savedAtMillis;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                requests.incrementAndGet();
+                synchronized (paths) {
+                    paths.add(request.getPath());
+                }
+                Thread.sleep(100);
+                String after = request.getRequestUrl().queryParameter(SensorColumn.MEASURE_TIME.columnName());
+                boolean known = after != null
+                        && TimeCodec.parseIsoMillis(after.substring(after.indexOf('.') + 1))
+                        >= SyntheticReadings.START_MILLIS + newestRow * SyntheticReadings.INTERVAL_MILLIS;
+                if (newestRow < 0 || known) {
+                    return new MockResponse().setBody("[]");
+                }
+                return new MockResponse().setBody(SyntheticReadings.jsonPage(newestRow, 1));
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private LatestReadingRepository newRepository() {
+        SupabaseClient supabase = new SupabaseClient(server.url("/").toString(), "test-key");
+        return new LatestReadingRepository(supabase, store, clock::get);
+    }
+
+    @Test
+    public void get_coalescesConcurrentRequests() throws Exception {
+        LatestReadingRepository repository = newRepository();
+        int callers = 6;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(callers);
+        AtomicInteger results = new AtomicInteger();
+        for (int i = 0; i < callers; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    if (repository.get(LatestReadingRepository.FRESH_MILLIS) != null) {
+                        results.incrementAndGet();
+                    }
+                } catch (Exception ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertEquals(callers, results.get());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void get_servesFreshValueAndRevalidatesWithGtFilter() throws Exception {
+        LatestReadingRepository repository = newRepository();
+
+        PMSensor first = repository.get(LatestReadingRepository.FRESH_MILLIS);
+        clock.addAndGet(LatestReadingRepository.FRESH_MILLIS - 1);
+        assertSame(first, repository.get(LatestReadingRepository.FRESH_MILLIS));
+        assertEquals(1, requests.get());
+
+        // Lejárt, de nincs újabb mérés: a gt szűrős kérés üres, a tárolt marad.
+        clock.addAndGet(1);
+        assertSame(first, repository.get(LatestReadingRepository.FRESH_MILLIS));
+        assertEquals(2, requests.get());
+        assertTrue(paths.get(1), paths.get(1).contains("Measure_time=gt."));
+
+        newestRow = 1;
+        clock.addAndGet(LatestReadingRepository.FRESH_MILLIS);
+        PMSensor newer = repository.get(LatestReadingRepository.FRESH_MILLIS);
+        assertTrue(newer.measureMillis > first.measureMillis);
+        assertSame(newer, store.reading);
+    }
+
+    @Test
+    public void cached_comesFromStoreWithoutNetwork() throws Exception {
+        newRepository().get(LatestReadingRepository.FRESH_MILLIS);
+        requests.set(0);
+
+        // "Hidegindítás": új példány ugyanazzal a tárolóval.
+        LatestReadingRepository restarted = newRepository();
+        assertNotNull(restarted.cached());
+        assertNotNull(restarted.get(LatestReadingRepository.FRESH_MILLIS));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void offer_acceptsOnlyNewerReadings() throws Exception {
+        LatestReadingRepository repository = newRepository();
+        PMSensor first = repository.get(LatestReadingRepository.FRESH_MILLIS);
+
+        PMSensor older = new PMSensor();
+        older.setMeasureTime(TimeCodec.formatSupabaseTime(first.measureMillis - SyntheticReadings.INTERVAL_MILLIS));
+        repository.offer(older);
+        assertSame(first, repository.cached());
+
+        PMSensor pushed = new PMSensor();
+        pushed.setMeasureTime(TimeCodec.formatSupabaseTime(first.measureMillis + SyntheticReadings.INTERVAL_MILLIS));
+        repository.offer(pushed);
+        assertSame(pushed, repository.cached());
+    }
+}
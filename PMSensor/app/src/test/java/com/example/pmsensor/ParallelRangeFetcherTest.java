@@ -0,0 +1,192 @@
+package com.example.pmsensor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * A szeletelt letöltés tesztjei egy PostgREST-szerűen szűrő, a kéréseket szükség szerint visszatartó mock szerver ellen.
+ */
+public class ParallelRangeFetcherTest {
+
+    private static final int ROWS = 4000;
+    private static final long SLICE_MILLIS = ParallelRangeFetcher.PAGE_SIZE * SyntheticReadings.INTERVAL_MILLIS;
+
+    private MockWebServer server;
+    private ExecutorService executor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    // Ha be van állítva, minden kérés jelez az arrived-on, és a release nyitásáig (legfeljebb 5 s-ig) vár.
+    private volatile CountDownLatch arrived;
+    private volatile CountDownLatch release;
+    private volatile boolean failing;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new RangeDispatcher());
+        server.start();
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+
+    private ParallelRangeFetcher newFetcher(int parallelism) {
+        SupabaseClient supabase = new SupabaseClient(server.url("/").toString(), "test-key");
+        return new ParallelRangeFetcher(supabase, executor, parallelism);
+    }
+
+    private static SensorQuery rawQuery() {
+        return new SensorQuery()
+                .orderBy(SensorColumn.MEASURE_TIME, true)
+                .orderBy(SensorColumn.ID, true);
+    }
+
+    private static long rowTime(int row) {
+        return SyntheticReadings.START_MILLIS + row * SyntheticReadings.INTERVAL_MILLIS;
+    }
+
+    @Test
+    public void fetch_returnsEveryRowOnceAcrossSliceBoundaries() throws Exception {
+        // A szelethatárok pontosan egy-egy sorra esnek.
+        SensorSeries series = newFetcher(4).fetch(ParallelRangeFetcherTest::rawQuery,
+                rowTime(0), rowTime(ROWS - 1), SLICE_MILLIS);
+
+        assertEquals(ROWS, series.size());
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(i + 1, series.idAt(i));
+            assertEquals(rowTime(i), series.timeAt(i));
+        }
+    }
+
+    @Test
+    public void fetch_pagesWithinSlicesLongerThanAPage() throws Exception {
+        SensorSeries series = newFetcher(2).fetch(ParallelRangeFetcherTest::rawQuery,
+                rowTime(10), rowTime(3010), 2500 * SyntheticReadings.INTERVAL_MILLIS);
+
+        assertEquals(3001, series.size());
+        assertEquals(11, series.idAt(0));
+        assertEquals(3011, series.idAt(series.size() - 1));
+        for (int i = 1; i < series.size(); i++) {
+            assertEquals(series.idAt(i - 1) + 1, series.idAt(i));
+        }
+    }
+
+    @Test
+    public void fetch_propagatesHttpError() throws Exception {
+        failing = true;
+        try {
+            newFetcher(4).fetch(ParallelRangeFetcherTest::rawQuery, rowTime(0), rowTime(ROWS - 1), SLICE_MILLIS);
+            fail("HttpException várt");
+        } catch (SupabaseClient.HttpException e) {
+            assertEquals(503, e.code);
+        }
+    }
+
+    @Test
+    public void fetch_finishesWhenHelpersNeverStart() throws Exception {
+        // Telített közös készlet: a segédek csak sorban állnak, a hívó szál mindent letölt.
+        List<Runnable> queued = new ArrayList<>();
+        SupabaseClient supabase = new SupabaseClient(server.url("/").toString(), "test-key");
+        ParallelRangeFetcher fetcher = new ParallelRangeFetcher(supabase, queued::add, 4);
+
+        SensorSeries series = fetcher.fetch(ParallelRangeFetcherTest::rawQuery, rowTime(0), rowTime(ROWS - 1), SLICE_MILLIS);
+
+        assertEquals(ROWS, series.size());
+        assertEquals(3, queued.size());
+    }
+
+    @Test
+    public void fetch_cancelAbortsInFlightCalls() throws Exception {
+        arrived = new CountDownLatch(4);
+        release = new CountDownLatch(1);
+        FetchToken token = new FetchToken();
+        FetchToken outer = FetchToken.attach(token);
+        // Akkor szakítunk meg, amikor mind a négy szelet kérése a szervernél várakozik.
+        new Thread(() -> {
+            try {
+                arrived.await();
+            } catch (InterruptedException ignored) {
+            }
+            token.cancel();
+        }).start();
+
+        try {
+            newFetcher(4).fetch(ParallelRangeFetcherTest::rawQuery, rowTime(0), rowTime(ROWS - 1), SLICE_MILLIS);
+            fail("IOException várt");
+        } catch (IOException expected) {
+            // A megszakított hívás "Canceled" hibával tér vissza, a szerver válasza nélkül.
+        } finally {
+            FetchToken.attach(outer);
+            release.countDown();
+        }
+        assertEquals(0, arrived.getCount());
+    }
+
+    @Test
+    public void fetch_keepsSlicesInFlightConcurrently() throws Exception {
+        long to = rowTime(ROWS - 1);
+        SensorSeries sequential = newFetcher(1).fetch(ParallelRangeFetcherTest::rawQuery, rowTime(0), to, SLICE_MILLIS);
+        int sequentialRequests = requests.get();
+        assertEquals(1, maxInFlight.get());
+
+        // Az első négy kérés csak akkor kap választ, ha mind a négy egyszerre a szervernél van.
+        requests.set(0);
+        maxInFlight.set(0);
+        arrived = new CountDownLatch(4);
+        release = arrived;
+        SensorSeries parallel = newFetcher(4).fetch(ParallelRangeFetcherTest::rawQuery, rowTime(0), to, SLICE_MILLIS);
+
+        assertEquals(4, maxInFlight.get());
+        assertEquals(sequential.size(), parallel.size());
+        assertEquals(sequentialRequests, requests.get());
+    }
+
+    /**
+     * A kéréseket számolja és szükség szerint visszatartja; a választ a SyntheticReadings adja.
+     */
+    private final class RangeDispatcher extends Dispatcher {
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                CountDownLatch arrived = ParallelRangeFetcherTest.this.arrived;
+                CountDownLatch release = ParallelRangeFetcherTest.this.release;
+                if (arrived != null) arrived.countDown();
+                if (release != null) release.await(5, TimeUnit.SECONDS);
+                return respond(request);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private MockResponse respond(RecordedRequest request) {
+            if (failing) {
+                return new MockResponse().setResponseCode(503);
+            }
+            return SyntheticReadings.rangeResponse(request, ROWS);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.pmsensor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PerfMetricsTest {
+
+    private final PerfMetrics metrics = new PerfMetrics();
+
+    @After
+    public void tearDown() {
+        PerfMetrics.setTracer(null);
+    }
+
+    @Test
+    public void record_summarizesLatencyRowsAndBytes() {
+        for (int i = 1; i <= 100; i++) {
+            metrics.record("decode.csv", i * 1_000_000L, 10, 100);
+        }
+
+        PerfMetrics.Snapshot snapshot = metrics.snapshot("decode.csv");
+        assertEquals(100, snapshot.count);
+        assertEquals(50f, snapshot.p50Millis, 0f);
+        assertEquals(95f, snapshot.p95Millis, 0f);
+        assertEquals(100f, snapshot.maxMillis, 0f);
+        assertEquals(1000, snapshot.rows);
+        assertEquals(10_000, snapshot.bytes);
+        // 1000 sor 5050 ms alatt.
+        assertEquals(1000 / 5.05, snapshot.rowsPerSecond(), 1e-6);
+        assertNull(metrics.snapshot("missing"));
+    }
+
+    @Test
+    public void span_recordsOnCloseAndReportsToTracer() {
+        List<String> events = new ArrayList<>();
+        PerfMetrics.setTracer(new PerfMetrics.Tracer() {
+            @Override
+            public void begin(String name) {
+                events.add("begin " + name);
+            }
+
+            @Override
+            public void end() {
+                events.add("end");
+            }
+        });
+
+        try (PerfMetrics.Span outer = metrics.span("worker")) {
+            try (PerfMetrics.Span inner = metrics.span("http.PMSensor")) {
+                inner.rows(3).bytes(42);
+            }
+        }
+
+        assertEquals(Arrays.asList("begin worker", "begin http.PMSensor", "end", "end"), events);
+        assertEquals(1, metrics.snapshot("worker").count);
+        assertEquals(3, metrics.snapshot("http.PMSensor").rows);
+        assertEquals(42, metrics.snapshot("http.PMSensor").bytes);
+    }
+
+    @Test
+    public void report_listsTimersAndCounters() {
+        metrics.record("chart.prepare", 2_000_000L, 500, 0);
+        metrics.add("http.bytes", 1024);
+        metrics.add("http.bytes", 1024);
+
+        String report = metrics.report();
+        assertTrue(report.contains("chart.prepare"));
+        assertTrue(report.contains("http.bytes"));
+        assertTrue(report.contains("2048"));
+        assertEquals(2048, metrics.counter("http.bytes"));
+
+        metrics.reset();
+        assertEquals(0, metrics.counter("http.bytes"));
+        assertNull(metrics.snapshot("chart.prepare"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.pmsensor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PollingPolicyTest {
+
+    private static final long STEP = PMSensor.UPLOAD_INTERVAL_MILLIS;
+    private static final long MIN = PollingPolicy.MIN_DELAY_MILLIS;
+    private static final long MAX = PollingPolicy.MAX_DELAY_MILLIS;
+
+    private List<AlertRule> rules;
+    private PollingPolicy policy;
+
+    @Before
+    public void setUp() throws Exception {
+        String json = new String(Files.readAllBytes(Paths.get("src/main/res/raw/alert_rules.json")), StandardCharsets.UTF_8);
+        rules = AlertRule.parseAll(json);
+        policy = new PollingPolicy(rules);
+    }
+
+    private static PMSensor reading(long millis, float pm25, float pm10) {
+        PMSensor reading = new PMSensor();
+        reading.measureMillis = millis;
+        reading.PM2_5 = pm25;
+        reading.PM10 = pm10;
+        return reading;
+    }
+
+    private AlertEngine.State[] evaluate(PMSensor... readings) {
+        AlertEngine engine = new AlertEngine(rules);
+        DerivedMetrics derived = new DerivedMetrics();
+        AlertEngine.State[] states = new AlertEngine.State[rules.size()];
+        for (int i = 0; i < states.length; i++) states[i] = new AlertEngine.State();
+        for (PMSensor reading : readings) {
+            derived.update(reading);
+            engine.evaluate(reading.measureMillis, reading, states, 0, derived.snapshot());
+        }
+        return states;
+    }
+
+    @Test
+    public void cleanStableAir_relaxesUpToMaximum() {
+        long delay = MIN;
+        long[] expected = {2 * MIN, 4 * MIN, MAX, MAX};
+        for (int i = 0; i < expected.length; i++) {
+            PMSensor previous = reading(i * STEP, 8, 12);
+            PMSensor latest = reading((i + 1) * STEP, 8.5f, 12);
+            delay = policy.nextDelayMillis(delay, previous, latest, evaluate(previous, latest));
+            assertEquals(expected[i], delay);
+        }
+    }
+
+    @Test
+    public void nearThreshold_pollsAtUploadInterval() {
+        PMSensor previous = reading(0, 24, 30);
+        PMSensor latest = reading(STEP, 24, 30);
+        assertEquals(MIN, policy.nextDelayMillis(MAX, previous, latest, evaluate(previous, latest)));
+    }
+
+    @Test
+    public void activeAlert_pollsAtUploadInterval() {
+        AlertEngine.State[] states = evaluate(reading(0, 8, 12));
+        states[0].active = true;
+        assertEquals(MIN, policy.nextDelayMillis(MAX, reading(0, 8, 12), reading(STEP, 8, 12), states));
+    }
+
+    @Test
+    public void fastRise_pollsAtUploadInterval() {
+        PMSensor previous = reading(0, 5, 8);
+        PMSensor latest = reading(STEP, 8, 8);
+        assertEquals(MIN, policy.nextDelayMillis(MAX, previous, latest, evaluate(previous, latest)));
+    }
+
+    @Test
+    public void changingReadings_halveTheDelay() {
+        PMSensor previous = reading(0, 16, 12);
+        PMSensor latest = reading(STEP, 12, 12);
+        assertEquals(2 * MIN, policy.nextDelayMillis(4 * MIN, previous, latest, evaluate(previous, latest)));
+    }
+
+    @Test
+    public void noNewReading_relaxesUnlessNearThreshold() {
+        PMSensor clean = reading(0, 8, 12);
+        assertEquals(4 * MIN, policy.nextDelayMillis(2 * MIN, clean, null, evaluate(clean)));
+
+        PMSensor dirty = reading(0, 30, 40);
+        assertEquals(MIN, policy.nextDelayMillis(2 * MIN, dirty, null, evaluate(dirty)));
+        assertEquals(MIN * 2, policy.nextDelayMillis(MIN, null, null, null));
+    }
+
+    @Test
+    public void relaxedRun_rulesKeepStateAcrossTheLongDelay() {
+        // Az előző futás óta MAX telt el, de a köztes mérések is kiértékelődnek, így a kimaradás-
+        // figyelés nem nullázza a sorozatot.
+        assertTrue(MAX > AlertEngine.MAX_GAP_MILLIS);
+        PMSensor[] readings = new PMSensor[(int) (MAX / STEP) + 1];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = reading(i * STEP, i < readings.length - 3 ? 8 : 60, 12);
+        }
+        AlertEngine.State[] states = evaluate(readings);
+
+        AlertEngine.State consecutive = states[2];
+        assertEquals(AlertRule.Type.CONSECUTIVE, rules.get(2).type);
+        assertTrue(consecutive.active);
+    }
+
+    @Test
+    public void relaxedRun_rateComesFromTheLastTwoReadings() {
+        PMSensor lastRun = reading(0, 5, 8);
+        PMSensor beforeLatest = reading(MAX - STEP, 5, 8);
+        PMSensor latest = reading(MAX, 8, 8);
+
+        // A MAX-szal korábbi mérésből nem becsülhető sebesség, a köztes mérésből igen.
+        assertEquals(MAX, policy.nextDelayMillis(MAX, lastRun, latest, evaluate(lastRun, latest)));
+        assertEquals(MIN, policy.nextDelayMillis(MAX, beforeLatest, latest, evaluate(lastRun, beforeLatest, latest)));
+    }
+
+    @Test
+    public void rise_waitsAtMostHalfTheTimeToThreshold() {
+        AlertRule rule = new AlertRule("pm10", Metric.PM10, AlertRule.Type.CONSECUTIVE, 100, 90, 0, 1, 0, "pm10");
+        PollingPolicy single = new PollingPolicy(Collections.singletonList(rule));
+        // 60 egység/óra: a 100-as küszöbig 45 perc van hátra.
+        long delay = single.nextDelayMillis(4 * MIN, reading(0, 0, 50), reading(STEP, 0, 55), null);
+        assertEquals(45 * 60_000L / 2, delay);
+    }
+}
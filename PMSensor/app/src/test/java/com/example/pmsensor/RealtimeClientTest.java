@@ -0,0 +1,199 @@
+package com.example.pmsensor;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * A Realtime kliens tesztjei egy helyi websocket szerver ellen, amely a Phoenix csatorna
+ * üzeneteit a Supabase Realtime-hoz hasonlóan válaszolja meg.
+ */
+public class RealtimeClientTest {
+
+    private static final String RECORD = "{\"ID\":7,\"Measure_time\":\"2025-09-18T10:20:00+00:00\","
+            + "\"Temperature\":22.5,\"Humidity\":45,\"UV\":2,\"PM25\":41.5,\"PM10\":30}";
+
+    private MockWebServer server;
+    private RealtimeClient client;
+    private final BlockingQueue<String> serverInbox = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+    private final RealtimeClient.Listener listener = new RealtimeClient.Listener() {
+        @Override
+        public void onReading(PMSensor reading) {
+            events.add(reading);
+        }
+
+        @Override
+        public void onConnectionChanged(boolean connected) {
+            events.add(connected);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) client.removeListener(listener);
+        server.shutdown();
+    }
+
+    private RealtimeClient newClient(long heartbeatMillis) {
+        client = new RealtimeClient(server.url("/").toString(), "test-key", new OkHttpClient(),
+                heartbeatMillis, 10, 100);
+        return client;
+    }
+
+    private Object nextEvent() throws InterruptedException {
+        Object event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull("esemény várt", event);
+        return event;
+    }
+
+    @Test
+    public void joinsChannelAndDeliversInserts() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new FakeRealtime(true)));
+
+        newClient(60_000).addListener(listener);
+
+        assertEquals(Boolean.TRUE, nextEvent());
+        PMSensor reading = (PMSensor) nextEvent();
+        assertEquals("7", reading.getId());
+        assertEquals(41.5f, reading.getPM2_5(), 0f);
+        assertEquals("2025-09-18T10:20:00+00:00", reading.getMeasureTime());
+
+        JSONObject join = new JSONObject(serverInbox.poll(5, TimeUnit.SECONDS));
+        assertEquals("realtime:public:PMSensor", join.getString("topic"));
+        assertEquals("phx_join", join.getString("event"));
+        JSONObject change = join.getJSONObject("payload").getJSONObject("config")
+                .getJSONArray("postgres_changes").getJSONObject(0);
+        assertEquals("INSERT", change.getString("event"));
+        assertEquals("PMSensor", change.getString("table"));
+
+        assertEquals("/realtime/v1/websocket", server.takeRequest().getRequestUrl().encodedPath());
+    }
+
+    @Test
+    public void reconnectsAfterDisconnect() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new FakeRealtime(false) {
+            @Override
+            void afterJoin(WebSocket webSocket) {
+                webSocket.close(1001, "restart");
+            }
+        }));
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new FakeRealtime(false)));
+
+        newClient(60_000).addListener(listener);
+
+        assertEquals(Boolean.TRUE, nextEvent());
+        assertEquals(Boolean.FALSE, nextEvent());
+        assertEquals(Boolean.TRUE, nextEvent());
+        assertTrue(client.isConnected());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void connectionListenerRunsOutsideTheClientLock() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new FakeRealtime(false)));
+        RealtimeClient.Listener blocking = new RealtimeClient.Listener() {
+            @Override
+            public void onReading(PMSensor reading) {
+            }
+
+            @Override
+            public void onConnectionChanged(boolean connected) {
+                // Egy másik szál a klienst kérdezi, a figyelő pedig megvárja: zár alatt ez holtpont lenne.
+                Thread query = new Thread(() -> events.add(client.isConnected()));
+                query.start();
+                try {
+                    query.join(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        newClient(60_000).addListener(blocking);
+        try {
+            assertEquals(Boolean.TRUE, nextEvent());
+        } finally {
+            client.removeListener(blocking);
+        }
+    }
+
+    @Test
+    public void sendsHeartbeats() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new FakeRealtime(false)));
+
+        newClient(20).addListener(listener);
+
+        assertEquals(Boolean.TRUE, nextEvent());
+        String message;
+        do {
+            message = serverInbox.poll(5, TimeUnit.SECONDS);
+            assertNotNull("heartbeat várt", message);
+        } while (!message.contains("heartbeat"));
+        assertEquals("phoenix", new JSONObject(message).getString("topic"));
+    }
+
+    /**
+     * Elfogadja a csatlakozást, és opcionálisan egy beszúrási eseményt küld.
+     */
+    private class FakeRealtime extends WebSocketListener {
+        private final boolean sendInsert;
+
+        FakeRealtime(boolean sendInsert) {
+            this.sendInsert = sendInsert;
+        }
+
+        void afterJoin(WebSocket webSocket) {
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(1000, null);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            serverInbox.add(text);
+            try {
+                JSONObject message = new JSONObject(text);
+                if (!"phx_join".equals(message.getString("event"))) return;
+                String topic = message.getString("topic");
+                webSocket.send("{\"topic\":\"" + topic + "\",\"event\":\"phx_reply\",\"payload\":"
+                        + "{\"status\":\"ok\",\"response\":{}},\"ref\":\"" + message.getString("ref") + "\"}");
+                if (sendInsert) {
+                    webSocket.send("{\"topic\":\"" + topic + "\",\"event\":\"postgres_changes\",\"payload\":"
+                            + "{\"ids\":[1],\"data\":{\"type\":\"INSERT\",\"schema\":\"public\",\"table\":\"PMSensor\","
+                            + "\"record\":" + RECORD + "}},\"ref\":null}");
+                }
+                afterJoin(webSocket);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
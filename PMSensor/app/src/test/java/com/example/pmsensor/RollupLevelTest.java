@@ -0,0 +1,53 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.*;
+
+public class RollupLevelTest {
+
+    private static final long DAY = 24 * 60 * 60_000L;
+    private static final int BUDGET = 1000;
+
+    @Test
+    public void choose_usesRawDataForShortRanges() {
+        assertNull(RollupLevel.choose(DAY, BUDGET));
+        assertNull(RollupLevel.choose(3 * DAY, BUDGET));
+    }
+
+    @Test
+    public void choose_picksCoarsestLevelThatFillsTheChart() {
+        assertEquals(RollupLevel.TEN_MINUTES, RollupLevel.choose(7 * DAY, BUDGET));
+        assertEquals(RollupLevel.HOUR, RollupLevel.choose(60 * DAY, BUDGET));
+        assertEquals(RollupLevel.SIX_HOURS, RollupLevel.choose(365 * DAY, BUDGET));
+        assertEquals(RollupLevel.DAY, RollupLevel.choose(3 * 365 * DAY, BUDGET));
+    }
+
+    @Test
+    public void choose_boundsTransferredRowsByChartWidth() {
+        for (long range = DAY; range <= 3 * 365 * DAY; range += DAY / 2) {
+            RollupLevel level = RollupLevel.choose(range, BUDGET);
+            long bucket = level == null ? PMSensor.UPLOAD_INTERVAL_MILLIS : level.bucketMillis;
+            assertTrue("range=" + range, range / bucket <= 6L * BUDGET);
+        }
+    }
+
+    @Test
+    public void rollupQuery_targetsView() {
+        HttpUrl url = SensorQuery.rollup(RollupLevel.HOUR)
+                .select(SensorColumn.MEASURE_TIME, SensorColumn.PM25)
+                .toUrl(HttpUrl.get("https://example.supabase.co/rest/v1"));
+        assertEquals("/rest/v1/PMSensor_1h", url.encodedPath());
+        assertEquals("Measure_time,PM25", url.queryParameter("select"));
+    }
+
+    @Test
+    public void selectRollup_addsExtremesAndSamples() {
+        HttpUrl url = SensorQuery.rollup(RollupLevel.DAY)
+                .selectRollup(SensorColumn.MEASURE_TIME, SensorColumn.PM25, SensorColumn.UV)
+                .toUrl(HttpUrl.get("https://example.supabase.co/rest/v1"));
+        assertEquals("Measure_time,PM25,PM25_min,PM25_max,UV,UV_min,UV_max,Samples", url.queryParameter("select"));
+    }
+}
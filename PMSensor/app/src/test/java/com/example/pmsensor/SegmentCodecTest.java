@@ -0,0 +1,115 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentCodecTest {
+
+    private static final long START = SyntheticReadings.START_MILLIS;
+    private static final long STEP = SyntheticReadings.INTERVAL_MILLIS;
+
+    /**
+     * Egy nap ötpercenkénti mérése, néhány másodperces rezgéssel és lassan változó értékekkel.
+     */
+    private static SensorSeries day(long seed) {
+        Random random = new Random(seed);
+        SensorSeries series = new SensorSeries();
+        float pm25 = 12f;
+        for (int i = 0; i < 288; i++) {
+            int row = series.appendRow();
+            series.setId(row, 1000 + i);
+            series.setTime(row, START + i * STEP + random.nextInt(4000) - 2000);
+            pm25 = Math.max(0, pm25 + Math.round(random.nextGaussian() * 10) / 10f);
+            series.setValue(Metric.PM25, row, pm25);
+            series.setValue(Metric.PM10, row, pm25 * 1.4f);
+            series.setValue(Metric.TEMPERATURE, row, 18.5f + (i / 12) * 0.25f);
+            series.setValue(Metric.HUMIDITY, row, 55f);
+            series.setValue(Metric.UV, row, i % 7);
+            series.setValue(Metric.ATMOSPHERIC_PRESSURE, row, 1013.25f - i * 0.01f);
+        }
+        return series;
+    }
+
+    private static void assertSameRows(SensorSeries expected, int from, SensorSeries actual) {
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(expected.idAt(from + i), actual.idAt(i));
+            assertEquals(expected.timeAt(from + i), actual.timeAt(i));
+            for (Metric metric : Metric.values()) {
+                // Bitre pontos egyezés (NaN és -0 is).
+                assertEquals(Float.floatToRawIntBits(expected.valueAt(metric, from + i)),
+                        Float.floatToRawIntBits(actual.valueAt(metric, i)));
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip_isBitExactAndCompact() throws Exception {
+        SensorSeries series = day(1);
+        byte[] encoded = SegmentCodec.encode(series);
+
+        SensorSeries decoded = SegmentCodec.decode(ByteBuffer.wrap(encoded));
+
+        assertEquals(series.size(), decoded.size());
+        assertSameRows(series, 0, decoded);
+        // Nyersen soronként 8 + 8 + 9 * 4 = 52 bájt.
+        assertTrue(encoded.length + " bájt", encoded.length < series.size() * 52 / 3);
+    }
+
+    @Test
+    public void roundTrip_handlesExtremeValuesAndGaps() throws Exception {
+        float[] specials = {Float.NaN, -0f, 0f, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                Float.MIN_VALUE, Float.MAX_VALUE, -1f, 1f, Float.intBitsToFloat(0x7fc00001)};
+        long[] times = {Long.MIN_VALUE / 4, -5, 0, 1, 2, 300_000, 300_001, 90_000_000_000L,
+                90_000_000_000L, Long.MAX_VALUE / 4};
+        SensorSeries series = new SensorSeries();
+        for (int i = 0; i < specials.length; i++) {
+            int row = series.appendRow();
+            series.setId(row, i % 2 == 0 ? i : -i * 1_000_000_007L);
+            series.setTime(row, times[i]);
+            for (Metric metric : Metric.values()) {
+                series.setValue(metric, row, specials[(i + metric.ordinal()) % specials.length]);
+            }
+        }
+
+        SensorSeries decoded = SegmentCodec.decode(ByteBuffer.wrap(SegmentCodec.encode(series)));
+
+        assertEquals(series.size(), decoded.size());
+        assertSameRows(series, 0, decoded);
+    }
+
+    @Test
+    public void decode_rangeReturnsOnlyMatchingRows() throws Exception {
+        SensorSeries series = day(2);
+        ByteBuffer buffer = ByteBuffer.wrap(SegmentCodec.encode(series));
+        long from = series.timeAt(100);
+        long to = series.timeAt(149);
+
+        SensorSeries out = new SensorSeries();
+        out.appendRows(series, 0, 3);
+        SegmentCodec.decode(buffer, from, to, out);
+
+        assertEquals(3 + 50, out.size());
+        assertSameRows(series, 100, out.sliceRows(3, out.size()));
+    }
+
+    @Test
+    public void encode_emptyAndSingleRow() throws Exception {
+        assertEquals(0, SegmentCodec.decode(ByteBuffer.wrap(SegmentCodec.encode(new SensorSeries()))).size());
+
+        SensorSeries series = day(3);
+        SensorSeries decoded = SegmentCodec.decode(ByteBuffer.wrap(SegmentCodec.encode(series, 5, 6)));
+        assertEquals(1, decoded.size());
+        assertSameRows(series, 5, decoded);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsTruncatedSegment() throws Exception {
+        byte[] encoded = SegmentCodec.encode(day(4));
+        SegmentCodec.decode(ByteBuffer.wrap(encoded, 0, encoded.length / 2).slice());
+    }
+}
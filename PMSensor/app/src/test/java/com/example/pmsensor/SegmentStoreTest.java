@@ -0,0 +1,97 @@
+package com.example.pmsensor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class SegmentStoreTest {
+
+    private static final long DAY = DayChunkCache.DAY_MILLIS;
+    private static final long STEP = SyntheticReadings.INTERVAL_MILLIS;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static SensorSeries rows(long day, int first, int count, float pm25) {
+        SensorSeries series = new SensorSeries();
+        for (int i = first; i < first + count; i++) {
+            int row = series.appendRow();
+            series.setId(row, i + 1);
+            series.setTime(row, day * DAY + i * STEP);
+            series.setValue(Metric.PM25, row, pm25 + i);
+        }
+        return series;
+    }
+
+    @Test
+    public void writeThenRead_returnsRequestedRange() throws Exception {
+        SegmentStore store = new SegmentStore(new File(folder.getRoot(), "segments"));
+        long day = 20_000;
+        store.write(day, rows(day, 0, 288, 0));
+
+        SensorSeries out = new SensorSeries();
+        assertTrue(store.read(day, day * DAY + 10 * STEP, day * DAY + 19 * STEP, out));
+
+        assertEquals(10, out.size());
+        assertEquals(11, out.idAt(0));
+        assertEquals(19f, out.valueAt(Metric.PM25, 9), 0f);
+        assertTrue(store.contains(day));
+        assertFalse(store.contains(day + 1));
+        assertFalse(store.read(day + 1, Long.MIN_VALUE, Long.MAX_VALUE, new SensorSeries()));
+        assertTrue(store.sizeBytes() > 0);
+    }
+
+    @Test
+    public void merge_replacesByIdAndKeepsTimeOrder() throws Exception {
+        SegmentStore store = new SegmentStore(folder.getRoot());
+        long day = 20_001;
+        store.write(day, rows(day, 0, 10, 0));
+
+        // Az 5-ös sor javítva, és két új sor a nap közepén és végén.
+        SensorSeries update = rows(day, 4, 1, 100);
+        update.appendAll(rows(day, 20, 2, 0));
+        store.merge(day, update);
+
+        SensorSeries out = new SensorSeries();
+        store.read(day, Long.MIN_VALUE, Long.MAX_VALUE, out);
+        assertEquals(12, out.size());
+        assertEquals(104f, out.valueAt(Metric.PM25, 4), 0f);
+        for (int i = 1; i < out.size(); i++) {
+            assertTrue(out.timeAt(i) > out.timeAt(i - 1));
+        }
+    }
+
+    @Test
+    public void read_deletesCorruptFile() throws Exception {
+        SegmentStore store = new SegmentStore(folder.getRoot());
+        try (FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), "7.seg"))) {
+            out.write(new byte[]{1, 2, 3});
+        }
+
+        assertFalse(store.read(7, Long.MIN_VALUE, Long.MAX_VALUE, new SensorSeries()));
+        assertFalse(store.contains(7));
+    }
+
+    @Test
+    public void read_corruptColumnLeavesOutputUnchanged() throws Exception {
+        SegmentStore store = new SegmentStore(folder.getRoot());
+        long day = 20_000;
+        store.write(day, rows(day, 0, 288, 0));
+        // Az egyik metrikaoszlop eltolása a fájlon túlra mutat: az idő és az ID oszlop még dekódolható.
+        try (RandomAccessFile raf = new RandomAccessFile(new File(folder.getRoot(), day + ".seg"), "rw")) {
+            raf.seek(16 + 4 * 5);
+            raf.writeInt(Integer.MAX_VALUE / 2);
+        }
+        SensorSeries out = rows(day - 1, 0, 3, 0);
+
+        assertFalse(store.read(day, Long.MIN_VALUE, Long.MAX_VALUE, out));
+        assertEquals(3, out.size());
+        assertFalse(store.contains(day));
+    }
+}
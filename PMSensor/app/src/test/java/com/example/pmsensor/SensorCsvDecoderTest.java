@@ -0,0 +1,80 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+public class SensorCsvDecoderTest {
+
+    private static SensorSeries decode(String csv) throws IOException {
+        SensorSeries series = new SensorSeries(4);
+        new SensorCsvDecoder().decode(new Buffer().writeUtf8(csv), series);
+        return series;
+    }
+
+    @Test
+    public void decode_matchesJsonDecoder() throws Exception {
+        SensorSeries expected = new SensorSeries(1000);
+        new SensorJsonDecoder().decode(new Buffer().writeUtf8(SyntheticReadings.jsonPage(0, 1000)), expected);
+        SensorSeries series = decode(SyntheticReadings.csvPage(0, 1000));
+
+        assertEquals(expected.size(), series.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.idAt(i), series.idAt(i));
+            assertEquals(expected.timeAt(i), series.timeAt(i));
+            for (Metric metric : Metric.values()) {
+                assertEquals(expected.valueAt(metric, i), series.valueAt(metric, i), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void decode_handlesProjectionNullsQuotesAndCrlf() throws Exception {
+        SensorSeries series = decode("\"PM10\",Note,ID,Measure_time,PM25\r\n"
+                + "-1.5e1,\"a, \"\"b\"\"\",7,2025-09-18 10:15:00.25+02,\r\n"
+                + ",,8,2025-09-18 10:20:00+02,3\r\n");
+
+        assertEquals(2, series.size());
+        assertEquals(7, series.idAt(0));
+        assertEquals(-15f, series.valueAt(Metric.PM10, 0), 0f);
+        assertEquals(0f, series.valueAt(Metric.PM25, 0), 0f);
+        assertEquals(TimeCodec.parseIsoMillis("2025-09-18T08:15:00.250Z"), series.timeAt(0));
+        assertEquals(0f, series.valueAt(Metric.PM10, 1), 0f);
+        assertEquals(3f, series.valueAt(Metric.PM25, 1), 0f);
+    }
+
+    @Test
+    public void decode_readsRollupColumns() throws Exception {
+        SensorSeries series = decode("Measure_time,PM25,PM25_min,PM25_max,Samples\n"
+                + "2025-09-18 10:00:00+00,12.5,3,41.5,12\n"
+                + "2025-09-18 11:00:00+00,7,5,9,11\n");
+
+        assertTrue(series.hasRollupColumns());
+        assertEquals(12.5f, series.valueAt(Metric.PM25, 0), 0f);
+        assertEquals(3f, series.minAt(Metric.PM25, 0), 0f);
+        assertEquals(41.5f, series.maxAt(Metric.PM25, 0), 0f);
+        assertEquals(12, series.samplesAt(0));
+        assertEquals(9f, series.maxAt(Metric.PM25, 1), 0f);
+        assertEquals(11, series.samplesAt(1));
+    }
+
+    @Test
+    public void decode_emptyAndHeaderOnly() throws Exception {
+        assertEquals(0, decode("").size());
+        assertEquals(0, decode("Measure_time,PM25\n").size());
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsRowWithMissingField() throws Exception {
+        decode("Measure_time,PM25\n2025-09-18 10:15:00+00\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsInvalidNumber() throws Exception {
+        decode("ID,PM25\n1,abc\n");
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.pmsensor;
+
+import org.json.JSONArray;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+public class SensorJsonDecoderTest {
+
+    private static SensorSeries decode(String json) throws IOException {
+        SensorSeries series = new SensorSeries(4);
+        new SensorJsonDecoder().decode(new Buffer().writeUtf8(json), series);
+        return series;
+    }
+
+    @Test
+    public void decode_matchesOrgJsonPath() throws Exception {
+        String json = SyntheticReadings.jsonPage(0, 1000);
+        SensorSeries series = decode(json);
+        JSONArray expected = new JSONArray(json);
+
+        assertEquals(expected.length(), series.size());
+        for (int i = 0; i < expected.length(); i++) {
+            PMSensor sensor = PMSensor.fromJson(expected.getJSONObject(i));
+            assertEquals(Long.parseLong(sensor.Id), series.idAt(i));
+            assertEquals(TimeCodec.parseIsoMillis(sensor.measureTime), series.timeAt(i));
+            assertEquals(sensor.PM2_5, series.valueAt(Metric.PM25, i), 0f);
+            assertEquals(sensor.PM10, series.valueAt(Metric.PM10, i), 0f);
+            assertEquals(sensor.temperature, series.valueAt(Metric.TEMPERATURE, i), 0f);
+            assertEquals(sensor.temperatureRaw, series.valueAt(Metric.TEMPERATURE_RAW, i), 0f);
+            assertEquals(sensor.humidity, series.valueAt(Metric.HUMIDITY, i), 0f);
+            assertEquals(sensor.humidityRaw, series.valueAt(Metric.HUMIDITY_RAW, i), 0f);
+            assertEquals(sensor.uv, series.valueAt(Metric.UV, i), 0f);
+            assertEquals(sensor.lightQuantity, series.valueAt(Metric.LIGHT_QUANTITY, i), 0f);
+            assertEquals(sensor.atmosphericPressure, series.valueAt(Metric.ATMOSPHERIC_PRESSURE, i), 0f);
+        }
+    }
+
+    @Test
+    public void decode_handlesNullsWhitespaceAndUnknownKeys() throws Exception {
+        SensorSeries series = decode(" [ {\"ID\" : 7 , \"PM25\" : null, \"Note\" : \"a \\\"b\\\" c\","
+                + " \"PM10\" : -1.5e1, \"Flag\": true, \"Measure_time\" : \"2025-09-18T10:15:00.250+02:00\"},\n"
+                + "{} ]");
+
+        assertEquals(2, series.size());
+        assertEquals(7, series.idAt(0));
+        assertEquals(0f, series.valueAt(Metric.PM25, 0), 0f);
+        assertEquals(-15f, series.valueAt(Metric.PM10, 0), 0f);
+        assertEquals(TimeCodec.parseIsoMillis("2025-09-18T08:15:00.250Z"), series.timeAt(0));
+        assertEquals(0, series.idAt(1));
+    }
+
+    @Test
+    public void decode_readsRollupColumns() throws Exception {
+        SensorSeries series = decode("[{\"Measure_time\":\"2025-09-18T10:00:00+00:00\",\"PM25\":12.5,"
+                + "\"PM25_min\":3,\"PM25_max\":41.5,\"Samples\":12},"
+                + "{\"PM25_max\":9,\"Measure_time\":\"2025-09-18T11:00:00+00:00\",\"PM25\":7,"
+                + "\"PM25_min\":5,\"Samples\":11}]");
+
+        assertTrue(series.hasRollupColumns());
+        assertEquals(12.5f, series.valueAt(Metric.PM25, 0), 0f);
+        assertEquals(3f, series.minAt(Metric.PM25, 0), 0f);
+        assertEquals(41.5f, series.maxAt(Metric.PM25, 0), 0f);
+        assertEquals(12, series.samplesAt(0));
+        assertEquals(5f, series.minAt(Metric.PM25, 1), 0f);
+        assertEquals(9f, series.maxAt(Metric.PM25, 1), 0f);
+        assertEquals(11, series.samplesAt(1));
+        assertFalse(decode(SyntheticReadings.jsonPage(0, 3)).hasRollupColumns());
+    }
+
+    @Test
+    public void decode_emptyArray() throws Exception {
+        assertEquals(0, decode("[]").size());
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsMalformedInput() throws Exception {
+        decode("[{\"ID\":1,}");
+    }
+
+    @Test
+    public void timeCodec_matchesSimpleDateFormat() throws Exception {
+        java.text.SimpleDateFormat parser = new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", java.util.Locale.US);
+        parser.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
+        for (String time : new String[]{"1970-01-01T00:00:00", "2024-02-29T23:59:59", "2025-09-18T10:15:00+00:00"}) {
+            assertEquals(parser.parse(time.substring(0, 19)).getTime(), TimeCodec.parseIsoMillis(time));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SensorSeriesTest {
+
+    private static SensorSeries series(int rows) {
+        SensorSeries series = new SensorSeries(1);
+        for (int i = 0; i < rows; i++) {
+            int row = series.appendRow();
+            series.setId(row, i + 1);
+            series.setTime(row, SyntheticReadings.START_MILLIS + i * SyntheticReadings.INTERVAL_MILLIS);
+            series.setValue(Metric.PM25, row, i * 0.5f);
+            series.setValue(Metric.TEMPERATURE, row, 20f + i % 7);
+        }
+        return series;
+    }
+
+    @Test
+    public void append_growsAndKeepsColumns() {
+        SensorSeries series = series(1000);
+
+        assertEquals(1000, series.size());
+        assertEquals(1000, series.idAt(999));
+        assertEquals(499.5f, series.valueAt(Metric.PM25, 999), 0f);
+        assertEquals(0f, series.valueAt(Metric.PM10, 999), 0f);
+    }
+
+    @Test
+    public void slice_isInclusiveOnBothEnds() {
+        SensorSeries series = series(100);
+        long t10 = series.timeAt(10);
+        long t20 = series.timeAt(20);
+
+        SensorSeries slice = series.slice(t10, t20);
+
+        assertEquals(11, slice.size());
+        assertEquals(t10, slice.timeAt(0));
+        assertEquals(t20, slice.timeAt(10));
+        assertEquals(series.valueAt(Metric.PM25, 15), slice.valueAt(Metric.PM25, 5), 0f);
+        assertEquals(0, series.slice(t20, t10).size());
+        assertEquals(100, series.slice(Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void appendAll_concatenatesInOrder() {
+        SensorSeries first = series(10);
+        SensorSeries second = series(20).sliceRows(10, 20);
+
+        first.appendAll(second);
+
+        assertEquals(20, first.size());
+        for (int i = 1; i < first.size(); i++) {
+            assertTrue(first.timeAt(i) > first.timeAt(i - 1));
+        }
+    }
+
+    @Test
+    public void splice_replacesRangeWithDetail() {
+        SensorSeries overview = series(10);
+        SensorSeries detail = new SensorSeries();
+        for (int i = 0; i < 5; i++) {
+            int row = detail.appendRow();
+            detail.setTime(row, overview.timeAt(3) + i * 60_000L);
+            detail.setValue(Metric.PM25, row, 100 + i);
+        }
+
+        SensorSeries spliced = overview.splice(overview.timeAt(3), overview.timeAt(5), detail);
+
+        // 0-2 az áttekintőből, 5 részletes sor, majd 6-9.
+        assertEquals(3 + 5 + 4, spliced.size());
+        assertEquals(100f, spliced.valueAt(Metric.PM25, 3), 0f);
+        assertEquals(overview.timeAt(6), spliced.timeAt(8));
+        assertEquals(10, overview.size());
+    }
+
+    @Test
+    public void splice_rawDetailIntoRollupCountsRowsAsSingleReadings() {
+        SensorSeries overview = series(10);
+        for (int row = 0; row < overview.size(); row++) {
+            overview.setMin(Metric.PM25, row, -1f);
+            overview.setMax(Metric.PM25, row, 100f + row);
+            overview.setSamples(row, 12);
+        }
+        SensorSeries detail = series(10).sliceRows(3, 6);
+
+        SensorSeries spliced = overview.splice(overview.timeAt(3), overview.timeAt(5), detail);
+
+        assertTrue(spliced.hasRollupColumns());
+        assertEquals(10, spliced.size());
+        assertEquals(102f, spliced.maxAt(Metric.PM25, 2), 0f);
+        assertEquals(12, spliced.samplesAt(2));
+        assertEquals(detail.valueAt(Metric.PM25, 0), spliced.minAt(Metric.PM25, 3), 0f);
+        assertEquals(detail.valueAt(Metric.PM25, 0), spliced.maxAt(Metric.PM25, 3), 0f);
+        assertEquals(1, spliced.samplesAt(3));
+        assertEquals(106f, spliced.maxAt(Metric.PM25, 6), 0f);
+        assertFalse(detail.hasRollupColumns());
+        assertEquals(1, detail.samplesAt(0));
+    }
+}
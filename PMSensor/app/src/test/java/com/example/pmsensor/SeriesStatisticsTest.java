@@ -0,0 +1,113 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SeriesStatisticsTest {
+
+    private static final Metric[] METRICS = {Metric.PM25, Metric.TEMPERATURE};
+
+    private static SensorSeries series(int rows, int offset) {
+        SensorSeries series = new SensorSeries();
+        for (int i = 0; i < rows; i++) {
+            int row = series.appendRow();
+            series.setTime(row, i);
+            series.setValue(Metric.PM25, row, i + offset);
+            series.setValue(Metric.TEMPERATURE, row, i % 2 == 0 ? Float.NaN : -i);
+        }
+        return series;
+    }
+
+    @Test
+    public void compute_summarisesEachMetricInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            SeriesStatistics stats = SeriesStatistics.compute(series(101, 0), METRICS, executor);
+
+            SeriesStatistics.Summary pm25 = stats.summary(Metric.PM25);
+            assertEquals(101, pm25.count());
+            assertEquals(0f, pm25.min(), 0f);
+            assertEquals(100f, pm25.max(), 0f);
+            assertEquals(50f, pm25.mean(), 1e-4f);
+            assertEquals(95f, pm25.quantile(0.95), 0f);
+
+            // A hiányzó (NaN) értékek kimaradnak.
+            SeriesStatistics.Summary temperature = stats.summary(Metric.TEMPERATURE);
+            assertEquals(50, temperature.count());
+            assertEquals(-99f, temperature.min(), 0f);
+            assertNull(stats.summary(Metric.UV));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void compute_finishesOnSaturatedExecutor() throws Exception {
+        // Egy soha el nem induló executor: minden feladatot a hívó szál futtat le.
+        SeriesStatistics stats = SeriesStatistics.compute(series(10, 0), METRICS, runnable -> {
+        });
+        assertEquals(10, stats.summary(Metric.PM25).count());
+        assertEquals(5, stats.summary(Metric.TEMPERATURE).count());
+    }
+
+    @Test
+    public void fromRollup_weightsBucketsBySamplesAndKeepsExtremes() {
+        SensorSeries buckets = new SensorSeries();
+        // 10 rés: a PM25 átlaga i, minimuma i - 5, maximuma 10 * i; az utolsó rés egyetlen mérés.
+        for (int i = 0; i < 10; i++) {
+            int row = buckets.appendRow();
+            buckets.setTime(row, i * 3_600_000L);
+            buckets.setValue(Metric.PM25, row, i);
+            buckets.setMin(Metric.PM25, row, i - 5);
+            buckets.setMax(Metric.PM25, row, 10 * i);
+            buckets.setSamples(row, i == 9 ? 1 : 12);
+        }
+
+        SeriesStatistics.Summary pm25 = SeriesStatistics.fromRollup(buckets, METRICS).summary(Metric.PM25);
+
+        assertEquals(9 * 12 + 1, pm25.count());
+        assertEquals(-5f, pm25.min(), 0f);
+        assertEquals(90f, pm25.max(), 0f);
+        assertEquals((12 * 36 + 9) / 109f, pm25.mean(), 1e-4f);
+        assertEquals(8f, pm25.quantile(0.95), 0f);
+        assertTrue(pm25.isApproximate());
+    }
+
+    @Test
+    public void fromRollup_rawRowsMatchCompute() throws Exception {
+        SensorSeries raw = series(101, 0);
+        SeriesStatistics.Summary expected = SeriesStatistics.compute(raw, METRICS, Runnable::run).summary(Metric.PM25);
+
+        SeriesStatistics.Summary pm25 = SeriesStatistics.fromRollup(raw, METRICS).summary(Metric.PM25);
+
+        assertEquals(expected.count(), pm25.count());
+        assertEquals(expected.mean(), pm25.mean(), 0f);
+        assertEquals(expected.quantile(0.95), pm25.quantile(0.95), 0f);
+        assertFalse(pm25.isApproximate());
+    }
+
+    @Test
+    public void merge_combinesDailySummaries() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SeriesStatistics total = new SeriesStatistics(METRICS);
+            total.merge(SeriesStatistics.compute(series(100, 0), METRICS, executor));
+            total.merge(SeriesStatistics.compute(series(100, 100), METRICS, executor));
+
+            SeriesStatistics.Summary pm25 = total.summary(Metric.PM25);
+            assertEquals(200, pm25.count());
+            assertEquals(0f, pm25.min(), 0f);
+            assertEquals(199f, pm25.max(), 0f);
+            assertEquals(99.5f, pm25.mean(), 1e-4f);
+            assertEquals(189f, pm25.quantile(0.95), 0f);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+}
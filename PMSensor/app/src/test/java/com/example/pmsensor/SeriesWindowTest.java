@@ -0,0 +1,106 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SeriesWindowTest {
+
+    private static final long STEP = SyntheticReadings.INTERVAL_MILLIS;
+
+    private static SensorSeries series(float... pm25) {
+        SensorSeries series = new SensorSeries(1);
+        for (int i = 0; i < pm25.length; i++) {
+            int row = series.appendRow();
+            series.setTime(row, SyntheticReadings.START_MILLIS + i * STEP);
+            series.setValue(Metric.PM25, row, pm25[i]);
+        }
+        return series;
+    }
+
+    private static SeriesWindow window(SensorSeries series) {
+        return new SeriesWindow(series, Metric.PM25, series.timeAt(0));
+    }
+
+    @Test
+    public void showAll_readsColumnsDirectly() {
+        SeriesWindow window = window(series(5, 7, 3));
+
+        assertEquals(3, window.size());
+        assertEquals(2 * STEP, window.xAt(2), 0f);
+        assertEquals(7f, window.yAt(1), 0f);
+    }
+
+    @Test
+    public void show_mapsThroughRowIndices() {
+        SeriesWindow window = window(series(5, 7, 3, 9, 1));
+        window.show(new int[]{0, 3, 4});
+
+        assertEquals(3, window.size());
+        assertEquals(3 * STEP, window.xAt(1), 0f);
+        assertEquals(9f, window.yAt(1), 0f);
+        assertEquals(9f, window.getYMax(), 0f);
+        assertEquals(1f, window.getYMin(), 0f);
+    }
+
+    @Test
+    public void indexFor_roundsLikeDataSet() {
+        SeriesWindow window = window(series(1, 2, 3, 4));
+        float quarter = STEP / 4f;
+
+        assertEquals(1, window.indexFor(STEP, SeriesWindow.Rounding.DOWN));
+        assertEquals(1, window.indexFor(STEP, SeriesWindow.Rounding.UP));
+        assertEquals(1, window.indexFor(STEP + quarter, SeriesWindow.Rounding.DOWN));
+        assertEquals(2, window.indexFor(STEP + quarter, SeriesWindow.Rounding.UP));
+        assertEquals(1, window.indexFor(STEP + quarter, SeriesWindow.Rounding.CLOSEST));
+        assertEquals(2, window.indexFor(2 * STEP - quarter, SeriesWindow.Rounding.CLOSEST));
+        // A tartományon kívül a szélső pontot adja.
+        assertEquals(0, window.indexFor(-STEP, SeriesWindow.Rounding.DOWN));
+        assertEquals(3, window.indexFor(10 * STEP, SeriesWindow.Rounding.UP));
+        assertEquals(-1, window(new SensorSeries()).indexFor(0, SeriesWindow.Rounding.CLOSEST));
+    }
+
+    @Test
+    public void appendRow_extendsWithoutRecomputing() {
+        SensorSeries series = series(5, 7, 3);
+        SeriesWindow window = window(series);
+        window.show(new int[]{0, 2});
+        assertEquals(5f, window.getYMax(), 0f);
+
+        int row = series.appendRow();
+        series.setTime(row, series.timeAt(row - 1) + STEP);
+        series.setValue(Metric.PM25, row, 12f);
+        window.appendRow(row);
+
+        assertEquals(3, window.size());
+        assertEquals(12f, window.getYMax(), 0f);
+        assertEquals(3 * STEP, window.getXMax(), 0f);
+    }
+
+    @Test
+    public void yRange_coversVisibleXRange() {
+        SeriesWindow window = window(series(1, 8, 2, 6, 9, 0));
+        float[] range = new float[2];
+
+        window.yRange(STEP + 1, 3 * STEP - 1, range);
+
+        // A tartományt lefedő szomszédos pontok is beleszámítanak, ahogy az MPAndroidChart-ban.
+        assertEquals(2f, range[0], 0f);
+        assertEquals(8f, range[1], 0f);
+    }
+
+    @Test
+    public void downsample_keepsAllRowsWithoutIndexArray() {
+        SensorSeries series = series(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        SeriesWindow window = window(series);
+
+        window.downsample(0, series.size(), 100);
+        assertEquals(10, window.size());
+        assertEquals(10f, window.getYMax(), 0f);
+
+        window.downsample(0, series.size(), 4);
+        assertEquals(4, window.size());
+        assertEquals(0, window.rowAt(0));
+        assertEquals(9, window.rowAt(3));
+    }
+}
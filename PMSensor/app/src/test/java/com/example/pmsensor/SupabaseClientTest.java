@@ -0,0 +1,212 @@
+package com.example.pmsensor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+import static org.junit.Assert.*;
+
+/**
+ * A SupabaseClient tesztjei egy helyi, TLS-t beszélő mock szerver ellen.
+ */
+public class SupabaseClientTest {
+
+    private static final String ROW = "[{\"ID\":42,\"Measure_time\":\"2025-09-18T10:15:00+00:00\","
+            + "\"Temperature\":21.5,\"Humidity\":48,\"Atmospheric_pressure\":1012,\"Light_quantity\":300,"
+            + "\"UV\":1,\"PM25\":12.5,\"PM10\":20.25,\"Humidity_raw\":50,\"Temperature_raw\":22}]";
+
+    private MockWebServer server;
+    private HandshakeCertificates clientCertificates;
+
+    @Before
+    public void setUp() throws Exception {
+        HeldCertificate localhost = new HeldCertificate.Builder()
+                .addSubjectAlternativeName("localhost")
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(localhost)
+                .build();
+        clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(localhost.certificate())
+                .build();
+
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private OkHttpClient trustingClient() {
+        return SupabaseClient.createHttpClient().newBuilder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+                .build();
+    }
+
+    private SupabaseClient newSupabase(OkHttpClient httpClient) {
+        return new SupabaseClient(server.url("/").toString(), "test-key", httpClient);
+    }
+
+    @Test
+    public void fetchLatest_buildsQueryAndParsesRow() throws Exception {
+        server.enqueue(new MockResponse().setBody(ROW));
+
+        PMSensor latest = newSupabase(trustingClient()).fetchLatest();
+
+        assertNotNull(latest);
+        assertEquals("42", latest.getId());
+        assertEquals(12.5f, latest.getPM2_5(), 0f);
+        assertEquals(20.25f, latest.getPM10(), 0f);
+        assertEquals("2025-09-18T10:15:00+00:00", latest.getMeasureTime());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/rest/v1/PMSensor?select=*&order=Measure_time.desc&limit=1", request.getPath());
+        assertEquals("test-key", request.getHeader("apikey"));
+        assertEquals("Bearer test-key", request.getHeader("Authorization"));
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+    }
+
+    @Test
+    public void fetch_encodesRangeFilters() throws Exception {
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        List<PMSensor> rows = newSupabase(trustingClient()).fetch(new SensorQuery()
+                .gte(SensorColumn.MEASURE_TIME, "2025-09-01T00:00:00")
+                .lte(SensorColumn.MEASURE_TIME, "2025-09-02T00:00:00+00:00")
+                .orderBy(SensorColumn.MEASURE_TIME, true)
+                .limit(1000));
+
+        assertTrue(rows.isEmpty());
+        HttpUrl url = server.takeRequest().getRequestUrl();
+        assertEquals("/rest/v1/PMSensor", url.encodedPath());
+        assertEquals("*", url.queryParameter("select"));
+        assertEquals(Arrays.asList("gte.2025-09-01T00:00:00", "lte.2025-09-02T00:00:00+00:00"),
+                url.queryParameterValues("Measure_time"));
+        assertEquals("Measure_time.asc", url.queryParameter("order"));
+        assertEquals("1000", url.queryParameter("limit"));
+    }
+
+    @Test
+    public void fetchLatestAfter_asksOnlyForNewerRowWithProjection() throws Exception {
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        PMSensor latest = newSupabase(trustingClient()).fetchLatestAfter("2025-09-18T10:15:00+00:00",
+                SensorColumn.MEASURE_TIME, SensorColumn.PM25, SensorColumn.PM10);
+
+        assertNull(latest);
+        HttpUrl url = server.takeRequest().getRequestUrl();
+        assertEquals("Measure_time,PM25,PM10", url.queryParameter("select"));
+        assertEquals("gt.2025-09-18T10:15:00+00:00", url.queryParameter("Measure_time"));
+        assertEquals("Measure_time.desc", url.queryParameter("order"));
+        assertEquals("1", url.queryParameter("limit"));
+    }
+
+    @Test
+    public void fetchBetween_asksForRangeInTimeOrder() throws Exception {
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        List<PMSensor> rows = newSupabase(trustingClient()).fetchBetween(
+                TimeCodec.parseIsoMillis("2025-09-18T10:15:00Z"), TimeCodec.parseIsoMillis("2025-09-18T10:45:00Z"),
+                SensorColumn.MEASURE_TIME, SensorColumn.PM25);
+
+        assertTrue(rows.isEmpty());
+        HttpUrl url = server.takeRequest().getRequestUrl();
+        assertEquals("Measure_time,PM25", url.queryParameter("select"));
+        assertEquals(Arrays.asList("gte.2025-09-18T10:15:00", "lte.2025-09-18T10:45:00"),
+                url.queryParameterValues("Measure_time"));
+        assertEquals("Measure_time.asc", url.queryParameter("order"));
+    }
+
+    @Test
+    public void fetchInto_requestsCsvWithProjection() throws Exception {
+        server.enqueue(new MockResponse().setBody("Measure_time,PM25\n2025-09-18 10:15:00+00,12.5\n"));
+
+        SensorSeries series = new SensorSeries(1);
+        int rows = newSupabase(trustingClient()).fetchInto(new SensorQuery()
+                .select(SensorProjection.chart(Metric.PM25)), series);
+
+        assertEquals(1, rows);
+        assertEquals(TimeCodec.parseIsoMillis("2025-09-18T10:15:00Z"), series.timeAt(0));
+        assertEquals(12.5f, series.valueAt(Metric.PM25, 0), 0f);
+        RecordedRequest request = server.takeRequest();
+        assertEquals("text/csv", request.getHeader("Accept"));
+        assertEquals("Measure_time,PM25", request.getRequestUrl().queryParameter("select"));
+    }
+
+    @Test
+    public void fetchInto_recordsWireBytesAndTimers() throws Exception {
+        String csv = SyntheticReadings.csvPage(0, 50);
+        server.enqueue(new MockResponse().setBody(csv));
+        PerfMetrics metrics = PerfMetrics.get();
+        long bytesBefore = metrics.counter(TrafficInterceptor.BYTES_COUNTER);
+        PerfMetrics.Snapshot before = metrics.snapshot("decode.csv");
+        long rowsBefore = before == null ? 0 : before.rows;
+
+        newSupabase(trustingClient()).fetchInto(new SensorQuery(), new SensorSeries(50));
+
+        assertEquals(csv.length(), metrics.counter(TrafficInterceptor.BYTES_COUNTER) - bytesBefore);
+        assertEquals(50, metrics.snapshot("decode.csv").rows - rowsBefore);
+        assertNotNull(metrics.snapshot("http.PMSensor"));
+    }
+
+    @Test(expected = SupabaseClient.HttpException.class)
+    public void fetch_throwsOnHttpError() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(401));
+        newSupabase(trustingClient()).fetchLatest();
+    }
+
+    @Test
+    public void sharedClient_reusesConnectionAcrossCalls() throws Exception {
+        SupabaseClient supabase = newSupabase(trustingClient());
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setBody(ROW));
+            supabase.fetchLatest();
+        }
+
+        // A sequenceNumber az adott kapcsolaton belüli sorszám: újrahasznosításnál folyamatosan nő.
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, server.takeRequest().getSequenceNumber());
+        }
+        assertEquals(1, supabase.httpClient().connectionPool().connectionCount());
+    }
+
+    @Test
+    public void sharedClient_differentClientsAndQueriesReuseOneConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody(ROW));
+        server.enqueue(new MockResponse().setBody("[]"));
+        server.enqueue(new MockResponse().setBody(SyntheticReadings.csvPage(0, 10)));
+        server.enqueue(new MockResponse().setBody(ROW));
+
+        // Két SupabaseClient ugyanazon az OkHttpClient-en, és egy belőle származtatott kliens
+        // (ahogy a realtime websocket is készül).
+        OkHttpClient shared = trustingClient();
+        SupabaseClient first = newSupabase(shared);
+        SupabaseClient second = newSupabase(shared);
+        SupabaseClient derived = newSupabase(shared.newBuilder().readTimeout(0, TimeUnit.MILLISECONDS).build());
+        first.fetchLatest();
+        second.fetch(new SensorQuery().limit(10));
+        first.fetchInto(new SensorQuery(), new SensorSeries(10));
+        derived.fetchLatest();
+
+        // A JSON- és a CSV-lekérdezések, és mindhárom kliens ugyanazt az egy kapcsolatot használja.
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, server.takeRequest().getSequenceNumber());
+        }
+        assertEquals(1, shared.connectionPool().connectionCount());
+    }
+}
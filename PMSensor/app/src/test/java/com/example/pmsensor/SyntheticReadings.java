@@ -0,0 +1,189 @@
+package com.example.pmsensor;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Determinisztikus, valószerű mérési adatok a tesztekhez és a benchmark modulhoz (annak pipeline
+ * forráskészlete innen fordítja): 5 percenkénti sorok napi ciklussal és zajjal, PostgREST JSON vagy
+ * text/csv oldalként, közvetlenül oszlopos sorozatként, vagy egy szűrt lekérdezésre adott válaszként.
+ */
+final class SyntheticReadings {
+
+    static final long START_MILLIS = 1_756_684_800_000L; // 2025-09-01T00:00:00Z
+    static final long INTERVAL_MILLIS = PMSensor.UPLOAD_INTERVAL_MILLIS;
+    private static final double DAY_MILLIS = 86_400_000.0;
+
+    // A Supabase tábla oszlopsorrendje (select=*).
+    private static final SensorColumn[] TABLE_COLUMNS = {
+            SensorColumn.ATMOSPHERIC_PRESSURE, SensorColumn.HUMIDITY, SensorColumn.HUMIDITY_RAW,
+            SensorColumn.LIGHT_QUANTITY, SensorColumn.PM25, SensorColumn.TEMPERATURE,
+            SensorColumn.TEMPERATURE_RAW, SensorColumn.UV, SensorColumn.PM10,
+            SensorColumn.MEASURE_TIME, SensorColumn.ID
+    };
+
+    private SyntheticReadings() {
+    }
+
+    static long timeOf(int row) {
+        return START_MILLIS + row * INTERVAL_MILLIS;
+    }
+
+    /**
+     * Egy sor értékei Metric sorrendben.
+     */
+    static void values(int row, Random random, float[] out) {
+        double phase = 2 * Math.PI * ((timeOf(row) % (long) DAY_MILLIS) / DAY_MILLIS);
+        float pm25 = (float) Math.max(0, 18 + 12 * Math.sin(phase) + random.nextGaussian() * 4);
+        float temperature = (float) (16 + 6 * Math.sin(phase - 1.2) + random.nextGaussian() * 0.3);
+        float humidity = (float) Math.min(100, Math.max(0, 60 - 15 * Math.sin(phase - 1.2) + random.nextGaussian()));
+        out[Metric.PM25.ordinal()] = pm25;
+        out[Metric.PM10.ordinal()] = pm25 * 1.4f + (float) Math.abs(random.nextGaussian() * 3);
+        out[Metric.TEMPERATURE.ordinal()] = temperature;
+        out[Metric.TEMPERATURE_RAW.ordinal()] = temperature + 1.5f;
+        out[Metric.HUMIDITY.ordinal()] = humidity;
+        out[Metric.HUMIDITY_RAW.ordinal()] = Math.min(100, humidity + 3);
+        out[Metric.UV.ordinal()] = (float) Math.max(0, Math.round(6 * Math.sin(phase - Math.PI / 2)));
+        out[Metric.LIGHT_QUANTITY.ordinal()] = (float) Math.max(0, 20000 * Math.sin(phase - Math.PI / 2));
+        out[Metric.ATMOSPHERIC_PRESSURE.ordinal()] = (float) (1013 + 8 * Math.sin(row / 2000.0) + random.nextGaussian() * 0.2);
+    }
+
+    static SensorSeries series(int rows) {
+        Random random = new Random(rows);
+        float[] values = new float[Metric.count()];
+        SensorSeries series = new SensorSeries(rows);
+        for (int i = 0; i < rows; i++) {
+            values(i, random, values);
+            int row = series.appendRow();
+            series.setId(row, i + 1);
+            series.setTime(row, timeOf(i));
+            for (int m = 0; m < values.length; m++) {
+                series.setValue(Metric.at(m), row, values[m]);
+            }
+        }
+        return series;
+    }
+
+    static PMSensor[] readings(int rows) {
+        Random random = new Random(rows);
+        float[] v = new float[Metric.count()];
+        PMSensor[] result = new PMSensor[rows];
+        for (int i = 0; i < rows; i++) {
+            values(i, random, v);
+            result[i] = new PMSensor(v[Metric.PM25.ordinal()], v[Metric.PM10.ordinal()], String.valueOf(i + 1),
+                    v[Metric.HUMIDITY.ordinal()], v[Metric.HUMIDITY_RAW.ordinal()], v[Metric.TEMPERATURE.ordinal()],
+                    v[Metric.TEMPERATURE_RAW.ordinal()], v[Metric.UV.ordinal()], v[Metric.LIGHT_QUANTITY.ordinal()],
+                    v[Metric.ATMOSPHERIC_PRESSURE.ordinal()], isoTime(timeOf(i)));
+        }
+        return result;
+    }
+
+    /**
+     * A PostgREST JSON válasz alakja: a Supabase oszlopsorrendje, "+00:00" eltolású Measure_time.
+     */
+    static String jsonPage(int firstRow, int rows) {
+        return page(firstRow, rows, TABLE_COLUMNS, false);
+    }
+
+    /**
+     * Ugyanazok a sorok, mint a jsonPage-ben, a PostgREST text/csv alakjában (fejléc, "+00" eltolás).
+     */
+    static String csvPage(int firstRow, int rows) {
+        return page(firstRow, rows, TABLE_COLUMNS, true);
+    }
+
+    /**
+     * Ugyanazok a sorok a megadott oszlopokkal (select=...), PostgREST JSON vagy text/csv alakban.
+     * A CSV a Postgres szöveges időbélyegét adja ("2025-09-01 00:00:00+00").
+     */
+    static String page(int firstRow, int rows, SensorColumn[] columns, boolean csv) {
+        Random random = new Random(firstRow);
+        float[] v = new float[Metric.count()];
+        StringBuilder sb = new StringBuilder(rows * 26 * columns.length);
+        if (csv) {
+            for (int c = 0; c < columns.length; c++) {
+                if (c > 0) sb.append(',');
+                sb.append(columns[c].columnName());
+            }
+        } else {
+            sb.append('[');
+        }
+        for (int i = 0; i < rows; i++) {
+            int row = firstRow + i;
+            values(row, random, v);
+            if (csv) {
+                sb.append('\n');
+            } else {
+                if (i > 0) sb.append(',');
+                sb.append('{');
+            }
+            for (int c = 0; c < columns.length; c++) {
+                if (c > 0) sb.append(',');
+                if (!csv) sb.append('"').append(columns[c].columnName()).append("\":");
+                sb.append(field(columns[c], row, v, csv));
+            }
+            if (!csv) sb.append('}');
+        }
+        if (!csv) sb.append(']');
+        return sb.toString();
+    }
+
+    private static String field(SensorColumn column, int row, float[] v, boolean csv) {
+        switch (column) {
+            case ID:
+                return String.valueOf(row + 1);
+            case MEASURE_TIME:
+                String time = isoTime(timeOf(row));
+                return csv ? time.substring(0, 10) + ' ' + time.substring(11, 22) : '"' + time + '"';
+            case UV:
+                return String.valueOf((int) v[Metric.UV.ordinal()]);
+            case LIGHT_QUANTITY:
+            case PM25:
+            case PM10:
+                return String.format(Locale.US, "%.1f", v[Metric.valueOf(column.name()).ordinal()]);
+            default:
+                return String.format(Locale.US, "%.2f", v[Metric.valueOf(column.name()).ordinal()]);
+        }
+    }
+
+    /**
+     * Egy rowCount soros tábla válasza a kérésre: a Measure_time gt/gte/lt/lte, limit és offset
+     * paramétereket úgy értelmezi, mint a PostgREST, és az Accept fejléc szerint CSV-t vagy JSON-t ad.
+     */
+    static MockResponse rangeResponse(RecordedRequest request, int rowCount) {
+        HttpUrl url = request.getRequestUrl();
+        int first = 0;
+        int end = rowCount;
+        List<String> filters = url.queryParameterValues(SensorColumn.MEASURE_TIME.columnName());
+        for (String filter : filters) {
+            int dot = filter.indexOf('.');
+            String operator = filter.substring(0, dot);
+            long millis = TimeCodec.parseIsoMillis(filter.substring(dot + 1));
+            int row = (int) Math.ceil((millis - START_MILLIS) / (double) INTERVAL_MILLIS);
+            boolean exact = timeOf(row) == millis;
+            switch (operator) {
+                case "gte": first = Math.max(first, row); break;
+                case "gt": first = Math.max(first, exact ? row + 1 : row); break;
+                case "lt": end = Math.min(end, row); break;
+                case "lte": end = Math.min(end, exact ? row + 1 : row); break;
+                default: throw new IllegalArgumentException(operator);
+            }
+        }
+        String offset = url.queryParameter("offset");
+        String limit = url.queryParameter("limit");
+        first += offset == null ? 0 : Integer.parseInt(offset);
+        if (limit != null) end = Math.min(end, first + Integer.parseInt(limit));
+        int rows = Math.max(0, end - first);
+        return new MockResponse().setBody("text/csv".equals(request.getHeader("Accept"))
+                ? csvPage(first, rows) : jsonPage(first, rows));
+    }
+
+    static String isoTime(long millis) {
+        return TimeCodec.formatSupabaseTime(millis) + "+00:00";
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class TimeCodecTest {
+
+    private static SimpleDateFormat utc(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    @Test
+    public void parse_handlesFractionAndOffset() {
+        long expected = 1_758_190_500_000L; // 2025-09-18T10:15:00Z
+        assertEquals(expected, TimeCodec.parseIsoMillis("2025-09-18T10:15:00"));
+        assertEquals(expected, TimeCodec.parseIsoMillis("2025-09-18T10:15:00+00:00"));
+        assertEquals(expected + 250, TimeCodec.parseIsoMillis("2025-09-18T10:15:00.25Z"));
+        assertEquals(expected - 2 * 3_600_000L, TimeCodec.parseIsoMillis("2025-09-18T10:15:00+02:00"));
+        assertEquals(Long.MIN_VALUE, TimeCodec.parseIsoMillisOrMin("nem időbélyeg"));
+        assertEquals(Long.MIN_VALUE, TimeCodec.parseIsoMillisOrMin(null));
+    }
+
+    @Test
+    public void formatters_matchSimpleDateFormatInUtc() throws Exception {
+        SimpleDateFormat supabase = utc("yyyy-MM-dd'T'HH:mm:ss");
+        SimpleDateFormat display = utc("yyyy.MM.dd HH:mm");
+        SimpleDateFormat date = utc("yyyy.MM.dd");
+        SimpleDateFormat label = utc("MM.dd HH:mm");
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            // 1970 és 2100 között, a szökőnapokat és évfordulókat is érintve.
+            long millis = (long) (random.nextDouble() * 4_102_444_800_000L);
+            Date d = new Date(millis);
+            assertEquals(supabase.format(d), TimeCodec.formatSupabaseTime(millis));
+            assertEquals(display.format(d), TimeCodec.formatDisplayTime(millis));
+            assertEquals(date.format(d), TimeCodec.formatDate(millis));
+            assertEquals(label.format(d), TimeCodec.formatChartLabel(millis));
+            assertEquals(millis / 1000 * 1000, TimeCodec.parseIsoMillis(TimeCodec.formatSupabaseTime(millis)));
+        }
+        assertEquals("2024-02-29T23:59:59", TimeCodec.formatSupabaseTime(supabase.parse("2024-02-29T23:59:59").getTime()));
+    }
+
+    @Test
+    public void chartLabel_reusesCachedString() {
+        long millis = 1_758_190_500_000L;
+        String first = TimeCodec.formatChartLabel(millis);
+        assertSame(first, TimeCodec.formatChartLabel(millis + 30_000));
+        assertNotSame(first, TimeCodec.formatChartLabel(millis + 60_000));
+    }
+
+    @Test
+    public void measureMillis_followsMeasureTime() {
+        PMSensor reading = new PMSensor();
+        assertEquals(Long.MIN_VALUE, reading.measureMillis);
+        reading.setMeasureTime("2025-09-18T10:15:00+00:00");
+        assertEquals(1_758_190_500_000L, reading.getMeasureMillis());
+    }
+}
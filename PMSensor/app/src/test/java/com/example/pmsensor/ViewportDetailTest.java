@@ -0,0 +1,72 @@
+package com.example.pmsensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ViewportDetailTest {
+
+    private static final long HOUR = 60 * 60_000L;
+    private static final long DAY = 24 * HOUR;
+    private static final long START = SyntheticReadings.START_MILLIS;
+    private static final int BUDGET = 1000;
+
+    private static SensorSeries hourly(long from, long to) {
+        SensorSeries series = new SensorSeries();
+        for (long t = from; t <= to; t += HOUR) {
+            int row = series.appendRow();
+            series.setTime(row, t);
+            series.setValue(Metric.PM25, row, 1f);
+        }
+        return series;
+    }
+
+    @Test
+    public void plan_rawOverviewNeverRefetches() {
+        ViewportDetail detail = new ViewportDetail(new SensorSeries(), null);
+        assertNull(detail.plan(START, START + HOUR, BUDGET));
+    }
+
+    @Test
+    public void plan_zoomingIntoYearOverviewRequestsFinerWindowWithMargin() {
+        long yearEnd = START + 365 * DAY;
+        RollupLevel overviewLevel = RollupLevel.choose(365 * DAY, BUDGET);
+        ViewportDetail detail = new ViewportDetail(hourly(START, yearEnd), overviewLevel);
+
+        // Az egész év látszik: az áttekintő elég.
+        assertNull(detail.plan(START, yearEnd, BUDGET));
+
+        // Egy órára nagyítva nyers adat kell, a látható szélesség felével mindkét oldalon.
+        long from = START + 100 * DAY;
+        ViewportDetail.Request request = detail.plan(from, from + HOUR, BUDGET);
+        assertNotNull(request);
+        assertNull(request.level);
+        assertEquals(from - HOUR / 2, request.fromMillis);
+        assertEquals(from + HOUR + HOUR / 2, request.toMillis);
+    }
+
+    @Test
+    public void apply_splicesDetailAndSkipsCoveredViewports() {
+        long yearEnd = START + 365 * DAY;
+        SensorSeries overview = hourly(START, yearEnd);
+        ViewportDetail detail = new ViewportDetail(overview, RollupLevel.HOUR);
+        long from = START + 10 * DAY;
+        ViewportDetail.Request request = detail.plan(from, from + 2 * HOUR, BUDGET);
+
+        SensorSeries raw = new SensorSeries();
+        for (long t = request.fromMillis; t <= request.toMillis; t += PMSensor.UPLOAD_INTERVAL_MILLIS) {
+            raw.setTime(raw.appendRow(), t);
+        }
+        SensorSeries spliced = detail.apply(request, raw);
+
+        assertSame(spliced, detail.current());
+        int first = spliced.lowerBound(request.fromMillis);
+        assertEquals(raw.size(), spliced.lowerBound(request.toMillis + 1) - first);
+        assertEquals(overview.size() - overview.slice(request.fromMillis, request.toMillis).size() + raw.size(),
+                spliced.size());
+
+        // Kis húzás a lefedett ablakon belül: nincs új kérés; kívülre húzva van.
+        assertNull(detail.plan(from + HOUR / 2, from + 2 * HOUR + HOUR / 2, BUDGET));
+        assertNotNull(detail.plan(from + 5 * HOUR, from + 7 * HOUR, BUDGET));
+    }
+}
@@ -0,0 +1,84 @@
+plugins {
+    java
+}
+
+// Host JVM-en futó JMH mérések az app Android-független adatútjára (dekódolás, időbélyegek,
+// diagrampontok, riasztások, szenzorhibák, napi szegmensek, átviteli formátumok,
+// kapcsolat-újrahasznosítás, párhuzamos letöltés).
+// Futtatás: ./gradlew :benchmark:jmh [-Pjmh="ChartEntry -p readings=100000"]
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+// Az android.content.Context és az R fordítási csonkja: a SupabaseClient.getInstance aláírásához
+// kellenek, futás közben nem töltődnek be.
+val androidStubs: SourceSet by sourceSets.creating
+
+// Az app forrásainak Android-mentes része, változatlanul fordítva, és a tesztekkel közös
+// szintetikus adatgenerátor.
+val pipeline: SourceSet by sourceSets.creating {
+    java {
+        srcDir("../app/src/main/java")
+        srcDir("../app/src/test/java")
+        include(
+            "com/example/pmsensor/PMSensor.java",
+            "com/example/pmsensor/SensorColumn.java",
+            "com/example/pmsensor/Metric.java",
+            "com/example/pmsensor/SensorSeries.java",
+            "com/example/pmsensor/TimeCodec.java",
+            "com/example/pmsensor/PerfMetrics.java",
+            "com/example/pmsensor/KllSketch.java",
+            "com/example/pmsensor/SensorJsonDecoder.java",
+            "com/example/pmsensor/SensorCsvDecoder.java",
+            "com/example/pmsensor/SensorProjection.java",
+            "com/example/pmsensor/Downsampler.java",
+            "com/example/pmsensor/AlertRule.java",
+            "com/example/pmsensor/AlertEngine.java",
+            "com/example/pmsensor/DerivedMetrics.java",
+            "com/example/pmsensor/FaultDetector.java",
+            "com/example/pmsensor/DayChunkCache.java",
+            "com/example/pmsensor/SegmentCodec.java",
+            "com/example/pmsensor/SegmentStore.java",
+            "com/example/pmsensor/FetchToken.java",
+            "com/example/pmsensor/TrafficInterceptor.java",
+            "com/example/pmsensor/RollupLevel.java",
+            "com/example/pmsensor/SensorQuery.java",
+            "com/example/pmsensor/SupabaseClient.java",
+            "com/example/pmsensor/FetchScope.java",
+            "com/example/pmsensor/ParallelRangeFetcher.java",
+            "com/example/pmsensor/SyntheticReadings.java"
+        )
+    }
+}
+
+dependencies {
+    "pipelineImplementation"("org.json:json:20231013")
+    "pipelineImplementation"("com.squareup.okio:okio:3.6.0")
+    "pipelineImplementation"("com.squareup.okhttp3:mockwebserver:4.12.0")
+    "pipelineCompileOnly"(androidStubs.output)
+
+    implementation(pipeline.output)
+    implementation("org.json:json:20231013")
+    implementation("com.squareup.okio:okio:3.6.0")
+    implementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+    implementation("com.squareup.okhttp3:okhttp-tls:4.12.0")
+    implementation(libs.jmh.core)
+    annotationProcessor(libs.jmh.generator.annprocess)
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Lefuttatja a JMH méréseket."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    // A 10M soros sorozat kb. 520 MB.
+    jvmArgs("-Xmx3g")
+    val jmhArgs = (project.findProperty("jmh") as String?) ?: ""
+    args(jmhArgs.split(" ").filter { it.isNotBlank() })
+}
@@ -0,0 +1,10 @@
+package android.content;
+
+/**
+ * Fordítási csonk: a SupabaseClient.getInstance aláírásához kell, a mérések nem hívják.
+ */
+public abstract class Context {
+    public abstract Context getApplicationContext();
+
+    public abstract String getString(int resId);
+}
@@ -0,0 +1,12 @@
+package com.example.pmsensor;
+
+/**
+ * Fordítási csonk az app generált R osztályának azon erőforrásaihoz, amelyekre a pipeline
+ * forrásai hivatkoznak; futás közben nem töltődik be.
+ */
+public final class R {
+    public static final class string {
+        public static final int supabase_url = 0;
+        public static final int supabase_key = 0;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Riasztások kiértékelése mérésenként az app szabályaival (res/raw/alert_rules.json),
+ * a futások közötti állapotmentéssel együtt, a korábbi egyszerű küszöbvizsgálathoz mérve.
+ * Az átlag-szabályok jelét a DerivedMetrics adja, ezért annak frissítése is a mérés része.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlertBenchmark {
+
+    private static final int READINGS = 10_000;
+    private static final String RULES_PATH = "../app/src/main/res/raw/alert_rules.json";
+
+    private PMSensor[] readings;
+    private AlertEngine engine;
+
+    @Setup
+    public void setUp() throws IOException {
+        readings = SyntheticReadings.readings(READINGS);
+        List<AlertRule> rules = AlertRule.parseAll(
+                new String(Files.readAllBytes(Paths.get(RULES_PATH)), StandardCharsets.UTF_8));
+        engine = new AlertEngine(rules);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void ruleEngine(Blackhole bh) {
+        AlertEngine.State[] states = new AlertEngine.State[engine.rules().size()];
+        for (int i = 0; i < states.length; i++) states[i] = new AlertEngine.State();
+        DerivedMetrics derived = new DerivedMetrics();
+        for (PMSensor reading : readings) {
+            derived.update(reading);
+            bh.consume(engine.evaluate(reading.measureMillis, reading, states, 0, derived.snapshot()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void ruleEngineWithPersistedState(Blackhole bh) {
+        // Háttérfeladat-szerű futás: minden mérés előtt visszatöltött, utána elmentett állapot.
+        String[] saved = new String[engine.rules().size()];
+        AlertEngine.State[] states = new AlertEngine.State[saved.length];
+        DerivedMetrics derived = new DerivedMetrics();
+        for (PMSensor reading : readings) {
+            for (int i = 0; i < states.length; i++) states[i] = AlertEngine.State.decode(saved[i]);
+            derived.update(reading);
+            bh.consume(engine.evaluate(reading.measureMillis, reading, states, 0, derived.snapshot()));
+            for (int i = 0; i < states.length; i++) saved[i] = states[i].encode();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void fixedThresholds(Blackhole bh) {
+        for (PMSensor reading : readings) {
+            bh.consume(reading.PM2_5 > 35.0f);
+            bh.consume(reading.PM10 > 50.0f);
+        }
+    }
+}
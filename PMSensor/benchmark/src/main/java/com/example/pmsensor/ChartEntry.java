@@ -0,0 +1,17 @@
+package com.example.pmsensor;
+
+/**
+ * Az MPAndroidChart Entry JVM-en is betölthető megfelelője (az eredeti Parcelable, így Android
+ * nélkül nem példányosítható): ugyanazok a mezők, így a foglalás mérete is azonos.
+ */
+final class ChartEntry {
+    float x;
+    float y;
+    Object data;
+    Object icon;
+
+    ChartEntry(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+}
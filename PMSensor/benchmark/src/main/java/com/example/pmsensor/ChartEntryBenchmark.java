@@ -0,0 +1,79 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Egy diagram pontlistájának felépítése úgy, ahogy a GraphActivity setupChart / buildEntries teszi:
+ * minden sorból pont (a korábbi út), illetve LTTB mintavétel a diagram szélességére,
+ * teljes nézetben és egy 1%-os nagyított ablakra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChartEntryBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int readings;
+
+    @Param({"1080"})
+    int pointBudget;
+
+    private SensorSeries series;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        series = SyntheticReadings.series(readings);
+    }
+
+    @Benchmark
+    public ArrayList<ChartEntry> allPoints() {
+        long timeBase = series.timeAt(0);
+        ArrayList<ChartEntry> entries = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            entries.add(new ChartEntry(series.timeAt(i) - timeBase, series.valueAt(Metric.PM25, i)));
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public ArrayList<ChartEntry> downsampledFullView() {
+        return buildEntries(0, series.size());
+    }
+
+    @Benchmark
+    public ArrayList<ChartEntry> downsampledZoomedWindow() {
+        int width = Math.max(1, series.size() / 100);
+        int from = series.size() / 2;
+        return buildEntries(from, from + width);
+    }
+
+    // A GraphActivity.buildEntries megfelelője.
+    private ArrayList<ChartEntry> buildEntries(int windowFrom, int windowTo) {
+        long[] times = series.times();
+        float[] values = series.values(Metric.PM25);
+        int[] indices = Downsampler.forViewport(times, values, series.size(), windowFrom, windowTo, pointBudget);
+        long timeBase = times[0];
+        ArrayList<ChartEntry> entries = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            entries.add(new ChartEntry(times[index] - timeBase, values[index]));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+/**
+ * Egy fetchLatest hívás késleltetése egy helyi, TLS-t beszélő MockWebServer ellen: a folyamatszintű,
+ * közös kliens (újrahasznosított kapcsolat és TLS session) a hívásonként új klienssel szemben, amely
+ * minden kérésnél új TCP kapcsolatot és teljes TLS kézfogást fizet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionReuseBenchmark {
+
+    private MockWebServer server;
+    private HandshakeCertificates clientCertificates;
+    private String baseUrl;
+    private SupabaseClient shared;
+
+    @Setup
+    public void setUp() throws IOException {
+        HeldCertificate localhost = new HeldCertificate.Builder()
+                .addSubjectAlternativeName("localhost")
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(localhost)
+                .build();
+        clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(localhost.certificate())
+                .build();
+
+        String row = SyntheticReadings.jsonPage(0, 1);
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(row);
+            }
+        });
+        server.start();
+        baseUrl = server.url("/").toString();
+        shared = new SupabaseClient(baseUrl, "bench-key", newHttpClient());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        release(shared.httpClient());
+        server.shutdown();
+    }
+
+    private OkHttpClient newHttpClient() {
+        return SupabaseClient.createHttpClient().newBuilder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+                .build();
+    }
+
+    private static void release(OkHttpClient client) {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    @Benchmark
+    public PMSensor sharedClient() throws IOException {
+        return shared.fetchLatest();
+    }
+
+    @Benchmark
+    public PMSensor newClientPerCall() throws IOException {
+        OkHttpClient client = newHttpClient();
+        try {
+            return new SupabaseClient(baseUrl, "bench-key", client).fetchLatest();
+        } finally {
+            release(client);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.pmsensor;
+
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+
+/**
+ * Egy PostgREST oldal dekódolása: org.json -> PMSensor lista (SupabaseClient.fetch) és
+ * streamelt dekódolás oszlopos sorozatba (SupabaseClient.fetchInto).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"100", "1000"})
+    int pageRows;
+
+    private byte[] page;
+    private SensorSeries series;
+    private final SensorJsonDecoder decoder = new SensorJsonDecoder();
+
+    @Setup
+    public void setUp() {
+        page = SyntheticReadings.jsonPage(0, pageRows).getBytes(StandardCharsets.UTF_8);
+        series = new SensorSeries(pageRows);
+    }
+
+    @Benchmark
+    public List<PMSensor> orgJsonToPMSensor() {
+        JSONArray array = new JSONArray(new String(page, StandardCharsets.UTF_8));
+        List<PMSensor> rows = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            rows.add(PMSensor.fromJson(array.getJSONObject(i)));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public SensorSeries streamingToSeries() throws IOException {
+        series.clear();
+        decoder.decode(new Buffer().write(page), series);
+        return series;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A szenzorhiba-detektor egy teljes betöltött időszakon, ahogy a GraphViewModel futtatja:
+ * 1, 3 és 12 hónapnyi nyers sor. A sorozatba 500 soronként tüske, 5000 soronként beragadt
+ * szakasz kerül; a találatokat a {@link Findings} mellékeredményei mutatják.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FaultDetectorBenchmark {
+
+    @Param({"8640", "25920", "105120"})
+    int readings;
+
+    private SensorSeries series;
+    private int spikes;
+    private int pm25Spikes;
+    private int stuck;
+    private int gaps;
+
+    @Setup
+    public void setUp() {
+        series = SyntheticReadings.series(readings);
+        for (int row = 250; row < readings; row += 500) {
+            series.setValue(Metric.PM25, row, series.valueAt(Metric.PM25, row) + 300);
+        }
+        for (int row = 2500; row + 30 < readings; row += 5000) {
+            for (int i = 0; i < 30; i++) {
+                series.setValue(Metric.HUMIDITY, row + i, 55.5f);
+            }
+        }
+        SensorSeries copy = new SensorSeries(readings);
+        copy.appendAll(series);
+        FaultDetector.Report report = new FaultDetector().clean(copy);
+        spikes = sum(report.spikes);
+        pm25Spikes = report.spikes(Metric.PM25);
+        stuck = sum(report.stuck);
+        gaps = report.gaps;
+    }
+
+    private static int sum(int[] values) {
+        int total = 0;
+        for (int value : values) total += value;
+        return total;
+    }
+
+    /**
+     * A teljes időszak tisztításának (FaultDetector.clean) találatai.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Findings {
+        public int spikes;
+        public int pm25Spikes;
+        public int stuck;
+        public int gaps;
+    }
+
+    @Benchmark
+    public int detect(Findings findings) {
+        FaultDetector detector = new FaultDetector();
+        int faulty = 0;
+        for (int row = 0; row < series.size(); row++) {
+            faulty |= detector.check(series, row);
+        }
+        findings.spikes = spikes;
+        findings.pm25Spikes = pm25Spikes;
+        findings.stuck = stuck;
+        findings.gaps = gaps;
+        return faulty;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+
+/**
+ * A letöltéstől a diagramig tartó költség hálózat nélkül: readings/1000 oldal dekódolása,
+ * majd a hét diagram pontlistájának felépítése a diagram szélességére mintavételezve.
+ * Memóriatakarékosság miatt legfeljebb 100 különböző oldalt generálunk, ezeket ismételjük.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final int PAGE_ROWS = 1000;
+    private static final int DISTINCT_PAGES = 100;
+    private static final Metric[] CHART_METRICS = {
+            Metric.TEMPERATURE, Metric.HUMIDITY, Metric.PM25, Metric.PM10,
+            Metric.UV, Metric.LIGHT_QUANTITY, Metric.ATMOSPHERIC_PRESSURE
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    int readings;
+
+    @Param({"1080"})
+    int pointBudget;
+
+    private byte[][] pages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int count = Math.min(DISTINCT_PAGES, (readings + PAGE_ROWS - 1) / PAGE_ROWS);
+        pages = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            pages[i] = SyntheticReadings.jsonPage(i * PAGE_ROWS, PAGE_ROWS).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public int fetchToChart() throws IOException {
+        SensorSeries series = new SensorSeries(readings);
+        SensorJsonDecoder decoder = new SensorJsonDecoder();
+        for (int page = 0; page * PAGE_ROWS < readings; page++) {
+            decoder.decode(new Buffer().write(pages[page % pages.length]), series);
+        }
+
+        int points = 0;
+        long[] times = series.times();
+        long timeBase = times[0];
+        for (Metric metric : CHART_METRICS) {
+            float[] values = series.values(metric);
+            int[] indices = Downsampler.forViewport(times, values, series.size(), 0, series.size(), pointBudget);
+            ArrayList<ChartEntry> entries = new ArrayList<>(indices.length);
+            for (int index : indices) {
+                entries.add(new ChartEntry(times[index] - timeBase, values[index]));
+            }
+            points += entries.size();
+        }
+        return points;
+    }
+}
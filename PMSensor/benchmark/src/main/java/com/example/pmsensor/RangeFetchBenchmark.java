@@ -0,0 +1,99 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Egy days napos nyers időszak letöltése egy késleltetett, sávszélességben korlátozott MockWebServer
+ * ellen: egyetlen lekérdezés offset alapú lapozással, illetve a ParallelRangeFetcher szeletei a közös
+ * FetchScope készleten, a HistoryRepository szeletméretével. A szerver minden választ latencyMillis
+ * után kezd küldeni, és kapcsolatonként kb. 1 Mbit/s-mal adja.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class RangeFetchBenchmark {
+
+    private static final int ROWS_PER_DAY = (int) (DayChunkCache.DAY_MILLIS / SyntheticReadings.INTERVAL_MILLIS);
+    // Kapcsolatonként 12,5 KB 100 ms-onként.
+    private static final long THROTTLE_BYTES = 12_800;
+    private static final long THROTTLE_PERIOD_MILLIS = 100;
+    private static final long RAW_SLICE_MILLIS =
+            ParallelRangeFetcher.PAGE_SIZE * 9 / 10 * SyntheticReadings.INTERVAL_MILLIS;
+
+    @Param({"7", "30"})
+    int days;
+
+    @Param({"50", "200"})
+    int latencyMillis;
+
+    private MockWebServer server;
+    private ParallelRangeFetcher sequential;
+    private ParallelRangeFetcher parallel;
+    private long fromMillis;
+    private long toMillis;
+
+    @Setup
+    public void setUp() throws IOException {
+        int rows = days * ROWS_PER_DAY;
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return SyntheticReadings.rangeResponse(request, rows)
+                        .setBodyDelay(latencyMillis, TimeUnit.MILLISECONDS)
+                        .throttleBody(THROTTLE_BYTES, THROTTLE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        SupabaseClient supabase = new SupabaseClient(server.url("/").toString(), "bench-key");
+        sequential = new ParallelRangeFetcher(supabase, Runnable::run, 1);
+        parallel = new ParallelRangeFetcher(supabase, FetchScope.sharedExecutor(), FetchScope.POOL_SIZE);
+        fromMillis = SyntheticReadings.timeOf(0);
+        toMillis = SyntheticReadings.timeOf(rows - 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private static SensorQuery rawQuery() {
+        return new SensorQuery()
+                .select(SensorProjection.HISTORY.columns())
+                .orderBy(SensorColumn.MEASURE_TIME, true)
+                .orderBy(SensorColumn.ID, true);
+    }
+
+    @Benchmark
+    public SensorSeries sequentialPaging() throws IOException {
+        // Egyetlen szelet: lapról lapra, mindig az előző válasz után.
+        return sequential.fetch(RangeFetchBenchmark::rawQuery, fromMillis, toMillis, toMillis - fromMillis + 1);
+    }
+
+    @Benchmark
+    public SensorSeries parallelSlices() throws IOException {
+        return parallel.fetch(RangeFetchBenchmark::rawQuery, fromMillis, toMillis, RAW_SLICE_MILLIS);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+
+/**
+ * A napi szegmensek (SegmentCodec, SegmentStore): egy nap kódolása, és days nap visszaolvasása
+ * memóriából, illetve memóriába képzett fájlokból. Az adat a PostgREST oldalakon át dekódolt,
+ * vagyis a szerver kerekítését viselő sorozat; a kódolt nap mérete és tömörítési aránya az encodeDay
+ * {@link SegmentSize} mellékeredményeiben jelenik meg.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentBenchmark {
+
+    private static final int ROWS_PER_DAY = (int) (DayChunkCache.DAY_MILLIS / SyntheticReadings.INTERVAL_MILLIS);
+    // Soronként ID, idő és a metrikák nyersen.
+    private static final int RAW_ROW_BYTES = 8 + 8 + 4 * Metric.count();
+
+    @Param({"1", "30", "90"})
+    int days;
+
+    private SensorSeries[] daySeries;
+    private ByteBuffer[] encoded;
+    private File directory;
+    private SegmentStore store;
+    private SensorSeries out;
+
+    @Setup
+    public void setUp() throws IOException {
+        SensorJsonDecoder decoder = new SensorJsonDecoder();
+        daySeries = new SensorSeries[days];
+        encoded = new ByteBuffer[days];
+        directory = Files.createTempDirectory("segments").toFile();
+        store = new SegmentStore(directory);
+        for (int d = 0; d < days; d++) {
+            daySeries[d] = new SensorSeries(ROWS_PER_DAY);
+            decoder.decode(new Buffer().writeUtf8(SyntheticReadings.jsonPage(d * ROWS_PER_DAY, ROWS_PER_DAY)), daySeries[d]);
+            byte[] bytes = SegmentCodec.encode(daySeries[d]);
+            encoded[d] = ByteBuffer.wrap(bytes);
+            store.write(d, daySeries[d]);
+        }
+        out = new SensorSeries(days * ROWS_PER_DAY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * A kódolt nap mérete soronként, és a nyers oszlopos alakhoz mért tömörítési arány.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SegmentSize {
+        public double bytesPerRow;
+        public double compressionRatio;
+    }
+
+    @Benchmark
+    public byte[] encodeDay(SegmentSize size) {
+        byte[] bytes = SegmentCodec.encode(daySeries[0]);
+        size.bytesPerRow = bytes.length / (double) daySeries[0].size();
+        size.compressionRatio = RAW_ROW_BYTES / size.bytesPerRow;
+        return bytes;
+    }
+
+    @Benchmark
+    public SensorSeries decodeFromMemory() throws IOException {
+        out.clear();
+        for (ByteBuffer buffer : encoded) {
+            SegmentCodec.decode(buffer, Long.MIN_VALUE, Long.MAX_VALUE, out);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public SensorSeries readMappedFiles() {
+        out.clear();
+        for (int d = 0; d < days; d++) {
+            store.read(d, Long.MIN_VALUE, Long.MAX_VALUE, out);
+        }
+        return out;
+    }
+}
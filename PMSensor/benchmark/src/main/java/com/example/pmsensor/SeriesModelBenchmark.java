@@ -0,0 +1,82 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hét diagram X/Y adatának előállítása a korábbi PMSensor-tömbből (diagramonként újra
+ * parse-olt időbélyegekkel) és a SensorSeries oszlopaiból. A megtartott memória különbségét
+ * a -prof gc foglalási adatai mutatják.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeriesModelBenchmark {
+
+    private static final int CHARTS = 7;
+
+    @Param({"10000", "100000"})
+    int readings;
+
+    private PMSensor[] objects;
+    private SensorSeries columns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objects = SyntheticReadings.readings(readings);
+        columns = SyntheticReadings.series(readings);
+    }
+
+    @Benchmark
+    public float objectsWithParsing() throws ParseException {
+        float checksum = 0;
+        for (int chart = 0; chart < CHARTS; chart++) {
+            SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+            parser.setTimeZone(TimeZone.getTimeZone("UTC"));
+            float[] xy = new float[2 * objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                PMSensor sensor = objects[i];
+                xy[2 * i] = parser.parse(sensor.measureTime.substring(0, 19)).getTime();
+                xy[2 * i + 1] = sensor.temperature;
+            }
+            checksum += xy[xy.length - 1];
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public float columnarSeries() {
+        float checksum = 0;
+        for (int chart = 0; chart < CHARTS; chart++) {
+            long[] times = columns.times();
+            float[] values = columns.values(Metric.TEMPERATURE);
+            long base = times[0];
+            float[] xy = new float[2 * columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                xy[2 * i] = times[i] - base;
+                xy[2 * i + 1] = values[i];
+            }
+            checksum += xy[xy.length - 1];
+        }
+        return checksum;
+    }
+}
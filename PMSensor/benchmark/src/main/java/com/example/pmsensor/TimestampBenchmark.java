@@ -0,0 +1,84 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure_time értelmezése és a diagramfeliratok formázása: TimeCodec a korábbi
+ * SimpleDateFormat / java.time alapú megoldásokkal szemben. Az eredmény ns / időbélyeg.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampBenchmark {
+
+    private static final int COUNT = 1000;
+
+    private final String[] timestamps = new String[COUNT];
+    private final long[] millis = new long[COUNT];
+    private SimpleDateFormat parser;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < COUNT; i++) {
+            millis[i] = SyntheticReadings.timeOf(i);
+            timestamps[i] = SyntheticReadings.isoTime(millis[i]);
+        }
+        parser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+        parser.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void parseTimeCodec(Blackhole bh) {
+        for (String s : timestamps) bh.consume(TimeCodec.parseIsoMillis(s));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void parseSimpleDateFormat(Blackhole bh) throws ParseException {
+        for (String s : timestamps) bh.consume(parser.parse(s).getTime());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void parseLocalDateTime(Blackhole bh) {
+        for (String s : timestamps) bh.consume(java.time.LocalDateTime.parse(s.substring(0, 19)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void formatLabelTimeCodec(Blackhole bh) {
+        for (long m : millis) bh.consume(TimeCodec.formatChartLabel(m));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void formatLabelSimpleDateFormatPerCall(Blackhole bh) {
+        for (long m : millis) {
+            SimpleDateFormat sdf = new SimpleDateFormat("MM.dd HH:mm", Locale.US);
+            sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+            bh.consume(sdf.format(new Date(m)));
+        }
+    }
+}
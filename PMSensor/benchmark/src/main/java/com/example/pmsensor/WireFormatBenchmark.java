@@ -0,0 +1,91 @@
+package com.example.pmsensor;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import okio.Buffer;
+
+/**
+ * Egy hónapnyi nyers adat (30 nap, 5 percenként) a vezetéken: select=* és a felhasználónkénti
+ * vetületek, JSON és text/csv formátumban. A mérés a dekódolás ideje; a soronkénti bájtszám
+ * (tömörítetlenül és gzip-pel, ahogy az OkHttp kéri) a {@link WireSize} mellékeredményeiben jelenik meg.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final int MONTH_ROWS = (int) (30 * DayChunkCache.DAY_MILLIS / SyntheticReadings.INTERVAL_MILLIS);
+
+    @Param({"ALL", "HISTORY", "CHART"})
+    String projection;
+
+    @Param({"JSON", "CSV"})
+    String format;
+
+    private byte[] body;
+    private int gzipBytes;
+    private SensorSeries series;
+    private final SensorJsonDecoder jsonDecoder = new SensorJsonDecoder();
+    private final SensorCsvDecoder csvDecoder = new SensorCsvDecoder();
+
+    @Setup
+    public void setUp() throws IOException {
+        SensorColumn[] columns;
+        switch (projection) {
+            case "ALL": columns = SensorColumn.values(); break;
+            case "HISTORY": columns = SensorProjection.HISTORY.columns(); break;
+            default: columns = SensorProjection.chart(Metric.PM25); break;
+        }
+        body = SyntheticReadings.page(0, MONTH_ROWS, columns, format.equals("CSV")).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        gzipBytes = compressed.size();
+        series = new SensorSeries(MONTH_ROWS);
+    }
+
+    /**
+     * A dekódolt választörzs mérete soronként, tömörítetlenül és gzip-pel.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+        public double bytesPerRow;
+        public double gzipBytesPerRow;
+    }
+
+    @Benchmark
+    public SensorSeries decode(WireSize size) throws IOException {
+        series.clear();
+        Buffer source = new Buffer().write(body);
+        if (format.equals("CSV")) {
+            csvDecoder.decode(source, series);
+        } else {
+            jsonDecoder.decode(source, series);
+        }
+        size.bytesPerRow = body.length / (double) series.size();
+        size.gzipBytesPerRow = gzipBytes / (double) series.size();
+        return series;
+    }
+}
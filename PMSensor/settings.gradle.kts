@@ -22,4 +22,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "PMSensor"
 include(":app")
+include(":benchmark")
  
\ No newline at end of file